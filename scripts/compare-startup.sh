@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Compares cold start and resident memory of the headless planning service
+# on the JVM and as a native executable, both against the stub LLM.
+#
+#   ./mvnw clean package -DskipTests
+#   ./mvnw -Pnative native:compile -DskipTests -Dnative.profiles=headless,stub-llm
+#   scripts/compare-startup.sh [runs]
+#
+# For each run: milliseconds until /actuator/health answers UP, RSS at that
+# point, and RSS after one POST /api/plans. Prints the median of each.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+JAR=$(ls target/dump2plan-*.jar | grep -v plain | head -1)
+NATIVE=target/dump2plan-headless
+BODY='{"brainDump":"We need a customer portal with SSO, invoices and a ticket form.",
+       "context":{"timeline":"3 months","teamSize":"3","budgetConstraints":"none","additionalContext":""}}'
+
+rss_mb() {
+  awk '/VmRSS/ { printf "%d", $2 / 1024 }' "/proc/$1/status"
+}
+
+now_ms() {
+  date +%s%3N
+}
+
+measure() {
+  local name=$1; shift
+  local ready=() rss=() planned=()
+  for _ in $(seq "$RUNS"); do
+    local start pid
+    start=$(now_ms)
+    "$@" --server.port="$PORT" --spring.profiles.active=headless,stub-llm \
+      --dump2plan.stub-llm.median-latency=1ms --dump2plan.stub-llm.p99-latency=1ms >/dev/null 2>&1 &
+    pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health" | grep -q UP; do
+      sleep 0.01
+    done
+    ready+=($(( $(now_ms) - start )))
+    rss+=($(rss_mb "$pid"))
+    curl -sf -H 'Content-Type: application/json' -d "$BODY" "http://localhost:$PORT/api/plans" >/dev/null
+    planned+=($(rss_mb "$pid"))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+  done
+  printf '%-8s ready %6s ms   rss %5s MB   rss after plan %5s MB\n' "$name" \
+    "$(median "${ready[@]}")" "$(median "${rss[@]}")" "$(median "${planned[@]}")"
+}
+
+median() {
+  printf '%s\n' "$@" | sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }'
+}
+
+measure jvm java -jar "$JAR"
+if [ -x "$NATIVE" ]; then
+  measure native "$NATIVE"
+else
+  echo "native   skipped: $NATIVE not built"
+fi
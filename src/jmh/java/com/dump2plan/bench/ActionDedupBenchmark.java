@@ -0,0 +1,57 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.Dump2PlanProperties.DedupConfig;
+import com.dump2plan.TestProperties;
+import com.dump2plan.similarity.ActionDeduplicator;
+import com.dump2plan.similarity.ActionDeduplicator.Deduplication;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deduplication over the task titles and descriptions of a synthetic plan,
+ * in which titles repeat heavily and descriptions mostly differ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionDedupBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int actions;
+
+    private List<String> input;
+    private ActionDeduplicator deduplicator;
+
+    @Setup
+    public void setUp() {
+        var tasks = SyntheticPayloads.plan(actions).tasks();
+        input = new ArrayList<>(actions);
+        for (int i = 0; i < actions; i++) {
+            var task = tasks.get(i);
+            input.add(i % 2 == 0 ? task.title() : task.description());
+        }
+        deduplicator = new ActionDeduplicator(TestProperties.builder().dedup(new DedupConfig(true, 0.7)).build());
+    }
+
+    @Benchmark
+    public Deduplication deduplicate() {
+        return deduplicator.deduplicate(input);
+    }
+}
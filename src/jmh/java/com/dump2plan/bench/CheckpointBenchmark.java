@@ -0,0 +1,89 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.checkpoint.CheckpointLog;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of checkpointing an action's output. {@code append} is what a
+ * planning action waits for; {@code appendDurably} additionally waits for
+ * the batch holding the entry to be fsynced, i.e. the crash-safety lag.
+ * Runs complete every fourth step so compaction keeps the log small.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CheckpointBenchmark {
+
+    @Param({"1", "5"})
+    public int flushMillis;
+
+    private final AtomicLong steps = new AtomicLong();
+    private Path dir;
+    private CheckpointLog log;
+    private ExtractedIdeas ideas;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("dump2plan-checkpoints");
+        log = new CheckpointLog(dir.resolve("checkpoints.wal"), Duration.ofMillis(flushMillis),
+            8 << 20, Duration.ofHours(1));
+        ideas = SyntheticPayloads.ideas("We need a customer portal with SSO, a ticket form and billing.");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        try (var files = Files.list(dir)) {
+            for (var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public void append() {
+        checkpoint();
+    }
+
+    @Benchmark
+    public void appendDurably() {
+        checkpoint();
+        log.flush().join();
+    }
+
+    private void checkpoint() {
+        long step = steps.getAndIncrement();
+        var runId = "run-" + (step >> 2);
+        log.append(runId, "alice", "IDEAS", ideas);
+        if ((step & 3) == 3) {
+            log.complete(runId);
+        }
+    }
+}
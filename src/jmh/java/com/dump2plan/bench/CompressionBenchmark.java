@@ -0,0 +1,120 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.compression.RecordCompressor;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.search.PlanIndex;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record compression of assistant replies (plans rendered as Markdown,
+ * 1 to 10 KB) with the bundled session dictionary and without one, and
+ * reads of stored plans from a block-compressed, memory-mapped index
+ * segment, which does not depend on the dictionary parameter. The
+ * compression ratio of each variant is logged once at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressionBenchmark.class);
+
+    private static final int RECORDS = 64;
+    private static final int PLANS = 20_000;
+
+    @Param({"session", "none"})
+    public String dictionary;
+
+    private RecordCompressor compressor;
+    private final List<byte[]> records = new ArrayList<>(RECORDS);
+    private final List<byte[]> compressed = new ArrayList<>(RECORDS);
+    private Path dir;
+    private PlanIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        compressor = dictionary.equals("session")
+            ? RecordCompressor.fromResource("compression/session-v1.dict", 6)
+            : new RecordCompressor(new byte[0], 6);
+        var export = new PlanExportService();
+        long raw = 0;
+        long stored = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            var record = export.exportToMarkdown(SyntheticPayloads.plan(3 + i)).getBytes(StandardCharsets.UTF_8);
+            records.add(record);
+            compressed.add(compressor.compress(record));
+            raw += record.length;
+            stored += compressed.getLast().length;
+        }
+        log.info("{} dictionary: {} bytes of replies stored in {} ({}x)",
+            dictionary, raw, stored, String.format("%.1f", (double) raw / stored));
+
+        dir = Files.createTempDirectory("dump2plan-compression");
+        index = new PlanIndex(dir, PLANS, Duration.ofHours(1), 10);
+        var saved = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < PLANS; i++) {
+            var plan = SyntheticPayloads.plan(5 + i % 40);
+            index.add("user-" + (i % 20), new StructuredPlan(plan.title() + " #" + i, plan.summary(),
+                plan.milestones(), plan.tasks(), plan.estimatedDuration(), plan.risks(), plan.assumptions()), saved);
+        }
+        index.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        try (var files = Files.list(dir)) {
+            for (var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public byte[] compressReply() {
+        return compressor.compress(records.get(next++ & (RECORDS - 1)));
+    }
+
+    @Benchmark
+    public byte[] decompressReply() {
+        int i = next++ & (RECORDS - 1);
+        return compressor.decompress(compressed.get(i), records.get(i).length);
+    }
+
+    @Benchmark
+    public StructuredPlan readStoredPlan() {
+        int id = (int) ((next++ * 7919L) % PLANS);
+        return index.plan(null, id);
+    }
+}
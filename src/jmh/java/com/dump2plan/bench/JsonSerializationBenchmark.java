@@ -0,0 +1,74 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact Jackson round trip of {@link StructuredPlan}, the shape the LLM
+ * returns and that storage will persist, through a plain per-component
+ * {@link ObjectMapper} and through the shared {@link ModelJson} readers and
+ * writers. Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int taskCount;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter sharedWriter;
+    private ObjectReader sharedReader;
+    private StructuredPlan plan;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        sharedWriter = ModelJson.writer(StructuredPlan.class);
+        sharedReader = ModelJson.reader(StructuredPlan.class);
+        plan = SyntheticPayloads.plan(taskCount);
+        json = objectMapper.writeValueAsBytes(plan);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(plan);
+    }
+
+    @Benchmark
+    public StructuredPlan deserialize() throws Exception {
+        return objectMapper.readValue(json, StructuredPlan.class);
+    }
+
+    @Benchmark
+    public byte[] sharedSerialize() throws Exception {
+        return sharedWriter.writeValueAsBytes(plan);
+    }
+
+    @Benchmark
+    public StructuredPlan sharedDeserialize() throws Exception {
+        return sharedReader.readValue(json);
+    }
+}
@@ -0,0 +1,46 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.dump2plan.vaadin.ChatMessageBubble;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChatMessageBubble#renderMarkdown} over a plan exported as Markdown,
+ * which is what an assistant message looks like when it echoes a plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownRenderingBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int taskCount;
+
+    private String markdown;
+
+    @Setup
+    public void setUp() {
+        markdown = new PlanExportService().exportToMarkdown(SyntheticPayloads.plan(taskCount));
+    }
+
+    @Benchmark
+    public String renderMarkdown() {
+        return ChatMessageBubble.renderMarkdown(markdown);
+    }
+}
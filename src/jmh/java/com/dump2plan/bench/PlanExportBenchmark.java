@@ -0,0 +1,49 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanExportBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int taskCount;
+
+    private PlanExportService exportService;
+    private StructuredPlan plan;
+
+    @Setup
+    public void setUp() {
+        exportService = new PlanExportService();
+        plan = SyntheticPayloads.plan(taskCount);
+    }
+
+    @Benchmark
+    public String exportMarkdown() {
+        return exportService.exportToMarkdown(plan);
+    }
+
+    @Benchmark
+    public String exportJson() {
+        return exportService.exportToJson(plan);
+    }
+}
@@ -0,0 +1,82 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.diff.PlanDiff;
+import com.dump2plan.diff.PlanDiffer;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.dump2plan.vaadin.PlanRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side component tree construction in {@link PlanRenderer}; no UI is
+ * attached, so this measures the Java side only, not the client sync.
+ * {@code applyDiff} updates an existing tree for a re-plan that changed one
+ * task in a hundred, alternating between the two versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanRendererBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int taskCount;
+
+    private StructuredPlan plan;
+    private StructuredPlan revised;
+    private PlanDiff forward;
+    private PlanDiff back;
+    private PlanRenderer renderer;
+    private boolean showingRevised;
+
+    @Setup
+    public void setUp() {
+        plan = SyntheticPayloads.plan(taskCount);
+        var tasks = new ArrayList<>(plan.tasks());
+        for (int i = 0; i < tasks.size(); i += 100) {
+            var t = tasks.get(i);
+            tasks.set(i, new Task(t.id(), t.title(), t.description(),
+                t.priority() == Priority.LOW ? Priority.HIGH : Priority.LOW, t.milestoneId(), t.dependsOn(),
+                "3 weeks", t.orderIndex()));
+        }
+        revised = new StructuredPlan(plan.title(), plan.summary(), plan.milestones(), tasks,
+            plan.estimatedDuration(), plan.risks(), plan.assumptions());
+        forward = PlanDiffer.diff(plan, revised);
+        back = PlanDiffer.diff(revised, plan);
+        renderer = new PlanRenderer(plan);
+    }
+
+    @Benchmark
+    public PlanRenderer buildComponents() {
+        return new PlanRenderer(plan);
+    }
+
+    @Benchmark
+    public PlanDiff diff() {
+        return PlanDiffer.diff(plan, revised);
+    }
+
+    @Benchmark
+    public PlanRenderer applyDiff() {
+        renderer.apply(showingRevised ? back : forward);
+        showingRevised = !showingRevised;
+        return renderer;
+    }
+}
@@ -0,0 +1,104 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.search.PlanHit;
+import com.dump2plan.search.PlanIndex;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranked search over a flushed and merged plan history spread across
+ * twenty users. Titles and summaries draw from a skewed vocabulary so a few
+ * terms match many plans, like "migration" or "launch" would in practice.
+ * {@code common} queries one of those; {@code rare} two infrequent terms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanSearchBenchmark {
+
+    private static final String[] WORDS = {"migration", "launch", "billing", "onboarding", "search", "mobile",
+        "analytics", "payments", "dashboard", "compliance", "kubernetes", "postgres", "pricing", "checkout",
+        "recommendations", "notifications", "localization", "accessibility", "warehouse", "forecasting"};
+
+    @Param({"10000", "100000"})
+    public int plans;
+
+    private Path dir;
+    private PlanIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("dump2plan-search");
+        index = new PlanIndex(dir, 10_000, Duration.ofHours(1), 10);
+        var template = SyntheticPayloads.plan(10);
+        var random = new SplittableRandom(42);
+        var saved = Instant.parse("2026-01-01T00:00:00Z");
+        for (int i = 0; i < plans; i++) {
+            var title = word(random) + " " + word(random) + " for team " + (i % 500);
+            var summary = "Roll out " + word(random) + " and " + word(random) + " in quarter " + (i % 4 + 1);
+            index.add("user-" + (i % 20), new StructuredPlan(title, summary, template.milestones(),
+                template.tasks(), template.estimatedDuration(), template.risks(), template.assumptions()), saved);
+            if ((i + 1) % 10_000 == 0) {
+                index.flush();
+            }
+        }
+        index.flush();
+    }
+
+    /** Squaring a uniform draw favours the start of {@link #WORDS}. */
+    private static String word(SplittableRandom random) {
+        double u = random.nextDouble();
+        return WORDS[(int) (u * u * WORDS.length)];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        try (var files = Files.list(dir)) {
+            for (var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public List<PlanHit> common() {
+        return index.search("user-7", "migration", 20);
+    }
+
+    @Benchmark
+    public List<PlanHit> rare() {
+        return index.search("user-7", "forecasting warehouse", 20);
+    }
+
+    @Benchmark
+    public List<PlanHit> allUsers() {
+        return index.search(null, "launch billing", 20);
+    }
+}
@@ -0,0 +1,64 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.agent.PlannerPrompts;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt construction for the three LLM-backed actions of
+ * {@code BrainDumpPlannerAgent}, via {@link PlannerPrompts}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBuildingBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int taskCount;
+
+    private String brainDump;
+    private ExtractedIdeas ideas;
+    private ClarifiedContext context;
+    private ProjectStructure structure;
+
+    @Setup
+    public void setUp() {
+        ideas = SyntheticPayloads.ideas(taskCount);
+        brainDump = String.join("\n", ideas.extractedActions());
+        context = SyntheticPayloads.context();
+        structure = SyntheticPayloads.structure(taskCount);
+    }
+
+    @Benchmark
+    public String analyzePrompt() {
+        return PlannerPrompts.analyze(brainDump).text();
+    }
+
+    @Benchmark
+    public String structurePrompt() {
+        return PlannerPrompts.structure(ideas, context).text();
+    }
+
+    @Benchmark
+    public String finalizePrompt() {
+        return PlannerPrompts.finalizePlan(structure, ideas).text();
+    }
+}
@@ -0,0 +1,73 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.TestProperties;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.prompt.PromptTemplateRegistry;
+import com.dump2plan.user.Dump2PlanUser;
+import com.hubspot.jinjava.Jinjava;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.loader.ClasspathResourceLocator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message system prompt rendering: loading and parsing the Jinja
+ * templates from the classpath on every message, as Embabel's template
+ * renderer does, versus {@link PromptTemplateRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptRenderingBenchmark {
+
+    private Map<String, Object> model;
+    private String rootSource;
+    private Jinjava jinjava;
+    private PromptTemplateRegistry registry;
+
+    @Setup
+    public void setUp() throws IOException {
+        var properties = TestProperties.builder().build();
+        model = Map.of("properties", properties, "user", new Dump2PlanUser("Alice", "alice", "USER"));
+
+        var classpath = new ClasspathResourceLocator();
+        jinjava = new Jinjava();
+        jinjava.setResourceLocator((name, encoding, interpreter) ->
+            classpath.getString(prefixed(name), encoding, interpreter));
+        rootSource = classpath.getString("prompts/dump2plan.jinja", Charset.defaultCharset(), null);
+
+        registry = new PromptTemplateRegistry(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public String uncached() {
+        return jinjava.render(rootSource, model);
+    }
+
+    @Benchmark
+    public String registry() {
+        return registry.render("dump2plan", "planner", "brain-dump-to-plan", model);
+    }
+
+    private static String prefixed(String name) {
+        var path = name.startsWith("prompts/") ? name : "prompts/" + name;
+        return path.endsWith(".jinja") ? path : path + ".jinja";
+    }
+}
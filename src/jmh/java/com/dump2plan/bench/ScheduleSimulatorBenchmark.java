@@ -0,0 +1,67 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.Dump2PlanProperties.ScheduleConfig;
+import com.dump2plan.TestProperties;
+import com.dump2plan.forecast.ScheduleSimulator;
+import com.dump2plan.forecast.ScheduleSimulator.Forecast;
+import com.dump2plan.forecast.ScheduleSimulator.Schedule;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.stub.SyntheticPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One most-likely schedule and one full Monte Carlo forecast (10,000 runs,
+ * the default) of a synthetic plan, which is what a what-if question in the
+ * chat costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleSimulatorBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2026, 1, 5);
+
+    @Param({"50", "500"})
+    public int tasks;
+
+    @Param({"3"})
+    public int team;
+
+    private StructuredPlan plan;
+    private ScheduleSimulator simulator;
+
+    @Setup
+    public void setUp() {
+        plan = SyntheticPayloads.plan(tasks);
+        var properties = TestProperties.builder().schedule(new ScheduleConfig(10_000, 8, 1, 42)).build();
+        simulator = new ScheduleSimulator(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public Schedule schedule() {
+        return simulator.schedule(plan, team);
+    }
+
+    @Benchmark
+    public Forecast forecast() {
+        return simulator.forecast(plan, team, START);
+    }
+}
@@ -0,0 +1,94 @@
+package com.dump2plan.bench;
+
+import com.dump2plan.TestDump2PlanApplication;
+import com.dump2plan.agent.BrainDumpPlannerAgent;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.StructuredPlan;
+import com.embabel.agent.api.common.OperationContext;
+import com.embabel.agent.domain.io.UserInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Cold start, measured once per fresh JVM: time until the application is
+ * ready (web server listening, agents deployed), and until the first plan
+ * has gone through every planning action against the stub LLM with
+ * near-zero latency. Compares the default run mode with the
+ * {@code startup} profile.
+ *
+ * <p>Vaadin is left out as in the integration tests, since in development
+ * mode its frontend tooling dominates startup. To include the AOT-processed
+ * context and AOT cache, build with
+ * {@code -Pproduction,startup -Dstartup.profiles=it,stub-llm,startup} and
+ * pass {@code -jvmArgsAppend "-XX:AOTCache=target/startup/app.aot -Dspring.aot.enabled=true"}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    private static final String BRAIN_DUMP = """
+        We need a customer portal. Users sign in with SSO. They can see invoices
+        and download PDFs. Support wants a ticket form. Mobile friendly is a must.
+        """;
+
+    @Param({"it,stub-llm", "it,stub-llm,startup"})
+    public String profiles;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public ConfigurableApplicationContext timeToReady() {
+        context = start();
+        return context;
+    }
+
+    @Benchmark
+    public StructuredPlan timeToFirstPlan() {
+        context = start();
+        var agent = context.getBean(BrainDumpPlannerAgent.class);
+        var operation = mock(OperationContext.class, RETURNS_DEEP_STUBS);
+        var ideas = agent.analyzeInput(new UserInput(BRAIN_DUMP), operation);
+        var answers = new ClarifiedContext("3 months", "3 developers", "$50k", "None");
+        var structure = agent.structurePlan(ideas, answers, operation);
+        return agent.finalizePlan(structure, ideas, operation);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(TestDump2PlanApplication.class)
+            .profiles(profiles.split(","))
+            .properties(
+                "spring.main.web-application-type=servlet",
+                "server.port=0",
+                "dump2plan.stub-llm.median-latency=1ms",
+                "dump2plan.stub-llm.p99-latency=1ms")
+            .run();
+    }
+}
@@ -3,9 +3,11 @@ package com.dump2plan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
 @ConfigurationPropertiesScan
+@ImportRuntimeHints(Dump2PlanRuntimeHints.class)
 public class Dump2PlanApplication {
 
     public static void main(String[] args) {
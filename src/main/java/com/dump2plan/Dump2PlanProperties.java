@@ -2,28 +2,304 @@ package com.dump2plan;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.boot.context.properties.bind.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @ConfigurationProperties(prefix = "dump2plan")
 public record Dump2PlanProperties(
     @NestedConfigurationProperty ChatConfig chat,
     @NestedConfigurationProperty ActorsConfig actors,
     String persona,
-    String objective
+    String objective,
+    @NestedConfigurationProperty @DefaultValue UsersConfig users,
+    @NestedConfigurationProperty @DefaultValue SchedulingConfig scheduling,
+    @NestedConfigurationProperty @DefaultValue TracingConfig tracing,
+    @NestedConfigurationProperty @DefaultValue StubLlmConfig stubLlm,
+    @NestedConfigurationProperty @DefaultValue SemanticCacheConfig semanticCache,
+    @NestedConfigurationProperty @DefaultValue DedupConfig dedup,
+    @NestedConfigurationProperty @DefaultValue CheckpointConfig checkpoint,
+    @NestedConfigurationProperty @DefaultValue SessionsConfig sessions,
+    @NestedConfigurationProperty @DefaultValue CostsConfig costs,
+    @NestedConfigurationProperty @DefaultValue ScheduleConfig schedule,
+    @NestedConfigurationProperty @DefaultValue SearchConfig search,
+    @NestedConfigurationProperty @DefaultValue RacingConfig racing,
+    @NestedConfigurationProperty @DefaultValue FailoverConfig failover
 ) {
     public record ChatConfig(
         String llm,
         boolean showPrompts,
-        boolean showResponses
+        boolean showResponses,
+        @NestedConfigurationProperty @DefaultValue HistoryConfig history
     ) {}
 
+    /**
+     * Compaction of long chat histories.
+     *
+     * @param keepTurns    most recent user/assistant exchanges sent verbatim
+     * @param maxTokens    estimated history tokens above which older turns are summarized
+     * @param modelBudgets {@code maxTokens} override per chat model name
+     */
+    public record HistoryConfig(
+        @DefaultValue("6") int keepTurns,
+        @DefaultValue("8000") int maxTokens,
+        Map<String, Integer> modelBudgets
+    ) {
+        public int budgetFor(String model) {
+            return modelBudgets == null ? maxTokens : modelBudgets.getOrDefault(model, maxTokens);
+        }
+    }
+
     public record ActorsConfig(
         ActorConfig analyzer,
         ActorConfig planner,
         ActorConfig reviewer
     ) {}
 
+    /**
+     * @param persona   persona template the actor's prompts are rendered with
+     * @param llm       the actor's model
+     * @param fallbacks models tried in order while the ones before them fail or are switched off
+     */
     public record ActorConfig(
         String persona,
-        String llm
+        String llm,
+        List<String> fallbacks
+    ) {
+        @ConstructorBinding
+        public ActorConfig {
+            fallbacks = fallbacks == null ? List.of() : List.copyOf(fallbacks);
+        }
+
+        public ActorConfig(String persona, String llm) {
+            this(persona, llm, List.of());
+        }
+
+        /** {@link #llm} followed by the fallbacks, without repeats. */
+        public List<String> routes() {
+            return Stream.concat(Stream.of(llm), fallbacks.stream()).distinct().toList();
+        }
+    }
+
+    /**
+     * @param store     backing store: {@code memory} or {@code file}
+     * @param file      JSON file used by the {@code file} store
+     * @param cacheSize maximum users held in the hot lookup cache
+     */
+    public record UsersConfig(
+        @DefaultValue("memory") String store,
+        @DefaultValue("data/users.json") String file,
+        @DefaultValue("1024") int cacheSize
+    ) {}
+
+    /**
+     * @param workers           planning jobs executed concurrently on this node
+     * @param requestsPerMinute per-user request quota
+     * @param tokensPerMinute   per-user estimated input token quota
+     * @param maxQueuedPerUser  jobs a user may have waiting before rejection
+     * @param weights           round-robin weight per user id (default 1)
+     */
+    public record SchedulingConfig(
+        @DefaultValue("4") int workers,
+        @DefaultValue("20") int requestsPerMinute,
+        @DefaultValue("200000") int tokensPerMinute,
+        @DefaultValue("5") int maxQueuedPerUser,
+        Map<String, Integer> weights
+    ) {}
+
+    /**
+     * @param exporter span exporter: {@code none}, {@code memory} or {@code file}
+     * @param file     JSON-lines file used by the {@code file} exporter
+     * @param maxSpans spans retained by the {@code memory} exporter
+     */
+    public record TracingConfig(
+        @DefaultValue("none") String exporter,
+        @DefaultValue("data/traces.jsonl") String file,
+        @DefaultValue("10000") int maxSpans
+    ) {}
+
+    /**
+     * Behaviour of the {@code stub-llm} profile's offline model.
+     *
+     * @param medianLatency median simulated call latency
+     * @param p99Latency    99th percentile simulated call latency
+     * @param failureRate   probability in [0, 1] that a call fails
+     * @param tasksPerPlan  tasks in each generated plan
+     * @param seed          seed for latency and failure draws
+     */
+    public record StubLlmConfig(
+        @DefaultValue("800ms") Duration medianLatency,
+        @DefaultValue("4s") Duration p99Latency,
+        @DefaultValue("0") double failureRate,
+        @DefaultValue("24") int tasksPerPlan,
+        @DefaultValue("42") long seed
+    ) {}
+
+    /**
+     * Near-duplicate detection of brain dumps, scoped per user.
+     *
+     * @param enabled        whether lookups and inserts happen at all
+     * @param maxEntries     brain dumps remembered before the oldest is evicted
+     * @param reuseThreshold similarity at which a prior analysis is reused as is
+     * @param seedThreshold  similarity at which a prior plan seeds structuring
+     * @param signatureSize  MinHash signature length
+     * @param bands          LSH bands; must divide {@code signatureSize}
+     */
+    public record SemanticCacheConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") int maxEntries,
+        @DefaultValue("0.85") double reuseThreshold,
+        @DefaultValue("0.6") double seedThreshold,
+        @DefaultValue("128") int signatureSize,
+        @DefaultValue("32") int bands
+    ) {}
+
+    /**
+     * Merging of duplicate action items after analysis.
+     *
+     * @param enabled   whether extracted actions are deduplicated
+     * @param threshold token-set Jaccard similarity at which two actions count as one
+     */
+    public record DedupConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0.7") double threshold
+    ) {}
+
+    /**
+     * Write-ahead log of planning action outputs, replayed on startup to
+     * resume interrupted runs.
+     *
+     * @param enabled       whether action outputs are checkpointed
+     * @param file          log file
+     * @param flushInterval how long appends are batched before one {@code fsync}
+     * @param compactBytes  log size above which finished runs are compacted away
+     * @param retention     idle time after which an unfinished run is abandoned
+     */
+    public record CheckpointConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("data/checkpoints.wal") String file,
+        @DefaultValue("5ms") Duration flushInterval,
+        @DefaultValue("67108864") long compactBytes,
+        @DefaultValue("24h") Duration retention
+    ) {}
+
+    /**
+     * Where chat sessions are kept.
+     *
+     * @param store     {@code memory} (this node only) or {@code redis} (shared by all nodes)
+     * @param host      host of the RESP key-value store used by the {@code redis} store
+     * @param port      port of the RESP key-value store
+     * @param keyPrefix prefix of every session key in the shared store
+     * @param ttl       idle time after which a stored session expires
+     * @param timeout   connect and read timeout for the shared store
+     */
+    public record SessionsConfig(
+        @DefaultValue("memory") String store,
+        @DefaultValue("localhost") String host,
+        @DefaultValue("6379") int port,
+        @DefaultValue("dump2plan:session:") String keyPrefix,
+        @DefaultValue("7d") Duration ttl,
+        @DefaultValue("2s") Duration timeout
+    ) {}
+
+    /**
+     * GOAP action costs learned from measured calls.
+     *
+     * @param enabled       whether measured costs replace the annotated ones
+     * @param smoothing     weight of each new call in the moving averages
+     * @param minSamples    calls measured before an action's annotated cost is replaced
+     * @param latencyWeight cost per second of expected latency
+     * @param tokenWeight   cost per thousand expected tokens at price 1
+     * @param modelPrices   relative token price per model name (default 1)
+     */
+    public record CostsConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0.2") double smoothing,
+        @DefaultValue("3") int minSamples,
+        @DefaultValue("0.01") double latencyWeight,
+        @DefaultValue("0.01") double tokenWeight,
+        Map<String, Double> modelPrices
+    ) {
+        public double priceOf(String model) {
+            return modelPrices == null ? 1.0 : modelPrices.getOrDefault(model, 1.0);
+        }
+    }
+
+    /**
+     * Local schedule simulation for duration forecasts and what-if questions.
+     *
+     * @param iterations       Monte Carlo runs per forecast
+     * @param hoursPerDay      working hours in a day of effort
+     * @param defaultTeamSize  team size when the user's answers do not give one
+     * @param seed             random seed, so the same plan gives the same forecast
+     */
+    public record ScheduleConfig(
+        @DefaultValue("10000") int iterations,
+        @DefaultValue("8") double hoursPerDay,
+        @DefaultValue("1") int defaultTeamSize,
+        @DefaultValue("42") long seed
+    ) {}
+
+    /**
+     * Full-text index over saved plans.
+     *
+     * @param enabled       whether saved plans are indexed and searchable
+     * @param directory     directory of the segment files
+     * @param flushDocs     plans buffered in memory before they are written as a segment
+     * @param flushInterval longest time a plan stays in memory only
+     * @param mergeFactor   segments of one size class merged at a time
+     */
+    public record SearchConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("data/plan-index") String directory,
+        @DefaultValue("10000") int flushDocs,
+        @DefaultValue("10s") Duration flushInterval,
+        @DefaultValue("10") int mergeFactor
+    ) {}
+
+    /**
+     * Racing slow pipeline steps against a second model.
+     *
+     * @param enabled       whether the configured actions are raced
+     * @param actions       pipeline steps that are raced
+     * @param challengers   second model per actor persona; actors without one are not raced
+     * @param hedgeDelay    how long the actor's own model runs alone before the second is started
+     * @param tokensPerHour estimated tokens the second models may spend per hour; races beyond it run single
+     */
+    public record RacingConfig(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue({"structurePlan", "finalizePlan"}) List<String> actions,
+        Map<String, String> challengers,
+        @DefaultValue("0s") Duration hedgeDelay,
+        @DefaultValue("200000") long tokensPerHour
+    ) {}
+
+    /**
+     * Per-model circuit breakers and failover along each actor's fallbacks.
+     *
+     * @param enabled          whether calls are bounded, counted and failed over
+     * @param callTimeout      longest a single model call may take before the next model is tried
+     * @param slowCallDuration calls taking at least this long count as slow
+     * @param failureRate      share of failed calls in the window that opens a breaker
+     * @param slowCallRate     share of slow calls in the window that opens a breaker
+     * @param windowSize       most recent calls per model the rates are taken over
+     * @param minimumCalls     calls in the window before a breaker may open
+     * @param openDuration     how long an open breaker rejects calls before probing
+     * @param halfOpenProbes   trial calls that must all succeed to close a breaker again
+     */
+    public record FailoverConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("3m") Duration callTimeout,
+        @DefaultValue("60s") Duration slowCallDuration,
+        @DefaultValue("0.5") double failureRate,
+        @DefaultValue("0.5") double slowCallRate,
+        @DefaultValue("20") int windowSize,
+        @DefaultValue("5") int minimumCalls,
+        @DefaultValue("30s") Duration openDuration,
+        @DefaultValue("2") int halfOpenProbes
     ) {}
 }
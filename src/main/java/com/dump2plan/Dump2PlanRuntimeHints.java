@@ -0,0 +1,35 @@
+package com.dump2plan;
+
+import com.dump2plan.api.PlanRequest;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ConversationSummary;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Native-image reachability metadata that Spring AOT cannot infer: the model
+ * records are bound by Jackson and described to the LLM as JSON schemas by
+ * reflection, prompt templates are found by classpath pattern scanning, and
+ * compression dictionaries are loaded as classpath resources.
+ */
+class Dump2PlanRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final Class<?>[] BOUND_TYPES = {
+        ExtractedIdeas.class, ClarifiedContext.class, ProjectStructure.class, StructuredPlan.class,
+        Milestone.class, Task.class, Priority.class, ConversationSummary.class, PlanRequest.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), BOUND_TYPES);
+        hints.resources().registerPattern("prompts/**");
+        hints.resources().registerPattern("compression/*.dict");
+    }
+}
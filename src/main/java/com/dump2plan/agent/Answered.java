@@ -0,0 +1,11 @@
+package com.dump2plan.agent;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+
+/**
+ * A model call's result together with the route that produced it, which
+ * is not the requested actor's model when a fallback or a race's
+ * challenger answered. Latency, token and cost figures are recorded
+ * under {@code model}.
+ */
+public record Answered<T>(ActorConfig model, T value) {}
@@ -1,40 +1,75 @@
 package com.dump2plan.agent;
 
-import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.checkpoint.PlanCheckpoints;
+import com.dump2plan.checkpoint.PlanCheckpoints.Origin;
 import com.dump2plan.model.ClarifiedContext;
 import com.dump2plan.model.ExtractedIdeas;
 import com.dump2plan.model.ProjectStructure;
 import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.PlanTracing;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.session.ChatSessions;
+import com.dump2plan.session.ConversationUser;
 import com.embabel.agent.api.annotation.Action;
 import com.embabel.agent.api.annotation.AchievesGoal;
 import com.embabel.agent.api.annotation.Agent;
-import com.embabel.agent.api.common.Ai;
+import com.embabel.agent.api.annotation.Cost;
+import com.embabel.agent.api.common.OperationContext;
+import com.embabel.agent.api.identity.User;
 import com.embabel.agent.core.hitl.WaitFor;
 import com.embabel.agent.domain.io.UserInput;
+import org.springframework.lang.Nullable;
 
+import java.util.function.Supplier;
+
+/**
+ * The planning agent. The model-backed actions are priced by measured
+ * latency and token use on the current input (see
+ * {@link com.dump2plan.cost.ActionCostModel}); the constants are the
+ * starting costs until enough calls have been seen. A new alternative
+ * action competes by naming its own {@code @Cost} method that asks
+ * {@link PlanningPipeline#cost} under its action name.
+ */
 @Agent(description = "Transforms unstructured brain dumps into structured project plans")
 public class BrainDumpPlannerAgent {
 
-    private final Dump2PlanProperties properties;
+    private static final double ANALYZE_COST = 0.1;
+    private static final double STRUCTURE_COST = 0.3;
+    private static final double FINALIZE_COST = 0.2;
+
+    private final PlannerMetrics metrics;
+    private final PlanTracing tracing;
+    private final PlanningPipeline pipeline;
+    private final PlanCheckpoints checkpoints;
+    private final ChatSessions sessions;
 
-    public BrainDumpPlannerAgent(Dump2PlanProperties properties) {
-        this.properties = properties;
+    public BrainDumpPlannerAgent(PlannerMetrics metrics, PlanTracing tracing, PlanningPipeline pipeline,
+                                 PlanCheckpoints checkpoints, ChatSessions sessions) {
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.pipeline = pipeline;
+        this.checkpoints = checkpoints;
+        this.sessions = sessions;
     }
 
-    @Action(cost = 0.1)
-    public ExtractedIdeas analyzeInput(UserInput input, Ai ai) {
-        return ai
-            .withLlm(properties.actors().analyzer().llm())
-            .createObject(
-                "Analyze this brain dump. Extract topics, action items, constraints, " +
-                "project type, complexity, and generate clarifying questions to ask the user " +
-                "before creating a plan:\n\n" + input.getContent(),
-                ExtractedIdeas.class
-            );
+    @Action(costMethod = "analyzeCost")
+    public ExtractedIdeas analyzeInput(UserInput input, OperationContext context) {
+        var runId = runId(context);
+        var userId = userId(context);
+        checkpoints.started(runId, userId, Origin.AGENT, input.getContent(), conversationId(context));
+        return closingOnFailure(runId, () -> {
+            var ideas = pipeline.analyze(pipelineRun(context), input, context.ai());
+            checkpoints.analyzed(runId, userId, ideas);
+            return ideas;
+        });
     }
 
     @Action(cost = 0.05)
-    public ClarifiedContext gatherContext(ExtractedIdeas ideas) {
+    public ClarifiedContext gatherContext(ExtractedIdeas ideas, OperationContext context) {
+        var runId = runId(context);
+        metrics.hitlStarted(runId);
+        tracing.hitlStarted(runId);
         return WaitFor.formSubmission(
             "Before I create your plan, I have a few questions:\n" +
             String.join("\n", ideas.clarifyingQuestions()),
@@ -42,39 +77,97 @@ public class BrainDumpPlannerAgent {
         );
     }
 
-    @Action(cost = 0.3)
+    @Action(costMethod = "structureCost")
     public ProjectStructure structurePlan(
             ExtractedIdeas ideas,
-            ClarifiedContext context,
-            Ai ai) {
-        return ai
-            .withLlm(properties.actors().planner().llm())
-            .createObject(
-                "Create a structured project plan with milestones and tasks based on " +
-                "the following analysis and user context.\n\n" +
-                "Extracted ideas: " + ideas + "\n\n" +
-                "User context - Timeline: " + context.timeline() +
-                ", Team size: " + context.teamSize() +
-                ", Budget: " + context.budgetConstraints() +
-                ", Additional: " + context.additionalContext(),
-                ProjectStructure.class
-            );
+            ClarifiedContext answers,
+            OperationContext context) {
+        var runId = runId(context);
+        metrics.hitlCompleted(runId);
+        tracing.hitlCompleted(runId);
+        var userId = userId(context);
+        checkpoints.answered(runId, userId, answers);
+        sessions.recordAnswers(conversationId(context), answers);
+        return closingOnFailure(runId, () -> {
+            var structure = pipeline.structure(pipelineRun(context), ideas, answers, context.ai());
+            checkpoints.structured(runId, userId, structure);
+            return structure;
+        });
     }
 
     @AchievesGoal(description = "A validated, prioritized, structured project plan")
-    @Action(cost = 0.2)
+    @Action(costMethod = "finalizeCost")
     public StructuredPlan finalizePlan(
             ProjectStructure structure,
             ExtractedIdeas ideas,
-            Ai ai) {
-        return ai
-            .withLlm(properties.actors().reviewer().llm())
-            .createObject(
-                "Finalize this project plan: validate completeness, prioritize tasks, " +
-                "assign dependencies, estimate effort, and identify risks and assumptions.\n\n" +
-                "Structure: " + structure + "\n\n" +
-                "Original ideas: " + ideas,
-                StructuredPlan.class
-            );
+            OperationContext context) {
+        var runId = runId(context);
+        var plan = closingOnFailure(runId,
+            () -> pipeline.finalize(pipelineRun(context), structure, ideas, context.ai()));
+        sessions.recordPlan(conversationId(context), plan);
+        checkpoints.completed(runId);
+        return plan;
+    }
+
+    @Cost(name = "analyzeCost")
+    public double analyzeCost(@Nullable UserInput input) {
+        return pipeline.cost("analyzeInput", input == null ? 0 : TokenEstimator.estimate(input.getContent()),
+            ANALYZE_COST);
+    }
+
+    @Cost(name = "structureCost")
+    public double structureCost(@Nullable ExtractedIdeas ideas) {
+        return pipeline.cost("structurePlan", ideas == null ? 0 : TokenEstimator.estimate(ideas.toString()),
+            STRUCTURE_COST);
+    }
+
+    @Cost(name = "finalizeCost")
+    public double finalizeCost(@Nullable ProjectStructure structure, @Nullable ExtractedIdeas ideas) {
+        long tokens = (structure == null ? 0 : TokenEstimator.estimate(structure.toString()))
+            + (ideas == null ? 0 : TokenEstimator.estimate(ideas.toString()));
+        return pipeline.cost("finalizePlan", tokens, FINALIZE_COST);
+    }
+
+    /**
+     * Runs a model-backed step of {@code runId}. If the step fails, the
+     * process fails with it, so its trace is ended with the error and the
+     * run is completed in the checkpoint log and not resumed on the next
+     * start.
+     */
+    private <T> T closingOnFailure(String runId, Supplier<T> step) {
+        try {
+            return step.get();
+        } catch (RuntimeException e) {
+            tracing.failRun(runId, e);
+            checkpoints.completed(runId);
+            throw e;
+        }
+    }
+
+    private static PipelineRun pipelineRun(OperationContext context) {
+        return new PipelineRun(runId(context), userId(context), conversationId(context));
+    }
+
+    /**
+     * The agent process id, or {@code null} outside a running process.
+     */
+    private static String runId(OperationContext context) {
+        var process = context.getProcessContext().getAgentProcess();
+        var id = process == null ? null : process.getId();
+        return id == null || id.isBlank() ? null : id;
+    }
+
+    private static String userId(OperationContext context) {
+        var forUser = context.getProcessContext().getProcessOptions().getIdentities().getForUser();
+        return forUser instanceof User user ? user.getId() : null;
+    }
+
+    /**
+     * The chat conversation that started the process, or {@code null} if
+     * it was not started from one.
+     */
+    private static String conversationId(OperationContext context) {
+        return ConversationUser.conversationId(
+            context.getProcessContext().getProcessOptions().getIdentities().getForUser());
     }
 }
@@ -1,29 +1,66 @@
 package com.dump2plan.agent;
 
 import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.forecast.WhatIfAnswers;
+import com.dump2plan.observability.PlanTracing;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.dump2plan.prompt.PromptTemplateRegistry;
+import com.dump2plan.scheduling.FairShareScheduler;
+import com.dump2plan.session.ChatSessions;
+import com.dump2plan.session.ConversationUser;
 import com.dump2plan.user.Dump2PlanUser;
 import com.embabel.agent.api.annotation.Action;
 import com.embabel.agent.api.annotation.EmbabelComponent;
 import com.embabel.agent.api.common.ActionContext;
 import com.embabel.agent.api.common.OperationContext;
+import com.embabel.chat.AssistantMessage;
 import com.embabel.chat.Conversation;
+import com.embabel.chat.Message;
 import com.embabel.chat.UserMessage;
 
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @EmbabelComponent
 public class ChatActions {
 
     private final Dump2PlanProperties properties;
+    private final PlannerMetrics metrics;
+    private final PlanTracing tracing;
+    private final LlmClient llm;
+    private final PromptTemplateRegistry templates;
+    private final ConversationCompactor compactor;
+    private final WhatIfAnswers whatIf;
+    private final FairShareScheduler scheduler;
+    private final ChatSessions sessions;
+    private final ActorConfig chatActor;
 
-    public ChatActions(Dump2PlanProperties properties) {
+    public ChatActions(Dump2PlanProperties properties, PlannerMetrics metrics,
+                       PlanTracing tracing, LlmClient llm, PromptTemplateRegistry templates,
+                       ConversationCompactor compactor, WhatIfAnswers whatIf, FairShareScheduler scheduler,
+                       ChatSessions sessions) {
         this.properties = properties;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.llm = llm;
+        this.templates = templates;
+        this.compactor = compactor;
+        this.whatIf = whatIf;
+        this.scheduler = scheduler;
+        this.sessions = sessions;
+        this.chatActor = new ActorConfig(properties.persona(), properties.chat().llm());
     }
 
     @Action
     public Dump2PlanUser bindUser(OperationContext context) {
         var forUser = context.getProcessContext().getProcessOptions()
             .getIdentities().getForUser();
+        if (forUser instanceof ConversationUser conversation) {
+            return conversation.user();
+        }
         if (forUser instanceof Dump2PlanUser user) {
             return user;
         }
@@ -32,13 +69,52 @@ public class ChatActions {
 
     @Action(canRerun = true, trigger = UserMessage.class)
     public void respond(Conversation conversation, Dump2PlanUser user, ActionContext context) {
-        var assistantMessage = context.ai()
-            .withLlm(properties.chat().llm())
-            .rendering("dump2plan")
-            .respondWithSystemPrompt(conversation, Map.of(
-                "properties", properties,
-                "user", user
-            ));
+        var sessionId = sessionId(context);
+        var local = scheduleAnswer(conversation, sessionId);
+        if (local != null) {
+            context.sendMessage(conversation.addMessage(local));
+            return;
+        }
+        Map<String, Object> model = Map.of("properties", properties, "user", user);
+        var prefix = templates.staticPrefix("dump2plan", properties.persona(), properties.objective(), model);
+        var userPart = tracing.span(PlanTracing.RENDER, "render dump2plan", () ->
+            templates.renderDynamic("dump2plan", properties.persona(), properties.objective(), model));
+        var currentPlan = sessionId == null ? null : sessions.open(sessionId).plan();
+        var history = compactor.compact(conversation.getId(), sessionId, conversation.getMessages(), currentPlan);
+        var systemPrompt = prefix + userPart + history.context();
+        var transcript = history.recent().stream()
+            .map(Message::getContent)
+            .collect(Collectors.joining("\n"));
+        var answer = tracing.span(PlanTracing.LLM_CALL, "respond " + chatActor.llm(), () ->
+            metrics.recordAction("respond", chatActor, () -> llm.route(chatActor,
+                (client, route) -> client.respond(context, route, systemPrompt, history.recent())),
+                Answered::model));
+        metrics.recordPromptCache("respond", answer.model(),
+            new CacheablePrompt(prefix, userPart + history.context() + transcript));
+        var assistantMessage = answer.value();
+        scheduler.recordUsage(user == null ? null : user.getId(), TokenEstimator.estimate(systemPrompt)
+            + TokenEstimator.estimate(transcript) + TokenEstimator.estimate(assistantMessage.getContent()));
         context.sendMessage(conversation.addMessage(assistantMessage));
     }
+
+    /**
+     * Schedule questions about the conversation's current plan are answered
+     * by the local simulator instead of the model.
+     */
+    private AssistantMessage scheduleAnswer(Conversation conversation, String sessionId) {
+        var messages = conversation.getMessages();
+        if (sessionId == null || messages.isEmpty() || !(messages.getLast() instanceof UserMessage question)) {
+            return null;
+        }
+        return whatIf.answer(sessionId, question.getContent()).map(AssistantMessage::new).orElse(null);
+    }
+
+    /**
+     * The stored session of the conversation the process was started from,
+     * or {@code null} if it was not started from a chat conversation.
+     */
+    private static String sessionId(OperationContext context) {
+        return ConversationUser.conversationId(
+            context.getProcessContext().getProcessOptions().getIdentities().getForUser());
+    }
 }
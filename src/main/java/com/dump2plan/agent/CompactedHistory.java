@@ -0,0 +1,28 @@
+package com.dump2plan.agent;
+
+import com.embabel.chat.Message;
+
+import java.util.List;
+
+/**
+ * The chat history as sent to the model: a rolling summary and plan
+ * reference standing in for older turns, followed by the recent turns
+ * verbatim. {@code summary} and {@code planReference} are {@code null}
+ * until the conversation has first been compacted.
+ */
+public record CompactedHistory(String summary, String planReference, List<Message> recent) {
+
+    /**
+     * Text to append to the system prompt in place of the folded turns.
+     */
+    public String context() {
+        var sb = new StringBuilder();
+        if (summary != null) {
+            sb.append("\n\nSummary of the earlier conversation:\n").append(summary);
+        }
+        if (planReference != null) {
+            sb.append("\n\nCurrent plan (from earlier in the conversation):\n").append(planReference);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package com.dump2plan.agent;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.HistoryConfig;
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.model.ConversationSummary;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.dump2plan.session.ChatSessions;
+import com.dump2plan.session.HistorySummary;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.chat.AssistantMessage;
+import com.embabel.chat.Message;
+import com.embabel.chat.UserMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Keeps chat prompts bounded as a planning session grows.
+ *
+ * <p>Once the history still sent verbatim exceeds the chat model's token
+ * budget, everything before the last {@code keepTurns} exchanges is folded
+ * in the background into a rolling {@link ConversationSummary}, produced by
+ * the analyzer actor. Responses never wait for a summary: until it is
+ * ready the uncompacted history is sent. The fold runs after the action
+ * that scheduled it has returned, so it calls the model through the
+ * application's {@link Ai}, not the action's.</p>
+ *
+ * <p>Each summary is stored with the conversation's session, which then
+ * drops the turns it covers. A conversation rebuilt from the stored
+ * transcript on another node starts from the stored summary, so the
+ * turns folded on the first node are neither lost nor sent twice.</p>
+ *
+ * <p>The conversation's current plan, as stored for the conversation, is
+ * sent as a compact outline rather than left to the summary. A
+ * conversation without a stored plan uses the latest {@link StructuredPlan}
+ * pasted into the folded turns as JSON instead.</p>
+ */
+@Component
+public class ConversationCompactor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationCompactor.class);
+
+    private static final int MAX_CONVERSATIONS = 1024;
+
+    private static final String SUMMARY_INSTRUCTIONS =
+        "Update the running summary of this project planning conversation with the new " +
+        "messages below. Keep goals, decisions, answers to clarifying questions, constraints " +
+        "and open questions. Drop pleasantries, and do not repeat plan contents: the current " +
+        "plan is kept separately.";
+
+    private final HistoryConfig config;
+    private final String model;
+    private final ActorConfig summarizer;
+    private final LlmClient llm;
+    private final PlannerMetrics metrics;
+    private final ChatSessions sessions;
+    private final Supplier<Ai> ai;
+    private final Executor executor;
+    private final Map<String, State> states = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, State> eldest) {
+                return size() > MAX_CONVERSATIONS;
+            }
+        });
+
+    @Autowired
+    public ConversationCompactor(Dump2PlanProperties properties, LlmClient llm, PlannerMetrics metrics,
+                                 ChatSessions sessions, ObjectProvider<Ai> ai) {
+        this(properties, llm, metrics, sessions, ai::getIfAvailable, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public ConversationCompactor(Dump2PlanProperties properties, LlmClient llm, PlannerMetrics metrics,
+                                 ChatSessions sessions, Supplier<Ai> ai, Executor executor) {
+        this.config = properties.chat().history();
+        this.model = properties.chat().llm();
+        this.summarizer = properties.actors().analyzer();
+        this.llm = llm;
+        this.metrics = metrics;
+        this.sessions = sessions;
+        this.ai = ai;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the history to send for the conversation's next response, and
+     * schedules a summary of older turns if the history is over budget.
+     *
+     * @param conversationId the conversation holding {@code messages} on this node
+     * @param sessionId      its stored session, or {@code null} if it has none
+     * @param currentPlan    the conversation's stored plan, or {@code null}
+     */
+    public CompactedHistory compact(String conversationId, String sessionId, List<? extends Message> messages,
+                                    StructuredPlan currentPlan) {
+        var state = states.get(conversationId);
+        if (state == null) {
+            var stored = sessionId == null ? null : sessions.open(sessionId).summary();
+            state = states.computeIfAbsent(conversationId, id -> new State(stored));
+        }
+        synchronized (state) {
+            int from = Math.min(state.folded, messages.size());
+            if (!state.folding && estimate(messages.subList(from, messages.size())) > config.budgetFor(model)) {
+                int cut = messages.size() - 2 * config.keepTurns();
+                if (cut > from) {
+                    state.folding = true;
+                    var toFold = List.<Message>copyOf(messages.subList(from, cut));
+                    var previous = state.summary;
+                    var folding = state;
+                    executor.execute(() -> fold(folding, sessionId, previous, toFold, cut));
+                }
+            }
+            from = Math.min(state.folded, messages.size());
+            var planReference = currentPlan != null ? PlanOutline.of(currentPlan) : state.planReference;
+            return new CompactedHistory(state.summary, planReference,
+                List.copyOf(messages.subList(from, messages.size())));
+        }
+    }
+
+    private void fold(State state, String sessionId, String previous, List<Message> toFold, int cut) {
+        try {
+            StructuredPlan plan = null;
+            var transcript = new StringBuilder();
+            for (var message : toFold) {
+                var found = parsePlan(message.getContent());
+                if (found != null) {
+                    plan = found;
+                }
+                transcript.append(role(message)).append(": ")
+                    .append(found != null ? "[shared plan \"" + found.title() + "\"]" : message.getContent())
+                    .append('\n');
+            }
+            var prompt = new CacheablePrompt(SUMMARY_INSTRUCTIONS,
+                "Summary so far:\n" + (previous == null ? "(none)" : previous) +
+                "\n\nNew messages:\n" + transcript);
+            var model = ai.get();
+            var answer = metrics.recordAction("compactHistory", summarizer, () -> llm.route(summarizer,
+                (client, route) -> client.createObject(model, route, prompt, ConversationSummary.class)),
+                Answered::model);
+            metrics.recordLlmCall("compactHistory", answer.model(), prompt, answer.value());
+            var summary = answer.value();
+            HistorySummary folded;
+            synchronized (state) {
+                state.summary = summary.summary();
+                state.folded = cut;
+                if (plan != null) {
+                    state.planReference = PlanOutline.of(plan);
+                }
+                folded = new HistorySummary(state.summary, state.planReference);
+            }
+            sessions.recordSummary(sessionId, folded, toFold.size());
+        } catch (RuntimeException e) {
+            log.warn("Conversation compaction failed; sending full history until the next attempt", e);
+        } finally {
+            synchronized (state) {
+                state.folding = false;
+            }
+        }
+    }
+
+    private StructuredPlan parsePlan(String content) {
+        if (content == null || !content.contains("\"milestones\"")) {
+            return null;
+        }
+        int start = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            StructuredPlan plan = ModelJson.lenientReader(StructuredPlan.class).readValue(content.substring(start, end + 1));
+            return isComplete(plan) ? plan : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static boolean isComplete(StructuredPlan plan) {
+        return plan != null && plan.milestones() != null && plan.tasks() != null;
+    }
+
+    private static String role(Message message) {
+        if (message instanceof UserMessage) {
+            return "User";
+        }
+        return message instanceof AssistantMessage ? "Assistant" : "System";
+    }
+
+    private static long estimate(List<? extends Message> messages) {
+        long tokens = 0;
+        for (var message : messages) {
+            tokens += TokenEstimator.estimate(message.getContent());
+        }
+        return tokens;
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof ExecutorService service) {
+            service.close();
+        }
+    }
+
+    /**
+     * What has been folded of a conversation; {@code folded} counts the
+     * messages of this node's conversation, starting after those covered
+     * by the summary it was created with.
+     */
+    private static final class State {
+        int folded;
+        String summary;
+        String planReference;
+        boolean folding;
+
+        State(HistorySummary stored) {
+            if (stored != null) {
+                summary = stored.summary();
+                planReference = stored.planReference();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.dump2plan.agent;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.embabel.agent.api.common.ActionContext;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.chat.AssistantMessage;
+import com.embabel.chat.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link LlmClient} over Embabel's {@link Ai}. The structured-output API
+ * returns only the bound object, so {@link #streamObject} emits the
+ * serialized result as one chunk once the call completes.
+ */
+@Component
+@Profile("!stub-llm")
+public class EmbabelLlmClient implements LlmClient {
+
+    @Override
+    public <T> T createObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type) {
+        return ai
+            .withLlm(actor.llm())
+            .withSystemPrompt(prompt.prefix())
+            .createObject(prompt.suffix(), type);
+    }
+
+    @Override
+    public <T> T streamObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type,
+                              Consumer<String> chunks) {
+        var result = createObject(ai, actor, prompt, type);
+        try {
+            chunks.accept(ModelJson.writer(type).writeValueAsString(result));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + type.getSimpleName(), e);
+        }
+        return result;
+    }
+
+    @Override
+    public AssistantMessage respond(ActionContext context, ActorConfig actor, String systemPrompt,
+                                    List<? extends Message> messages) {
+        return context.ai()
+            .withLlm(actor.llm())
+            .withSystemPrompt(systemPrompt)
+            .respond(messages);
+    }
+}
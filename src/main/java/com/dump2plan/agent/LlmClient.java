@@ -0,0 +1,46 @@
+package com.dump2plan.agent;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.embabel.agent.api.common.ActionContext;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.chat.AssistantMessage;
+import com.embabel.chat.Message;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * The single point where agent and chat actions reach a model. The default
+ * {@link EmbabelLlmClient} delegates to Embabel's {@link Ai}; the
+ * {@code stub-llm} profile swaps in a local stub for offline load testing.
+ *
+ * <p>Implementations send the stable part of every prompt first, as the
+ * system prompt, so it forms a cacheable prefix on the provider side.</p>
+ */
+public interface LlmClient {
+
+    <T> T createObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type);
+
+    /**
+     * Like {@link #createObject}, additionally passing the raw JSON response
+     * to {@code chunks} as it arrives. Implementations that cannot stream
+     * pass the complete response as a single chunk.
+     */
+    <T> T streamObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type,
+                       Consumer<String> chunks);
+
+    AssistantMessage respond(ActionContext context, ActorConfig actor, String systemPrompt,
+                             List<? extends Message> messages);
+
+    /**
+     * Runs {@code call} with the client and model that serve {@code actor}
+     * and reports which model answered. This client serves every actor
+     * itself; a failing-over client tries the actor's routes in turn,
+     * handing {@code call} the client behind it.
+     */
+    default <T> Answered<T> route(ActorConfig actor, BiFunction<LlmClient, ActorConfig, T> call) {
+        return new Answered<>(actor, call.apply(this, actor));
+    }
+}
@@ -0,0 +1,19 @@
+package com.dump2plan.agent;
+
+/**
+ * The run a {@link PlanningPipeline} step belongs to. {@code id} is unique
+ * per run, the agent process id or the API run id, and keys the run's trace
+ * and HITL timing; two runs of the same brain dump therefore never share
+ * them, even when the semantic cache hands both the same ideas.
+ * {@code userId} owns the caches, quotas and saved plans.
+ * {@code conversationId} is the chat conversation the run streams its plan
+ * to, or {@code null} for API runs. A {@code null} id, as for an action
+ * invoked outside an agent process, is not traced.
+ */
+public record PipelineRun(String id, String userId, String conversationId) {
+
+    /** A run that is not part of a chat conversation. */
+    public PipelineRun(String id, String userId) {
+        this(id, userId, null);
+    }
+}
@@ -0,0 +1,42 @@
+package com.dump2plan.agent;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Compact text form of a plan for use inside prompts: title, milestones
+ * and task ids with titles, without descriptions. Plans are model output
+ * and may be partial; missing fields and entries are left out rather
+ * than failing every prompt the plan is part of.
+ */
+final class PlanOutline {
+
+    private PlanOutline() {
+    }
+
+    static String of(StructuredPlan plan) {
+        var milestones = present(plan.milestones());
+        var tasks = present(plan.tasks());
+        var sb = new StringBuilder(Objects.requireNonNullElse(plan.title(), "Untitled plan")).append(" (")
+            .append(milestones.size()).append(" milestones, ")
+            .append(tasks.size()).append(" tasks)\n");
+        for (Milestone milestone : milestones) {
+            sb.append("- ").append(milestone.name()).append(": ")
+                .append(tasks.stream()
+                    .filter(t -> milestone.id() != null && milestone.id().equals(t.milestoneId()))
+                    .map(t -> t.id() + " " + t.title())
+                    .collect(Collectors.joining("; ")))
+                .append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static <T> List<T> present(List<T> entries) {
+        return entries == null ? List.of() : entries.stream().filter(Objects::nonNull).toList();
+    }
+}
@@ -1,13 +1,18 @@
 package com.dump2plan.agent;
 
 import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.prompt.PromptTemplateRegistry;
+import com.embabel.agent.api.annotation.Agent;
+import com.embabel.agent.api.annotation.EmbabelComponent;
 import com.embabel.agent.core.AgentPlatform;
 import com.embabel.agent.core.Verbosity;
 import com.embabel.chat.Chatbot;
 import com.embabel.chat.agent.AgentProcessChatbot;
 import com.embabel.chat.support.InMemoryConversationFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 
 @Configuration
 public class PlannerConfiguration {
@@ -22,4 +27,19 @@ public class PlannerConfiguration {
                 .withShowLlmResponses(properties.chat().showResponses())
         );
     }
+
+    /**
+     * Beans that stay eager under {@code spring.main.lazy-initialization}
+     * (the {@code startup} profile): the platform deploys agents and chat
+     * actions by inspecting beans at startup, and the model client and
+     * precompiled prompts sit on the path of the first plan.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerPlanningBeans() {
+        return (beanName, definition, type) ->
+            AnnotatedElementUtils.hasAnnotation(type, Agent.class)
+                || AnnotatedElementUtils.hasAnnotation(type, EmbabelComponent.class)
+                || LlmClient.class.isAssignableFrom(type)
+                || PromptTemplateRegistry.class.isAssignableFrom(type);
+    }
 }
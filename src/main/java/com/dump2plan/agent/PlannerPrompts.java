@@ -0,0 +1,62 @@
+package com.dump2plan.agent;
+
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.prompt.CacheablePrompt;
+
+/**
+ * Prompt text for the structured-output actions of {@link BrainDumpPlannerAgent}.
+ * Instructions are constants so each action's prefix stays byte-identical
+ * across runs; the brain dump and intermediate results go in the suffix.
+ */
+public final class PlannerPrompts {
+
+    private static final String ANALYZE_INSTRUCTIONS =
+        "Analyze this brain dump. Extract topics, action items, constraints, " +
+        "project type, complexity, and generate clarifying questions to ask the user " +
+        "before creating a plan:";
+
+    private static final String STRUCTURE_INSTRUCTIONS =
+        "Create a structured project plan with milestones and tasks based on " +
+        "the following analysis and user context.";
+
+    private static final String FINALIZE_INSTRUCTIONS =
+        "Finalize this project plan: validate completeness, prioritize tasks, " +
+        "assign dependencies, estimate effort, and identify risks and assumptions.";
+
+    private PlannerPrompts() {
+    }
+
+    public static CacheablePrompt analyze(String brainDump) {
+        return new CacheablePrompt(ANALYZE_INSTRUCTIONS, brainDump);
+    }
+
+    public static CacheablePrompt structure(ExtractedIdeas ideas, ClarifiedContext context) {
+        return structure(ideas, context, null);
+    }
+
+    /**
+     * @param seed plan for a very similar earlier brain dump, or {@code null}
+     */
+    public static CacheablePrompt structure(ExtractedIdeas ideas, ClarifiedContext context,
+                                            StructuredPlan seed) {
+        var variable = "Extracted ideas: " + ideas + "\n\n" +
+            "User context - Timeline: " + context.timeline() +
+            ", Team size: " + context.teamSize() +
+            ", Budget: " + context.budgetConstraints() +
+            ", Additional: " + context.additionalContext();
+        if (seed != null) {
+            variable += "\n\nThe user planned a very similar project before. Reuse the " +
+                "structure of that plan where it still fits:\n" + PlanOutline.of(seed);
+        }
+        return new CacheablePrompt(STRUCTURE_INSTRUCTIONS, variable);
+    }
+
+    public static CacheablePrompt finalizePlan(ProjectStructure structure, ExtractedIdeas ideas) {
+        return new CacheablePrompt(FINALIZE_INSTRUCTIONS,
+            "Structure: " + structure + "\n\n" +
+            "Original ideas: " + ideas);
+    }
+}
@@ -0,0 +1,183 @@
+package com.dump2plan.agent;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.cost.ActionCostModel;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.PlanTracing;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.dump2plan.racing.ProviderRace;
+import com.dump2plan.scheduling.FairShareScheduler;
+import com.dump2plan.search.PlanSearch;
+import com.dump2plan.similarity.ActionDeduplicator;
+import com.dump2plan.similarity.SemanticCache;
+import com.dump2plan.streaming.PlanStreamListener;
+import com.dump2plan.streaming.PlanStreams;
+import com.dump2plan.streaming.StreamingPlanParser;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.agent.domain.io.UserInput;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * The model-backed planning steps, independent of how they are driven:
+ * {@link BrainDumpPlannerAgent} runs them as GOAP actions inside the agent
+ * platform, the HTTP API calls them directly. Each step records metrics and
+ * tracing under the same names either way, feeds the
+ * {@link ActionCostModel} that prices the agent's actions, and charges the
+ * tokens it used to the run's user in the {@link FairShareScheduler}.
+ */
+@Component
+public class PlanningPipeline {
+
+    private final Dump2PlanProperties properties;
+    private final PlannerMetrics metrics;
+    private final PlanTracing tracing;
+    private final LlmClient llm;
+    private final PlanStreams planStreams;
+    private final SemanticCache semanticCache;
+    private final ActionDeduplicator deduplicator;
+    private final ActionCostModel costs;
+    private final PlanSearch planSearch;
+    private final ProviderRace race;
+    private final FairShareScheduler scheduler;
+
+    public PlanningPipeline(Dump2PlanProperties properties, PlannerMetrics metrics,
+                            PlanTracing tracing, LlmClient llm,
+                            PlanStreams planStreams, SemanticCache semanticCache,
+                            ActionDeduplicator deduplicator, ActionCostModel costs, PlanSearch planSearch,
+                            ProviderRace race, FairShareScheduler scheduler) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.llm = llm;
+        this.planStreams = planStreams;
+        this.semanticCache = semanticCache;
+        this.deduplicator = deduplicator;
+        this.costs = costs;
+        this.planSearch = planSearch;
+        this.race = race;
+        this.scheduler = scheduler;
+    }
+
+    public ExtractedIdeas analyze(PipelineRun run, UserInput input, Ai ai) {
+        tracing.startRun(run.id(), input.getContent().length());
+        var ideas = semanticCache.findIdeas(run.userId(), input.getContent());
+        if (ideas == null) {
+            ideas = callLlm("analyzeInput", run, properties.actors().analyzer(),
+                PlannerPrompts.analyze(input.getContent()), ExtractedIdeas.class, ai);
+            ideas = withoutDuplicateActions(run, ideas);
+            semanticCache.remember(run.userId(), input.getContent(), ideas);
+        }
+        return ideas;
+    }
+
+    public ProjectStructure structure(PipelineRun run, ExtractedIdeas ideas, ClarifiedContext context, Ai ai) {
+        return callLlm("structurePlan", run, properties.actors().planner(),
+            PlannerPrompts.structure(ideas, context, semanticCache.findSeedPlan(run.userId(), ideas)),
+            ProjectStructure.class, ai);
+    }
+
+    /**
+     * Streams the final plan to the {@link PlanStreams} subscribers of the
+     * run's conversation while the reviewer model produces it.
+     */
+    public StructuredPlan finalize(PipelineRun run, ProjectStructure structure, ExtractedIdeas ideas, Ai ai) {
+        return finalize(run, structure, ideas, ai, PlanStreamListener.NONE);
+    }
+
+    /**
+     * As {@link #finalize(PipelineRun, ProjectStructure, ExtractedIdeas, Ai)},
+     * additionally streaming to {@code listener}.
+     */
+    public StructuredPlan finalize(PipelineRun run, ProjectStructure structure, ExtractedIdeas ideas, Ai ai,
+                                   PlanStreamListener listener) {
+        var actor = properties.actors().reviewer();
+        var prompt = PlannerPrompts.finalizePlan(structure, ideas);
+        var streams = planStreams.listenerFor(run.conversationId(), run.id()).andThen(listener);
+        var parser = new StreamingPlanParser(streams);
+        // When raced or failed over, only the model that streams first feeds the
+        // parser; if another one answers, its plan replaces the preview through onPlan.
+        var streaming = new AtomicReference<ActorConfig>();
+        var plan = observe("finalizePlan", run, actor, prompt, (client, route) ->
+            client.streamObject(ai, route, prompt, StructuredPlan.class, chunk -> {
+                var owner = streaming.compareAndExchange(null, route);
+                if (owner == null || owner == route) {
+                    parser.feed(chunk);
+                }
+            }));
+        streams.onPlan(plan);
+        metrics.recordPlanSize(plan);
+        semanticCache.rememberPlan(run.userId(), ideas, plan);
+        planSearch.index(run.userId(), plan);
+        tracing.finishRun(run.id(), plan);
+        return plan;
+    }
+
+    /**
+     * Learned cost of running step {@code action} on an input of about
+     * {@code inputTokens}, or {@code prior} until enough calls were measured.
+     */
+    public double cost(String action, long inputTokens, double prior) {
+        return costs.cost(action, actorFor(action), inputTokens, prior);
+    }
+
+    private ActorConfig actorFor(String action) {
+        var actors = properties.actors();
+        return switch (action) {
+            case "analyzeInput" -> actors.analyzer();
+            case "structurePlan" -> actors.planner();
+            case "finalizePlan" -> actors.reviewer();
+            default -> throw new IllegalArgumentException("Not a pipeline step: " + action);
+        };
+    }
+
+    /**
+     * Merges differently phrased copies of the same action so the planner
+     * does not turn them into separate tasks.
+     */
+    private ExtractedIdeas withoutDuplicateActions(PipelineRun run, ExtractedIdeas ideas) {
+        var dedup = deduplicator.deduplicate(ideas.extractedActions());
+        metrics.recordDuplicateActions(dedup.removed());
+        tracing.annotateRun(run.id(), "ideas.duplicate.actions", String.valueOf(dedup.removed()));
+        if (dedup.removed() == 0) {
+            return ideas;
+        }
+        return new ExtractedIdeas(ideas.extractedTopics(), dedup.actions(), ideas.extractedConstraints(),
+            ideas.projectType(), ideas.estimatedComplexity(), ideas.clarifyingQuestions());
+    }
+
+    /**
+     * Runs one structured LLM call inside the action's span, with metrics,
+     * raced against a second model if the action is configured for it.
+     */
+    private <T> T callLlm(String action, PipelineRun run, ActorConfig actor,
+                          CacheablePrompt prompt, Class<T> type, Ai ai) {
+        return observe(action, run, actor, prompt, (client, route) -> client.createObject(ai, route, prompt, type));
+    }
+
+    /**
+     * Runs {@code call} on each route the {@link LlmClient} picks for each
+     * racer, and records the step under the model whose answer was taken.
+     */
+    private <T> T observe(String action, PipelineRun run, ActorConfig actor, CacheablePrompt prompt,
+                          BiFunction<LlmClient, ActorConfig, T> call) {
+        var result = tracing.step(action, run.id(), () ->
+            tracing.llmCall(action, actor, prompt.text(), () -> {
+                var answer = metrics.recordAction(action, actor,
+                    () -> race.call(action, actor, prompt, racer -> llm.route(racer, call)), Answered::model);
+                metrics.recordLlmCall(action, answer.model(), prompt, answer.value());
+                return answer.value();
+            }));
+        scheduler.recordUsage(run.userId(),
+            TokenEstimator.estimate(prompt.text()) + TokenEstimator.estimate(String.valueOf(result)));
+        return result;
+    }
+}
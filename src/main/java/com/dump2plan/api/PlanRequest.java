@@ -0,0 +1,9 @@
+package com.dump2plan.api;
+
+import com.dump2plan.model.ClarifiedContext;
+
+/**
+ * Body of {@code POST /api/plans}. Headless callers answer the clarifying
+ * questions up front through {@code context}, so the run never pauses.
+ */
+public record PlanRequest(String brainDump, ClarifiedContext context) {}
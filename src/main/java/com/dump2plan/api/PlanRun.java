@@ -0,0 +1,183 @@
+package com.dump2plan.api;
+
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.streaming.PlanStreamListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One planning run started through the API. Every state change and plan
+ * fragment is appended to the run's event log and pushed to the open SSE
+ * connections; a client connecting late, or reconnecting with
+ * {@code Last-Event-ID}, is replayed what it missed.
+ */
+public class PlanRun implements PlanStreamListener {
+
+    public enum State {
+        ANALYZING, WAITING_FOR_ANSWERS, PLANNING, DONE, FAILED
+    }
+
+    private final String id;
+    private final String userId;
+    private final String conversationId;
+    private final List<Event> events = new ArrayList<>();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private volatile State state = State.ANALYZING;
+    private volatile ExtractedIdeas ideas;
+    private volatile StructuredPlan plan;
+
+    PlanRun(String id, String userId) {
+        this(id, userId, null);
+    }
+
+    /**
+     * A run whose plan also belongs to the chat conversation
+     * {@code conversationId}, as when an interrupted chat run is finished
+     * here.
+     */
+    PlanRun(String id, String userId, String conversationId) {
+        this.id = id;
+        this.userId = userId;
+        this.conversationId = conversationId;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String userId() {
+        return userId;
+    }
+
+    public String conversationId() {
+        return conversationId;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public ExtractedIdeas ideas() {
+        return ideas;
+    }
+
+    public StructuredPlan plan() {
+        return plan;
+    }
+
+    void analyzed(ExtractedIdeas ideas) {
+        this.ideas = ideas;
+    }
+
+    void waitForAnswers() {
+        transition(State.WAITING_FOR_ANSWERS);
+        publish("questions", Map.of("questions", ideas.clarifyingQuestions()));
+    }
+
+    /**
+     * Moves from waiting to planning; {@code false} if the run was not
+     * waiting for answers, so each run is answered at most once.
+     */
+    synchronized boolean startPlanning() {
+        if (state != State.WAITING_FOR_ANSWERS) {
+            return false;
+        }
+        transition(State.PLANNING);
+        return true;
+    }
+
+    void done(StructuredPlan plan) {
+        this.plan = plan;
+        publish("plan", plan);
+        transition(State.DONE);
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    void failed(Throwable error) {
+        publish("error", Map.of("message", String.valueOf(error.getMessage())));
+        transition(State.FAILED);
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    @Override
+    public void onMilestone(Milestone milestone) {
+        publish("milestone", milestone);
+    }
+
+    @Override
+    public void onTask(Task task) {
+        publish("task", task);
+    }
+
+    @Override
+    public void onInvalid(String path, String reason) {
+        publish("invalid", Map.of("path", path, "reason", reason));
+    }
+
+    /**
+     * Replays events after {@code lastEventId} (all of them if {@code null})
+     * and keeps {@code emitter} subscribed until the run ends.
+     */
+    public synchronized void subscribe(SseEmitter emitter, String lastEventId) {
+        int from = lastEventId == null ? 0 : parseId(lastEventId) + 1;
+        try {
+            for (int i = from; i < events.size(); i++) {
+                send(emitter, i, events.get(i));
+            }
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return;
+        }
+        if (state == State.DONE || state == State.FAILED) {
+            emitter.complete();
+            return;
+        }
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+    }
+
+    private void transition(State next) {
+        state = next;
+        publish("status", Map.of("state", next));
+    }
+
+    private synchronized void publish(String name, Object data) {
+        var event = new Event(name, data);
+        events.add(event);
+        int index = events.size() - 1;
+        for (var emitter : emitters) {
+            try {
+                send(emitter, index, event);
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    private static void send(SseEmitter emitter, int index, Event event) throws IOException {
+        emitter.send(SseEmitter.event()
+            .id(String.valueOf(index))
+            .name(event.name())
+            .data(event.data(), MediaType.APPLICATION_JSON));
+    }
+
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record Event(String name, Object data) {}
+}
@@ -0,0 +1,219 @@
+package com.dump2plan.api;
+
+import com.dump2plan.agent.PipelineRun;
+import com.dump2plan.agent.PlanningPipeline;
+import com.dump2plan.checkpoint.PlanCheckpoints;
+import com.dump2plan.checkpoint.PlanCheckpoints.Origin;
+import com.dump2plan.checkpoint.PlanCheckpoints.PendingRun;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.observability.PlanTracing;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.scheduling.FairShareScheduler;
+import com.dump2plan.scheduling.PlanningLane;
+import com.dump2plan.session.ChatSessions;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.agent.domain.io.UserInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Drives API planning runs through the pipeline in two scheduler jobs:
+ * analysis up to the clarifying questions, then, once answered, structuring
+ * and finalization. No thread is held while a run waits for its answers,
+ * so open runs cost only their event log.
+ *
+ * <p>Each step's output is checkpointed under the run id, and
+ * {@link #resume} restarts an interrupted run after its last completed
+ * step under the same id, so clients can reconnect to it. Interrupted
+ * chat runs that had their answers are finished here too, and their plan
+ * is stored in the conversation they came from.</p>
+ *
+ * <p>Keeps the {@value #MAX_RUNS} most recent runs.</p>
+ */
+@Component
+public class PlanRuns {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanRuns.class);
+    static final int MAX_RUNS = 10_000;
+
+    private final PlanningPipeline pipeline;
+    private final FairShareScheduler scheduler;
+    private final PlannerMetrics metrics;
+    private final PlanTracing tracing;
+    private final ObjectProvider<Ai> ai;
+    private final PlanCheckpoints checkpoints;
+    private final ChatSessions sessions;
+    private final Map<String, PlanRun> runs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PlanRun> eldest) {
+            return size() > MAX_RUNS;
+        }
+    };
+
+    public PlanRuns(PlanningPipeline pipeline, FairShareScheduler scheduler, PlannerMetrics metrics,
+                    PlanTracing tracing, ObjectProvider<Ai> ai, PlanCheckpoints checkpoints,
+                    ChatSessions sessions) {
+        this.pipeline = pipeline;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        this.ai = ai;
+        this.checkpoints = checkpoints;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Starts a run. With {@code answers}, the clarifying questions are
+     * published but not waited for.
+     *
+     * @throws com.dump2plan.scheduling.QuotaExceededException if the user cannot be admitted now
+     */
+    public PlanRun start(String userId, String brainDump, ClarifiedContext answers) {
+        var run = register(new PlanRun(UUID.randomUUID().toString(), userId));
+        checkpoints.started(run.id(), userId, Origin.API, brainDump, null);
+        try {
+            analyze(run, brainDump, answers);
+        } catch (RuntimeException e) {
+            synchronized (runs) {
+                runs.remove(run.id());
+            }
+            checkpoints.completed(run.id());
+            throw e;
+        }
+        return run;
+    }
+
+    /**
+     * Restarts an interrupted run after its last checkpointed step:
+     * re-analyzes, waits for answers again, or plans with the checkpointed
+     * answers and, if it got that far, the checkpointed structure.
+     */
+    public PlanRun resume(PendingRun pending) {
+        var run = register(new PlanRun(pending.runId(), pending.userId(), pending.conversationId()));
+        try {
+            if (pending.ideas() == null) {
+                analyze(run, pending.brainDump(), pending.answers());
+                return run;
+            }
+            tracing.startRun(run.id(), pending.brainDump().length());
+            tracing.annotateRun(run.id(), "resumed", "true");
+            awaitAnswers(run, pending.ideas());
+            if (pending.answers() != null && run.startPlanning()) {
+                schedule(run, TokenEstimator.estimate(pending.answers().toString()),
+                    () -> plan(run, pending.answers(), pending.structure()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to resume planning run {}", run.id(), e);
+            tracing.failRun(run.id(), e);
+            run.failed(e);
+            checkpoints.completed(run.id());
+        }
+        return run;
+    }
+
+    /**
+     * Queues structuring and finalization with the user's answers;
+     * {@code false} if the run is not waiting for answers.
+     */
+    public boolean answer(PlanRun run, ClarifiedContext answers) {
+        if (!run.startPlanning()) {
+            return false;
+        }
+        schedule(run, TokenEstimator.estimate(answers.toString()), () -> plan(run, answers, null));
+        return true;
+    }
+
+    /**
+     * The run with {@code id} if it belongs to {@code userId}, else {@code null}.
+     */
+    public PlanRun find(String id, String userId) {
+        PlanRun run;
+        synchronized (runs) {
+            run = runs.get(id);
+        }
+        return run != null && run.userId().equals(userId) ? run : null;
+    }
+
+    private PlanRun register(PlanRun run) {
+        synchronized (runs) {
+            runs.put(run.id(), run);
+        }
+        return run;
+    }
+
+    private void analyze(PlanRun run, String brainDump, ClarifiedContext answers) {
+        schedule(run, TokenEstimator.estimate(brainDump), () -> {
+            var ideas = pipeline.analyze(pipelineRun(run), new UserInput(brainDump), ai.getIfAvailable());
+            checkpoints.analyzed(run.id(), run.userId(), ideas);
+            awaitAnswers(run, ideas);
+            if (answers != null && run.startPlanning()) {
+                plan(run, answers, null);
+            }
+        });
+    }
+
+    private void awaitAnswers(PlanRun run, ExtractedIdeas ideas) {
+        run.analyzed(ideas);
+        metrics.hitlStarted(run.id());
+        tracing.hitlStarted(run.id());
+        run.waitForAnswers();
+    }
+
+    /**
+     * Structures (unless {@code structure} was checkpointed) and finalizes
+     * the plan.
+     */
+    private void plan(PlanRun run, ClarifiedContext answers, ProjectStructure structure) {
+        var ideas = run.ideas();
+        metrics.hitlCompleted(run.id());
+        tracing.hitlCompleted(run.id());
+        var model = ai.getIfAvailable();
+        if (structure == null) {
+            checkpoints.answered(run.id(), run.userId(), answers);
+            structure = pipeline.structure(pipelineRun(run), ideas, answers, model);
+            checkpoints.structured(run.id(), run.userId(), structure);
+        }
+        var plan = pipeline.finalize(pipelineRun(run), structure, ideas, model, run);
+        sessions.recordPlan(run.conversationId(), plan);
+        checkpoints.completed(run.id());
+        run.done(plan);
+    }
+
+    private static PipelineRun pipelineRun(PlanRun run) {
+        return new PipelineRun(run.id(), run.userId(), run.conversationId());
+    }
+
+    /**
+     * Queues {@code step} of {@code run} as a batch job. If the scheduler
+     * shuts down before the step ran, the run's clients are told it failed,
+     * but its checkpoints are kept so that it resumes after the restart.
+     */
+    private void schedule(PlanRun run, int estimatedTokens, Runnable step) {
+        scheduler.submit(run.userId(), PlanningLane.BATCH, estimatedTokens, () -> guarded(run, step))
+            .exceptionally(failure -> {
+                tracing.failRun(run.id(), failure);
+                run.failed(failure);
+                return null;
+            });
+    }
+
+    private void guarded(PlanRun run, Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.warn("Planning run {} failed", run.id(), e);
+            tracing.failRun(run.id(), e);
+            checkpoints.completed(run.id());
+            run.failed(e);
+        }
+    }
+}
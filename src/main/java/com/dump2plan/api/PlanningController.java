@@ -0,0 +1,209 @@
+package com.dump2plan.api;
+
+import com.dump2plan.agent.PipelineRun;
+import com.dump2plan.agent.PlanningPipeline;
+import com.dump2plan.failover.ProvidersUnavailableException;
+import com.dump2plan.forecast.ScheduleSimulator;
+import com.dump2plan.forecast.ScheduleSimulator.Forecast;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.scheduling.FairShareScheduler;
+import com.dump2plan.scheduling.PlanningLane;
+import com.dump2plan.scheduling.QuotaExceededException;
+import com.dump2plan.search.PlanHit;
+import com.dump2plan.search.PlanSearch;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.user.Dump2PlanUserService;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.agent.domain.io.UserInput;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP entry point to the planning pipeline, usable without the Vaadin UI.
+ * Runs are admitted through {@link FairShareScheduler} in the
+ * {@link PlanningLane#BATCH} lane and complete asynchronously, so no servlet
+ * thread waits on the model.
+ *
+ * <p>{@code POST /api/plans} answers with the finished plan. The
+ * {@code /api/plans/runs} resources instead return a run id at once, stream
+ * progress, clarifying questions and plan fragments as Server-Sent Events,
+ * and take the answers in a follow-up request. A finished run's
+ * {@code /forecast} simulates its schedule for one or more team sizes.
+ * {@code /api/plans/history} searches the caller's earlier plans.</p>
+ */
+@RestController
+@RequestMapping("/api/plans")
+public class PlanningController {
+
+    private static final Duration EVENTS_TIMEOUT = Duration.ofMinutes(30);
+    private static final ClarifiedContext NO_ANSWERS =
+        new ClarifiedContext("Not specified", "Not specified", "Not specified", "None");
+
+    private final PlanningPipeline pipeline;
+    private final FairShareScheduler scheduler;
+    private final Dump2PlanUserService userService;
+    private final PlanExportService exportService;
+    private final ObjectProvider<Ai> ai;
+    private final PlanRuns runs;
+    private final ScheduleSimulator simulator;
+    private final PlanSearch planSearch;
+
+    public PlanningController(PlanningPipeline pipeline, FairShareScheduler scheduler,
+                              Dump2PlanUserService userService, PlanExportService exportService,
+                              ObjectProvider<Ai> ai, PlanRuns runs, ScheduleSimulator simulator,
+                              PlanSearch planSearch) {
+        this.pipeline = pipeline;
+        this.scheduler = scheduler;
+        this.userService = userService;
+        this.exportService = exportService;
+        this.ai = ai;
+        this.runs = runs;
+        this.simulator = simulator;
+        this.planSearch = planSearch;
+    }
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<StructuredPlan> plan(@RequestBody PlanRequest request, Principal principal) {
+        return run(request, principal);
+    }
+
+    @PostMapping(produces = "text/markdown")
+    public CompletableFuture<String> planAsMarkdown(@RequestBody PlanRequest request, Principal principal) {
+        return run(request, principal).thenApply(exportService::exportToMarkdown);
+    }
+
+    @PostMapping("/runs")
+    public ResponseEntity<RunStatus> startRun(@RequestBody PlanRequest request, Principal principal) {
+        requireBrainDump(request);
+        var run = runs.start(userService.resolve(principal).getId(), request.brainDump(), request.context());
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/plans/runs/" + run.id()))
+            .body(RunStatus.of(run));
+    }
+
+    @GetMapping("/runs/{id}")
+    public RunStatus run(@PathVariable String id, Principal principal) {
+        return RunStatus.of(find(id, principal));
+    }
+
+    @GetMapping(path = "/runs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id, Principal principal,
+                             @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        var emitter = new SseEmitter(EVENTS_TIMEOUT.toMillis());
+        find(id, principal).subscribe(emitter, lastEventId);
+        return emitter;
+    }
+
+    @PostMapping("/runs/{id}/answers")
+    public ResponseEntity<RunStatus> answer(@PathVariable String id, @RequestBody ClarifiedContext answers,
+                                            Principal principal) {
+        var run = find(id, principal);
+        if (!runs.answer(run, answers)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(RunStatus.of(run));
+        }
+        return ResponseEntity.accepted().body(RunStatus.of(run));
+    }
+
+    @GetMapping("/runs/{id}/forecast")
+    public List<Forecast> forecast(@PathVariable String id, @RequestParam(required = false) int[] teamSize,
+                                   Principal principal) {
+        var plan = find(id, principal).plan();
+        if (plan == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Planning run " + id + " has no plan yet");
+        }
+        var sizes = teamSize == null || teamSize.length == 0
+            ? new int[] {simulator.config().defaultTeamSize()}
+            : teamSize;
+        return simulator.whatIf(plan, LocalDate.now(), sizes);
+    }
+
+    @GetMapping("/history")
+    public List<PlanHit> history(@RequestParam("q") String query,
+                                 @RequestParam(defaultValue = "20") int limit, Principal principal) {
+        return planSearch.search(userService.resolve(principal).getId(), query, Math.clamp(limit, 1, 100));
+    }
+
+    @GetMapping("/history/{id}")
+    public StructuredPlan historicPlan(@PathVariable int id, Principal principal) {
+        var plan = planSearch.plan(userService.resolve(principal).getId(), id);
+        if (plan == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No saved plan " + id);
+        }
+        return plan;
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<String> quotaExceeded(QuotaExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+            .body(e.getMessage());
+    }
+
+    @ExceptionHandler(ProvidersUnavailableException.class)
+    public ResponseEntity<String> providersUnavailable(ProvidersUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+            .body(e.getMessage());
+    }
+
+    private CompletableFuture<StructuredPlan> run(PlanRequest request, Principal principal) {
+        requireBrainDump(request);
+        var userId = userService.resolve(principal).getId();
+        var answers = request.context() != null ? request.context() : NO_ANSWERS;
+        var result = new CompletableFuture<StructuredPlan>();
+        scheduler.submit(userId, PlanningLane.BATCH, TokenEstimator.estimate(request.brainDump()), () -> {
+            try {
+                var model = ai.getIfAvailable();
+                var run = new PipelineRun(UUID.randomUUID().toString(), userId);
+                var ideas = pipeline.analyze(run, new UserInput(request.brainDump()), model);
+                var structure = pipeline.structure(run, ideas, answers, model);
+                result.complete(pipeline.finalize(run, structure, ideas, model));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }).exceptionally(failure -> {
+            // The job never ran: the scheduler was shut down with it still queued.
+            result.completeExceptionally(failure);
+            return null;
+        });
+        return result;
+    }
+
+    private PlanRun find(String id, Principal principal) {
+        var run = runs.find(id, userService.resolve(principal).getId());
+        if (run == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No planning run " + id);
+        }
+        return run;
+    }
+
+    private static void requireBrainDump(PlanRequest request) {
+        if (request.brainDump() == null || request.brainDump().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "brainDump is required");
+        }
+    }
+}
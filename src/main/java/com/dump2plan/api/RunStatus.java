@@ -0,0 +1,17 @@
+package com.dump2plan.api;
+
+import com.dump2plan.model.StructuredPlan;
+
+import java.util.List;
+
+/**
+ * Snapshot of a {@link PlanRun}. {@code questions} is set once analysis is
+ * done, {@code plan} once the run is {@code DONE}.
+ */
+public record RunStatus(String id, PlanRun.State state, List<String> questions, StructuredPlan plan) {
+
+    static RunStatus of(PlanRun run) {
+        var ideas = run.ideas();
+        return new RunStatus(run.id(), run.state(), ideas == null ? null : ideas.clarifyingQuestions(), run.plan());
+    }
+}
@@ -0,0 +1,378 @@
+package com.dump2plan.checkpoint;
+
+import com.dump2plan.json.ModelJson;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log of planning checkpoints in a single local
+ * file. Each frame is {@code [length][crc32c][JSON entry]}; replay stops at
+ * the first torn or corrupt frame and truncates the file there. An intact
+ * frame that no longer deserializes only drops its run from replay.
+ *
+ * <p>{@link #append} only serializes and queues the entry. A background
+ * thread writes whatever has queued every {@code flushInterval} and makes
+ * it durable with one {@code fsync} for the whole batch, so a crash loses at
+ * most the last interval's checkpoints, and those runs simply redo one
+ * step.</p>
+ *
+ * <p>Entries of completed runs, and of runs idle for longer than
+ * {@code retention}, are dropped when the file outgrows
+ * {@code compactBytes}: the live entries are rewritten to a new file that
+ * atomically replaces the old one.</p>
+ */
+public class CheckpointLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointLog.class);
+    private static final int HEADER_BYTES = 8;
+
+    private final Path file;
+    private final Duration flushInterval;
+    private final long compactBytes;
+    private final Duration retention;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingWrites = lock.newCondition();
+    private final Map<String, List<byte[]>> live = new LinkedHashMap<>();
+    private final Map<String, Long> lastWritten = new LinkedHashMap<>();
+    private final Map<String, List<Entry>> recovered;
+    private final Thread flusher;
+    private FileChannel channel;
+    private List<byte[]> queue = new ArrayList<>();
+    private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    private long appended;
+    private long durable;
+    private long compactAt;
+    private volatile boolean closed;
+
+    public CheckpointLog(Path file, Duration flushInterval, long compactBytes, Duration retention) {
+        this(file, flushInterval, compactBytes, retention, System::currentTimeMillis);
+    }
+
+    public CheckpointLog(Path file, Duration flushInterval, long compactBytes, Duration retention,
+                         LongSupplier clock) {
+        this.file = file;
+        this.flushInterval = flushInterval;
+        this.compactBytes = compactBytes;
+        this.retention = retention;
+        this.clock = clock;
+        this.compactAt = compactBytes;
+        try {
+            var parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            this.recovered = replay();
+            channel.position(channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open checkpoint log " + file, e);
+        }
+        this.flusher = Thread.ofVirtual().name("dump2plan-checkpoint-flusher").start(this::flushLoop);
+    }
+
+    /**
+     * Queues one checkpoint of {@code runId}. Returns once the entry is
+     * serialized; it becomes durable with the next batch.
+     */
+    public void append(String runId, String userId, String step, Object value) {
+        long timestamp = clock.getAsLong();
+        byte[] frame = frame(new Written(runId, userId, step, timestamp, value));
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Checkpoint log is closed");
+            }
+            live.computeIfAbsent(runId, id -> new ArrayList<>()).add(frame);
+            lastWritten.put(runId, timestamp);
+            queue.add(frame);
+            appended++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks {@code runId} finished; its entries are dropped at the next
+     * compaction and it is no longer reported after a restart.
+     */
+    public void complete(String runId) {
+        append(runId, null, Entry.COMPLETED, null);
+        lock.lock();
+        try {
+            live.remove(runId);
+            lastWritten.remove(runId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entries of runs that had not completed when the log was opened,
+     * in append order per run.
+     */
+    public Map<String, List<Entry>> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Completes once everything appended so far is on disk.
+     */
+    public CompletableFuture<Void> flush() {
+        var flushed = new CompletableFuture<Void>();
+        lock.lock();
+        try {
+            if (durable == appended) {
+                flushed.complete(null);
+            } else {
+                waiters.add(flushed);
+                pendingWrites.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return flushed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pendingWrites.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeBatch();
+        channel.close();
+    }
+
+    /**
+     * Writes a batch every {@code flushInterval}, or as soon as
+     * {@link #flush} asks for one. The flusher is woken rather than
+     * interrupted: an interrupt during a write would close the channel.
+     */
+    private void flushLoop() {
+        while (!closed) {
+            lock.lock();
+            try {
+                if (!closed && waiters.isEmpty()) {
+                    pendingWrites.awaitNanos(flushInterval.toNanos());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            writeBatch();
+        }
+    }
+
+    private void writeBatch() {
+        List<byte[]> batch;
+        List<CompletableFuture<Void>> flushed;
+        long batchEnd;
+        lock.lock();
+        try {
+            if (queue.isEmpty() && waiters.isEmpty()) {
+                return;
+            }
+            batch = queue;
+            flushed = waiters;
+            batchEnd = appended;
+            queue = new ArrayList<>();
+            waiters = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            synchronized (this) {
+                var buffers = batch.stream().map(ByteBuffer::wrap).toArray(ByteBuffer[]::new);
+                while (buffers.length > 0 && buffers[buffers.length - 1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(false);
+                if (channel.size() > compactAt) {
+                    compact();
+                }
+            }
+            lock.lock();
+            try {
+                durable = Math.max(durable, batchEnd);
+            } finally {
+                lock.unlock();
+            }
+            flushed.forEach(future -> future.complete(null));
+        } catch (IOException e) {
+            log.warn("Failed to write {} checkpoints to {}", batch.size(), file, e);
+            flushed.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Rewrites the entries of live runs, dropping those idle past retention.
+     * Called with the file monitor held.
+     */
+    private void compact() throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".compact");
+        lock.lock();
+        try {
+            long cutoff = clock.getAsLong() - retention.toMillis();
+            lastWritten.entrySet().removeIf(run -> {
+                boolean expired = run.getValue() < cutoff;
+                if (expired) {
+                    live.remove(run.getKey());
+                }
+                return expired;
+            });
+            try (var out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (var frames : live.values()) {
+                    for (var frame : frames) {
+                        out.write(ByteBuffer.wrap(frame));
+                    }
+                }
+                out.force(false);
+            }
+            // Queued frames of live runs were just written with the rest.
+            queue.clear();
+            durable = appended;
+        } finally {
+            lock.unlock();
+        }
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        // Live runs alone may exceed the threshold; don't rewrite them on every batch.
+        compactAt = Math.max(compactBytes, channel.size() * 2);
+    }
+
+    private Map<String, List<Entry>> replay() throws IOException {
+        var runs = new LinkedHashMap<String, List<Entry>>();
+        var unreadable = new HashSet<String>();
+        var header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        long size = channel.size();
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            int crc = header.getInt(4);
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            var payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER_BYTES);
+            if (checksum(payload.array()) != crc) {
+                break;
+            }
+            long at = position;
+            position += HEADER_BYTES + length;
+            Entry entry;
+            try {
+                entry = ModelJson.reader(Entry.class).readValue(payload.array());
+            } catch (IOException e) {
+                // Intact but no longer readable, e.g. written before a model
+                // change: give up on its run rather than on startup.
+                var runId = runId(payload.array());
+                log.warn("Skipping run {}: unreadable checkpoint at byte {} of {}", runId, at, file, e);
+                if (runId != null) {
+                    unreadable.add(runId);
+                    runs.remove(runId);
+                    live.remove(runId);
+                    lastWritten.remove(runId);
+                }
+                continue;
+            }
+            if (unreadable.contains(entry.runId())) {
+                continue;
+            }
+            if (Entry.COMPLETED.equals(entry.step())) {
+                runs.remove(entry.runId());
+                live.remove(entry.runId());
+                lastWritten.remove(entry.runId());
+            } else {
+                runs.computeIfAbsent(entry.runId(), id -> new ArrayList<>()).add(entry);
+                var frame = new byte[HEADER_BYTES + length];
+                System.arraycopy(header.array(), 0, frame, 0, HEADER_BYTES);
+                System.arraycopy(payload.array(), 0, frame, HEADER_BYTES, length);
+                live.computeIfAbsent(entry.runId(), id -> new ArrayList<>()).add(frame);
+                lastWritten.put(entry.runId(), entry.timestamp());
+            }
+        }
+        if (position < size) {
+            log.warn("Truncating checkpoint log {} at byte {} of {} (torn or corrupt frame)", file, position, size);
+            channel.truncate(position);
+        }
+        return runs;
+    }
+
+    /**
+     * @return the run id of an entry that does not deserialize, or {@code null} if it has none
+     */
+    private static String runId(byte[] payload) {
+        try {
+            var runId = ModelJson.mapper().readTree(payload).path("runId");
+            return runId.isTextual() ? runId.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] frame(Written entry) {
+        try {
+            byte[] payload = ModelJson.writer(Written.class).writeValueAsBytes(entry);
+            var frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+            frame.putInt(payload.length).putInt(checksum(payload)).put(payload);
+            return frame.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize checkpoint " + entry.step(), e);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        var crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /** An entry as appended, serialized without first converting its value to a tree. */
+    record Written(String runId, String userId, String step, long timestamp, Object value) {}
+
+    /**
+     * @param step      the action that produced {@code value}, or {@link #COMPLETED}
+     * @param timestamp epoch milliseconds of the append
+     */
+    public record Entry(String runId, String userId, String step, long timestamp, JsonNode value) {
+
+        public static final String COMPLETED = "completed";
+    }
+}
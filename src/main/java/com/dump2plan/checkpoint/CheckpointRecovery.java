@@ -0,0 +1,58 @@
+package com.dump2plan.checkpoint;
+
+import com.dump2plan.api.PlanRuns;
+import com.dump2plan.checkpoint.PlanCheckpoints.Origin;
+import com.dump2plan.checkpoint.PlanCheckpoints.PendingRun;
+import com.dump2plan.similarity.SemanticCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resumes runs left unfinished by the previous process once the
+ * application is ready. API runs continue under their original id. Agent
+ * runs belong to Embabel processes that did not survive the restart; one
+ * that already had its answers is finished by {@link PlanRuns} from its
+ * checkpointed answers and structure, and the plan is stored in its
+ * conversation. One still waiting for answers cannot be asked again, so
+ * its checkpointed analysis is handed to the {@link SemanticCache}: when
+ * the user resubmits the brain dump, planning starts from the clarifying
+ * questions instead of re-analyzing.
+ */
+@Component
+public class CheckpointRecovery {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointRecovery.class);
+
+    private final PlanCheckpoints checkpoints;
+    private final PlanRuns planRuns;
+    private final SemanticCache semanticCache;
+
+    public CheckpointRecovery(PlanCheckpoints checkpoints, PlanRuns planRuns, SemanticCache semanticCache) {
+        this.checkpoints = checkpoints;
+        this.planRuns = planRuns;
+        this.semanticCache = semanticCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingRuns() {
+        var pending = checkpoints.pendingRuns();
+        if (!pending.isEmpty()) {
+            log.info("Resuming {} planning runs from checkpoints", pending.size());
+        }
+        pending.forEach(this::resume);
+    }
+
+    void resume(PendingRun run) {
+        if (run.origin() == Origin.API || run.answers() != null) {
+            planRuns.resume(run);
+            return;
+        }
+        if (run.ideas() != null && run.userId() != null) {
+            semanticCache.remember(run.userId(), run.brainDump(), run.ideas());
+        }
+        checkpoints.completed(run.runId());
+    }
+}
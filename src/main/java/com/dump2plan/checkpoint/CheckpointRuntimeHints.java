@@ -0,0 +1,18 @@
+package com.dump2plan.checkpoint;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Jackson binding hints for the checkpoint log's own entry records; the
+ * checkpointed model records are covered by the application's hints.
+ */
+class CheckpointRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+            CheckpointLog.Entry.class, CheckpointLog.Written.class, PlanCheckpoints.Input.class);
+    }
+}
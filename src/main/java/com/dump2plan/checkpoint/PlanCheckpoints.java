@@ -0,0 +1,173 @@
+package com.dump2plan.checkpoint;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.CheckpointConfig;
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.observability.PlannerMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkpoints the output of each planning step, keyed by run, so runs
+ * interrupted by a crash or restart can be picked up from their last
+ * completed step. A no-op when {@code dump2plan.checkpoint.enabled} is off.
+ */
+@Component
+@ImportRuntimeHints(CheckpointRuntimeHints.class)
+public class PlanCheckpoints implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanCheckpoints.class);
+
+    /** Where a run was started, which decides how it can be resumed. */
+    public enum Origin {
+        API, AGENT
+    }
+
+    /** Checkpointed steps, in the order a run produces them. */
+    public enum Step {
+        INPUT, IDEAS, ANSWERS, STRUCTURE
+    }
+
+    private final PlannerMetrics metrics;
+    private final CheckpointLog checkpointLog;
+
+    public PlanCheckpoints(Dump2PlanProperties properties, PlannerMetrics metrics) {
+        this.metrics = metrics;
+        CheckpointConfig config = properties.checkpoint();
+        this.checkpointLog = config != null && config.enabled()
+            ? new CheckpointLog(Path.of(config.file()), config.flushInterval(), config.compactBytes(),
+                config.retention())
+            : null;
+    }
+
+    public boolean enabled() {
+        return checkpointLog != null;
+    }
+
+    /**
+     * Records the run's input; {@code conversationId} is the chat
+     * conversation the plan belongs to, or {@code null} for API runs.
+     */
+    public void started(String runId, String userId, Origin origin, String brainDump, String conversationId) {
+        record(runId, userId, Step.INPUT, new Input(origin, brainDump, conversationId));
+    }
+
+    public void analyzed(String runId, String userId, ExtractedIdeas ideas) {
+        record(runId, userId, Step.IDEAS, ideas);
+    }
+
+    public void answered(String runId, String userId, ClarifiedContext answers) {
+        record(runId, userId, Step.ANSWERS, answers);
+    }
+
+    public void structured(String runId, String userId, ProjectStructure structure) {
+        record(runId, userId, Step.STRUCTURE, structure);
+    }
+
+    /**
+     * Ends {@code runId}, whether it produced a plan or failed; it will not
+     * be resumed.
+     */
+    public void completed(String runId) {
+        if (checkpointLog == null || runId == null) {
+            return;
+        }
+        try {
+            checkpointLog.complete(runId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to checkpoint completion of run {}", runId, e);
+        }
+    }
+
+    /**
+     * Runs that were unfinished when the log was opened. Runs whose
+     * checkpoints cannot be read back are skipped.
+     */
+    public List<PendingRun> pendingRuns() {
+        if (checkpointLog == null) {
+            return List.of();
+        }
+        var pending = new ArrayList<PendingRun>();
+        for (Map.Entry<String, List<CheckpointLog.Entry>> run : checkpointLog.recovered().entrySet()) {
+            try {
+                pending.add(pendingRun(run.getKey(), run.getValue()));
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Skipping unreadable checkpoints of run {}", run.getKey(), e);
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (checkpointLog != null) {
+            checkpointLog.close();
+        }
+    }
+
+    private void record(String runId, String userId, Step step, Object value) {
+        if (checkpointLog == null || runId == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            checkpointLog.append(runId, userId, step.name(), value);
+        } catch (RuntimeException e) {
+            log.warn("Failed to checkpoint {} of run {}", step, runId, e);
+        }
+        metrics.recordCheckpoint(step.name().toLowerCase(), System.nanoTime() - start);
+    }
+
+    private PendingRun pendingRun(String runId, List<CheckpointLog.Entry> entries) throws IOException {
+        String userId = null;
+        Input input = null;
+        ExtractedIdeas ideas = null;
+        ClarifiedContext answers = null;
+        ProjectStructure structure = null;
+        for (var entry : entries) {
+            userId = entry.userId();
+            JsonNode value = entry.value();
+            switch (Step.valueOf(entry.step())) {
+                case INPUT -> input = ModelJson.reader(Input.class).readValue(value);
+                case IDEAS -> ideas = ModelJson.reader(ExtractedIdeas.class).readValue(value);
+                case ANSWERS -> answers = ModelJson.reader(ClarifiedContext.class).readValue(value);
+                case STRUCTURE -> structure = ModelJson.reader(ProjectStructure.class).readValue(value);
+            }
+        }
+        if (input == null) {
+            throw new IllegalArgumentException("No input checkpointed");
+        }
+        return new PendingRun(runId, userId, input.origin(), input.brainDump(), input.conversationId(), ideas, answers,
+            structure);
+    }
+
+    record Input(Origin origin, String brainDump, String conversationId) {}
+
+    /**
+     * An interrupted run and the outputs of the steps it completed;
+     * {@code null} for steps it had not reached.
+     */
+    public record PendingRun(
+        String runId,
+        String userId,
+        Origin origin,
+        String brainDump,
+        String conversationId,
+        ExtractedIdeas ideas,
+        ClarifiedContext answers,
+        ProjectStructure structure
+    ) {}
+}
@@ -0,0 +1,133 @@
+package com.dump2plan.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Builds a preset dictionary for {@link RecordCompressor} from sample
+ * records. Deflate can only refer back to bytes it has already seen, so a
+ * small record compresses poorly on its own; seeding the window with
+ * substrings that recur across records (field names, persona phrases,
+ * Markdown scaffolding) lets even the first occurrence be a short match.
+ *
+ * <p>Candidate segments of every sample are scored by how many samples
+ * share each of their 8-byte substrings, and picked greedily so that bytes
+ * already covered by an earlier pick stop counting. Deflate codes nearer
+ * matches more cheaply, so the most valuable segments go last, next to the
+ * data being compressed.</p>
+ */
+public final class DictionaryTrainer {
+
+    /** Deflate's window; a longer dictionary is never referenced. */
+    public static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+
+    private static final int K = 8;
+    private static final int SEGMENT = 64;
+    private static final int STEP = 16;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * Trains a dictionary of at most {@code maxBytes} from {@code samples}.
+     * Returns an empty dictionary when nothing recurs across samples.
+     */
+    public static byte[] train(List<byte[]> samples, int maxBytes) {
+        int budget = Math.min(maxBytes, MAX_DICTIONARY_BYTES);
+        var frequencies = sampleFrequencies(samples);
+        var candidates = new PriorityQueue<Candidate>((a, b) -> Long.compare(b.score, a.score));
+        for (int s = 0; s < samples.size(); s++) {
+            var sample = samples.get(s);
+            for (int start = 0; start + K <= sample.length; start += STEP) {
+                int end = Math.min(sample.length, start + SEGMENT);
+                long score = score(sample, start, end, frequencies);
+                if (score > 0) {
+                    candidates.add(new Candidate(s, start, end, score));
+                }
+            }
+        }
+
+        var picked = new ArrayList<Candidate>();
+        int size = 0;
+        while (size < budget && !candidates.isEmpty()) {
+            var best = candidates.poll();
+            var sample = samples.get(best.sample);
+            best.score = score(sample, best.start, best.end, frequencies);
+            if (best.score <= 0) {
+                continue;
+            }
+            if (!candidates.isEmpty() && best.score < candidates.peek().score) {
+                candidates.add(best);
+                continue;
+            }
+            picked.add(best);
+            size += best.end - best.start;
+            for (int i = best.start; i + K <= best.end; i++) {
+                frequencies.remove(gram(sample, i));
+            }
+        }
+
+        var dictionary = new ByteArrayOutputStream(Math.min(size, budget));
+        for (int i = picked.size() - 1; i >= 0; i--) {
+            var segment = picked.get(i);
+            dictionary.write(samples.get(segment.sample), segment.start, segment.end - segment.start);
+        }
+        var bytes = dictionary.toByteArray();
+        return bytes.length <= budget ? bytes : Arrays.copyOfRange(bytes, bytes.length - budget, bytes.length);
+    }
+
+    /** Number of samples containing each 8-byte substring seen in at least two. */
+    private static Map<Long, Integer> sampleFrequencies(List<byte[]> samples) {
+        var frequencies = new HashMap<Long, Integer>();
+        Set<Long> seen = new HashSet<>();
+        for (var sample : samples) {
+            seen.clear();
+            for (int i = 0; i + K <= sample.length; i++) {
+                var gram = gram(sample, i);
+                if (seen.add(gram)) {
+                    frequencies.merge(gram, 1, Integer::sum);
+                }
+            }
+        }
+        frequencies.values().removeIf(count -> count < 2);
+        return frequencies;
+    }
+
+    private static long score(byte[] sample, int start, int end, Map<Long, Integer> frequencies) {
+        long score = 0;
+        for (int i = start; i + K <= end; i++) {
+            score += frequencies.getOrDefault(gram(sample, i), 0);
+        }
+        return score;
+    }
+
+    private static long gram(byte[] bytes, int offset) {
+        long gram = 0;
+        for (int i = 0; i < K; i++) {
+            gram = gram << 8 | (bytes[offset + i] & 0xFF);
+        }
+        return gram;
+    }
+
+    private static final class Candidate {
+
+        final int sample;
+        final int start;
+        final int end;
+        long score;
+
+        Candidate(int sample, int start, int end, long score) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.dump2plan.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate with a preset dictionary, for records too small to compress well
+ * on their own. Output is a zlib stream, whose header names the dictionary
+ * by its Adler-32 checksum, so a record compressed with a different
+ * dictionary is rejected instead of decoded into garbage.
+ *
+ * <p>Deflaters and inflaters hold native memory, so a few are pooled and
+ * reused instead of being created per record; the pools are shared by all
+ * compressors, since the dictionary and level are set per record anyway.
+ * Input may be a direct or memory-mapped buffer; it is read in place, not
+ * copied to the heap.</p>
+ */
+public final class RecordCompressor {
+
+    private static final int POOL_SIZE = 16;
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final byte[] dictionary;
+    private final int dictionaryId;
+    private final int level;
+
+    /**
+     * @param dictionary preset dictionary, possibly empty for plain deflate
+     * @param level      {@link Deflater} level, 1 (fastest) to 9 (smallest)
+     */
+    public RecordCompressor(byte[] dictionary, int level) {
+        this.dictionary = dictionary.clone();
+        this.level = level;
+        var adler = new Adler32();
+        adler.update(dictionary);
+        this.dictionaryId = (int) adler.getValue();
+    }
+
+    /**
+     * Loads a dictionary bundled on the classpath.
+     */
+    public static RecordCompressor fromResource(String resource, int level) {
+        try (InputStream in = RecordCompressor.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing compression dictionary " + resource);
+            }
+            return new RecordCompressor(in.readAllBytes(), level);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read compression dictionary " + resource, e);
+        }
+    }
+
+    /** Adler-32 of the dictionary, as recorded in every zlib header this writes. */
+    public int dictionaryId() {
+        return dictionaryId;
+    }
+
+    public byte[] compress(byte[] raw) {
+        return compress(raw, 0, raw.length);
+    }
+
+    public byte[] compress(byte[] raw, int offset, int length) {
+        var deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater();
+        }
+        try {
+            deflater.setLevel(level);
+            if (dictionary.length > 0) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw, offset, length);
+            deflater.finish();
+            var out = new byte[Math.max(64, length / 2)];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                size += deflater.deflate(out, size, out.length - size);
+            }
+            return Arrays.copyOf(out, size);
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    public byte[] decompress(byte[] compressed, int rawLength) {
+        return decompress(ByteBuffer.wrap(compressed), rawLength);
+    }
+
+    /**
+     * Inflates the remaining bytes of {@code compressed}, which must hold
+     * exactly one record of {@code rawLength} bytes.
+     *
+     * @throws IllegalArgumentException if the record is corrupt or was
+     *                                  compressed with another dictionary
+     */
+    public byte[] decompress(ByteBuffer compressed, int rawLength) {
+        var inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(compressed);
+            var out = new byte[rawLength];
+            var overflow = new byte[1];
+            int size = 0;
+            while (!inflater.finished()) {
+                // Once the output is full, inflating into a spare byte lets zlib read the trailer.
+                int n = size < rawLength ? inflater.inflate(out, size, rawLength - size) : inflater.inflate(overflow);
+                if (size == rawLength && n > 0) {
+                    throw new IllegalArgumentException("Compressed record is longer than " + rawLength + " bytes");
+                }
+                size += n;
+                if (n == 0 && inflater.needsDictionary()) {
+                    if (inflater.getAdler() != dictionaryId) {
+                        throw new IllegalArgumentException(
+                            "Record was compressed with another dictionary (" + inflater.getAdler() + ")");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (n == 0 && inflater.needsInput() && !inflater.finished()) {
+                    throw new IllegalArgumentException("Compressed record is truncated");
+                }
+            }
+            if (size != rawLength) {
+                throw new IllegalArgumentException("Expected " + rawLength + " bytes, inflated " + size);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed record", e);
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.dump2plan.cost;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.CostsConfig;
+import com.dump2plan.observability.PlannerMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * GOAP action costs learned from measured calls instead of fixed
+ * annotation values. For each action and model it keeps exponentially
+ * weighted moving statistics of latency against input size (a weighted
+ * least-squares line, so a model that is slow per token is priced by the
+ * size of the input at hand), completion tokens and success rate.
+ *
+ * <p>An action's cost is
+ * {@code (latencyWeight * seconds + tokenWeight * kTokens * price(model)) / successRate},
+ * so repeated failures make it proportionally more expensive. Until
+ * {@code minSamples} calls have been seen the caller's prior, normally the
+ * annotated cost, is returned. An alternative action only has to measure
+ * its calls under its own name and ask for its cost to compete with the
+ * others on the same scale.</p>
+ */
+@Component
+public class ActionCostModel {
+
+    /** Floor on the success rate, so a failing action's cost stays finite. */
+    private static final double MIN_SUCCESS_RATE = 0.05;
+
+    private final CostsConfig config;
+    private final PlannerMetrics metrics;
+    private final Map<Key, Stats> stats = new ConcurrentHashMap<>();
+
+    public ActionCostModel(Dump2PlanProperties properties, PlannerMetrics metrics) {
+        this.config = properties.costs();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records one finished model call of {@code action} on {@code model}.
+     */
+    public void record(String action, String model, long inputTokens, Duration latency,
+                       long completionTokens, boolean success) {
+        if (config == null || !config.enabled()) {
+            return;
+        }
+        var key = new Key(action, model);
+        stats.computeIfAbsent(key, k -> {
+            var created = new Stats();
+            metrics.trackActionCost(action, model, created, s -> cost(k, s, (long) s.meanTokens, Double.NaN));
+            return created;
+        }).add(config.smoothing(), inputTokens, latency.toNanos() / 1e9, completionTokens, success);
+    }
+
+    /**
+     * The expected cost of running {@code action} with {@code actor}'s model
+     * on an input of {@code inputTokens}, or {@code prior} while too few
+     * calls have been measured.
+     */
+    public double cost(String action, ActorConfig actor, long inputTokens, double prior) {
+        if (config == null || !config.enabled()) {
+            return prior;
+        }
+        var key = new Key(action, actor.llm());
+        var measured = stats.get(key);
+        return measured == null ? prior : cost(key, measured, inputTokens, prior);
+    }
+
+    /**
+     * The expected latency of {@code action} on {@code model}, or
+     * {@code null} before {@code minSamples} calls.
+     */
+    public Duration expectedLatency(String action, String model, long inputTokens) {
+        var measured = stats.get(new Key(action, model));
+        if (measured == null) {
+            return null;
+        }
+        synchronized (measured) {
+            return measured.samples < config.minSamples()
+                ? null
+                : Duration.ofNanos((long) (measured.latencySeconds(inputTokens) * 1e9));
+        }
+    }
+
+    private double cost(Key key, Stats measured, long inputTokens, double prior) {
+        synchronized (measured) {
+            if (measured.samples < config.minSamples()) {
+                return prior;
+            }
+            double seconds = measured.latencySeconds(inputTokens);
+            double kTokens = (inputTokens + measured.completionTokens) / 1000.0;
+            double price = config.priceOf(key.model());
+            double cost = config.latencyWeight() * seconds + config.tokenWeight() * kTokens * price;
+            return cost / Math.max(measured.successRate, MIN_SUCCESS_RATE);
+        }
+    }
+
+    private record Key(String action, String model) {}
+
+    /**
+     * Exponentially weighted first and second moments of (input tokens,
+     * latency), plus completion tokens and success rate. The first sample
+     * initializes every average; latency and tokens only count successful
+     * calls.
+     */
+    private static final class Stats {
+
+        long samples;
+        long successes;
+        double meanTokens;
+        double meanSeconds;
+        double meanTokensSquared;
+        double meanTokensSeconds;
+        double completionTokens;
+        double successRate = 1;
+
+        synchronized void add(double alpha, long inputTokens, double seconds, long completion, boolean success) {
+            successRate += (samples == 0 ? 1 : alpha) * ((success ? 1 : 0) - successRate);
+            samples++;
+            if (!success) {
+                return;
+            }
+            double weight = successes++ == 0 ? 1 : alpha;
+            double x = inputTokens;
+            meanTokens += weight * (x - meanTokens);
+            meanSeconds += weight * (seconds - meanSeconds);
+            meanTokensSquared += weight * (x * x - meanTokensSquared);
+            meanTokensSeconds += weight * (x * seconds - meanTokensSeconds);
+            completionTokens += weight * (completion - completionTokens);
+        }
+
+        /**
+         * Latency predicted by the weighted regression line, or the mean when
+         * input sizes have not varied enough to fit a slope.
+         */
+        double latencySeconds(long inputTokens) {
+            double variance = meanTokensSquared - meanTokens * meanTokens;
+            if (variance <= meanTokens * meanTokens * 1e-4 || variance <= 1) {
+                return meanSeconds;
+            }
+            double slope = (meanTokensSeconds - meanTokens * meanSeconds) / variance;
+            if (slope <= 0) {
+                return meanSeconds;
+            }
+            return Math.max(0, meanSeconds + slope * (inputTokens - meanTokens));
+        }
+    }
+}
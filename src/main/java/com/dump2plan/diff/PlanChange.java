@@ -0,0 +1,50 @@
+package com.dump2plan.diff;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+
+import java.util.Set;
+
+/**
+ * One structural difference between two versions of a plan. Changes that
+ * refer to an existing milestone or task carry both versions; the
+ * {@code before} id is the one the old plan (and anything rendered from it)
+ * knows, which differs from the {@code after} id when the element was
+ * matched by title.
+ */
+public sealed interface PlanChange {
+
+    /**
+     * The parts of a milestone or task a {@code *Modified} change can touch.
+     * {@code ORDER} is a renumbered {@code orderIndex} that left the element
+     * where it was relative to its siblings.
+     */
+    enum Field {
+        ID, TITLE, DESCRIPTION, PRIORITY, DEPENDENCIES, EFFORT, ORDER
+    }
+
+    /** Title, summary, duration, risks or assumptions changed. */
+    record HeaderModified(StructuredPlan before, StructuredPlan after) implements PlanChange {}
+
+    record MilestoneAdded(Milestone milestone) implements PlanChange {}
+
+    record MilestoneRemoved(Milestone milestone) implements PlanChange {}
+
+    /** The milestone's position in the timeline changed. */
+    record MilestoneMoved(Milestone before, Milestone after) implements PlanChange {}
+
+    record MilestoneModified(Milestone before, Milestone after, Set<Field> fields) implements PlanChange {}
+
+    record TaskAdded(Task task) implements PlanChange {}
+
+    record TaskRemoved(Task task) implements PlanChange {}
+
+    /**
+     * The task changed milestone, or its position within the milestone.
+     * {@code reordered} is true when it stayed in the same milestone.
+     */
+    record TaskMoved(Task before, Task after, boolean reordered) implements PlanChange {}
+
+    record TaskModified(Task before, Task after, Set<Field> fields) implements PlanChange {}
+}
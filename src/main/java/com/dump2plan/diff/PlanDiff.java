@@ -0,0 +1,201 @@
+package com.dump2plan.diff;
+
+import com.dump2plan.diff.PlanChange.Field;
+import com.dump2plan.diff.PlanChange.HeaderModified;
+import com.dump2plan.diff.PlanChange.MilestoneAdded;
+import com.dump2plan.diff.PlanChange.MilestoneModified;
+import com.dump2plan.diff.PlanChange.MilestoneMoved;
+import com.dump2plan.diff.PlanChange.MilestoneRemoved;
+import com.dump2plan.diff.PlanChange.TaskAdded;
+import com.dump2plan.diff.PlanChange.TaskModified;
+import com.dump2plan.diff.PlanChange.TaskMoved;
+import com.dump2plan.diff.PlanChange.TaskRemoved;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The changes between two versions of a plan, in an order that can be
+ * applied one by one: header, milestones that stay or arrive, removed
+ * tasks, moved, modified and added tasks, and finally removed milestones.
+ * Built by {@link PlanDiffer#diff}.
+ */
+public record PlanDiff(StructuredPlan before, StructuredPlan after, List<PlanChange> changes) {
+
+    /** Lines listed in {@link #summary()} before the rest are counted only. */
+    static final int SUMMARY_LINES = 12;
+
+    /** Changes a reader would not notice: new ids, renumbered positions. */
+    private static final Set<Field> INVISIBLE = EnumSet.of(Field.ID, Field.ORDER);
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * A short Markdown description of what changed for the chat: one line
+     * of counts, then one bullet per visible change. Renumbered ids and
+     * positions are left out.
+     */
+    public String summary() {
+        var lines = new ArrayList<String>();
+        int tasksAdded = 0;
+        int tasksRemoved = 0;
+        int tasksMoved = 0;
+        int tasksChanged = 0;
+        int milestonesAdded = 0;
+        int milestonesRemoved = 0;
+        int milestonesChanged = 0;
+        for (var change : changes) {
+            switch (change) {
+                case HeaderModified header -> lines.addAll(headerLines(header));
+                case MilestoneAdded added -> {
+                    milestonesAdded++;
+                    lines.add("Added milestone **" + added.milestone().name() + "**");
+                }
+                case MilestoneRemoved removed -> {
+                    milestonesRemoved++;
+                    lines.add("Removed milestone **" + removed.milestone().name() + "**");
+                }
+                case MilestoneMoved moved -> {
+                    milestonesChanged++;
+                    lines.add("Reordered milestone **" + moved.after().name() + "**");
+                }
+                case MilestoneModified modified -> {
+                    if (modified.fields().contains(Field.TITLE)) {
+                        milestonesChanged++;
+                        lines.add("Renamed milestone **" + modified.before().name() + "** to **"
+                            + modified.after().name() + "**");
+                    } else if (modified.fields().contains(Field.DESCRIPTION)) {
+                        milestonesChanged++;
+                        lines.add("Updated the description of milestone **" + modified.after().name() + "**");
+                    }
+                }
+                case TaskAdded added -> {
+                    tasksAdded++;
+                    lines.add("Added **" + added.task().title() + "**" + in(after, added.task().milestoneId()));
+                }
+                case TaskRemoved removed -> {
+                    tasksRemoved++;
+                    lines.add("Removed **" + removed.task().title() + "**");
+                }
+                case TaskMoved moved -> {
+                    tasksMoved++;
+                    lines.add(moved.reordered()
+                        ? "Reordered **" + moved.after().title() + "**" + in(after, moved.after().milestoneId())
+                        : "Moved **" + moved.after().title() + "** from " + name(before, moved.before().milestoneId())
+                            + " to " + name(after, moved.after().milestoneId()));
+                }
+                case TaskModified modified -> {
+                    var details = taskDetails(modified);
+                    if (!details.isEmpty()) {
+                        tasksChanged++;
+                        lines.add("**" + modified.before().title() + "**: " + String.join(", ", details));
+                    }
+                }
+            }
+        }
+
+        var counts = new ArrayList<String>();
+        count(counts, milestonesAdded, "milestone", "added");
+        count(counts, milestonesRemoved, "milestone", "removed");
+        count(counts, milestonesChanged, "milestone", "changed");
+        count(counts, tasksAdded, "task", "added");
+        count(counts, tasksRemoved, "task", "removed");
+        count(counts, tasksMoved, "task", "moved");
+        count(counts, tasksChanged, "task", "changed");
+        if (lines.isEmpty()) {
+            return "The plan is unchanged.";
+        }
+        var summary = new StringBuilder("**Plan updated**");
+        if (!counts.isEmpty()) {
+            summary.append(": ").append(String.join(", ", counts));
+        }
+        summary.append("\n\n");
+        for (int i = 0; i < Math.min(lines.size(), SUMMARY_LINES); i++) {
+            summary.append("- ").append(lines.get(i)).append('\n');
+        }
+        if (lines.size() > SUMMARY_LINES) {
+            summary.append("- and ").append(lines.size() - SUMMARY_LINES).append(" more changes\n");
+        }
+        return summary.toString();
+    }
+
+    private static List<String> headerLines(HeaderModified header) {
+        var before = header.before();
+        var after = header.after();
+        var lines = new ArrayList<String>();
+        if (!Objects.equals(before.title(), after.title())) {
+            lines.add("Renamed the plan to **" + after.title() + "**");
+        }
+        if (!Objects.equals(before.summary(), after.summary())) {
+            lines.add("Updated the summary");
+        }
+        if (!Objects.equals(before.estimatedDuration(), after.estimatedDuration())) {
+            lines.add("Estimated duration: " + arrow(before.estimatedDuration(), after.estimatedDuration()));
+        }
+        if (!Objects.equals(listOf(before.risks()), listOf(after.risks()))) {
+            lines.add("Updated the risks");
+        }
+        if (!Objects.equals(listOf(before.assumptions()), listOf(after.assumptions()))) {
+            lines.add("Updated the assumptions");
+        }
+        return lines;
+    }
+
+    private static List<String> taskDetails(TaskModified modified) {
+        var before = modified.before();
+        var after = modified.after();
+        var details = new ArrayList<String>();
+        for (var field : modified.fields()) {
+            if (INVISIBLE.contains(field)) {
+                continue;
+            }
+            details.add(switch (field) {
+                case TITLE -> "renamed to **" + after.title() + "**";
+                case PRIORITY -> "priority " + arrow(before.priority(), after.priority());
+                case EFFORT -> "effort " + arrow(before.estimatedEffort(), after.estimatedEffort());
+                case DESCRIPTION -> "description updated";
+                case DEPENDENCIES -> "dependencies updated";
+                case ID, ORDER -> throw new IllegalStateException();
+            });
+        }
+        return details;
+    }
+
+    private static String arrow(Object before, Object after) {
+        return (before == null ? "none" : before) + " → " + (after == null ? "none" : after);
+    }
+
+    private static String in(StructuredPlan plan, String milestoneId) {
+        var name = name(plan, milestoneId);
+        return Objects.equals(name, milestoneId) ? "" : " in " + name;
+    }
+
+    /** The milestone's name, or its id if {@code plan} does not have it. */
+    private static String name(StructuredPlan plan, String milestoneId) {
+        if (plan.milestones() != null) {
+            for (Milestone milestone : plan.milestones()) {
+                if (Objects.equals(milestone.id(), milestoneId)) {
+                    return milestone.name();
+                }
+            }
+        }
+        return String.valueOf(milestoneId);
+    }
+
+    private static List<String> listOf(List<String> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private static void count(List<String> counts, int count, String noun, String verb) {
+        if (count > 0) {
+            counts.add(count + " " + noun + (count == 1 ? "" : "s") + " " + verb);
+        }
+    }
+}
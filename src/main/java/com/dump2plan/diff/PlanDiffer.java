@@ -0,0 +1,398 @@
+package com.dump2plan.diff;
+
+import com.dump2plan.diff.PlanChange.Field;
+import com.dump2plan.diff.PlanChange.HeaderModified;
+import com.dump2plan.diff.PlanChange.MilestoneAdded;
+import com.dump2plan.diff.PlanChange.MilestoneModified;
+import com.dump2plan.diff.PlanChange.MilestoneMoved;
+import com.dump2plan.diff.PlanChange.MilestoneRemoved;
+import com.dump2plan.diff.PlanChange.TaskAdded;
+import com.dump2plan.diff.PlanChange.TaskModified;
+import com.dump2plan.diff.PlanChange.TaskMoved;
+import com.dump2plan.diff.PlanChange.TaskRemoved;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.similarity.Shingles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the {@link PlanDiff} between two versions of a plan.
+ *
+ * <p>Milestones and tasks are matched by id first. Whatever is left on
+ * both sides is paired by title: the token sets of the two titles (see
+ * {@link Shingles#tokens}) must overlap by at least
+ * {@value #MIN_TITLE_SIMILARITY} (Jaccard), and the most similar pairs are
+ * taken first. This keeps a task that the model renumbered but barely
+ * reworded as one modified task rather than a removal and an addition.
+ * Dependencies and milestone references are compared after translating
+ * old ids to their matched new ids.</p>
+ *
+ * <p>Moves are relative: a task counts as moved when it changed milestone,
+ * or when it is not on a longest run of siblings that kept their relative
+ * order. Inserting a task at the top renumbers every {@code orderIndex}
+ * below it, but moves nothing; those tasks are reported as modified in
+ * {@link Field#ORDER} only.</p>
+ */
+public final class PlanDiffer {
+
+    static final double MIN_TITLE_SIMILARITY = 0.5;
+
+    private static final StructuredPlan EMPTY = new StructuredPlan(null, null, List.of(), List.of(), null,
+        List.of(), List.of());
+
+    private PlanDiffer() {
+    }
+
+    /**
+     * The changes that turn {@code before} into {@code after}; a
+     * {@code null} {@code before} is an empty plan.
+     */
+    public static PlanDiff diff(StructuredPlan before, StructuredPlan after) {
+        if (before == null) {
+            before = EMPTY;
+        }
+        var oldMilestones = listOf(before.milestones());
+        var newMilestones = listOf(after.milestones());
+        var oldTasks = listOf(before.tasks());
+        var newTasks = listOf(after.tasks());
+
+        int[] milestoneMatch = match(oldMilestones, newMilestones, Milestone::id, Milestone::name);
+        int[] taskMatch = match(oldTasks, newTasks, Task::id, Task::title);
+        var milestoneIds = translation(oldMilestones, newMilestones, milestoneMatch, Milestone::id);
+        var taskIds = translation(oldTasks, newTasks, taskMatch, Task::id);
+
+        var changes = new ArrayList<PlanChange>();
+        if (!sameHeader(before, after)) {
+            changes.add(new HeaderModified(before, after));
+        }
+
+        var movedMilestones = movedMilestones(oldMilestones, newMilestones, milestoneMatch);
+        var addedMilestones = new ArrayList<PlanChange>();
+        for (int i = 0; i < newMilestones.size(); i++) {
+            var next = newMilestones.get(i);
+            if (milestoneMatch[i] < 0) {
+                addedMilestones.add(new MilestoneAdded(next));
+                continue;
+            }
+            var previous = oldMilestones.get(milestoneMatch[i]);
+            var fields = milestoneFields(previous, next, movedMilestones.contains(i));
+            if (!fields.isEmpty()) {
+                changes.add(new MilestoneModified(previous, next, fields));
+            }
+            if (movedMilestones.contains(i)) {
+                changes.add(new MilestoneMoved(previous, next));
+            }
+        }
+        changes.addAll(addedMilestones);
+
+        var matchedOld = new boolean[oldTasks.size()];
+        for (int match : taskMatch) {
+            if (match >= 0) {
+                matchedOld[match] = true;
+            }
+        }
+        for (int i = 0; i < oldTasks.size(); i++) {
+            if (!matchedOld[i]) {
+                changes.add(new TaskRemoved(oldTasks.get(i)));
+            }
+        }
+
+        var movedTasks = movedTasks(oldTasks, newTasks, taskMatch, milestoneIds);
+        var modifiedTasks = new ArrayList<PlanChange>();
+        var addedTasks = new ArrayList<PlanChange>();
+        for (int i = 0; i < newTasks.size(); i++) {
+            var next = newTasks.get(i);
+            if (taskMatch[i] < 0) {
+                addedTasks.add(new TaskAdded(next));
+                continue;
+            }
+            var previous = oldTasks.get(taskMatch[i]);
+            if (movedTasks.contains(i)) {
+                changes.add(new TaskMoved(previous, next,
+                    Objects.equals(milestoneIds.get(previous.milestoneId()), next.milestoneId())));
+            }
+            var fields = taskFields(previous, next, taskIds, movedTasks.contains(i));
+            if (!fields.isEmpty()) {
+                modifiedTasks.add(new TaskModified(previous, next, fields));
+            }
+        }
+        changes.addAll(modifiedTasks);
+        changes.addAll(addedTasks);
+
+        var matchedOldMilestones = new boolean[oldMilestones.size()];
+        for (int match : milestoneMatch) {
+            if (match >= 0) {
+                matchedOldMilestones[match] = true;
+            }
+        }
+        for (int i = 0; i < oldMilestones.size(); i++) {
+            if (!matchedOldMilestones[i]) {
+                changes.add(new MilestoneRemoved(oldMilestones.get(i)));
+            }
+        }
+        return new PlanDiff(before, after, List.copyOf(changes));
+    }
+
+    /**
+     * Positions in {@code values} of one longest strictly increasing
+     * subsequence: the elements that can stay put while the others move
+     * around them.
+     */
+    public static boolean[] longestIncreasing(int[] values) {
+        int n = values.length;
+        var tails = new int[n];
+        var previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            length = Math.max(length, low + 1);
+        }
+        var kept = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+
+    /**
+     * For each element of {@code after}, the index of its match in
+     * {@code before}, or -1.
+     */
+    private static <T> int[] match(List<T> before, List<T> after, Function<T, String> id,
+                                   Function<T, String> title) {
+        var result = new int[after.size()];
+        Arrays.fill(result, -1);
+        var used = new boolean[before.size()];
+        var byId = new HashMap<String, Integer>();
+        for (int i = 0; i < before.size(); i++) {
+            var key = id.apply(before.get(i));
+            if (key != null) {
+                byId.putIfAbsent(key, i);
+            }
+        }
+        for (int i = 0; i < after.size(); i++) {
+            var match = byId.get(id.apply(after.get(i)));
+            if (match != null && !used[match]) {
+                result[i] = match;
+                used[match] = true;
+            }
+        }
+
+        var candidates = new ArrayList<Candidate>();
+        var oldTokens = new HashMap<Integer, Set<String>>();
+        for (int j = 0; j < before.size(); j++) {
+            if (!used[j]) {
+                oldTokens.put(j, tokens(title.apply(before.get(j))));
+            }
+        }
+        for (int i = 0; i < after.size(); i++) {
+            if (result[i] >= 0) {
+                continue;
+            }
+            var newTokens = tokens(title.apply(after.get(i)));
+            for (var old : oldTokens.entrySet()) {
+                double similarity = jaccard(old.getValue(), newTokens);
+                if (similarity >= MIN_TITLE_SIMILARITY) {
+                    candidates.add(new Candidate(i, old.getKey(), similarity));
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::similarity).reversed()
+            .thenComparingInt(Candidate::after)
+            .thenComparingInt(Candidate::before));
+        for (var candidate : candidates) {
+            if (result[candidate.after()] < 0 && !used[candidate.before()]) {
+                result[candidate.after()] = candidate.before();
+                used[candidate.before()] = true;
+            }
+        }
+        return result;
+    }
+
+    /** Old id to new id for every matched element. */
+    private static <T> Map<String, String> translation(List<T> before, List<T> after, int[] match,
+                                                       Function<T, String> id) {
+        var ids = new HashMap<String, String>();
+        for (int i = 0; i < after.size(); i++) {
+            if (match[i] >= 0) {
+                ids.put(id.apply(before.get(match[i])), id.apply(after.get(i)));
+            }
+        }
+        return ids;
+    }
+
+    private static Set<Integer> movedMilestones(List<Milestone> before, List<Milestone> after, int[] match) {
+        var oldRank = rank(before, Milestone::orderIndex);
+        var survivors = new ArrayList<Integer>();
+        for (int i : byOrder(after, Milestone::orderIndex)) {
+            if (match[i] >= 0) {
+                survivors.add(i);
+            }
+        }
+        return outOfOrder(survivors, i -> oldRank[match[i]]);
+    }
+
+    /**
+     * Tasks that changed milestone, plus those in each milestone that fell
+     * off the longest run of siblings keeping their old relative order.
+     */
+    private static Set<Integer> movedTasks(List<Task> before, List<Task> after, int[] match,
+                                           Map<String, String> milestoneIds) {
+        var moved = new HashSet<Integer>();
+        var oldRank = rank(before, Task::orderIndex);
+        var stayed = new LinkedHashMap<String, List<Integer>>();
+        for (int i : byOrder(after, Task::orderIndex)) {
+            if (match[i] < 0) {
+                continue;
+            }
+            var next = after.get(i);
+            var previous = before.get(match[i]);
+            if (!Objects.equals(milestoneIds.get(previous.milestoneId()), next.milestoneId())) {
+                moved.add(i);
+            } else {
+                stayed.computeIfAbsent(next.milestoneId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+        for (var siblings : stayed.values()) {
+            moved.addAll(outOfOrder(siblings, i -> oldRank[match[i]]));
+        }
+        return moved;
+    }
+
+    private static Set<Integer> outOfOrder(List<Integer> sequence, Function<Integer, Integer> oldRank) {
+        var ranks = new int[sequence.size()];
+        for (int k = 0; k < ranks.length; k++) {
+            ranks[k] = oldRank.apply(sequence.get(k));
+        }
+        var kept = longestIncreasing(ranks);
+        var moved = new HashSet<Integer>();
+        for (int k = 0; k < kept.length; k++) {
+            if (!kept[k]) {
+                moved.add(sequence.get(k));
+            }
+        }
+        return moved;
+    }
+
+    /** Indices of {@code items} sorted stably by {@code order}. */
+    private static <T> List<Integer> byOrder(List<T> items, Function<T, Integer> order) {
+        var indices = new ArrayList<Integer>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            indices.add(i);
+        }
+        indices.sort(Comparator.comparing(i -> order.apply(items.get(i))));
+        return indices;
+    }
+
+    /** Position of each item in the stable {@code order} sort. */
+    private static <T> int[] rank(List<T> items, Function<T, Integer> order) {
+        var ranks = new int[items.size()];
+        var sorted = byOrder(items, order);
+        for (int r = 0; r < sorted.size(); r++) {
+            ranks[sorted.get(r)] = r;
+        }
+        return ranks;
+    }
+
+    private static boolean sameHeader(StructuredPlan before, StructuredPlan after) {
+        return Objects.equals(before.title(), after.title())
+            && Objects.equals(before.summary(), after.summary())
+            && Objects.equals(before.estimatedDuration(), after.estimatedDuration())
+            && Objects.equals(listOf(before.risks()), listOf(after.risks()))
+            && Objects.equals(listOf(before.assumptions()), listOf(after.assumptions()));
+    }
+
+    private static Set<Field> milestoneFields(Milestone before, Milestone after, boolean moved) {
+        var fields = EnumSet.noneOf(Field.class);
+        if (!Objects.equals(before.id(), after.id())) {
+            fields.add(Field.ID);
+        }
+        if (!Objects.equals(before.name(), after.name())) {
+            fields.add(Field.TITLE);
+        }
+        if (!Objects.equals(before.description(), after.description())) {
+            fields.add(Field.DESCRIPTION);
+        }
+        if (!moved && before.orderIndex() != after.orderIndex()) {
+            fields.add(Field.ORDER);
+        }
+        return fields;
+    }
+
+    private static Set<Field> taskFields(Task before, Task after, Map<String, String> taskIds, boolean moved) {
+        var fields = EnumSet.noneOf(Field.class);
+        if (!Objects.equals(before.id(), after.id())) {
+            fields.add(Field.ID);
+        }
+        if (!Objects.equals(before.title(), after.title())) {
+            fields.add(Field.TITLE);
+        }
+        if (!Objects.equals(before.description(), after.description())) {
+            fields.add(Field.DESCRIPTION);
+        }
+        if (before.priority() != after.priority()) {
+            fields.add(Field.PRIORITY);
+        }
+        var dependencies = listOf(before.dependsOn()).stream()
+            .map(id -> taskIds.getOrDefault(id, id))
+            .collect(Collectors.toSet());
+        if (!dependencies.equals(new HashSet<>(listOf(after.dependsOn())))) {
+            fields.add(Field.DEPENDENCIES);
+        }
+        if (!Objects.equals(before.estimatedEffort(), after.estimatedEffort())) {
+            fields.add(Field.EFFORT);
+        }
+        if (!moved && before.orderIndex() != after.orderIndex()) {
+            fields.add(Field.ORDER);
+        }
+        return fields;
+    }
+
+    private static Set<String> tokens(String title) {
+        return title == null ? Set.of() : new HashSet<>(Shingles.tokens(title));
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (var token : a) {
+            if (b.contains(token)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    private static <T> List<T> listOf(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private record Candidate(int after, int before, double similarity) {}
+}
@@ -0,0 +1,134 @@
+package com.dump2plan.failover;
+
+import com.dump2plan.Dump2PlanProperties.FailoverConfig;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for one model, counting failed and slow calls over a
+ * sliding window of the most recent {@code windowSize} calls. Once at least
+ * {@code minimumCalls} are in the window and either rate reaches its
+ * threshold, the breaker opens and rejects calls for {@code openDuration}.
+ * It then lets {@code halfOpenProbes} trial calls through: if all of them
+ * succeed in time it closes with an empty window, and the first failed or
+ * slow one opens it again.
+ *
+ * <p>{@link #tryAcquire} hands out the breaker's current generation, which
+ * changes on every state transition, and outcomes are reported against it.
+ * A call admitted before a transition therefore cannot close a breaker that
+ * opened while it ran, or use up a probe.</p>
+ */
+public final class CircuitBreaker {
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    /** Breaker states, ordered by how much traffic they let through. */
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final FailoverConfig config;
+    private final LongSupplier nanoTime;
+    private final byte[] window;
+    private int size;
+    private int next;
+    private int failed;
+    private int slow;
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int probesStarted;
+    private int probesPassed;
+
+    public CircuitBreaker(FailoverConfig config, LongSupplier nanoTime) {
+        this.config = config;
+        this.nanoTime = nanoTime;
+        this.window = new byte[Math.max(1, config.windowSize())];
+    }
+
+    /**
+     * Admits a call, returning the generation to report its outcome
+     * against, or {@code -1} if the breaker is open or all probes are out.
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= config.openDuration().toNanos()) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return generation;
+        }
+        if (state == State.HALF_OPEN && probesStarted < config.halfOpenProbes()) {
+            probesStarted++;
+            return generation;
+        }
+        return -1;
+    }
+
+    /**
+     * Reports the outcome of a call admitted in {@code generation}.
+     */
+    public synchronized void record(long generation, boolean failure, Duration latency) {
+        if (generation != this.generation) {
+            return;
+        }
+        boolean slowCall = latency.compareTo(config.slowCallDuration()) >= 0;
+        if (state == State.HALF_OPEN) {
+            if (failure || slowCall) {
+                open();
+            } else if (++probesPassed >= config.halfOpenProbes()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            add((byte) ((failure ? FAILED : 0) | (slowCall ? SLOW : 0)));
+            if (size >= config.minimumCalls()
+                    && (failed >= config.failureRate() * size || slow >= config.slowCallRate() * size)) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /** Time until an open breaker starts probing; zero otherwise. */
+    public synchronized Duration retryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        long remaining = config.openDuration().toNanos() - (nanoTime.getAsLong() - openedAt);
+        return Duration.ofNanos(Math.max(0, remaining));
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = nanoTime.getAsLong();
+    }
+
+    private void transition(State to) {
+        state = to;
+        generation++;
+        probesStarted = 0;
+        probesPassed = 0;
+        size = 0;
+        next = 0;
+        failed = 0;
+        slow = 0;
+    }
+
+    private void add(byte outcome) {
+        if (size == window.length) {
+            byte evicted = window[next];
+            failed -= evicted & FAILED;
+            slow -= (evicted & SLOW) >> 1;
+        } else {
+            size++;
+        }
+        window[next] = outcome;
+        failed += outcome & FAILED;
+        slow += (outcome & SLOW) >> 1;
+        next = (next + 1) % window.length;
+    }
+}
@@ -0,0 +1,32 @@
+package com.dump2plan.failover;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.agent.LlmClient;
+import com.dump2plan.observability.PlannerMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps whichever {@link LlmClient} is active (the Embabel client or the
+ * {@code stub-llm} profile's stub) in a {@link FailoverLlmClient}, so every
+ * agent, chat and compaction call goes through the breakers.
+ */
+@Configuration
+public class FailoverConfiguration {
+
+    @Bean
+    static BeanPostProcessor failoverLlmClient(ObjectProvider<Dump2PlanProperties> properties,
+                                               ObjectProvider<PlannerMetrics> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof LlmClient llm && !(bean instanceof FailoverLlmClient)) {
+                    return new FailoverLlmClient(llm, properties.getObject().failover(), metrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
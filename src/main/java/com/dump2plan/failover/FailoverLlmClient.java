@@ -0,0 +1,242 @@
+package com.dump2plan.failover;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.FailoverConfig;
+import com.dump2plan.agent.Answered;
+import com.dump2plan.agent.LlmClient;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.dump2plan.stub.StubLlmException;
+import com.embabel.agent.api.common.ActionContext;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.chat.AssistantMessage;
+import com.embabel.chat.Message;
+import com.fasterxml.jackson.core.JacksonException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link LlmClient} decorator that walks an actor's {@link ActorConfig#routes()
+ * routes}: its own model, then its fallbacks in order. A route is skipped
+ * while its model's {@link CircuitBreaker} is open; otherwise it is called
+ * with a deadline of {@code callTimeout}, after which the call is cancelled
+ * and counted as failed, so an incident costs at most one timeout per route
+ * instead of the HTTP client's read timeout. If every route is open the call
+ * fails at once with {@link ProvidersUnavailableException}; if routes were
+ * tried and all failed, the last failure is rethrown with the others
+ * attached.
+ *
+ * <p>Only failures that say something about the provider count against its
+ * breaker and move on to the next route: timeouts, transport errors,
+ * {@code 5xx} and {@code 429} answers. Anything else, such as a reply that
+ * does not deserialize, a quota refusal or a bug in the caller, would fail
+ * the same way on every model, so it is rethrown at once and the breaker
+ * records the call as answered.</p>
+ *
+ * <p>A streamed response is passed on only from the first route that
+ * produced output. If that route fails part way and a fallback answers, the
+ * caller receives the fallback's complete result but not its chunks.</p>
+ */
+public class FailoverLlmClient implements LlmClient {
+
+    private static final Logger log = LoggerFactory.getLogger(FailoverLlmClient.class);
+
+    /**
+     * Provider failures from client libraries that are not on every
+     * deployment's classpath: Spring AI's retryable errors (its
+     * classification of {@code 5xx} and {@code 429}) and WebClient's
+     * transport errors on streamed calls.
+     */
+    private static final Set<String> TRANSIENT_FAILURES = Set.of(
+        "org.springframework.ai.retry.TransientAiException",
+        "org.springframework.web.reactive.function.client.WebClientRequestException");
+
+    private final LlmClient delegate;
+    private final FailoverConfig config;
+    private final PlannerMetrics metrics;
+    private final LongSupplier nanoTime;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public FailoverLlmClient(LlmClient delegate, FailoverConfig config, PlannerMetrics metrics) {
+        this(delegate, config, metrics, System::nanoTime);
+    }
+
+    public FailoverLlmClient(LlmClient delegate, FailoverConfig config, PlannerMetrics metrics,
+                             LongSupplier nanoTime) {
+        this.delegate = delegate;
+        this.config = config;
+        this.metrics = metrics;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public <T> T createObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type) {
+        return route(actor, (client, route) -> client.createObject(ai, route, prompt, type)).value();
+    }
+
+    @Override
+    public <T> T streamObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type,
+                              Consumer<String> chunks) {
+        var streaming = new AtomicReference<ActorConfig>();
+        return route(actor, (client, route) -> client.streamObject(ai, route, prompt, type, chunk -> {
+            var owner = streaming.compareAndExchange(null, route);
+            if (owner == null || owner == route) {
+                chunks.accept(chunk);
+            }
+        })).value();
+    }
+
+    @Override
+    public AssistantMessage respond(ActionContext context, ActorConfig actor, String systemPrompt,
+                                    List<? extends Message> messages) {
+        return route(actor, (client, route) -> client.respond(context, route, systemPrompt, messages)).value();
+    }
+
+    /**
+     * Runs {@code call} on the delegate with the first of the actor's
+     * routes that answers.
+     */
+    @Override
+    public <T> Answered<T> route(ActorConfig actor, BiFunction<LlmClient, ActorConfig, T> call) {
+        return call(actor, route -> call.apply(delegate, route));
+    }
+
+    /** The breaker of {@code model}, created closed on first use. */
+    public CircuitBreaker breaker(String model) {
+        return breakers.computeIfAbsent(model, m -> {
+            var breaker = new CircuitBreaker(config, nanoTime);
+            metrics.trackBreaker(m, breaker, b -> b.state().ordinal());
+            return breaker;
+        });
+    }
+
+    private <T> Answered<T> call(ActorConfig actor, Function<ActorConfig, T> call) {
+        if (config == null || !config.enabled()) {
+            return new Answered<>(actor, call.apply(actor));
+        }
+        var routes = actor.routes();
+        RuntimeException failure = null;
+        Duration retryAfter = null;
+        for (var model : routes) {
+            var breaker = breaker(model);
+            long generation = breaker.tryAcquire();
+            if (generation < 0) {
+                metrics.failover(actor, model, "open");
+                retryAfter = retryAfter == null || breaker.retryAfter().compareTo(retryAfter) < 0
+                    ? breaker.retryAfter() : retryAfter;
+                continue;
+            }
+            var route = model.equals(actor.llm()) ? actor : new ActorConfig(actor.persona(), model);
+            if (failure != null) {
+                metrics.retry(actor, model);
+            }
+            long start = nanoTime.getAsLong();
+            try {
+                var result = withTimeout(route, call);
+                breaker.record(generation, false, Duration.ofNanos(nanoTime.getAsLong() - start));
+                if (failure != null) {
+                    log.info("{} answered for {} after failover", model, actor.persona());
+                }
+                return new Answered<>(route, result);
+            } catch (RuntimeException e) {
+                boolean providerFailure = isProviderFailure(e);
+                breaker.record(generation, providerFailure, Duration.ofNanos(nanoTime.getAsLong() - start));
+                if (!providerFailure) {
+                    if (failure != null) {
+                        e.addSuppressed(failure);
+                    }
+                    throw e;
+                }
+                metrics.failover(actor, model, e instanceof CallTimeoutException ? "timeout" : "error");
+                log.warn("{} failed for {}: {}", model, actor.persona(), e.toString());
+                if (failure != null) {
+                    e.addSuppressed(failure);
+                }
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        throw new ProvidersUnavailableException(actor.persona(), routes, retryAfter);
+    }
+
+    private <T> T withTimeout(ActorConfig route, Function<ActorConfig, T> call) {
+        var timeout = config.callTimeout();
+        if (timeout == null || timeout.isZero()) {
+            return call.apply(route);
+        }
+        var future = executor.submit(() -> call.apply(route));
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new CallTimeoutException(route.llm() + " did not answer within " + timeout.toSeconds() + "s");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + route.llm(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(route.llm() + " failed", e.getCause());
+        }
+    }
+
+    /**
+     * Whether {@code failure}, or one of its causes, is a timeout, a
+     * transport error or an overloaded or failing provider. A reply that
+     * does not parse is the model's answer, not the provider failing, even
+     * though Jackson's exceptions are {@link IOException}s.
+     */
+    static boolean isProviderFailure(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof JacksonException) {
+                return false;
+            }
+            if (t instanceof CallTimeoutException || t instanceof IOException || t instanceof UncheckedIOException
+                || t instanceof StubLlmException || TRANSIENT_FAILURES.contains(t.getClass().getName())) {
+                return true;
+            }
+            if (t instanceof RestClientResponseException response) {
+                var status = response.getStatusCode();
+                return status.is5xxServerError() || status.value() == 429;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A model call that exceeded {@code callTimeout} and was cancelled.
+     */
+    public static class CallTimeoutException extends RuntimeException {
+
+        public CallTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.dump2plan.failover;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Thrown instead of calling a model when the breakers of an actor's model
+ * and all of its fallbacks are open.
+ */
+public class ProvidersUnavailableException extends RuntimeException {
+
+    private final String persona;
+    private final Duration retryAfter;
+
+    public ProvidersUnavailableException(String persona, List<String> models, Duration retryAfter) {
+        super("No model available for " + persona + ": " + String.join(", ", models)
+            + " failing, retry after " + Math.max(1, retryAfter.toSeconds()) + "s");
+        this.persona = persona;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getPersona() {
+        return persona;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
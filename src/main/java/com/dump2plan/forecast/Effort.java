@@ -0,0 +1,27 @@
+package com.dump2plan.forecast;
+
+/**
+ * A task's effort as a triangular distribution in working hours: the
+ * optimistic, most likely and pessimistic cases.
+ */
+public record Effort(double low, double likely, double high) {
+
+    /**
+     * The effort at quantile {@code u} of the triangular distribution, for
+     * {@code u} uniform in [0, 1).
+     */
+    public double sample(double u) {
+        return triangular(low, likely, high, u);
+    }
+
+    static double triangular(double low, double likely, double high, double u) {
+        double span = high - low;
+        if (span <= 0) {
+            return likely;
+        }
+        double split = (likely - low) / span;
+        return u < split
+            ? low + Math.sqrt(u * span * (likely - low))
+            : high - Math.sqrt((1 - u) * span * (high - likely));
+    }
+}
@@ -0,0 +1,125 @@
+package com.dump2plan.forecast;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the free-text effort and team size the models and users write
+ * ("2-3 days", "a couple of weeks", "4h", "just me", "3 developers").
+ *
+ * <p>A stated range is taken as optimistic to pessimistic with the midpoint
+ * most likely. A single figure is the most likely case of a right-skewed
+ * range from {@value #SINGLE_LOW}x to {@value #SINGLE_HIGH}x, since tasks
+ * overrun more often and by more than they finish early. Several amounts
+ * ("1 week and 2 days") add up.</p>
+ */
+public final class EffortParser {
+
+    static final double SINGLE_LOW = 0.75;
+    static final double SINGLE_HIGH = 1.6;
+
+    private static final double DAYS_PER_WEEK = 5;
+    private static final double DAYS_PER_MONTH = 21;
+
+    private static final Map<String, String> NUMBER_WORDS = Map.ofEntries(
+        Map.entry("half an", "0.5"), Map.entry("half a", "0.5"), Map.entry("half", "0.5"),
+        Map.entry("an", "1"), Map.entry("a", "1"), Map.entry("one", "1"), Map.entry("another", "1 more"),
+        Map.entry("two", "2"), Map.entry("couple of", "2"), Map.entry("couple", "2"), Map.entry("pair of", "2"),
+        Map.entry("three", "3"), Map.entry("few", "3"), Map.entry("four", "4"), Map.entry("several", "4"),
+        Map.entry("five", "5"), Map.entry("six", "6"), Map.entry("seven", "7"), Map.entry("eight", "8"),
+        Map.entry("nine", "9"), Map.entry("ten", "10"), Map.entry("twelve", "12"), Map.entry("twenty", "20"));
+
+    private static final Pattern NUMBER_WORD = Pattern.compile(
+        "\\b(half an|half a|half|couple of|couple|pair of|another|an|a|one|two|three|few|four|several|five|six"
+            + "|seven|eight|nine|ten|twelve|twenty)\\b");
+
+    private static final Pattern AMOUNT = Pattern.compile(
+        "(\\d+(?:\\.\\d+)?)\\s*(?:(?:-|to)\\s*(\\d+(?:\\.\\d+)?))?\\s*"
+            + "(minutes?|mins?|hours?|hrs?|h|days?|d|weeks?|wks?|w|months?|mos?)\\b");
+
+    private static final Pattern HEAD_COUNT = Pattern.compile(
+        "(\\d+(?:\\.\\d+)?)\\s*(?:(?:-|to)\\s*\\d+(?:\\.\\d+)?)?\\s*(?:full[- ]time\\s+|part[- ]time\\s+)?"
+            + "(devs?|developers?|engineers?|people|persons?|folks|members?|teammates?|programmers?|coders?"
+            + "|designers?|staff|headcount|fte)\\b");
+
+    private static final Pattern SOLO = Pattern.compile("\\b(just me|only me|myself|solo|alone|by myself)\\b");
+
+    private EffortParser() {
+    }
+
+    /**
+     * The effort {@code text} describes, or {@code null} if it names no
+     * amount of time.
+     */
+    public static Effort parse(String text, double hoursPerDay) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        var matcher = AMOUNT.matcher(normalize(text));
+        double low = 0;
+        double high = 0;
+        boolean ranged = false;
+        boolean found = false;
+        while (matcher.find()) {
+            double unit = hours(matcher.group(3), hoursPerDay);
+            double from = Double.parseDouble(matcher.group(1)) * unit;
+            double to = matcher.group(2) == null ? from : Double.parseDouble(matcher.group(2)) * unit;
+            low += Math.min(from, to);
+            high += Math.max(from, to);
+            ranged |= matcher.group(2) != null;
+            found = true;
+        }
+        if (!found || high <= 0) {
+            return null;
+        }
+        if (ranged) {
+            return new Effort(low, (low + high) / 2, high);
+        }
+        return new Effort(low * SINGLE_LOW, low, low * SINGLE_HIGH);
+    }
+
+    /**
+     * The number of people {@code text} describes ("4 developers",
+     * "2-3 engineers" counts as 2, "just me" as 1), if any.
+     */
+    public static OptionalInt teamSize(String text) {
+        if (text == null || text.isBlank()) {
+            return OptionalInt.empty();
+        }
+        var normalized = normalize(text);
+        if (SOLO.matcher(normalized).find()) {
+            return OptionalInt.of(1);
+        }
+        var matcher = HEAD_COUNT.matcher(normalized);
+        if (matcher.find()) {
+            return OptionalInt.of(Math.max(1, (int) Double.parseDouble(matcher.group(1))));
+        }
+        var bare = Pattern.compile("^\\s*(\\d+)\\s*$").matcher(normalized);
+        return bare.find() ? OptionalInt.of(Math.max(1, Integer.parseInt(bare.group(1)))) : OptionalInt.empty();
+    }
+
+    /** Lower case, plain hyphens, and number words as digits. */
+    static String normalize(String text) {
+        var lower = text.toLowerCase(Locale.ROOT).replace('–', '-').replace('—', '-').replace('~', ' ');
+        Matcher matcher = NUMBER_WORD.matcher(lower);
+        var result = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(result, NUMBER_WORDS.get(matcher.group(1)));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static double hours(String unit, double hoursPerDay) {
+        return switch (unit.charAt(0)) {
+            case 'm' -> unit.startsWith("mo") ? DAYS_PER_MONTH * hoursPerDay : 1.0 / 60;
+            case 'h' -> 1;
+            case 'd' -> hoursPerDay;
+            case 'w' -> DAYS_PER_WEEK * hoursPerDay;
+            default -> throw new IllegalArgumentException("Unknown unit " + unit);
+        };
+    }
+}
@@ -0,0 +1,455 @@
+package com.dump2plan.forecast;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.ScheduleConfig;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.observability.PlannerMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulates how long a plan takes a team of a given size, without asking a
+ * model. Tasks are laid out by resource-constrained list scheduling over the
+ * {@code dependsOn} graph: whenever a developer is free, the ready task with
+ * the longest chain of work still behind it goes first (ties by priority,
+ * then plan order). Task durations come from {@link EffortParser}; a task
+ * without a readable effort counts as one day.
+ *
+ * <p>{@link #forecast} repeats the schedule with effort sampled from each
+ * task's range and reports the median and 90th percentile finish. The plan
+ * is compiled once into primitive arrays in scheduling order, so each
+ * iteration is a single pass over them; iterations are split across the
+ * common fork-join pool in blocks of {@value #BLOCK}, each block reusing its
+ * own arrays. Random streams are split deterministically from the configured
+ * seed, so the same plan always forecasts the same dates and two team sizes
+ * are compared on the same sampled efforts.</p>
+ */
+@Component
+public class ScheduleSimulator {
+
+    static final int BLOCK = 256;
+    private static final int MAX_TEAM = 1000;
+
+    private final ScheduleConfig config;
+    private final PlannerMetrics metrics;
+
+    public ScheduleSimulator(Dump2PlanProperties properties, PlannerMetrics metrics) {
+        this.config = properties.schedule();
+        this.metrics = metrics;
+    }
+
+    public ScheduleConfig config() {
+        return config;
+    }
+
+    /** One task on the simulated timeline, in working days from the start. */
+    public record Slot(String taskId, int developer, double startDay, double endDay) {}
+
+    /** The most likely timeline for {@code teamSize} developers. */
+    public record Schedule(int teamSize, double days, List<Slot> slots) {}
+
+    /**
+     * Finish estimates for {@code teamSize} developers, in working days and
+     * as dates. {@code criticalPathDays} is the likely length of the longest
+     * dependency chain, the floor no team size gets below.
+     */
+    public record Forecast(int teamSize, int iterations, double p50Days, double p90Days, double meanDays,
+                           double criticalPathDays, LocalDate p50Date, LocalDate p90Date,
+                           int tasks, int unparsedEfforts) {}
+
+    /** Lays out the plan with every task at its most likely effort. */
+    public Schedule schedule(StructuredPlan plan, int teamSize) {
+        var graph = compile(plan);
+        int team = team(teamSize);
+        var free = new double[workers(team, graph)];
+        var finish = new double[graph.size()];
+        var developer = new int[graph.size()];
+        double makespan = graph.run(graph.likely, free, finish, developer);
+        var slots = new ArrayList<Slot>(graph.size());
+        for (int p = 0; p < graph.size(); p++) {
+            double start = finish[p] - graph.likely[p];
+            slots.add(new Slot(graph.ids[p], developer[p], days(start), days(finish[p])));
+        }
+        return new Schedule(team, days(makespan), List.copyOf(slots));
+    }
+
+    /** Monte Carlo finish estimates for a team starting on {@code start}. */
+    public Forecast forecast(StructuredPlan plan, int teamSize, LocalDate start) {
+        long began = System.nanoTime();
+        var graph = compile(plan);
+        int team = team(teamSize);
+        int iterations = Math.max(1, config.iterations());
+        var makespans = new double[iterations];
+        ForkJoinPool.commonPool().invoke(
+            new Simulation(graph, workers(team, graph), 0, iterations, new SplittableRandom(config.seed()), makespans));
+        Arrays.sort(makespans);
+        double total = 0;
+        for (double makespan : makespans) {
+            total += makespan;
+        }
+        double p50 = days(percentile(makespans, 0.5));
+        double p90 = days(percentile(makespans, 0.9));
+        var forecast = new Forecast(team, iterations, p50, p90, days(total / iterations),
+            days(graph.criticalPath()), workingDaysFrom(start, p50), workingDaysFrom(start, p90),
+            graph.size(), graph.unparsed);
+        metrics.recordScheduleSimulation(team, System.nanoTime() - began);
+        return forecast;
+    }
+
+    /** Forecasts for each of {@code teamSizes}, in the order given. */
+    public List<Forecast> whatIf(StructuredPlan plan, LocalDate start, int... teamSizes) {
+        return Arrays.stream(teamSizes).mapToObj(size -> forecast(plan, size, start)).toList();
+    }
+
+    /**
+     * The working day (Monday to Friday) on which {@code days} of work
+     * begun on {@code start} ends.
+     */
+    public static LocalDate workingDaysFrom(LocalDate start, double days) {
+        var date = nextWorkingDay(start);
+        for (long remaining = Math.max(0, (long) Math.ceil(days - 1e-9) - 1); remaining > 0; remaining--) {
+            date = nextWorkingDay(date.plusDays(1));
+        }
+        return date;
+    }
+
+    private static LocalDate nextWorkingDay(LocalDate date) {
+        while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            date = date.plusDays(1);
+        }
+        return date;
+    }
+
+    private static double percentile(double[] sorted, double q) {
+        return sorted[Math.max(0, (int) Math.ceil(q * sorted.length) - 1)];
+    }
+
+    private double days(double hours) {
+        return hours / config.hoursPerDay();
+    }
+
+    private static int team(int teamSize) {
+        return Math.clamp(teamSize, 1, MAX_TEAM);
+    }
+
+    /** Developers beyond one per task would never be given work. */
+    private static int workers(int team, Graph graph) {
+        return Math.min(team, Math.max(1, graph.size()));
+    }
+
+    Graph compile(StructuredPlan plan) {
+        List<Task> tasks = plan == null || plan.tasks() == null ? List.of() : plan.tasks();
+        int n = tasks.size();
+        var index = new HashMap<String, Integer>(n * 2);
+        for (int i = 0; i < n; i++) {
+            index.putIfAbsent(tasks.get(i).id(), i);
+        }
+
+        var efforts = new Effort[n];
+        int unparsed = 0;
+        var fallback = EffortParser.parse("1 day", config.hoursPerDay());
+        for (int i = 0; i < n; i++) {
+            efforts[i] = EffortParser.parse(tasks.get(i).estimatedEffort(), config.hoursPerDay());
+            if (efforts[i] == null) {
+                efforts[i] = fallback;
+                unparsed++;
+            }
+        }
+
+        var successors = new int[n][];
+        var indegree = new int[n];
+        var predecessors = new int[n][];
+        for (int i = 0; i < n; i++) {
+            var dependsOn = tasks.get(i).dependsOn();
+            Integer self = i;
+            predecessors[i] = dependsOn == null ? new int[0] : dependsOn.stream()
+                .map(index::get)
+                .filter(j -> j != null && !j.equals(self))
+                .mapToInt(Integer::intValue)
+                .distinct()
+                .toArray();
+        }
+        var successorCount = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j : predecessors[i]) {
+                successorCount[j]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            successors[i] = new int[successorCount[i]];
+            successorCount[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j : predecessors[i]) {
+                successors[j][successorCount[j]++] = i;
+                indegree[i]++;
+            }
+        }
+
+        var topological = topologicalPositions(n, successors, indegree);
+        var byPosition = new int[n];
+        for (int i = 0; i < n; i++) {
+            byPosition[topological[i]] = i;
+        }
+        var rank = new double[n];
+        for (int k = n - 1; k >= 0; k--) {
+            int i = byPosition[k];
+            double behind = 0;
+            for (int s : successors[i]) {
+                if (precedes(topological, i, s)) {
+                    behind = Math.max(behind, rank[s]);
+                }
+            }
+            rank[i] = efforts[i].likely() + behind;
+        }
+
+        int[] order = listOrder(tasks, successors, predecessors, topological, rank);
+        var position = new int[n];
+        for (int p = 0; p < n; p++) {
+            position[order[p]] = p;
+        }
+        return new Graph(order, tasks, efforts, predecessors, position, unparsed);
+    }
+
+    /**
+     * Each task's position in a topological order, by Kahn's algorithm in
+     * plan order. Tasks caught in a dependency cycle are placed in plan
+     * order, and the edges that close the cycle are ignored.
+     */
+    private static int[] topologicalPositions(int n, int[][] successors, int[] indegree) {
+        var position = new int[n];
+        var placed = new boolean[n];
+        var queue = new ArrayDeque<Integer>();
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (indegree[i] == 0) {
+                queue.add(i);
+                placed[i] = true;
+            }
+        }
+        int next = 0;
+        while (size < n) {
+            if (queue.isEmpty()) {
+                while (placed[next]) {
+                    next++;
+                }
+                queue.add(next);
+                placed[next] = true;
+            }
+            int i = queue.poll();
+            position[i] = size++;
+            for (int s : successors[i]) {
+                if (--indegree[s] == 0 && !placed[s]) {
+                    queue.add(s);
+                    placed[s] = true;
+                }
+            }
+        }
+        return position;
+    }
+
+    private static boolean precedes(int[] topological, int a, int b) {
+        return topological[a] < topological[b];
+    }
+
+    /**
+     * The order tasks are started in: whenever tasks are ready, the one with
+     * the most work behind it first, then the higher priority, then the
+     * earlier in the plan.
+     */
+    private static int[] listOrder(List<Task> tasks, int[][] successors, int[][] predecessors,
+                                   int[] topological, double[] rank) {
+        int n = tasks.size();
+        var waiting = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j : predecessors[i]) {
+                if (precedes(topological, j, i)) {
+                    waiting[i]++;
+                }
+            }
+        }
+        var ready = new PriorityQueue<Integer>((a, b) -> {
+            int byRank = Double.compare(rank[b], rank[a]);
+            if (byRank != 0) {
+                return byRank;
+            }
+            int byPriority = Integer.compare(priority(tasks.get(a)), priority(tasks.get(b)));
+            return byPriority != 0 ? byPriority : Integer.compare(a, b);
+        });
+        for (int i = 0; i < n; i++) {
+            if (waiting[i] == 0) {
+                ready.add(i);
+            }
+        }
+        var order = new int[n];
+        int size = 0;
+        while (!ready.isEmpty()) {
+            int i = ready.poll();
+            order[size++] = i;
+            for (int s : successors[i]) {
+                if (precedes(topological, i, s) && --waiting[s] == 0) {
+                    ready.add(s);
+                }
+            }
+        }
+        return order;
+    }
+
+    private static int priority(Task task) {
+        return task.priority() == null ? Integer.MAX_VALUE : task.priority().ordinal();
+    }
+
+    /**
+     * A plan as flat arrays indexed by scheduling position: every task's
+     * predecessors come before it, so one forward pass schedules the plan.
+     */
+    static final class Graph {
+
+        final String[] ids;
+        final double[] low;
+        final double[] likely;
+        final double[] high;
+        /** Position {@code p} depends on {@code predecessors[predecessorStart[p]] .. [predecessorStart[p + 1] - 1]}. */
+        final int[] predecessorStart;
+        final int[] predecessors;
+        final int unparsed;
+
+        Graph(int[] order, List<Task> tasks, Effort[] efforts, int[][] taskPredecessors, int[] position,
+              int unparsed) {
+            int n = order.length;
+            this.ids = new String[n];
+            this.low = new double[n];
+            this.likely = new double[n];
+            this.high = new double[n];
+            this.predecessorStart = new int[n + 1];
+            this.unparsed = unparsed;
+            var edges = new int[Arrays.stream(taskPredecessors).mapToInt(p -> p.length).sum()];
+            int e = 0;
+            for (int p = 0; p < n; p++) {
+                int i = order[p];
+                ids[p] = tasks.get(i).id();
+                low[p] = efforts[i].low();
+                likely[p] = efforts[i].likely();
+                high[p] = efforts[i].high();
+                predecessorStart[p] = e;
+                for (int j : taskPredecessors[i]) {
+                    if (position[j] < p) {
+                        edges[e++] = position[j];
+                    }
+                }
+            }
+            predecessorStart[n] = e;
+            this.predecessors = Arrays.copyOf(edges, e);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        /**
+         * Schedules every task for its {@code duration} in hours and
+         * returns the finish of the last. Each task goes to the developer
+         * who became free latest while still in time for it, so long idle
+         * stretches stay available for tasks that can use them, or to the
+         * one free soonest when nobody is.
+         */
+        double run(double[] duration, double[] free, double[] finish, int[] developer) {
+            Arrays.fill(free, 0);
+            double makespan = 0;
+            for (int p = 0; p < ids.length; p++) {
+                double earliest = 0;
+                for (int e = predecessorStart[p]; e < predecessorStart[p + 1]; e++) {
+                    earliest = Math.max(earliest, finish[predecessors[e]]);
+                }
+                int best = -1;
+                int soonest = 0;
+                for (int w = 0; w < free.length; w++) {
+                    if (free[w] <= earliest && (best < 0 || free[w] > free[best])) {
+                        best = w;
+                    }
+                    if (free[w] < free[soonest]) {
+                        soonest = w;
+                    }
+                }
+                int w = best >= 0 ? best : soonest;
+                double end = Math.max(earliest, free[w]) + duration[p];
+                free[w] = end;
+                finish[p] = end;
+                if (developer != null) {
+                    developer[p] = w;
+                }
+                makespan = Math.max(makespan, end);
+            }
+            return makespan;
+        }
+
+        /** Likely length in hours of the longest dependency chain. */
+        double criticalPath() {
+            var finish = new double[ids.length];
+            double longest = 0;
+            for (int p = 0; p < ids.length; p++) {
+                double earliest = 0;
+                for (int e = predecessorStart[p]; e < predecessorStart[p + 1]; e++) {
+                    earliest = Math.max(earliest, finish[predecessors[e]]);
+                }
+                finish[p] = earliest + likely[p];
+                longest = Math.max(longest, finish[p]);
+            }
+            return longest;
+        }
+    }
+
+    /** Makespans of iterations {@code [from, to)}, split until a block is small enough to run. */
+    private static final class Simulation extends RecursiveAction {
+
+        private final Graph graph;
+        private final int team;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+        private final double[] makespans;
+
+        Simulation(Graph graph, int team, int from, int to, SplittableRandom random, double[] makespans) {
+            this.graph = graph;
+            this.team = team;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+            this.makespans = makespans;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BLOCK) {
+                int middle = (from + to) >>> 1;
+                var left = new Simulation(graph, team, from, middle, random.split(), makespans);
+                var right = new Simulation(graph, team, middle, to, random, makespans);
+                invokeAll(left, right);
+                return;
+            }
+            int n = graph.size();
+            var duration = new double[n];
+            var free = new double[team];
+            var finish = new double[n];
+            for (int iteration = from; iteration < to; iteration++) {
+                for (int p = 0; p < n; p++) {
+                    duration[p] = Effort.triangular(graph.low[p], graph.likely[p], graph.high[p],
+                        random.nextDouble());
+                }
+                makespans[iteration] = graph.run(duration, free, finish, null);
+            }
+        }
+    }
+}
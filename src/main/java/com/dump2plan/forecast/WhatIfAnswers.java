@@ -0,0 +1,149 @@
+package com.dump2plan.forecast;
+
+import com.dump2plan.forecast.ScheduleSimulator.Forecast;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.session.ChatSessions;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Answers schedule questions about a conversation's current plan from the
+ * {@link ScheduleSimulator} instead of the model: "what if we had 2 more
+ * developers?", "how long will this take?". The reply takes milliseconds and
+ * costs no tokens. Anything else, or any conversation without a stored plan,
+ * is left to the chat model.
+ */
+@Component
+public class WhatIfAnswers {
+
+    private static final Pattern WHAT_IF = Pattern.compile(
+        "\\b(what if|what about|how about|suppose|if we|if i)\\b");
+
+    private static final Pattern CHANGE = Pattern.compile(
+        "\\b(?:(add|adding|hire|hiring|bring in|get|extra|another)\\b.*?)?(\\d+)\\s*"
+            + "(more|extra|additional|fewer|less|)\\s*(?:full[- ]time\\s+)?"
+            + "(?:devs?|developers?|engineers?|people|persons?|folks|members?|teammates?|programmers?)\\b");
+
+    private static final Pattern REDUCE = Pattern.compile("\\b(lose|losing|remove|removing|without|drop|dropping)\\b");
+
+    private static final Pattern ETA = Pattern.compile(
+        "\\b(when will (?:we|i|it|this|the project) (?:be )?(?:finish|finished|done|complete|ship|launch)"
+            + "|how long will (?:it|this|the (?:plan|project)) take"
+            + "|(?:estimated|expected) (?:finish|completion|end) date"
+            + "|when (?:can|could) (?:we|i) (?:finish|ship|launch))\\b");
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("EEE d MMM yyyy", Locale.ENGLISH);
+
+    private final ScheduleSimulator simulator;
+    private final ChatSessions sessions;
+
+    public WhatIfAnswers(ScheduleSimulator simulator, ChatSessions sessions) {
+        this.simulator = simulator;
+        this.sessions = sessions;
+    }
+
+    /**
+     * The reply to {@code message} in conversation {@code sessionId}, if it
+     * is a schedule question about a plan the conversation already has.
+     */
+    public Optional<String> answer(String sessionId, String message) {
+        if (sessionId == null || !isScheduleQuestion(message)) {
+            return Optional.empty();
+        }
+        var session = sessions.open(sessionId);
+        return answer(session.plan(), session.answers(), message, LocalDate.now());
+    }
+
+    /** The reply to {@code message} about {@code plan}, starting work on {@code start}. */
+    public Optional<String> answer(StructuredPlan plan, ClarifiedContext answers, String message,
+                                   LocalDate start) {
+        if (plan == null || plan.tasks() == null || plan.tasks().isEmpty() || !isScheduleQuestion(message)) {
+            return Optional.empty();
+        }
+        var text = EffortParser.normalize(message);
+        int current = currentTeam(answers);
+        var change = WHAT_IF.matcher(text).find() ? CHANGE.matcher(text) : null;
+        if (change != null && change.find()) {
+            int count = Integer.parseInt(change.group(2));
+            boolean reduce = change.group(3).equals("fewer") || change.group(3).equals("less")
+                || REDUCE.matcher(text).find();
+            boolean add = !reduce && (change.group(1) != null || !change.group(3).isEmpty());
+            int target = reduce ? Math.max(1, current - count) : add ? current + count : Math.max(1, count);
+            var forecasts = simulator.whatIf(plan, start, current, target);
+            return Optional.of(compare(forecasts.get(0), forecasts.get(1)));
+        }
+        if (ETA.matcher(text).find()) {
+            var forecast = simulator.forecast(plan, current, start);
+            return Optional.of(describe(forecast) + footnote(forecast));
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isScheduleQuestion(String message) {
+        if (message == null || message.isBlank()) {
+            return false;
+        }
+        var text = EffortParser.normalize(message);
+        return ETA.matcher(text).find() || WHAT_IF.matcher(text).find() && CHANGE.matcher(text).find();
+    }
+
+    private int currentTeam(ClarifiedContext answers) {
+        var stated = answers == null ? null : answers.teamSize();
+        return EffortParser.teamSize(stated).orElse(Math.max(1, simulator.config().defaultTeamSize()));
+    }
+
+    private static String compare(Forecast current, Forecast target) {
+        var reply = new StringBuilder(describe(target));
+        if (target.teamSize() != current.teamSize()) {
+            double saved = current.p50Days() - target.p50Days();
+            reply.append("\n\nWith ").append(people(current.teamSize())).append(" the median is **")
+                .append(DATE.format(current.p50Date())).append("** (").append(days(current.p50Days()))
+                .append("), so ");
+            if (Math.abs(saved) < 0.5) {
+                reply.append("the finish barely moves.");
+            } else if (saved > 0) {
+                reply.append("that is about ").append(days(saved)).append(" sooner.");
+            } else {
+                reply.append("that is about ").append(days(-saved)).append(" later.");
+            }
+            if (target.teamSize() > current.teamSize()
+                && target.p50Days() < target.criticalPathDays() * 1.15) {
+                reply.append(" More people will not help much beyond this: the longest chain of dependent tasks"
+                    + " alone takes about ").append(days(target.criticalPathDays())).append('.');
+            }
+        }
+        return reply.append(footnote(target)).toString();
+    }
+
+    private static String describe(Forecast forecast) {
+        return "**With " + people(forecast.teamSize()) + "** the plan has a 50% chance of finishing by **"
+            + DATE.format(forecast.p50Date()) + "** (" + days(forecast.p50Days()) + ") and a 90% chance by **"
+            + DATE.format(forecast.p90Date()) + "** (" + days(forecast.p90Days()) + ").";
+    }
+
+    private static String footnote(Forecast forecast) {
+        var note = "\n\n_Simulated from the plan's effort estimates and dependencies over "
+            + String.format(Locale.ENGLISH, "%,d", forecast.iterations()) + " runs";
+        if (forecast.unparsedEfforts() > 0) {
+            note += "; " + forecast.unparsedEfforts() + " of " + forecast.tasks()
+                + " tasks had no readable effort and count as one day";
+        }
+        return note + "._";
+    }
+
+    private static String people(int count) {
+        return count == 1 ? "1 developer" : count + " developers";
+    }
+
+    private static String days(double days) {
+        long rounded = Math.round(Math.ceil(days * 2) / 2 * 2);
+        var amount = rounded % 2 == 0 ? String.valueOf(rounded / 2) : (rounded / 2) + ".5";
+        return amount + (rounded == 2 ? " working day" : " working days");
+    }
+}
@@ -0,0 +1,114 @@
+package com.dump2plan.json;
+
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ConversationSummary;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.core.NativeDetector;
+
+import java.util.List;
+
+/**
+ * The one Jackson configuration shared by the agent, export and storage.
+ * An {@link ObjectMapper} is thread-safe and caches what it learns about
+ * each type, so a single instance pays for introspection once instead of
+ * once per component.
+ *
+ * <p>Readers and writers are fixed to their root type, so each call skips
+ * the root serializer lookup and the copy of the mapper's configuration
+ * that {@code readValue}/{@code writeValueAsBytes} make. Those for the model
+ * records are built, and their (de)serializers resolved, when this class
+ * is initialized. Other types get theirs on first use.</p>
+ *
+ * <p>On the JVM, the Blackbird module replaces reflective getter and
+ * constructor calls with generated lambdas. It is left out of native images,
+ * which cannot define classes at run time.</p>
+ */
+public final class ModelJson {
+
+    /** Records exchanged with the LLM, checkpointed and stored. */
+    public static final List<Class<?>> MODEL_TYPES = List.of(ExtractedIdeas.class, ClarifiedContext.class,
+        ProjectStructure.class, StructuredPlan.class, Milestone.class, Task.class, ConversationSummary.class);
+
+    private static final ObjectMapper MAPPER = createMapper();
+    private static final ClassValue<ObjectReader> READERS = new ClassValue<>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return MAPPER.readerFor(type);
+        }
+    };
+    private static final ClassValue<ObjectReader> LENIENT_READERS = new ClassValue<>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return READERS.get(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        }
+    };
+    private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return MAPPER.writerFor(type);
+        }
+    };
+    private static final ClassValue<ObjectWriter> PRETTY_WRITERS = new ClassValue<>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return WRITERS.get(type).withDefaultPrettyPrinter();
+        }
+    };
+
+    static {
+        for (var type : MODEL_TYPES) {
+            READERS.get(type);
+            LENIENT_READERS.get(type);
+            WRITERS.get(type);
+        }
+        PRETTY_WRITERS.get(StructuredPlan.class);
+    }
+
+    private ModelJson() {
+    }
+
+    private static ObjectMapper createMapper() {
+        var builder = JsonMapper.builder().addModule(new JavaTimeModule());
+        if (!NativeDetector.inNativeImage()) {
+            builder.addModule(new BlackbirdModule());
+        }
+        return builder.build();
+    }
+
+    /** The shared mapper, for tree and streaming access and parameterized types. */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        return READERS.get(type);
+    }
+
+    /**
+     * A reader that ignores properties {@code type} does not declare, for
+     * input from the LLM or from older and newer versions of a record.
+     */
+    public static ObjectReader lenientReader(Class<?> type) {
+        return LENIENT_READERS.get(type);
+    }
+
+    public static ObjectWriter writer(Class<?> type) {
+        return WRITERS.get(type);
+    }
+
+    /** An indenting writer, for exports and files people read. */
+    public static ObjectWriter prettyWriter(Class<?> type) {
+        return PRETTY_WRITERS.get(type);
+    }
+}
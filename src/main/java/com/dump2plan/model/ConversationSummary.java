@@ -0,0 +1,10 @@
+package com.dump2plan.model;
+
+import com.fasterxml.jackson.annotation.JsonClassDescription;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+@JsonClassDescription("Rolling summary of the older part of a planning conversation")
+public record ConversationSummary(
+    @JsonPropertyDescription("Concise summary of goals, decisions, answers and open questions so far")
+    String summary
+) {}
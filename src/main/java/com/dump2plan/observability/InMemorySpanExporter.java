@@ -0,0 +1,38 @@
+package com.dump2plan.observability;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Keeps the most recent spans in memory. Used by tests and for local
+ * diagnosis through a debugger or heap dump.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int maxSpans;
+    private final ArrayDeque<SpanRecord> spans = new ArrayDeque<>();
+
+    public InMemorySpanExporter(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public synchronized void export(SpanRecord span) {
+        if (spans.size() == maxSpans) {
+            spans.pollFirst();
+        }
+        spans.addLast(span);
+    }
+
+    public synchronized List<SpanRecord> getSpans() {
+        return List.copyOf(spans);
+    }
+
+    public synchronized List<SpanRecord> getTrace(String traceId) {
+        return spans.stream().filter(s -> s.traceId().equals(traceId)).toList();
+    }
+
+    public synchronized void reset() {
+        spans.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package com.dump2plan.observability;
+
+import com.dump2plan.json.ModelJson;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends one JSON object per finished span to a local file, so slow plans
+ * can be diagnosed after the fact with {@code jq} or any trace viewer that
+ * imports JSON lines.
+ */
+public class JsonLinesSpanExporter implements SpanExporter, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonLinesSpanExporter.class);
+    private static final ObjectWriter WRITER = ModelJson.writer(SpanRecord.class)
+        .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final BufferedWriter writer;
+
+    public JsonLinesSpanExporter(Path file) {
+        try {
+            var parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open span file " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void export(SpanRecord span) {
+        try {
+            writer.write(WRITER.writeValueAsString(span));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("Failed to export span {}", span.name(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,197 @@
+package com.dump2plan.observability;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.model.StructuredPlan;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Observation-based tracing of planning runs. A run is one root
+ * {@value #RUN} observation from {@code analyzeInput} to
+ * {@code finalizePlan}; each action, LLM call and the HITL pause is a child
+ * of it. Actions may execute on different threads, so runs are looked up by
+ * their run id (the agent process id or the API run id) rather than by the
+ * current observation scope. Calls with a {@code null} run id are not
+ * attached to any run.
+ *
+ * <p>Observations are exported by {@link SpanRecordingHandler}, and are also
+ * picked up by any Micrometer Tracing bridge (e.g. OpenTelemetry) on the
+ * classpath.</p>
+ */
+@Component
+public class PlanTracing {
+
+    public static final String PREFIX = "dump2plan.";
+    public static final String RUN = "dump2plan.run";
+    public static final String STEP = "dump2plan.step";
+    public static final String LLM_CALL = "dump2plan.llm.call";
+    public static final String HITL_PAUSE = "dump2plan.hitl.pause";
+    public static final String RENDER = "dump2plan.prompt.render";
+    public static final String EXPORT = "dump2plan.export";
+    public static final String UI_DELIVERY = "dump2plan.ui.delivery";
+
+    private static final Duration ABANDON_AFTER = Duration.ofHours(1);
+
+    private final ObservationRegistry registry;
+    private final Map<String, ActiveRun> runs = new ConcurrentHashMap<>();
+    private final Map<String, Observation> hitlPauses = new ConcurrentHashMap<>();
+
+    public PlanTracing(ObservationRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Starts the root observation of a planning run.
+     */
+    public void startRun(String runId, int inputChars) {
+        expireAbandonedRuns();
+        if (runId == null) {
+            return;
+        }
+        var run = Observation.createNotStarted(RUN, registry)
+            .contextualName("plan")
+            .highCardinalityKeyValue("input.chars", String.valueOf(inputChars))
+            .start();
+        var previous = runs.put(runId, new ActiveRun(run, System.nanoTime()));
+        if (previous != null) {
+            previous.observation().lowCardinalityKeyValue("abandoned", "true").stop();
+        }
+    }
+
+    /**
+     * Adds a high-cardinality key value to the root observation of a run.
+     */
+    public void annotateRun(String runId, String key, String value) {
+        var run = active(runId);
+        if (run != null) {
+            run.observation().highCardinalityKeyValue(key, value);
+        }
+    }
+
+    public void finishRun(String runId, StructuredPlan plan) {
+        var run = runId == null ? null : runs.remove(runId);
+        if (run != null) {
+            run.observation()
+                .highCardinalityKeyValue("plan.milestones", String.valueOf(sizeOf(plan.milestones())))
+                .highCardinalityKeyValue("plan.tasks", String.valueOf(sizeOf(plan.tasks())))
+                .stop();
+        }
+    }
+
+    /**
+     * Ends the run as failed with {@code error}, along with its HITL pause
+     * if it was waiting for answers.
+     */
+    public void failRun(String runId, Throwable error) {
+        var run = runId == null ? null : runs.remove(runId);
+        hitlCompleted(runId);
+        if (run != null) {
+            run.observation().error(error).stop();
+        }
+    }
+
+    /**
+     * Runs one {@code @Action} as a child of the run identified by {@code runId}.
+     */
+    public <T> T step(String action, String runId, Supplier<T> body) {
+        var observation = Observation.createNotStarted(STEP, registry)
+            .contextualName(action)
+            .lowCardinalityKeyValue("action", action);
+        var run = active(runId);
+        if (run != null) {
+            observation.parentObservation(run.observation());
+        }
+        return observation.observe(body);
+    }
+
+    /**
+     * Runs an LLM call as a child of the current observation, annotated with
+     * the model and estimated prompt and completion tokens.
+     */
+    public <T> T llmCall(String action, ActorConfig actor, String prompt, Supplier<T> call) {
+        var observation = Observation.createNotStarted(LLM_CALL, registry)
+            .contextualName(action + " " + actor.llm())
+            .lowCardinalityKeyValue("actor", actor.persona())
+            .lowCardinalityKeyValue("model", actor.llm())
+            .highCardinalityKeyValue("prompt.chars", String.valueOf(prompt.length()))
+            .highCardinalityKeyValue("prompt.tokens", String.valueOf(TokenEstimator.estimate(prompt)));
+        return observation.observe(() -> {
+            var result = call.get();
+            observation.highCardinalityKeyValue("completion.tokens",
+                String.valueOf(TokenEstimator.estimate(String.valueOf(result))));
+            return result;
+        });
+    }
+
+    public void hitlStarted(String runId) {
+        if (runId == null) {
+            return;
+        }
+        var observation = Observation.createNotStarted(HITL_PAUSE, registry)
+            .contextualName("awaiting user input");
+        var run = runs.get(runId);
+        if (run != null) {
+            observation.parentObservation(run.observation());
+        }
+        var previous = hitlPauses.put(runId, observation.start());
+        if (previous != null) {
+            previous.stop();
+        }
+    }
+
+    public void hitlCompleted(String runId) {
+        var observation = runId == null ? null : hitlPauses.remove(runId);
+        if (observation != null) {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Runs {@code body} in a standalone span (its own trace unless called
+     * inside another observation).
+     */
+    public <T> T span(String name, String contextualName, Supplier<T> body) {
+        return Observation.createNotStarted(name, registry)
+            .contextualName(contextualName)
+            .observe(body);
+    }
+
+    /**
+     * Starts a span that the caller stops later, for work that completes on
+     * another thread such as a Vaadin {@code UI.access} callback.
+     */
+    public Observation startSpan(String name, String contextualName) {
+        return Observation.createNotStarted(name, registry)
+            .contextualName(contextualName)
+            .start();
+    }
+
+    private void expireAbandonedRuns() {
+        long now = System.nanoTime();
+        runs.entrySet().removeIf(entry -> {
+            if (now - entry.getValue().startNanos() > ABANDON_AFTER.toNanos()) {
+                entry.getValue().observation().lowCardinalityKeyValue("abandoned", "true").stop();
+                hitlCompleted(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private ActiveRun active(String runId) {
+        return runId == null ? null : runs.get(runId);
+    }
+
+    private static int sizeOf(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private record ActiveRun(Observation observation, long startNanos) {}
+}
@@ -0,0 +1,340 @@
+package com.dump2plan.observability;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.prompt.CacheablePrompt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer instrumentation for the planning pipeline. Every meter is tagged
+ * with {@code action}, and LLM-backed meters additionally with the
+ * {@code actor} persona and {@code model} from {@link ActorConfig}, so one
+ * dashboard query can break latency and token spend down either way.
+ *
+ * <p>Token counts come from {@link TokenEstimator} because the agent API
+ * returns typed objects rather than provider usage. For the same reason
+ * cached prompt tokens are inferred: a prompt prefix counts as cached when
+ * it is long enough for providers to cache and the same model received the
+ * identical prefix within {@link #PROMPT_CACHE_TTL}.</p>
+ */
+@Component
+public class PlannerMetrics {
+
+    public static final String ACTION_TIMER = "dump2plan.action";
+    public static final String TOKENS = "dump2plan.llm.tokens";
+    public static final String CACHE_REQUESTS = "dump2plan.cache.requests";
+    public static final String CACHE_LOOKUP = "dump2plan.cache.lookup";
+    public static final String RETRIES = "dump2plan.llm.retries";
+    public static final String HITL_WAIT = "dump2plan.hitl.wait";
+    public static final String PLAN_MILESTONES = "dump2plan.plan.milestones";
+    public static final String PLAN_TASKS = "dump2plan.plan.tasks";
+    public static final String DUPLICATE_ACTIONS = "dump2plan.ideas.duplicate.actions";
+    public static final String CHECKPOINT_APPEND = "dump2plan.checkpoint.append";
+    public static final String ACTION_COST = "dump2plan.action.cost";
+    public static final String SCHEDULE_SIMULATION = "dump2plan.schedule.simulation";
+    public static final String PLAN_SEARCH = "dump2plan.plan.search";
+    public static final String RACE = "dump2plan.race";
+    public static final String FAILOVER = "dump2plan.llm.failover";
+    public static final String BREAKER_STATE = "dump2plan.llm.breaker.state";
+    public static final String PROMPT_CACHE_RATIO = "dump2plan.llm.prompt.cache.ratio";
+
+    /** Shortest prefix providers will cache (OpenAI and Anthropic both use 1024). */
+    static final int MIN_CACHEABLE_TOKENS = 1024;
+    /** Providers evict cached prefixes after about five minutes without a hit. */
+    static final Duration PROMPT_CACHE_TTL = Duration.ofMinutes(5);
+    private static final int MAX_TRACKED_PREFIXES = 1024;
+
+    private static final Duration HITL_ABANDON_AFTER = Duration.ofHours(1);
+
+    private final MeterRegistry registry;
+    private final Map<String, Long> hitlStarts = new ConcurrentHashMap<>();
+    private final Map<PrefixKey, Long> prefixLastSent = new ConcurrentHashMap<>();
+    private final LongSupplier nanoTime;
+
+    public PlannerMetrics(MeterRegistry registry) {
+        this(registry, System::nanoTime);
+    }
+
+    public PlannerMetrics(MeterRegistry registry, LongSupplier nanoTime) {
+        this.registry = registry;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Times an LLM-backed action and records estimated prompt, cached prompt
+     * and completion tokens for it.
+     */
+    public <T> T recordLlmAction(String action, ActorConfig actor, CacheablePrompt prompt, Supplier<T> call) {
+        var result = recordAction(action, actor, call);
+        recordLlmCall(action, actor, prompt, result);
+        return result;
+    }
+
+    /**
+     * Records the tokens and prompt caching of a model call that
+     * {@code answeredBy} answered with {@code result}; its time is recorded
+     * by {@link #recordAction}.
+     */
+    public void recordLlmCall(String action, ActorConfig answeredBy, CacheablePrompt prompt, Object result) {
+        recordTokens(action, answeredBy,
+            TokenEstimator.estimate(prompt.text()), TokenEstimator.estimate(String.valueOf(result)));
+        recordPromptCache(action, answeredBy, prompt);
+    }
+
+    /**
+     * Records how many of {@code prompt}'s tokens the provider is expected to
+     * serve from its prefix cache, as the {@code cached-prompt} token type
+     * and as a per-call ratio.
+     */
+    public void recordPromptCache(String action, ActorConfig actor, CacheablePrompt prompt) {
+        long prefixTokens = TokenEstimator.estimate(prompt.prefix());
+        long totalTokens = TokenEstimator.estimate(prompt.text());
+        long now = nanoTime.getAsLong();
+        long cachedTokens = 0;
+        if (prefixTokens >= MIN_CACHEABLE_TOKENS) {
+            if (prefixLastSent.size() >= MAX_TRACKED_PREFIXES) {
+                prefixLastSent.values().removeIf(sent -> now - sent > PROMPT_CACHE_TTL.toNanos());
+            }
+            var previous = prefixLastSent.put(new PrefixKey(actor.llm(), prompt.prefix()), now);
+            if (previous != null && now - previous <= PROMPT_CACHE_TTL.toNanos()) {
+                cachedTokens = prefixTokens;
+            }
+        }
+        tokenCounter(action, actor, "cached-prompt").increment(cachedTokens);
+        DistributionSummary.builder(PROMPT_CACHE_RATIO)
+            .description("Share of prompt tokens expected to be served from the provider's prefix cache")
+            .tag("action", action)
+            .tag("actor", actor.persona())
+            .tag("model", actor.llm())
+            .register(registry)
+            .record((double) cachedTokens / totalTokens);
+    }
+
+    public <T> T recordAction(String action, ActorConfig actor, Supplier<T> call) {
+        return recordAction(action, actor, call, result -> actor);
+    }
+
+    /**
+     * Times an action under the model {@code answeredBy} reports for its
+     * result, such as a fallback or a race's winner, or under
+     * {@code actor}'s model if it failed.
+     */
+    public <T> T recordAction(String action, ActorConfig actor, Supplier<T> call,
+                              Function<? super T, ActorConfig> answeredBy) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            actionTimer(action, actor, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        actionTimer(action, answeredBy.apply(result), "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    public void recordTokens(String action, ActorConfig actor, long promptTokens, long completionTokens) {
+        tokenCounter(action, actor, "prompt").increment(promptTokens);
+        tokenCounter(action, actor, "completion").increment(completionTokens);
+    }
+
+    public void cacheHit(String cache) {
+        cacheCounter(cache, "hit").increment();
+    }
+
+    public void cacheMiss(String cache) {
+        cacheCounter(cache, "miss").increment();
+    }
+
+    public void recordCacheLookup(String cache, long nanos) {
+        Timer.builder(CACHE_LOOKUP)
+            .tag("cache", cache)
+            .publishPercentiles(0.5, 0.99)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts {@code actor}'s call being tried again on {@code model} after
+     * the previous model failed.
+     */
+    public void retry(ActorConfig actor, String model) {
+        Counter.builder(RETRIES)
+            .tag("actor", actor.persona())
+            .tag("model", model)
+            .register(registry)
+            .increment();
+    }
+
+    /**
+     * Counts a model passed over for {@code actor}'s call, because its
+     * breaker was {@code open} or the call ended in an {@code error} or
+     * {@code timeout}.
+     */
+    public void failover(ActorConfig actor, String model, String reason) {
+        Counter.builder(FAILOVER)
+            .tag("actor", actor.persona())
+            .tag("model", model)
+            .tag("reason", reason)
+            .register(registry)
+            .increment();
+    }
+
+    /**
+     * Publishes the circuit breaker state of {@code model} (0 closed,
+     * 1 half-open, 2 open), read from {@code breaker} at each scrape.
+     */
+    public <T> void trackBreaker(String model, T breaker, ToDoubleFunction<T> state) {
+        Gauge.builder(BREAKER_STATE, breaker, state)
+            .description("Circuit breaker state per model: 0 closed, 1 half-open, 2 open")
+            .tag("model", model)
+            .strongReference(true)
+            .register(registry);
+    }
+
+    /**
+     * Marks the start of run {@code runId}'s HITL pause. Runs without an id
+     * are not timed.
+     */
+    public void hitlStarted(String runId) {
+        long now = System.nanoTime();
+        hitlStarts.values().removeIf(start -> now - start > HITL_ABANDON_AFTER.toNanos());
+        if (runId != null) {
+            hitlStarts.put(runId, now);
+        }
+    }
+
+    public void hitlCompleted(String runId) {
+        var start = runId == null ? null : hitlStarts.remove(runId);
+        if (start != null) {
+            Timer.builder(HITL_WAIT)
+                .description("Time users spend answering clarifying questions")
+                .publishPercentiles(0.5, 0.9)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordPlanSize(StructuredPlan plan) {
+        DistributionSummary.builder(PLAN_MILESTONES)
+            .publishPercentiles(0.5, 0.9)
+            .register(registry)
+            .record(plan.milestones() == null ? 0 : plan.milestones().size());
+        DistributionSummary.builder(PLAN_TASKS)
+            .publishPercentiles(0.5, 0.9)
+            .register(registry)
+            .record(plan.tasks() == null ? 0 : plan.tasks().size());
+    }
+
+    /**
+     * Records how many extracted actions were merged into others.
+     */
+    public void recordDuplicateActions(int removed) {
+        DistributionSummary.builder(DUPLICATE_ACTIONS)
+            .publishPercentiles(0.5, 0.9)
+            .register(registry)
+            .record(removed);
+    }
+
+    /**
+     * Records the time an action spent handing its output to the checkpoint log.
+     */
+    public void recordCheckpoint(String step, long nanos) {
+        Timer.builder(CHECKPOINT_APPEND)
+            .description("Time planning actions spend checkpointing their output")
+            .tag("step", step)
+            .publishPercentiles(0.5, 0.99)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordScheduleSimulation(int teamSize, long nanos) {
+        Timer.builder(SCHEDULE_SIMULATION)
+            .description("Time to simulate a plan's schedule for a forecast")
+            .tag("team", teamSize > 10 ? "10+" : String.valueOf(teamSize))
+            .publishPercentiles(0.5, 0.99)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPlanSearch(long nanos) {
+        Timer.builder(PLAN_SEARCH)
+            .description("Latency of full-text searches over saved plans")
+            .publishPercentiles(0.5, 0.99)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times a raced pipeline step by which model's answer was taken:
+     * {@code primary}, {@code challenger}, {@code primary-only} (answered
+     * within the hedge delay), {@code over-budget} or {@code failed}.
+     */
+    public void recordRace(String action, String result, long nanos) {
+        Timer.builder(RACE)
+            .description("Latency of pipeline steps raced against a second model, by winner")
+            .tag("action", action)
+            .tag("result", result)
+            .publishPercentiles(0.5, 0.99)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Publishes the learned GOAP cost of {@code action} on {@code model},
+     * read from {@code state} at each scrape.
+     */
+    public <T> void trackActionCost(String action, String model, T state, ToDoubleFunction<T> cost) {
+        Gauge.builder(ACTION_COST, state, cost)
+            .description("Measured planning cost of an action at its typical input size")
+            .tag("action", action)
+            .tag("model", model)
+            .strongReference(true)
+            .register(registry);
+    }
+
+    private Timer actionTimer(String action, ActorConfig actor, String outcome) {
+        return Timer.builder(ACTION_TIMER)
+            .description("Latency of planning actions and chat responses")
+            .tag("action", action)
+            .tag("actor", actor.persona())
+            .tag("model", actor.llm())
+            .tag("outcome", outcome)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    private Counter tokenCounter(String action, ActorConfig actor, String type) {
+        return Counter.builder(TOKENS)
+            .baseUnit("tokens")
+            .tag("action", action)
+            .tag("actor", actor.persona())
+            .tag("model", actor.llm())
+            .tag("type", type)
+            .register(registry);
+    }
+
+    private Counter cacheCounter(String cache, String result) {
+        return Counter.builder(CACHE_REQUESTS)
+            .tag("cache", cache)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private record PrefixKey(String model, String prefix) {}
+}
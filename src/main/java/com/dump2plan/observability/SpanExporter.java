@@ -0,0 +1,10 @@
+package com.dump2plan.observability;
+
+/**
+ * Receives spans as they finish. See {@link InMemorySpanExporter} and
+ * {@link JsonLinesSpanExporter}.
+ */
+public interface SpanExporter {
+
+    void export(SpanRecord span);
+}
@@ -0,0 +1,21 @@
+package com.dump2plan.observability;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A finished span as handed to a {@link SpanExporter}. {@code traceId} is
+ * shared by every span of one planning run; {@code parentSpanId} is
+ * {@code null} for the root span.
+ */
+public record SpanRecord(
+    String traceId,
+    String spanId,
+    String parentSpanId,
+    String name,
+    String contextualName,
+    Instant start,
+    long durationNanos,
+    Map<String, String> attributes,
+    String error
+) {}
@@ -0,0 +1,80 @@
+package com.dump2plan.observability;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns {@code dump2plan.*} observations into {@link SpanRecord}s. Trace and
+ * span ids are carried on the observation context, so a child inherits its
+ * parent's trace id whether the parent was set explicitly or picked up from
+ * the current scope.
+ */
+public class SpanRecordingHandler implements ObservationHandler<Observation.Context> {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final SpanExporter exporter;
+
+    public SpanRecordingHandler(SpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context.getName() != null && context.getName().startsWith(PlanTracing.PREFIX);
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        var parent = parentIds(context);
+        var traceId = parent != null ? parent.traceId() : newId(16);
+        context.put(SpanIds.class, new SpanIds(traceId, newId(8),
+            parent != null ? parent.spanId() : null, Instant.now(), System.nanoTime()));
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        SpanIds ids = context.get(SpanIds.class);
+        if (ids == null) {
+            return;
+        }
+        var attributes = new HashMap<String, String>();
+        for (KeyValue keyValue : context.getAllKeyValues()) {
+            attributes.put(keyValue.getKey(), keyValue.getValue());
+        }
+        var error = context.getError();
+        exporter.export(new SpanRecord(ids.traceId(), ids.spanId(), ids.parentSpanId(),
+            context.getName(), context.getContextualName(), ids.start(),
+            System.nanoTime() - ids.startNanos(), attributes,
+            error == null ? null : error.getClass().getSimpleName() + ": " + error.getMessage()));
+    }
+
+    /**
+     * Returns the trace id of a started observation, or {@code null} if it
+     * is not being recorded.
+     */
+    public static String traceIdOf(Observation observation) {
+        SpanIds ids = observation.getContextView().get(SpanIds.class);
+        return ids == null ? null : ids.traceId();
+    }
+
+    private static SpanIds parentIds(Observation.Context context) {
+        var parent = context.getParentObservation();
+        return parent == null ? null : parent.getContextView().get(SpanIds.class);
+    }
+
+    private static String newId(int bytes) {
+        var id = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(id);
+        return HEX.formatHex(id);
+    }
+
+    private record SpanIds(String traceId, String spanId, String parentSpanId,
+                           Instant start, long startNanos) {}
+}
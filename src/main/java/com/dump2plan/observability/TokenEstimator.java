@@ -0,0 +1,15 @@
+package com.dump2plan.observability;
+
+/**
+ * Provider-independent token estimate (about four characters per token),
+ * used wherever a token count is needed before or without provider usage.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        return text == null ? 0 : text.length() / 4 + 1;
+    }
+}
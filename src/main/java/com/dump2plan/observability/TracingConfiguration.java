@@ -0,0 +1,47 @@
+package com.dump2plan.observability;
+
+import com.dump2plan.Dump2PlanProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Registers a {@link SpanRecordingHandler} when {@code dump2plan.tracing.exporter}
+ * is {@code memory} or {@code file}. Spring Boot adds handler beans to the
+ * {@code ObservationRegistry} automatically.
+ */
+@Configuration
+public class TracingConfiguration {
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "dump2plan.tracing", name = "exporter", havingValue = "memory")
+    static class InMemory {
+
+        @Bean
+        public InMemorySpanExporter inMemorySpanExporter(Dump2PlanProperties properties) {
+            return new InMemorySpanExporter(properties.tracing().maxSpans());
+        }
+
+        @Bean
+        public SpanRecordingHandler spanRecordingHandler(InMemorySpanExporter exporter) {
+            return new SpanRecordingHandler(exporter);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(prefix = "dump2plan.tracing", name = "exporter", havingValue = "file")
+    static class File {
+
+        @Bean
+        public JsonLinesSpanExporter jsonLinesSpanExporter(Dump2PlanProperties properties) {
+            return new JsonLinesSpanExporter(Path.of(properties.tracing().file()));
+        }
+
+        @Bean
+        public SpanRecordingHandler spanRecordingHandler(JsonLinesSpanExporter exporter) {
+            return new SpanRecordingHandler(exporter);
+        }
+    }
+}
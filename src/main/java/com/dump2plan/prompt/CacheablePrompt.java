@@ -0,0 +1,21 @@
+package com.dump2plan.prompt;
+
+/**
+ * A prompt split into a stable {@code prefix} and a variable {@code suffix}.
+ *
+ * <p>The prefix holds instructions that are byte-identical across calls for
+ * the same actor and action, and is sent first (as the system prompt) so
+ * providers can serve it from their prompt cache. Anything derived from
+ * user input belongs in the suffix.</p>
+ */
+public record CacheablePrompt(String prefix, String suffix) {
+
+    static final String SEPARATOR = "\n\n";
+
+    /**
+     * The prompt as a single message, prefix first.
+     */
+    public String text() {
+        return prefix + SEPARATOR + suffix;
+    }
+}
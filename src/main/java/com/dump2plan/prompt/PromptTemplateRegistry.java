@@ -0,0 +1,199 @@
+package com.dump2plan.prompt;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.observability.PlannerMetrics;
+import com.hubspot.jinjava.Jinjava;
+import com.hubspot.jinjava.interpret.Context;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.loader.ResourceLocator;
+import com.hubspot.jinjava.loader.ResourceNotFoundException;
+import com.hubspot.jinjava.tree.Node;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Loads every template under {@code prompts/} once at startup and serves
+ * rendered prompts from a cache.
+ *
+ * <p>A template's top-level {@code include}s are split into a static prefix
+ * and a user-specific tail: an include is user-specific if it (or anything it
+ * includes by literal name) references the {@code user} variable. The prefix
+ * is rendered once per (template, persona, objective) and reused verbatim;
+ * the tail is parsed once and only evaluated per call. Includes with computed
+ * names (the persona/objective switch in {@code personalization.jinja}) are
+ * assumed to depend on the persona and objective only; both are passed to
+ * the templates as the {@code persona} and {@code objective} variables.</p>
+ */
+@Component
+public class PromptTemplateRegistry {
+
+    static final String ROOT = "prompts/";
+    static final String SUFFIX = ".jinja";
+
+    private static final Pattern INCLUDE =
+        Pattern.compile("\\{%-?\\s*include\\s+\"([^\"]+)\"\\s*-?%}");
+    private static final Pattern USER_REFERENCE =
+        Pattern.compile("\\{[{%][^}]*\\buser\\b");
+
+    private final Map<String, String> sources;
+    private final PlannerMetrics metrics;
+    private final Jinjava jinjava = new Jinjava();
+    private final Map<Key, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+
+    public PromptTemplateRegistry(Dump2PlanProperties properties, PlannerMetrics metrics) {
+        this(loadSources(), metrics);
+        compile(new Key("dump2plan", properties.persona(), properties.objective()),
+            Map.of("properties", properties));
+    }
+
+    PromptTemplateRegistry(Map<String, String> sources, PlannerMetrics metrics) {
+        this.sources = Map.copyOf(sources);
+        this.metrics = metrics;
+        jinjava.setResourceLocator(new ResourceLocator() {
+            @Override
+            public String getString(String fullName, Charset encoding, JinjavaInterpreter interpreter)
+                    throws IOException {
+                var source = PromptTemplateRegistry.this.sources.get(normalize(fullName));
+                if (source == null) {
+                    throw new ResourceNotFoundException("Unknown prompt template: " + fullName);
+                }
+                return source;
+            }
+        });
+        for (var entry : this.sources.entrySet()) {
+            jinjava.newInterpreter().parse(entry.getValue());
+        }
+    }
+
+    /**
+     * Renders {@code template} (e.g. {@code "dump2plan"}) for the given
+     * persona and objective, which also identify the cached static prefix.
+     */
+    public String render(String template, String persona, String objective, Map<String, Object> model) {
+        var key = new Key(template, persona, objective);
+        var entry = compile(key, model);
+        return entry.staticPrefix() + renderTail(key, entry, model);
+    }
+
+    /**
+     * The rendered user-independent part of {@code template}; byte-identical
+     * across users and calls.
+     */
+    public String staticPrefix(String template, String persona, String objective, Map<String, Object> model) {
+        return compile(new Key(template, persona, objective), model).staticPrefix();
+    }
+
+    /**
+     * Renders only the user-specific tail of {@code template}.
+     */
+    public String renderDynamic(String template, String persona, String objective, Map<String, Object> model) {
+        var key = new Key(template, persona, objective);
+        return renderTail(key, compile(key, model), model);
+    }
+
+    public Set<String> templateNames() {
+        return sources.keySet();
+    }
+
+    private CompiledTemplate compile(Key key, Map<String, Object> model) {
+        var entry = compiled.get(key);
+        if (entry != null) {
+            metrics.cacheHit("prompt-template");
+            return entry;
+        }
+        metrics.cacheMiss("prompt-template");
+        return compiled.computeIfAbsent(key, k -> link(k, withKey(k, model)));
+    }
+
+    private CompiledTemplate link(Key key, Map<String, Object> model) {
+        var source = sources.get(normalize(key.template()));
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown prompt template: " + key.template());
+        }
+        int split = source.length();
+        var matcher = INCLUDE.matcher(source);
+        while (matcher.find()) {
+            if (referencesUser(normalize(matcher.group(1)), new HashSet<>())) {
+                split = matcher.start();
+                break;
+            }
+        }
+        var prefix = jinjava.render(source.substring(0, split), model);
+        var tailSource = source.substring(split);
+        var tail = tailSource.isBlank() ? null : jinjava.newInterpreter().parse(tailSource);
+        return new CompiledTemplate(prefix, tail);
+    }
+
+    private boolean referencesUser(String name, Set<String> visited) {
+        var source = sources.get(name);
+        if (source == null || !visited.add(name)) {
+            return false;
+        }
+        if (USER_REFERENCE.matcher(source).find()) {
+            return true;
+        }
+        var matcher = INCLUDE.matcher(source);
+        while (matcher.find()) {
+            if (referencesUser(normalize(matcher.group(1)), visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String renderTail(Key key, CompiledTemplate entry, Map<String, Object> model) {
+        if (entry.tail() == null) {
+            return "";
+        }
+        var interpreter = new JinjavaInterpreter(jinjava,
+            new Context(jinjava.getGlobalContext(), withKey(key, model)), jinjava.getGlobalConfig());
+        JinjavaInterpreter.pushCurrent(interpreter);
+        try {
+            return interpreter.render(entry.tail());
+        } finally {
+            JinjavaInterpreter.popCurrent();
+        }
+    }
+
+    private static Map<String, Object> withKey(Key key, Map<String, Object> model) {
+        var bindings = new HashMap<>(model);
+        bindings.put("persona", key.persona());
+        bindings.put("objective", key.objective());
+        return bindings;
+    }
+
+    private static String normalize(String name) {
+        var relative = name.startsWith(ROOT) ? name.substring(ROOT.length()) : name;
+        return relative.endsWith(SUFFIX) ? relative : relative + SUFFIX;
+    }
+
+    static Map<String, String> loadSources() {
+        var resolver = new PathMatchingResourcePatternResolver();
+        var sources = new HashMap<String, String>();
+        try {
+            for (var resource : resolver.getResources("classpath*:" + ROOT + "**/*" + SUFFIX)) {
+                var url = resource.getURL().toString();
+                var name = url.substring(url.lastIndexOf("/" + ROOT) + ROOT.length() + 1);
+                sources.put(name, resource.getContentAsString(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load prompt templates", e);
+        }
+        return sources;
+    }
+
+    private record Key(String template, String persona, String objective) {}
+
+    private record CompiledTemplate(String staticPrefix, Node tail) {}
+}
@@ -0,0 +1,36 @@
+package com.dump2plan.racing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint exposing win rates and tail latencies of raced
+ * pipeline steps at {@code /actuator/planning-races}.
+ */
+@Component
+@Endpoint(id = "planning-races")
+public class PlanningRacesEndpoint {
+
+    private final ProviderRace race;
+
+    public PlanningRacesEndpoint(ProviderRace race) {
+        this.race = race;
+    }
+
+    @ReadOperation
+    public List<RaceStats> races() {
+        return race.stats();
+    }
+
+    @ReadOperation
+    public RaceStats action(@Selector String action) {
+        return race.stats().stream()
+            .filter(stats -> stats.action().equals(action))
+            .findFirst()
+            .orElse(null);
+    }
+}
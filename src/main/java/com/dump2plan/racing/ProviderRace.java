@@ -0,0 +1,360 @@
+package com.dump2plan.racing;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.RacingConfig;
+import com.dump2plan.agent.Answered;
+import com.dump2plan.cost.ActionCostModel;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.prompt.CacheablePrompt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Races a pipeline step's model call against a second model, so one slow
+ * provider response does not hold up the whole plan. The actor's own model
+ * is called first; once {@code hedgeDelay} has passed without a usable
+ * answer (or at once, with no delay) the same prompt goes to the actor's
+ * configured challenger. The first response that passes
+ * {@link StructuralCheck} wins and the other call is cancelled by
+ * interrupting its thread.
+ *
+ * <p>Challenger calls draw their estimated prompt tokens from an hourly
+ * {@link RaceBudget} before they start and their completion tokens after
+ * the race; while it is spent, steps run on the actor's model alone. Each
+ * finished call feeds the {@link ActionCostModel} under the model that
+ * answered it, which is a fallback's when the call failed over; cancelled
+ * calls are not measured, since their latency is unknown.</p>
+ *
+ * <p>If neither response is valid, the first one received is returned as
+ * an unraced call would have; if both calls fail, the first failure is
+ * rethrown with the other attached.</p>
+ */
+@Component
+public class ProviderRace {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderRace.class);
+
+    /** Most recent calls per step whose latencies back the percentiles in {@link RaceStats}. */
+    private static final int WINDOW = 1024;
+
+    private final RacingConfig config;
+    private final PlannerMetrics metrics;
+    private final ActionCostModel costs;
+    private final RaceBudget budget;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Tally> tallies = new ConcurrentHashMap<>();
+
+    public ProviderRace(Dump2PlanProperties properties, PlannerMetrics metrics, ActionCostModel costs) {
+        this.config = properties.racing();
+        this.metrics = metrics;
+        this.costs = costs;
+        this.budget = config == null ? null : new RaceBudget(config.tokensPerHour(), System::nanoTime);
+    }
+
+    /**
+     * Runs {@code call} with {@code actor}, racing it against the actor's
+     * challenger if {@code action} is raced.
+     *
+     * @param call the model call, given the actor whose model to use
+     * @return the answer that was taken and the model that gave it
+     */
+    public <T> Answered<T> call(String action, ActorConfig actor, CacheablePrompt prompt,
+                                Function<ActorConfig, Answered<T>> call) {
+        var challenger = challengerFor(action, actor);
+        if (challenger == null) {
+            return measured(action, actor, TokenEstimator.estimate(prompt.text()), call);
+        }
+        return new Race<>(action, actor, challenger, prompt, call).run();
+    }
+
+    /** Racing outcomes per raced step, by step name. */
+    public List<RaceStats> stats() {
+        return tallies.entrySet().stream()
+            .map(entry -> entry.getValue().snapshot(entry.getKey()))
+            .sorted(Comparator.comparing(RaceStats::action))
+            .toList();
+    }
+
+    /** Estimated tokens challengers may still spend before racing pauses. */
+    public long remainingBudget() {
+        return budget == null ? 0 : budget.remaining();
+    }
+
+    private ActorConfig challengerFor(String action, ActorConfig actor) {
+        if (config == null || !config.enabled() || config.challengers() == null
+                || !config.actions().contains(action)) {
+            return null;
+        }
+        var model = config.challengers().get(actor.persona());
+        return model == null || model.equals(actor.llm()) ? null : new ActorConfig(actor.persona(), model);
+    }
+
+    private <T> Answered<T> measured(String action, ActorConfig actor, long promptTokens,
+                                     Function<ActorConfig, Answered<T>> call) {
+        long start = System.nanoTime();
+        try {
+            var answer = call.apply(actor);
+            costs.record(action, answer.model().llm(), promptTokens, Duration.ofNanos(System.nanoTime() - start),
+                TokenEstimator.estimate(String.valueOf(answer.value())), true);
+            return answer;
+        } catch (RuntimeException e) {
+            costs.record(action, actor.llm(), promptTokens, Duration.ofNanos(System.nanoTime() - start), 0, false);
+            throw e;
+        }
+    }
+
+    /**
+     * One racer's call; {@code answer} is {@code null} if it failed.
+     */
+    private record Attempt<T>(ActorConfig actor, Answered<T> answer, String problem, RuntimeException error,
+                              long nanos) {
+
+        boolean valid() {
+            return error == null && problem == null;
+        }
+
+        /** The model to measure the attempt under. */
+        String model() {
+            return answer == null ? actor.llm() : answer.model().llm();
+        }
+    }
+
+    /**
+     * State of one raced call.
+     */
+    private final class Race<T> {
+
+        private final String action;
+        private final ActorConfig primary;
+        private final ActorConfig challenger;
+        private final CacheablePrompt prompt;
+        private final Function<ActorConfig, Answered<T>> call;
+        private final long promptTokens;
+        private final long start = System.nanoTime();
+        private final ExecutorCompletionService<Attempt<T>> completion = new ExecutorCompletionService<>(executor);
+        private final List<Future<Attempt<T>>> running = new ArrayList<>(2);
+        private int pending;
+        private boolean challengerDecided;
+        private boolean challengerStarted;
+        private Attempt<T> challengerAttempt;
+        private long primaryNanos = -1;
+
+        Race(String action, ActorConfig primary, ActorConfig challenger, CacheablePrompt prompt,
+             Function<ActorConfig, Answered<T>> call) {
+            this.action = action;
+            this.primary = primary;
+            this.challenger = challenger;
+            this.prompt = prompt;
+            this.call = call;
+            this.promptTokens = TokenEstimator.estimate(prompt.text());
+        }
+
+        Answered<T> run() {
+            Attempt<T> winner = null;
+            Attempt<T> firstResult = null;
+            var errors = new ArrayList<RuntimeException>();
+            submit(primary);
+            try {
+                while (winner == null && (pending > 0 || !challengerDecided)) {
+                    var done = next();
+                    if (done == null) {
+                        startChallenger();
+                        continue;
+                    }
+                    var attempt = done.get();
+                    pending--;
+                    finished(attempt);
+                    if (attempt.valid()) {
+                        winner = attempt;
+                    } else if (attempt.error() != null) {
+                        errors.add(attempt.error());
+                    } else {
+                        log.warn("{} from {} failed structural check: {}", action, attempt.actor().llm(),
+                            attempt.problem());
+                        if (firstResult == null) {
+                            firstResult = attempt;
+                        }
+                    }
+                    if (winner == null && !challengerDecided) {
+                        startChallenger();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while racing " + action, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException("Racing " + action + " failed", e.getCause());
+            } finally {
+                cancelLosers();
+                record(winner);
+            }
+            if (winner != null) {
+                return winner.answer();
+            }
+            if (firstResult != null) {
+                return firstResult.answer();
+            }
+            var failure = errors.getFirst();
+            errors.subList(1, errors.size()).forEach(failure::addSuppressed);
+            throw failure;
+        }
+
+        /**
+         * The next finished call, or {@code null} once the hedge delay has
+         * passed and the challenger is still to be decided on.
+         */
+        private Future<Attempt<T>> next() throws InterruptedException {
+            if (challengerDecided) {
+                return completion.take();
+            }
+            long wait = config.hedgeDelay().toNanos() - (System.nanoTime() - start);
+            return wait > 0 ? completion.poll(wait, TimeUnit.NANOSECONDS) : null;
+        }
+
+        private void startChallenger() {
+            challengerDecided = true;
+            if (budget.tryAcquire(promptTokens)) {
+                challengerStarted = true;
+                submit(challenger);
+            }
+        }
+
+        private void submit(ActorConfig actor) {
+            pending++;
+            running.add(completion.submit(() -> attempt(actor)));
+        }
+
+        private Attempt<T> attempt(ActorConfig actor) {
+            long begin = System.nanoTime();
+            try {
+                var answer = call.apply(actor);
+                return new Attempt<>(actor, answer, StructuralCheck.problem(answer.value()), null,
+                    System.nanoTime() - begin);
+            } catch (RuntimeException e) {
+                return new Attempt<>(actor, null, null, e, System.nanoTime() - begin);
+            }
+        }
+
+        private void finished(Attempt<T> attempt) {
+            long completionTokens = attempt.error() == null
+                ? TokenEstimator.estimate(String.valueOf(attempt.answer().value())) : 0;
+            costs.record(action, attempt.model(), promptTokens, Duration.ofNanos(attempt.nanos()),
+                completionTokens, attempt.error() == null);
+            if (attempt.actor() == primary) {
+                primaryNanos = attempt.nanos();
+            } else {
+                challengerAttempt = attempt;
+            }
+        }
+
+        private void cancelLosers() {
+            for (var future : running) {
+                future.cancel(true);
+            }
+            if (primaryNanos < 0) {
+                primaryNanos = System.nanoTime() - start;
+            }
+        }
+
+        private void record(Attempt<T> winner) {
+            long nanos = System.nanoTime() - start;
+            String result;
+            if (winner == null) {
+                result = "failed";
+            } else if (winner.actor() == challenger) {
+                result = "challenger";
+            } else if (challengerStarted) {
+                result = "primary";
+            } else {
+                result = challengerDecided ? "over-budget" : "primary-only";
+            }
+            tallies.computeIfAbsent(action, a -> new Tally()).add(result, nanos, primaryNanos);
+            metrics.recordRace(action, result, nanos);
+            if (challengerStarted) {
+                // A cancelled challenger's completion is unknown; the winner's is a fair estimate.
+                var spent = challengerAttempt != null ? challengerAttempt : winner;
+                long completionTokens = spent == null || spent.answer() == null
+                    ? 0 : TokenEstimator.estimate(String.valueOf(spent.answer().value()));
+                budget.charge(completionTokens);
+                metrics.recordTokens(action, challenger, promptTokens, completionTokens);
+            }
+        }
+    }
+
+    private static final class Tally {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder primaryWins = new LongAdder();
+        private final LongAdder challengerWins = new LongAdder();
+        private final LongAdder primaryOnly = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final long[] latencies = new long[WINDOW];
+        private final long[] primaryLatencies = new long[WINDOW];
+        private long samples;
+
+        void add(String result, long nanos, long primaryNanos) {
+            calls.increment();
+            switch (result) {
+                case "primary" -> primaryWins.increment();
+                case "challenger" -> challengerWins.increment();
+                case "primary-only" -> primaryOnly.increment();
+                case "over-budget" -> overBudget.increment();
+                default -> failed.increment();
+            }
+            synchronized (this) {
+                int slot = (int) (samples++ % WINDOW);
+                latencies[slot] = nanos;
+                primaryLatencies[slot] = primaryNanos;
+            }
+        }
+
+        RaceStats snapshot(String action) {
+            long[] recent;
+            long[] primaryRecent;
+            synchronized (this) {
+                int size = (int) Math.min(samples, WINDOW);
+                recent = Arrays.copyOf(latencies, size);
+                primaryRecent = Arrays.copyOf(primaryLatencies, size);
+            }
+            Arrays.sort(recent);
+            Arrays.sort(primaryRecent);
+            long races = primaryWins.sum() + challengerWins.sum();
+            long p99 = percentileMillis(recent, 0.99);
+            long primaryP99 = percentileMillis(primaryRecent, 0.99);
+            return new RaceStats(action, calls.sum(), primaryWins.sum(), challengerWins.sum(), primaryOnly.sum(),
+                overBudget.sum(), failed.sum(), races == 0 ? 0 : (double) challengerWins.sum() / races,
+                percentileMillis(recent, 0.5), p99, primaryP99, Math.max(0, primaryP99 - p99));
+        }
+
+        private static long percentileMillis(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+        }
+    }
+}
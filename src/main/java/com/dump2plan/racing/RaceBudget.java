@@ -0,0 +1,56 @@
+package com.dump2plan.racing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket capping what second models spend. It holds up to an hour's
+ * allowance and refills continuously. A race may start while the balance
+ * is positive; its actual spend is charged afterwards, so the balance can
+ * dip below zero and then blocks races until it has refilled.
+ */
+final class RaceBudget {
+
+    private static final long HOUR_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final long tokensPerHour;
+    private final LongSupplier nanoTime;
+    private double balance;
+    private long refilledAt;
+
+    RaceBudget(long tokensPerHour, LongSupplier nanoTime) {
+        this.tokensPerHour = tokensPerHour;
+        this.nanoTime = nanoTime;
+        this.balance = tokensPerHour;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * Reserves {@code tokens} if the balance is positive.
+     */
+    synchronized boolean tryAcquire(long tokens) {
+        refill();
+        if (balance <= 0) {
+            return false;
+        }
+        balance -= tokens;
+        return true;
+    }
+
+    /** Charges tokens spent beyond the reservation. */
+    synchronized void charge(long tokens) {
+        refill();
+        balance -= tokens;
+    }
+
+    synchronized long remaining() {
+        refill();
+        return (long) balance;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        balance = Math.min(tokensPerHour, balance + (double) tokensPerHour * (now - refilledAt) / HOUR_NANOS);
+        refilledAt = now;
+    }
+}
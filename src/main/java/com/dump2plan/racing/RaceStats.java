@@ -0,0 +1,34 @@
+package com.dump2plan.racing;
+
+/**
+ * Racing outcomes of one pipeline step since startup, with latencies over
+ * its most recent calls.
+ *
+ * @param action            pipeline step
+ * @param calls             calls made while racing was enabled
+ * @param primaryWins       races won by the actor's own model
+ * @param challengerWins    races won by the second model
+ * @param primaryOnly       calls the actor's model answered within the hedge delay
+ * @param overBudget        calls not raced because the token budget was spent
+ * @param failed            calls where no model returned a valid result
+ * @param challengerWinRate share of races won by the second model
+ * @param p50Millis         median latency of the step
+ * @param p99Millis         99th percentile latency of the step
+ * @param primaryP99Millis  99th percentile latency of the actor's own model; a lower
+ *                          bound, since a cancelled call counts only up to its cancellation
+ * @param p99SavedMillis    how much racing took off the 99th percentile, at least
+ */
+public record RaceStats(
+    String action,
+    long calls,
+    long primaryWins,
+    long challengerWins,
+    long primaryOnly,
+    long overBudget,
+    long failed,
+    double challengerWinRate,
+    long p50Millis,
+    long p99Millis,
+    long primaryP99Millis,
+    long p99SavedMillis
+) {}
@@ -0,0 +1,68 @@
+package com.dump2plan.racing;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Cheap structural validation of model output, used to decide whether a
+ * response can be taken as is. A plan or structure passes when it has a
+ * title, at least one milestone and task, unique ids, and every task's
+ * milestone and dependencies refer to ids that exist. Content quality is
+ * not judged.
+ */
+public final class StructuralCheck {
+
+    private StructuralCheck() {
+    }
+
+    /**
+     * What is wrong with {@code result}, or {@code null} if it is usable.
+     * Types without structural rules only have to be non-null.
+     */
+    public static String problem(Object result) {
+        return switch (result) {
+            case null -> "no result";
+            case ProjectStructure structure -> problem(structure.title(), structure.milestones(), structure.tasks());
+            case StructuredPlan plan -> problem(plan.title(), plan.milestones(), plan.tasks());
+            default -> null;
+        };
+    }
+
+    private static String problem(String title, List<Milestone> milestones, List<Task> tasks) {
+        if (title == null || title.isBlank()) {
+            return "no title";
+        }
+        if (milestones == null || milestones.isEmpty()) {
+            return "no milestones";
+        }
+        if (tasks == null || tasks.isEmpty()) {
+            return "no tasks";
+        }
+        var milestoneIds = new HashSet<String>();
+        for (var milestone : milestones) {
+            if (milestone == null || milestone.id() == null || !milestoneIds.add(milestone.id())) {
+                return "missing or duplicate milestone id";
+            }
+        }
+        var taskIds = new HashSet<String>();
+        for (var task : tasks) {
+            if (task == null || task.id() == null || !taskIds.add(task.id())) {
+                return "missing or duplicate task id";
+            }
+            if (!milestoneIds.contains(task.milestoneId())) {
+                return "task " + task.id() + " is in unknown milestone " + task.milestoneId();
+            }
+        }
+        for (var task : tasks) {
+            if (task.dependsOn() != null && !taskIds.containsAll(task.dependsOn())) {
+                return "task " + task.id() + " depends on an unknown task";
+            }
+        }
+        return null;
+    }
+}
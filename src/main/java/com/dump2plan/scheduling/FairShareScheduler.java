@@ -0,0 +1,362 @@
+package com.dump2plan.scheduling;
+
+import com.dump2plan.Dump2PlanProperties.SchedulingConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Fair-share dispatcher in front of agent execution.
+ *
+ * <p>Every user has a request bucket and a token bucket that refill
+ * continuously over a one-minute window; a submission that cannot be paid
+ * for is rejected with a {@link QuotaExceededException} carrying the time
+ * until it could be. Admitted jobs wait in per-user lane queues and a fixed
+ * pool of workers drains them by weighted round-robin: a user with weight
+ * {@code w} gets up to {@code w} consecutive dispatches before the next user
+ * with queued work is served. Interactive jobs are always dispatched ahead
+ * of batch jobs.</p>
+ *
+ * <p>A submission's token estimate is only a reservation: it is returned
+ * when the job finishes, and the model calls made for the user are charged
+ * as they happen through {@link #recordUsage}. The token bucket therefore
+ * ends up charged with what the calls measured, including prompts and
+ * replies the estimate could not foresee, and a bucket left in deficit
+ * delays the user's next submission until it has refilled.</p>
+ *
+ * <p>A user with nothing queued or running and both buckets full again is
+ * forgotten on a periodic sweep, since a fresh state would admit them
+ * exactly the same; usage totals therefore cover a user's current period
+ * of activity. Closing the scheduler fails the futures of jobs still
+ * queued, so callers waiting on them are released.</p>
+ */
+public class FairShareScheduler implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(FairShareScheduler.class);
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final SchedulingConfig config;
+    private final LongSupplier nanoTime;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<String, UserState> users = new HashMap<>();
+    private final ArrayDeque<UserState> ring = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private long nextSweep;
+    private volatile boolean closed;
+
+    public FairShareScheduler(SchedulingConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    public FairShareScheduler(SchedulingConfig config, LongSupplier nanoTime) {
+        this.config = config;
+        this.nanoTime = nanoTime;
+        this.nextSweep = nanoTime.getAsLong() + WINDOW_NANOS;
+        for (int i = 0; i < config.workers(); i++) {
+            var worker = Thread.ofVirtual()
+                .name("dump2plan-planner-", i)
+                .start(this::workLoop);
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Queues a job for the given user, charging one request and reserving
+     * {@code estimatedTokens} against their quotas until the job finishes.
+     *
+     * @return completes when the job has run, exceptionally if it threw or
+     *         the scheduler was closed before it ran
+     * @throws QuotaExceededException if the user cannot be admitted now
+     */
+    public CompletableFuture<Void> submit(String userId, PlanningLane lane,
+                                          int estimatedTokens, Runnable job) {
+        var future = new CompletableFuture<Void>();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Scheduler is shut down");
+            }
+            long now = nanoTime.getAsLong();
+            sweepIdle(now);
+            var state = users.computeIfAbsent(userId, UserState::new);
+            state.requests.refill(now);
+            state.tokens.refill(now);
+
+            if (state.queued() >= config.maxQueuedPerUser()) {
+                state.rejected++;
+                throw new QuotaExceededException(userId, "too many queued jobs",
+                    Duration.ofSeconds(1));
+            }
+            long tokenCharge = Math.min(estimatedTokens, state.tokens.capacity);
+            long waitNanos = Math.max(state.requests.nanosUntil(1), state.tokens.nanosUntil(tokenCharge));
+            if (waitNanos > 0) {
+                state.rejected++;
+                throw new QuotaExceededException(userId,
+                    state.requests.available < 1 ? "request quota" : "token quota",
+                    Duration.ofSeconds(TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+            }
+            state.requests.take(1);
+            state.tokens.take(tokenCharge);
+            state.totalRequests++;
+            state.totalTokens += tokenCharge;
+
+            state.lanes.get(lane).add(new Job(state, job, tokenCharge, future));
+            if (!state.inRing) {
+                state.inRing = true;
+                state.credits = weightOf(userId);
+                ring.addLast(state);
+            }
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Charges {@code tokens} that a model call used on behalf of
+     * {@code userId} against their token quota.
+     */
+    public void recordUsage(String userId, long tokens) {
+        if (userId == null || tokens <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            var state = users.computeIfAbsent(userId, UserState::new);
+            state.tokens.refill(nanoTime.getAsLong());
+            state.tokens.take(tokens);
+            state.totalTokens += tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<UserUsage> usage() {
+        lock.lock();
+        try {
+            long now = nanoTime.getAsLong();
+            sweepIdle(now);
+            var result = new ArrayList<UserUsage>(users.size());
+            for (var state : users.values()) {
+                result.add(state.snapshot(now));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public UserUsage usage(String userId) {
+        lock.lock();
+        try {
+            var state = users.get(userId);
+            return state == null ? null : state.snapshot(nanoTime.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        var abandoned = new ArrayList<Job>();
+        lock.lock();
+        try {
+            closed = true;
+            for (var state : ring) {
+                for (var queue : state.lanes.values()) {
+                    abandoned.addAll(queue);
+                    queue.clear();
+                }
+                state.inRing = false;
+            }
+            ring.clear();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+        var shutDown = new IllegalStateException("Scheduler is shut down");
+        abandoned.forEach(job -> job.future.completeExceptionally(shutDown));
+    }
+
+    /**
+     * Forgets idle users, at most once per window, under the lock.
+     */
+    private void sweepIdle(long now) {
+        if (now - nextSweep < 0) {
+            return;
+        }
+        nextSweep = now + WINDOW_NANOS;
+        users.values().removeIf(state -> state.idle(now));
+    }
+
+    private void workLoop() {
+        while (!closed) {
+            Job job;
+            lock.lock();
+            try {
+                while ((job = nextJob()) == null) {
+                    workAvailable.await();
+                }
+                job.owner.running++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            Throwable failure = null;
+            try {
+                job.task.run();
+            } catch (Throwable t) {
+                log.warn("Planning job for {} failed", job.owner.userId, t);
+                failure = t;
+            } finally {
+                lock.lock();
+                try {
+                    job.owner.running--;
+                    job.owner.tokens.refill(nanoTime.getAsLong());
+                    job.owner.tokens.give(job.reservedTokens);
+                    job.owner.totalTokens -= job.reservedTokens;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (failure == null) {
+                job.future.complete(null);
+            } else {
+                job.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Picks the next job under the lock: the first user in ring order with
+     * work in the highest non-empty lane. Users keep their ring position
+     * until their weight credits are spent.
+     */
+    private Job nextJob() {
+        for (var lane : PlanningLane.values()) {
+            for (var state : ring) {
+                var queue = state.lanes.get(lane);
+                if (queue.isEmpty()) {
+                    continue;
+                }
+                var job = queue.poll();
+                ring.remove(state);
+                if (state.queued() == 0) {
+                    state.inRing = false;
+                } else if (--state.credits > 0) {
+                    ring.addFirst(state);
+                } else {
+                    state.credits = weightOf(state.userId);
+                    ring.addLast(state);
+                }
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private int weightOf(String userId) {
+        var weights = config.weights();
+        var weight = weights == null ? null : weights.get(userId);
+        return weight == null ? 1 : Math.max(1, weight);
+    }
+
+    private record Job(UserState owner, Runnable task, long reservedTokens, CompletableFuture<Void> future) {}
+
+    private final class UserState {
+        final String userId;
+        final Bucket requests = new Bucket(config.requestsPerMinute());
+        final Bucket tokens = new Bucket(config.tokensPerMinute());
+        final Map<PlanningLane, ArrayDeque<Job>> lanes = new EnumMap<>(PlanningLane.class);
+        long totalRequests;
+        long totalTokens;
+        long rejected;
+        int running;
+        int credits;
+        boolean inRing;
+
+        UserState(String userId) {
+            this.userId = userId;
+            for (var lane : PlanningLane.values()) {
+                lanes.put(lane, new ArrayDeque<>());
+            }
+        }
+
+        int queued() {
+            int queued = 0;
+            for (var queue : lanes.values()) {
+                queued += queue.size();
+            }
+            return queued;
+        }
+
+        /** Nothing queued or running, and nothing to refill. */
+        boolean idle(long now) {
+            if (inRing || running > 0) {
+                return false;
+            }
+            requests.refill(now);
+            tokens.refill(now);
+            return requests.available >= requests.capacity && tokens.available >= tokens.capacity;
+        }
+
+        UserUsage snapshot(long now) {
+            requests.refill(now);
+            tokens.refill(now);
+            return new UserUsage(userId, weightOf(userId),
+                (long) requests.available, (long) tokens.available,
+                totalRequests, totalTokens, rejected,
+                lanes.get(PlanningLane.INTERACTIVE).size(),
+                lanes.get(PlanningLane.BATCH).size(),
+                running);
+        }
+
+        private final class Bucket {
+            final long capacity;
+            final double refillPerNano;
+            double available;
+            long lastRefill;
+
+            Bucket(long capacityPerWindow) {
+                this.capacity = capacityPerWindow;
+                this.refillPerNano = (double) capacityPerWindow / WINDOW_NANOS;
+                this.available = capacityPerWindow;
+                this.lastRefill = nanoTime.getAsLong();
+            }
+
+            void refill(long now) {
+                available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+                lastRefill = now;
+            }
+
+            long nanosUntil(long amount) {
+                double deficit = amount - available;
+                return deficit <= 0 ? 0 : (long) Math.ceil(deficit / refillPerNano);
+            }
+
+            void take(long amount) {
+                available -= amount;
+            }
+
+            void give(long amount) {
+                available = Math.min(capacity, available + amount);
+            }
+        }
+    }
+}
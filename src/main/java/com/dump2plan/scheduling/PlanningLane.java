@@ -0,0 +1,9 @@
+package com.dump2plan.scheduling;
+
+/**
+ * Priority lanes for planning jobs. Queued {@link #INTERACTIVE} work is
+ * always dispatched before any {@link #BATCH} work.
+ */
+public enum PlanningLane {
+    INTERACTIVE, BATCH
+}
@@ -0,0 +1,36 @@
+package com.dump2plan.scheduling;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Actuator endpoint exposing live per-user quota and queue state at
+ * {@code /actuator/planning-usage}.
+ */
+@Component
+@Endpoint(id = "planning-usage")
+public class PlanningUsageEndpoint {
+
+    private final FairShareScheduler scheduler;
+
+    public PlanningUsageEndpoint(FairShareScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @ReadOperation
+    public List<UserUsage> usage() {
+        return scheduler.usage().stream()
+            .sorted(Comparator.comparing(UserUsage::userId))
+            .toList();
+    }
+
+    @ReadOperation
+    public UserUsage userUsage(@Selector String userId) {
+        return scheduler.usage(userId);
+    }
+}
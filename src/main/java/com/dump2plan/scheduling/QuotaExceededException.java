@@ -0,0 +1,28 @@
+package com.dump2plan.scheduling;
+
+import java.time.Duration;
+
+/**
+ * Thrown by {@link FairShareScheduler#submit} when a user has exhausted
+ * their request or token quota, or has too many jobs queued.
+ */
+public class QuotaExceededException extends RuntimeException {
+
+    private final String userId;
+    private final Duration retryAfter;
+
+    public QuotaExceededException(String userId, String reason, Duration retryAfter) {
+        super("Planning quota exceeded for " + userId + " (" + reason + "), retry after "
+            + retryAfter.toSeconds() + "s");
+        this.userId = userId;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,14 @@
+package com.dump2plan.scheduling;
+
+import com.dump2plan.Dump2PlanProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SchedulingConfiguration {
+
+    @Bean
+    public FairShareScheduler fairShareScheduler(Dump2PlanProperties properties) {
+        return new FairShareScheduler(properties.scheduling());
+    }
+}
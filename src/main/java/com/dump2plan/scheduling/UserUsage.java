@@ -0,0 +1,18 @@
+package com.dump2plan.scheduling;
+
+/**
+ * Point-in-time view of one user's scheduler state, exposed through the
+ * {@code planning-usage} actuator endpoint.
+ */
+public record UserUsage(
+    String userId,
+    int weight,
+    long availableRequests,
+    long availableTokens,
+    long totalRequests,
+    long totalTokens,
+    long rejected,
+    int queuedInteractive,
+    int queuedBatch,
+    int running
+) {}
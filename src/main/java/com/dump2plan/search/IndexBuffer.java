@@ -0,0 +1,156 @@
+package com.dump2plan.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The newest plans, indexed in memory so they are searchable as soon as they
+ * are saved. {@link PlanIndex} writes the buffer out as a
+ * {@link MappedSegment} once it is full or old enough, and only mutates it
+ * under its write lock.
+ */
+final class IndexBuffer implements IndexSegment {
+
+    private final int docBase;
+    private final Map<String, TermPostings> postings = new HashMap<>();
+    private final List<String> userIds = new ArrayList<>();
+    private final Map<String, Integer> userOrdinals = new HashMap<>();
+    private final List<StoredPlan> stored = new ArrayList<>();
+    private int[] lengths = new int[64];
+    private int[] users = new int[64];
+    private long totalLength;
+
+    IndexBuffer(int docBase) {
+        this.docBase = docBase;
+    }
+
+    /** Adds a document and returns its id. */
+    int add(String userId, Map<String, Integer> terms, StoredPlan plan) {
+        int doc = stored.size();
+        if (doc == lengths.length) {
+            lengths = Arrays.copyOf(lengths, doc * 2);
+            users = Arrays.copyOf(users, doc * 2);
+        }
+        int length = 0;
+        for (var term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new TermPostings()).add(doc, term.getValue());
+            length += term.getValue();
+        }
+        lengths[doc] = length;
+        users[doc] = userOrdinals.computeIfAbsent(userId, id -> {
+            userIds.add(id);
+            return userIds.size() - 1;
+        });
+        stored.add(plan);
+        totalLength += length;
+        return docBase + doc;
+    }
+
+    @Override
+    public int docBase() {
+        return docBase;
+    }
+
+    @Override
+    public int docCount() {
+        return stored.size();
+    }
+
+    @Override
+    public long totalLength() {
+        return totalLength;
+    }
+
+    @Override
+    public List<String> terms() {
+        return postings.keySet().stream().sorted().toList();
+    }
+
+    @Override
+    public int docFrequency(String term) {
+        var list = postings.get(term);
+        return list == null ? 0 : list.size;
+    }
+
+    @Override
+    public PostingsCursor postings(String term) {
+        var list = postings.get(term);
+        if (list == null) {
+            return null;
+        }
+        int size = list.size;
+        return new PostingsCursor() {
+            private int index = -1;
+
+            @Override
+            public boolean next() {
+                return ++index < size;
+            }
+
+            @Override
+            public int doc() {
+                return list.docs[index];
+            }
+
+            @Override
+            public int freq() {
+                return list.freqs[index];
+            }
+        };
+    }
+
+    @Override
+    public int length(int doc) {
+        return lengths[doc];
+    }
+
+    @Override
+    public int userCount() {
+        return userIds.size();
+    }
+
+    @Override
+    public String userId(int ordinal) {
+        return userIds.get(ordinal);
+    }
+
+    @Override
+    public int userOrdinal(String userId) {
+        return userOrdinals.getOrDefault(userId, -1);
+    }
+
+    @Override
+    public int user(int doc) {
+        return users[doc];
+    }
+
+    @Override
+    public StoredPlan stored(int doc) {
+        return stored.get(doc);
+    }
+
+    @Override
+    public StoredPlan header(int doc) {
+        return stored.get(doc);
+    }
+
+    private static final class TermPostings {
+
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.dump2plan.search;
+
+import java.util.List;
+
+/**
+ * Postings, document lengths, owners and stored plans for a contiguous range
+ * of document ids, starting at {@link #docBase}. Documents are addressed by
+ * their offset from {@code docBase} within the segment.
+ */
+sealed interface IndexSegment permits IndexBuffer, MappedSegment {
+
+    int docBase();
+
+    int docCount();
+
+    /** Sum of the weighted lengths of all documents, for BM25's average length. */
+    long totalLength();
+
+    /** Every term with postings, in ascending order. */
+    List<String> terms();
+
+    int docFrequency(String term);
+
+    /** The documents containing {@code term} in ascending order, or {@code null} if none do. */
+    PostingsCursor postings(String term);
+
+    /** Weighted number of terms in {@code doc}. */
+    int length(int doc);
+
+    int userCount();
+
+    String userId(int ordinal);
+
+    /** The ordinal of {@code userId} in this segment, or -1 if none of its plans are here. */
+    int userOrdinal(String userId);
+
+    /** The ordinal of the user who saved {@code doc}. */
+    int user(int doc);
+
+    StoredPlan stored(int doc);
+
+    /**
+     * The plan's save time, title and summary, for listing hits. Its
+     * {@code json} may be {@code null}, sparing a compressed segment from
+     * inflating it.
+     */
+    StoredPlan header(int doc);
+
+    /** Iterates one term's postings. */
+    interface PostingsCursor {
+
+        boolean next();
+
+        int doc();
+
+        int freq();
+    }
+
+    /** What is kept of each plan besides its postings. */
+    record StoredPlan(long savedAt, String title, String summary, byte[] json) {}
+}
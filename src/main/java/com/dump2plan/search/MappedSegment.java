@@ -0,0 +1,517 @@
+package com.dump2plan.search;
+
+import com.dump2plan.compression.DictionaryTrainer;
+import com.dump2plan.compression.RecordCompressor;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * An immutable segment file, memory-mapped so postings and stored plans are
+ * read straight from the page cache. Only the term dictionary and user table
+ * are decoded onto the heap when the segment is opened.
+ *
+ * <p>Layout, big-endian, offsets relative to the start of the file:</p>
+ * <pre>
+ * header     magic, version, docBase, docCount, totalLength (long)
+ * postings   per term: (doc gap, freq) pairs as variable-length ints
+ * dictionary termCount, then per term: term, docFrequency, offset, length
+ * lengths    int per document
+ * users      userCount, user ids, then int ordinal per document
+ * store dict length, then the deflate dictionary for the JSON blocks
+ * blocks     deflated blocks of consecutive plans' JSON
+ * plans      per document: savedAt (long), title, summary, block, offset, length
+ * plan index int offset per document, plus the end offset
+ * block index per block: offset, deflated length, inflated length
+ * footer     dictionary, lengths, users, store dict, blocks, plans, plan index
+ *            and block index offsets, block count, magic
+ * </pre>
+ * <p>Strings are an int byte length followed by UTF-8. Document gaps are
+ * from the previous document of the same term, so frequent terms encode in
+ * about two bytes per posting.</p>
+ *
+ * <p>Plan JSON, the bulk of a segment, is deflated in blocks of about
+ * {@value #BLOCK_BYTES} bytes, so one plan is read by inflating one block
+ * from the mapping without copying it to the heap first. Segments with
+ * enough plans also train a {@link DictionaryTrainer dictionary} on a
+ * sample of them, which primes every block with the field names and
+ * phrasing the plans share. Titles and summaries stay uncompressed because
+ * every search hit lists them. Version 1 segments, which stored JSON inline,
+ * are still read; merging rewrites them in the current version.</p>
+ */
+final class MappedSegment implements IndexSegment {
+
+    private static final int MAGIC = 0x44325049;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int V1_FOOTER_BYTES = 24;
+    private static final int FOOTER_BYTES = 40;
+    static final int BLOCK_BYTES = 16 * 1024;
+    private static final int STORE_DICTIONARY_BYTES = 16 * 1024;
+    private static final int MIN_TRAINING_DOCS = 64;
+    private static final int MAX_TRAINING_DOCS = 256;
+    private static final int COMPRESSION_LEVEL = 6;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int version;
+    private final int docBase;
+    private final int docCount;
+    private final long totalLength;
+    private final String[] terms;
+    private final int[] docFrequencies;
+    private final int[] postingsOffsets;
+    private final int[] postingsLengths;
+    private final int lengthsOffset;
+    private final String[] userIds;
+    private final Map<String, Integer> userOrdinals;
+    private final int usersOffset;
+    private final int plansOffset;
+    private final int planIndexOffset;
+    private final RecordCompressor compressor;
+    private final int blockIndexOffset;
+    /** The last inflated block; sequential reads during a merge inflate each block once. */
+    private volatile InflatedBlock lastBlock;
+
+    private MappedSegment(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        this.version = size < HEADER_BYTES ? -1 : buffer.getInt(4);
+        int footerBytes = version == 1 ? V1_FOOTER_BYTES : FOOTER_BYTES;
+        if (size < HEADER_BYTES + footerBytes || buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC
+            || (version != 1 && version != VERSION)) {
+            throw new IOException("Not a plan index segment: " + file);
+        }
+        this.docBase = buffer.getInt(8);
+        this.docCount = buffer.getInt(12);
+        this.totalLength = buffer.getLong(16);
+        int footer = size - footerBytes;
+        int dictionaryOffset = buffer.getInt(footer);
+        this.lengthsOffset = buffer.getInt(footer + 4);
+        int userTableOffset = buffer.getInt(footer + 8);
+        if (version == 1) {
+            this.compressor = null;
+            this.plansOffset = buffer.getInt(footer + 12);
+            this.planIndexOffset = buffer.getInt(footer + 16);
+            this.blockIndexOffset = 0;
+        } else {
+            int storeDictionaryOffset = buffer.getInt(footer + 12);
+            this.plansOffset = buffer.getInt(footer + 20);
+            this.planIndexOffset = buffer.getInt(footer + 24);
+            this.blockIndexOffset = buffer.getInt(footer + 28);
+            var storeDictionary = new byte[buffer.getInt(storeDictionaryOffset)];
+            buffer.get(storeDictionaryOffset + 4, storeDictionary);
+            this.compressor = new RecordCompressor(storeDictionary, COMPRESSION_LEVEL);
+        }
+
+        var reader = buffer.duplicate().position(dictionaryOffset);
+        int termCount = reader.getInt();
+        this.terms = new String[termCount];
+        this.docFrequencies = new int[termCount];
+        this.postingsOffsets = new int[termCount];
+        this.postingsLengths = new int[termCount];
+        for (int t = 0; t < termCount; t++) {
+            terms[t] = readString(reader);
+            docFrequencies[t] = reader.getInt();
+            postingsOffsets[t] = reader.getInt();
+            postingsLengths[t] = reader.getInt();
+        }
+
+        reader.position(userTableOffset);
+        this.userIds = new String[reader.getInt()];
+        this.userOrdinals = new HashMap<>(userIds.length * 2);
+        for (int u = 0; u < userIds.length; u++) {
+            userIds[u] = readString(reader);
+            userOrdinals.put(userIds[u], u);
+        }
+        this.usersOffset = reader.position();
+    }
+
+    static MappedSegment open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the documents of {@code sources}, which must be contiguous and in
+     * id order, as one segment starting at {@code docBase}, and forces it to
+     * disk.
+     */
+    static void write(Path file, int docBase, List<? extends IndexSegment> sources) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            int docCount = sources.stream().mapToInt(IndexSegment::docCount).sum();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(docBase);
+            out.writeInt(docCount);
+            out.writeLong(sources.stream().mapToLong(IndexSegment::totalLength).sum());
+
+            var allTerms = new TreeSet<String>();
+            sources.forEach(source -> allTerms.addAll(source.terms()));
+            var dictionary = new ArrayList<DictionaryEntry>(allTerms.size());
+            var postings = new VarIntBuffer();
+            for (var term : allTerms) {
+                int start = out.size();
+                int previous = -1;
+                int frequency = 0;
+                for (var source : sources) {
+                    var cursor = source.postings(term);
+                    int shift = source.docBase() - docBase;
+                    while (cursor != null && cursor.next()) {
+                        int doc = shift + cursor.doc();
+                        postings.write(doc - previous);
+                        postings.write(cursor.freq());
+                        previous = doc;
+                        frequency++;
+                    }
+                }
+                postings.drainTo(out);
+                dictionary.add(new DictionaryEntry(term, frequency, start, out.size() - start));
+            }
+
+            int dictionaryOffset = out.size();
+            out.writeInt(dictionary.size());
+            for (var entry : dictionary) {
+                writeString(out, entry.term());
+                out.writeInt(entry.docFrequency());
+                out.writeInt(entry.offset());
+                out.writeInt(entry.length());
+            }
+
+            int lengthsOffset = out.size();
+            for (var source : sources) {
+                for (int doc = 0; doc < source.docCount(); doc++) {
+                    out.writeInt(source.length(doc));
+                }
+            }
+
+            int userTableOffset = out.size();
+            var ordinals = new LinkedHashMap<String, Integer>();
+            var remapped = new int[sources.size()][];
+            for (int s = 0; s < sources.size(); s++) {
+                var source = sources.get(s);
+                remapped[s] = new int[source.userCount()];
+                for (int u = 0; u < source.userCount(); u++) {
+                    remapped[s][u] = ordinals.computeIfAbsent(source.userId(u), id -> ordinals.size());
+                }
+            }
+            out.writeInt(ordinals.size());
+            for (var userId : ordinals.keySet()) {
+                writeString(out, userId);
+            }
+            for (int s = 0; s < sources.size(); s++) {
+                var source = sources.get(s);
+                for (int doc = 0; doc < source.docCount(); doc++) {
+                    out.writeInt(remapped[s][source.user(doc)]);
+                }
+            }
+
+            int storeDictionaryOffset = out.size();
+            var storeDictionary = trainDictionary(sources, docCount);
+            out.writeInt(storeDictionary.length);
+            out.write(storeDictionary);
+
+            int blocksOffset = out.size();
+            var compressor = new RecordCompressor(storeDictionary, COMPRESSION_LEVEL);
+            var docBlocks = new int[docCount];
+            var docOffsets = new int[docCount];
+            var docLengths = new int[docCount];
+            var blockIndex = new ByteArrayOutputStream();
+            var blockIndexOut = new DataOutputStream(blockIndex);
+            var block = new ByteArrayOutputStream(BLOCK_BYTES * 2);
+            int blockCount = 0;
+            int index = 0;
+            for (var source : sources) {
+                for (int doc = 0; doc < source.docCount(); doc++, index++) {
+                    var json = source.stored(doc).json();
+                    docBlocks[index] = blockCount;
+                    docOffsets[index] = block.size();
+                    docLengths[index] = json.length;
+                    block.write(json);
+                    if (block.size() >= BLOCK_BYTES || index == docCount - 1) {
+                        writeBlock(out, blockIndexOut, compressor, block);
+                        blockCount++;
+                    }
+                }
+            }
+
+            int plansOffset = out.size();
+            var planOffsets = new int[docCount + 1];
+            index = 0;
+            for (var source : sources) {
+                for (int doc = 0; doc < source.docCount(); doc++, index++) {
+                    planOffsets[index] = out.size() - plansOffset;
+                    var plan = source.header(doc);
+                    out.writeLong(plan.savedAt());
+                    writeString(out, plan.title());
+                    writeString(out, plan.summary());
+                    out.writeInt(docBlocks[index]);
+                    out.writeInt(docOffsets[index]);
+                    out.writeInt(docLengths[index]);
+                }
+            }
+            planOffsets[docCount] = out.size() - plansOffset;
+
+            int planIndexOffset = out.size();
+            for (int offset : planOffsets) {
+                out.writeInt(offset);
+            }
+
+            int blockIndexOffset = out.size();
+            blockIndex.writeTo(out);
+
+            out.writeInt(dictionaryOffset);
+            out.writeInt(lengthsOffset);
+            out.writeInt(userTableOffset);
+            out.writeInt(storeDictionaryOffset);
+            out.writeInt(blocksOffset);
+            out.writeInt(plansOffset);
+            out.writeInt(planIndexOffset);
+            out.writeInt(blockIndexOffset);
+            out.writeInt(blockCount);
+            out.writeInt(MAGIC);
+            out.flush();
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Segment " + file + " exceeds 2 GB");
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * A dictionary trained on up to {@value #MAX_TRAINING_DOCS} plans spread
+     * evenly over the segment, or none for segments too small to repay it.
+     */
+    private static byte[] trainDictionary(List<? extends IndexSegment> sources, int docCount) {
+        if (docCount < MIN_TRAINING_DOCS) {
+            return new byte[0];
+        }
+        int stride = Math.max(1, docCount / MAX_TRAINING_DOCS);
+        var samples = new ArrayList<byte[]>(MAX_TRAINING_DOCS);
+        int index = 0;
+        for (var source : sources) {
+            for (int doc = 0; doc < source.docCount(); doc++, index++) {
+                if (index % stride == 0 && samples.size() < MAX_TRAINING_DOCS) {
+                    samples.add(source.stored(doc).json());
+                }
+            }
+        }
+        return DictionaryTrainer.train(samples, STORE_DICTIONARY_BYTES);
+    }
+
+    private static void writeBlock(DataOutputStream out, DataOutputStream blockIndex, RecordCompressor compressor,
+                                   ByteArrayOutputStream block) throws IOException {
+        var deflated = compressor.compress(block.toByteArray());
+        blockIndex.writeInt(out.size());
+        blockIndex.writeInt(deflated.length);
+        blockIndex.writeInt(block.size());
+        out.write(deflated);
+        block.reset();
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public int docBase() {
+        return docBase;
+    }
+
+    @Override
+    public int docCount() {
+        return docCount;
+    }
+
+    @Override
+    public long totalLength() {
+        return totalLength;
+    }
+
+    @Override
+    public List<String> terms() {
+        return Arrays.asList(terms);
+    }
+
+    @Override
+    public int docFrequency(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? 0 : docFrequencies[t];
+    }
+
+    @Override
+    public PostingsCursor postings(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) {
+            return null;
+        }
+        int start = postingsOffsets[t];
+        int end = start + postingsLengths[t];
+        return new PostingsCursor() {
+            private int position = start;
+            private int doc = -1;
+            private int freq;
+
+            @Override
+            public boolean next() {
+                if (position >= end) {
+                    return false;
+                }
+                doc += readVarInt();
+                freq = readVarInt();
+                return true;
+            }
+
+            @Override
+            public int doc() {
+                return doc;
+            }
+
+            @Override
+            public int freq() {
+                return freq;
+            }
+
+            private int readVarInt() {
+                byte b = buffer.get(position++);
+                int value = b & 0x7F;
+                for (int shift = 7; b < 0; shift += 7) {
+                    b = buffer.get(position++);
+                    value |= (b & 0x7F) << shift;
+                }
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public int length(int doc) {
+        return buffer.getInt(lengthsOffset + doc * 4);
+    }
+
+    @Override
+    public int userCount() {
+        return userIds.length;
+    }
+
+    @Override
+    public String userId(int ordinal) {
+        return userIds[ordinal];
+    }
+
+    @Override
+    public int userOrdinal(String userId) {
+        return userOrdinals.getOrDefault(userId, -1);
+    }
+
+    @Override
+    public int user(int doc) {
+        return buffer.getInt(usersOffset + doc * 4);
+    }
+
+    @Override
+    public StoredPlan stored(int doc) {
+        return read(doc, true);
+    }
+
+    @Override
+    public StoredPlan header(int doc) {
+        return read(doc, false);
+    }
+
+    private StoredPlan read(int doc, boolean withJson) {
+        var reader = buffer.duplicate().position(plansOffset + buffer.getInt(planIndexOffset + doc * 4));
+        long savedAt = reader.getLong();
+        var title = readString(reader);
+        var summary = readString(reader);
+        byte[] json = null;
+        if (version == 1) {
+            if (withJson) {
+                json = new byte[reader.getInt()];
+                reader.get(json);
+            }
+        } else if (withJson) {
+            int block = reader.getInt();
+            int offset = reader.getInt();
+            int length = reader.getInt();
+            json = Arrays.copyOfRange(inflate(block), offset, offset + length);
+        }
+        return new StoredPlan(savedAt, title, summary, json);
+    }
+
+    private byte[] inflate(int block) {
+        var cached = lastBlock;
+        if (cached != null && cached.block() == block) {
+            return cached.bytes();
+        }
+        int entry = blockIndexOffset + block * 12;
+        int offset = buffer.getInt(entry);
+        var deflated = buffer.slice(offset, buffer.getInt(entry + 4));
+        var bytes = compressor.decompress(deflated, buffer.getInt(entry + 8));
+        lastBlock = new InflatedBlock(block, bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer reader) {
+        var bytes = new byte[reader.getInt()];
+        reader.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private record DictionaryEntry(String term, int docFrequency, int offset, int length) {}
+
+    private record InflatedBlock(int block, byte[] bytes) {}
+
+    /** Collects one term's variable-length ints before they are copied out in one write. */
+    private static final class VarIntBuffer {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void write(int value) {
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void drainTo(DataOutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.dump2plan.search;
+
+import java.time.Instant;
+
+/**
+ * A plan matching a search, with its BM25 score. {@code id} fetches the
+ * full plan from {@link PlanSearch#plan}.
+ */
+public record PlanHit(int id, String title, String summary, Instant savedAt, double score) {}
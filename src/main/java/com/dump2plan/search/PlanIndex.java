@@ -0,0 +1,476 @@
+package com.dump2plan.search;
+
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.search.IndexSegment.StoredPlan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incremental inverted index over saved plans, ranked by BM25.
+ *
+ * <p>New plans go into an in-memory {@link IndexBuffer} and are searchable
+ * as soon as {@link #add} returns. A background thread writes the buffer out
+ * as an immutable, memory-mapped {@link MappedSegment} every
+ * {@code flushInterval}, or as soon as it holds {@code flushDocs} plans, so
+ * a crash loses at most the last interval's plans from the index. The
+ * {@value #MANIFEST} file lists the live segments; it is replaced atomically
+ * after every flush and merge, and files it does not list are deleted on
+ * open.</p>
+ *
+ * <p>Segments are merged in windows of {@code mergeFactor} adjacent
+ * segments of the same size class (document count, in powers of
+ * {@code mergeFactor}), so each plan is rewritten about log(n) times and a
+ * search visits a few dozen segments at most. Merged segments are not
+ * grown beyond {@value #MAX_MERGED_BYTES} bytes.</p>
+ *
+ * <p>Searches take the read lock for their whole duration; adding a plan and
+ * publishing a flushed or merged segment take the write lock briefly. Segment
+ * files are written outside any lock.</p>
+ */
+public class PlanIndex implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanIndex.class);
+
+    static final String MANIFEST = "segments";
+    static final long MAX_MERGED_BYTES = 1L << 30;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Path directory;
+    private final int flushDocs;
+    private final Duration flushInterval;
+    private final int mergeFactor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Condition flushRequested = lock.writeLock().newCondition();
+    private final Thread flusher;
+    private List<MappedSegment> segments;
+    private List<IndexBuffer> flushing = List.of();
+    private IndexBuffer buffer;
+    private long generation;
+    private volatile boolean closed;
+
+    public PlanIndex(Path directory, int flushDocs, Duration flushInterval, int mergeFactor) {
+        this.directory = directory;
+        this.flushDocs = Math.max(1, flushDocs);
+        this.flushInterval = flushInterval;
+        this.mergeFactor = Math.max(2, mergeFactor);
+        try {
+            Files.createDirectories(directory);
+            this.segments = open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open plan index " + directory, e);
+        }
+        var last = segments.isEmpty() ? null : segments.getLast();
+        this.buffer = new IndexBuffer(last == null ? 0 : last.docBase() + last.docCount());
+        this.flusher = Thread.ofVirtual().name("dump2plan-plan-index-flusher").start(this::flushLoop);
+    }
+
+    /**
+     * Indexes {@code plan} as saved by {@code userId} and returns its id.
+     * The plan is searchable when this returns.
+     */
+    public int add(String userId, StructuredPlan plan, Instant savedAt) {
+        var terms = PlanText.terms(plan);
+        byte[] json;
+        try {
+            json = ModelJson.writer(StructuredPlan.class).writeValueAsBytes(plan);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize plan " + plan.title(), e);
+        }
+        var stored = new StoredPlan(savedAt.toEpochMilli(), plan.title(), plan.summary(), json);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Plan index is closed");
+            }
+            int id = buffer.add(userId, terms, stored);
+            if (buffer.docCount() >= flushDocs) {
+                flushRequested.signal();
+            }
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} best matches for {@code query} among the plans of
+     * {@code userId} (of everyone if {@code null}), best first; equal scores
+     * list the newer plan first.
+     */
+    public List<PlanHit> search(String userId, String query, int limit) {
+        var terms = PlanText.query(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            var sources = sources();
+            long documents = 0;
+            long totalLength = 0;
+            var frequencies = new long[terms.size()];
+            for (var source : sources) {
+                documents += source.docCount();
+                totalLength += source.totalLength();
+                for (int t = 0; t < terms.size(); t++) {
+                    frequencies[t] += source.docFrequency(terms.get(t));
+                }
+            }
+            if (documents == 0) {
+                return List.of();
+            }
+            double averageLength = Math.max(1, (double) totalLength / documents);
+            var idf = new double[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                idf[t] = Math.log(1 + (documents - frequencies[t] + 0.5) / (frequencies[t] + 0.5));
+            }
+
+            var best = new PriorityQueue<Scored>(limit + 1, Scored::compareTo);
+            for (var source : sources) {
+                int owner = userId == null ? -1 : source.userOrdinal(userId);
+                if (userId != null && owner < 0) {
+                    continue;
+                }
+                score(source, owner, terms, idf, averageLength, limit, best);
+            }
+            var hits = new ArrayList<PlanHit>(best.size());
+            while (!best.isEmpty()) {
+                var scored = best.poll();
+                var plan = scored.source().header(scored.doc());
+                hits.add(new PlanHit(scored.source().docBase() + scored.doc(), plan.title(), plan.summary(),
+                    Instant.ofEpochMilli(plan.savedAt()), scored.score()));
+            }
+            return hits.reversed();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The plan with id {@code id} if {@code userId} saved it (or for any
+     * user if {@code null}), otherwise {@code null}.
+     */
+    public StructuredPlan plan(String userId, int id) {
+        StoredPlan stored = null;
+        lock.readLock().lock();
+        try {
+            for (var source : sources()) {
+                int doc = id - source.docBase();
+                if (doc >= 0 && doc < source.docCount()) {
+                    if (userId == null || source.userOrdinal(userId) == source.user(doc)) {
+                        stored = source.stored(doc);
+                    }
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (stored == null) {
+            return null;
+        }
+        try {
+            return ModelJson.reader(StructuredPlan.class).readValue(stored.json());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read stored plan " + id, e);
+        }
+    }
+
+    /** Number of indexed plans. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return sources().stream().mapToInt(IndexSegment::docCount).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of segment files. */
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Writes buffered plans to a segment and merges segments as needed. */
+    public void flush() {
+        writeBuffer();
+        merge();
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            flushRequested.signal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeBuffer();
+    }
+
+    /** Segments, then buffers being written, then the live buffer, in id order. Call under a lock. */
+    private List<IndexSegment> sources() {
+        var sources = new ArrayList<IndexSegment>(segments.size() + flushing.size() + 1);
+        sources.addAll(segments);
+        sources.addAll(flushing);
+        sources.add(buffer);
+        return sources;
+    }
+
+    /**
+     * Term-at-a-time BM25 over one source, keeping the best {@code limit}
+     * documents across sources in {@code best}, a min-heap.
+     */
+    private static void score(IndexSegment source, int owner, List<String> terms, double[] idf,
+                              double averageLength, int limit, PriorityQueue<Scored> best) {
+        var scores = new double[source.docCount()];
+        var touched = new int[Math.min(source.docCount(), 1024)];
+        int touchedCount = 0;
+        for (int t = 0; t < terms.size(); t++) {
+            var cursor = source.postings(terms.get(t));
+            while (cursor != null && cursor.next()) {
+                int doc = cursor.doc();
+                if (owner >= 0 && source.user(doc) != owner) {
+                    continue;
+                }
+                double freq = cursor.freq();
+                double norm = K1 * (1 - B + B * source.length(doc) / averageLength);
+                if (scores[doc] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += idf[t] * freq * (K1 + 1) / (freq + norm);
+            }
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            var candidate = new Scored(scores[touched[i]], source, touched[i]);
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (candidate.compareTo(best.peek()) > 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+    }
+
+    private record Scored(double score, IndexSegment source, int doc) implements Comparable<Scored> {
+
+        @Override
+        public int compareTo(Scored other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0
+                ? byScore
+                : Integer.compare(source.docBase() + doc, other.source.docBase() + other.doc);
+        }
+    }
+
+    /**
+     * Writes a batch every {@code flushInterval}, or as soon as the buffer is
+     * full. The flusher is woken rather than interrupted: an interrupt during
+     * a write would close the channel.
+     */
+    private void flushLoop() {
+        while (!closed) {
+            lock.writeLock().lock();
+            try {
+                if (!closed && buffer.docCount() < flushDocs) {
+                    flushRequested.awaitNanos(flushInterval.toNanos());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!closed) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Moves the live buffer to {@link #flushing}, where it stays searchable,
+     * and writes every flushing buffer out as a segment. A buffer that fails
+     * to write stays there and is retried with the next flush.
+     */
+    private synchronized void writeBuffer() {
+        lock.writeLock().lock();
+        try {
+            if (buffer.docCount() > 0) {
+                var pending = new ArrayList<>(flushing);
+                pending.add(buffer);
+                flushing = List.copyOf(pending);
+                buffer = new IndexBuffer(buffer.docBase() + buffer.docCount());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (var frozen : flushing) {
+            var file = nextFile();
+            try {
+                MappedSegment.write(file, frozen.docBase(), List.of(frozen));
+                var segment = MappedSegment.open(file);
+                publish(List.of(), segment, frozen);
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to write {} plans to index segment {}", frozen.docCount(), file, e);
+                deleteQuietly(file);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Merges windows of {@code mergeFactor} adjacent segments of one size
+     * class until none is left.
+     */
+    private synchronized void merge() {
+        while (!closed) {
+            var current = segments;
+            int from = mergeWindow(current);
+            if (from < 0) {
+                return;
+            }
+            var window = current.subList(from, from + mergeFactor);
+            var file = nextFile();
+            try {
+                MappedSegment.write(file, window.getFirst().docBase(), window);
+                publish(window, MappedSegment.open(file), null);
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to merge {} plan index segments into {}", window.size(), file, e);
+                deleteQuietly(file);
+                return;
+            }
+            window.forEach(segment -> deleteQuietly(segment.file()));
+        }
+    }
+
+    /** The start of the oldest mergeable window, or -1. */
+    private int mergeWindow(List<MappedSegment> current) {
+        for (int from = 0; from + mergeFactor <= current.size(); from++) {
+            int sizeClass = sizeClass(current.get(from));
+            long bytes = 0;
+            boolean mergeable = true;
+            for (int i = from; i < from + mergeFactor && mergeable; i++) {
+                bytes += current.get(i).sizeInBytes();
+                mergeable = sizeClass(current.get(i)) == sizeClass && bytes <= MAX_MERGED_BYTES;
+            }
+            if (mergeable) {
+                return from;
+            }
+        }
+        return -1;
+    }
+
+    private int sizeClass(MappedSegment segment) {
+        return (int) (Math.log(Math.max(1, segment.docCount())) / Math.log(mergeFactor));
+    }
+
+    /**
+     * Replaces {@code replaced} (consecutive segments) with {@code segment},
+     * or appends it in place of the flushed buffer {@code flushed}, and
+     * records the new segment list in the manifest.
+     */
+    private void publish(List<MappedSegment> replaced, MappedSegment segment, IndexBuffer flushed)
+        throws IOException {
+        List<MappedSegment> next;
+        lock.writeLock().lock();
+        try {
+            var updated = new ArrayList<MappedSegment>(segments.size() + 1);
+            for (var existing : segments) {
+                if (!replaced.isEmpty() && existing == replaced.getFirst()) {
+                    updated.add(segment);
+                } else if (!replaced.contains(existing)) {
+                    updated.add(existing);
+                }
+            }
+            if (flushed != null) {
+                updated.add(segment);
+                flushing = flushing.stream().filter(buffered -> buffered != flushed).toList();
+            }
+            next = List.copyOf(updated);
+            segments = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        writeManifest(next);
+    }
+
+    private void writeManifest(List<MappedSegment> live) throws IOException {
+        var tmp = directory.resolve(MANIFEST + ".tmp");
+        Files.write(tmp, live.stream().map(segment -> segment.file().getFileName().toString()).toList());
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Opens the segments the manifest lists and deletes any other segment files. */
+    private List<MappedSegment> open() throws IOException {
+        var manifest = directory.resolve(MANIFEST);
+        var listed = Files.exists(manifest) ? Files.readAllLines(manifest) : List.<String>of();
+        var opened = new ArrayList<MappedSegment>(listed.size());
+        for (var name : listed) {
+            if (name.isBlank()) {
+                continue;
+            }
+            try {
+                opened.add(MappedSegment.open(directory.resolve(name)));
+            } catch (IOException e) {
+                log.warn("Skipping unreadable plan index segment {}", name, e);
+            }
+        }
+        var keep = new HashSet<>(listed);
+        try (var files = Files.list(directory)) {
+            for (var file : files.toList()) {
+                var name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    generation = Math.max(generation, Long.parseLong(name.substring(0, name.length() - 4)) + 1);
+                    if (!keep.contains(name)) {
+                        deleteQuietly(file);
+                    }
+                }
+            }
+        }
+        return opened;
+    }
+
+    private synchronized Path nextFile() {
+        return directory.resolve("%010d%s".formatted(generation++, SEGMENT_SUFFIX));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete {}", file, e);
+        }
+    }
+}
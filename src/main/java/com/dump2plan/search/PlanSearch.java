@@ -0,0 +1,77 @@
+package com.dump2plan.search;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.SearchConfig;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.PlannerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Each user's plan history, searchable by full text. Every finished plan is
+ * added to the {@link PlanIndex}; searches only ever see the asking user's
+ * plans. A no-op when {@code dump2plan.search.enabled} is off, and indexing
+ * failures are logged without failing the run that produced the plan.
+ */
+@Component
+public class PlanSearch implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanSearch.class);
+
+    private final PlannerMetrics metrics;
+    private final PlanIndex index;
+
+    public PlanSearch(Dump2PlanProperties properties, PlannerMetrics metrics) {
+        this.metrics = metrics;
+        SearchConfig config = properties.search();
+        this.index = config != null && config.enabled()
+            ? new PlanIndex(Path.of(config.directory()), config.flushDocs(), config.flushInterval(),
+                config.mergeFactor())
+            : null;
+    }
+
+    public boolean enabled() {
+        return index != null;
+    }
+
+    /** Adds {@code plan} to {@code userId}'s history. */
+    public void index(String userId, StructuredPlan plan) {
+        if (index == null || userId == null || plan == null) {
+            return;
+        }
+        try {
+            index.add(userId, plan, Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Failed to index plan {} of {}", plan.title(), userId, e);
+        }
+    }
+
+    /** The best {@code limit} of {@code userId}'s plans for {@code query}, best first. */
+    public List<PlanHit> search(String userId, String query, int limit) {
+        if (index == null || userId == null) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        var hits = index.search(userId, query, limit);
+        metrics.recordPlanSearch(System.nanoTime() - start);
+        return hits;
+    }
+
+    /** The plan {@code id} from {@code userId}'s history, or {@code null}. */
+    public StructuredPlan plan(String userId, int id) {
+        return index == null || userId == null ? null : index.plan(userId, id);
+    }
+
+    @Override
+    public void destroy() {
+        if (index != null) {
+            index.close();
+        }
+    }
+}
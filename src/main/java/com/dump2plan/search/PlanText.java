@@ -0,0 +1,64 @@
+package com.dump2plan.search;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.similarity.Shingles;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The searchable text of a plan, as stemmed, stop-word-free terms with
+ * weighted frequencies. A plan's title counts {@value #TITLE_WEIGHT} times
+ * and milestone names and task titles {@value #HEADING_WEIGHT} times, so a
+ * plan named after the query outranks one that mentions it in passing.
+ */
+final class PlanText {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int HEADING_WEIGHT = 2;
+
+    private PlanText() {
+    }
+
+    /** Term frequencies of {@code plan}, weighted by the field each term appears in. */
+    static Map<String, Integer> terms(StructuredPlan plan) {
+        var terms = new LinkedHashMap<String, Integer>();
+        add(terms, plan.title(), TITLE_WEIGHT);
+        add(terms, plan.summary(), 1);
+        for (Milestone milestone : nonNull(plan.milestones())) {
+            add(terms, milestone.name(), HEADING_WEIGHT);
+            add(terms, milestone.description(), 1);
+        }
+        for (Task task : nonNull(plan.tasks())) {
+            add(terms, task.title(), HEADING_WEIGHT);
+            add(terms, task.description(), 1);
+        }
+        nonNull(plan.risks()).forEach(risk -> add(terms, risk, 1));
+        nonNull(plan.assumptions()).forEach(assumption -> add(terms, assumption, 1));
+        return terms;
+    }
+
+    /** The distinct terms of a query, in the order typed. */
+    static List<String> query(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        var terms = new LinkedHashSet<String>();
+        Shingles.tokens(text).forEach(token -> terms.add(Shingles.stem(token)));
+        return List.copyOf(terms);
+    }
+
+    private static void add(Map<String, Integer> terms, String text, int weight) {
+        if (text != null) {
+            Shingles.tokens(text).forEach(token -> terms.merge(Shingles.stem(token), weight, Integer::sum));
+        }
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+}
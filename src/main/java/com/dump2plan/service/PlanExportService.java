@@ -1,25 +1,55 @@
 package com.dump2plan.service;
 
+import com.dump2plan.json.ModelJson;
 import com.dump2plan.model.Milestone;
 import com.dump2plan.model.StructuredPlan;
 import com.dump2plan.model.Task;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.dump2plan.observability.PlanTracing;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 @Service
 public class PlanExportService {
 
-    private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
 
     public PlanExportService() {
-        this.objectMapper = new ObjectMapper()
-            .enable(SerializationFeature.INDENT_OUTPUT);
+        this(ObservationRegistry.NOOP);
+    }
+
+    @Autowired
+    public PlanExportService(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
     }
 
     public String exportToMarkdown(StructuredPlan plan) {
+        return observe("markdown", plan, () -> renderMarkdown(plan));
+    }
+
+    public String exportToJson(StructuredPlan plan) {
+        return observe("json", plan, () -> {
+            try {
+                return ModelJson.prettyWriter(StructuredPlan.class).writeValueAsString(plan);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to export plan to JSON", e);
+            }
+        });
+    }
+
+    private String observe(String format, StructuredPlan plan, Supplier<String> export) {
+        return Observation.createNotStarted(PlanTracing.EXPORT, observationRegistry)
+            .contextualName("export " + format)
+            .lowCardinalityKeyValue("format", format)
+            .highCardinalityKeyValue("plan.tasks", String.valueOf(plan.tasks().size()))
+            .observe(export);
+    }
+
+    private String renderMarkdown(StructuredPlan plan) {
         var sb = new StringBuilder();
         sb.append("# ").append(plan.title()).append("\n\n");
         sb.append("**Summary**: ").append(plan.summary()).append("\n\n");
@@ -64,12 +94,4 @@ public class PlanExportService {
 
         return sb.toString();
     }
-
-    public String exportToJson(StructuredPlan plan) {
-        try {
-            return objectMapper.writeValueAsString(plan);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to export plan to JSON", e);
-        }
-    }
 }
@@ -0,0 +1,119 @@
+package com.dump2plan.session;
+
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.session.ChatTurn.Role;
+import com.dump2plan.session.SessionStore.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads and writes each conversation's transcript and planning state
+ * through the configured {@link SessionStore}. Sessions are keyed by a
+ * random conversation id that the browser keeps, never by user id: every
+ * anonymous visitor resolves to the same default user, so a user-keyed
+ * session would be shared between strangers. The id is the same on every
+ * node, so a conversation whose node goes away continues wherever the next
+ * request lands. Write failures are logged and do not interrupt the chat.
+ *
+ * <p>The transcript holds the turns that the stored {@link HistorySummary}
+ * does not cover: once the compactor has folded older turns into a summary
+ * and stored it, those turns are dropped, so a node that picks the
+ * conversation up sees the summary and everything after it. Turns are
+ * only capped, at {@link #MAX_TURNS}, if summaries keep failing.</p>
+ */
+@Component
+public class ChatSessions {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatSessions.class);
+
+    /** Most turns kept while no summary covers them. */
+    static final int MAX_TURNS = 500;
+
+    private final SessionStore store;
+    private final int maxTurns;
+
+    @Autowired
+    public ChatSessions(SessionStore store) {
+        this(store, MAX_TURNS);
+    }
+
+    public ChatSessions(SessionStore store, int maxTurns) {
+        this.store = store;
+        this.maxTurns = Math.max(2, maxTurns);
+    }
+
+    /**
+     * A new, unguessable conversation id.
+     */
+    public static String newSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Whether {@code id} has the form of an id from {@link #newSessionId},
+     * so a value sent by a browser cannot address other keys of the store.
+     */
+    public static boolean isSessionId(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The conversation's session, fetched lazily field by field.
+     */
+    public StoredSession open(String sessionId) {
+        return new StoredSession(sessionId, store);
+    }
+
+    public void recordTurn(String sessionId, Role role, String content) {
+        write(sessionId, Field.TURNS, () -> store.push(sessionId, Field.TURNS,
+            SessionCodec.encodeTurns(List.of(new ChatTurn(role, content))), maxTurns));
+    }
+
+    /**
+     * Stores the summary of the oldest {@code foldedTurns} stored turns,
+     * then drops those turns. The summary is written first, so a failure in
+     * between leaves turns that are summarized twice rather than lost.
+     */
+    public void recordSummary(String sessionId, HistorySummary summary, int foldedTurns) {
+        write(sessionId, Field.SUMMARY, () -> {
+            store.put(sessionId, Field.SUMMARY, SessionCodec.encode(summary));
+            store.drop(sessionId, Field.TURNS, foldedTurns);
+        });
+    }
+
+    public void recordAnswers(String sessionId, ClarifiedContext answers) {
+        write(sessionId, Field.ANSWERS, () -> store.put(sessionId, Field.ANSWERS, SessionCodec.encode(answers)));
+    }
+
+    public void recordPlan(String sessionId, StructuredPlan plan) {
+        write(sessionId, Field.PLAN, () -> store.put(sessionId, Field.PLAN, SessionCodec.encode(plan)));
+    }
+
+    public void clear(String sessionId) {
+        write(sessionId, null, () -> store.delete(sessionId));
+    }
+
+    private static void write(String sessionId, Field field, Runnable write) {
+        if (sessionId == null) {
+            return;
+        }
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            log.warn("Failed to store {} of session {}", field == null ? "deletion" : field.key(), sessionId, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.dump2plan.session;
+
+/**
+ * One message of a stored conversation.
+ */
+public record ChatTurn(Role role, String content) {
+
+    public enum Role {
+        USER, ASSISTANT
+    }
+}
@@ -0,0 +1,41 @@
+package com.dump2plan.session;
+
+import com.dump2plan.user.Dump2PlanUser;
+import com.embabel.agent.api.identity.User;
+
+/**
+ * The identity a chat conversation's agent processes run as: the user,
+ * plus the id of the conversation whose stored session the processes
+ * write their answers and plan to. All {@link User} accessors are the
+ * user's own.
+ */
+public record ConversationUser(Dump2PlanUser user, String conversationId) implements User {
+
+    /**
+     * The conversation id carried by a process identity, or {@code null}
+     * if the process was not started from a chat conversation.
+     */
+    public static String conversationId(Object identity) {
+        return identity instanceof ConversationUser conversation ? conversation.conversationId() : null;
+    }
+
+    @Override
+    public String getId() {
+        return user.getId();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return user.getDisplayName();
+    }
+
+    @Override
+    public String getUsername() {
+        return user.getUsername();
+    }
+
+    @Override
+    public String getEmail() {
+        return user.getEmail();
+    }
+}
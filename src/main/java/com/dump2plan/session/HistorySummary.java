@@ -0,0 +1,11 @@
+package com.dump2plan.session;
+
+/**
+ * The rolling summary of a conversation's turns that are no longer in its
+ * stored transcript.
+ *
+ * @param summary       what the folded turns said
+ * @param planReference outline of the latest plan shared in them, or {@code null}
+ */
+public record HistorySummary(String summary, String planReference) {
+}
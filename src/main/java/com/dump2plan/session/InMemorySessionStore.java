@@ -0,0 +1,125 @@
+package com.dump2plan.session;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Embedded {@link SessionStore} for single-node deployments and tests.
+ * Fields are kept encoded, so memory use matches what a shared store
+ * would hold. A session expires {@code ttl} after its last write, as in
+ * the shared store; expired sessions read as empty and are swept on a
+ * later write.
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private volatile long nextSweep;
+
+    public InMemorySessionStore(Duration ttl) {
+        this(ttl, System::nanoTime);
+    }
+
+    public InMemorySessionStore(Duration ttl, LongSupplier nanoTime) {
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+        this.nextSweep = nanoTime.getAsLong() + ttlNanos;
+    }
+
+    @Override
+    public byte[] get(String sessionId, Field field) {
+        var session = live(sessionId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            return session.values.get(field);
+        }
+    }
+
+    @Override
+    public void put(String sessionId, Field field, byte[] value) {
+        var session = writable(sessionId);
+        synchronized (session) {
+            session.values.put(field, value.clone());
+        }
+    }
+
+    @Override
+    public void push(String sessionId, Field field, byte[] value, int keep) {
+        var session = writable(sessionId);
+        synchronized (session) {
+            var entries = session.lists.computeIfAbsent(field, f -> new ArrayDeque<>());
+            entries.addLast(value.clone());
+            while (entries.size() > keep) {
+                entries.removeFirst();
+            }
+        }
+    }
+
+    @Override
+    public void drop(String sessionId, Field field, int count) {
+        var session = writable(sessionId);
+        synchronized (session) {
+            var entries = session.lists.get(field);
+            for (int i = 0; i < count && entries != null && !entries.isEmpty(); i++) {
+                entries.removeFirst();
+            }
+        }
+    }
+
+    @Override
+    public List<byte[]> entries(String sessionId, Field field) {
+        var session = live(sessionId);
+        if (session == null) {
+            return List.of();
+        }
+        synchronized (session) {
+            var entries = session.lists.get(field);
+            return entries == null ? List.of() : List.copyOf(entries);
+        }
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    private Session live(String sessionId) {
+        var session = sessions.get(sessionId);
+        return session == null || session.expired(nanoTime.getAsLong()) ? null : session;
+    }
+
+    /**
+     * The session to write to, renewing its expiry; an expired session is
+     * replaced by an empty one.
+     */
+    private Session writable(String sessionId) {
+        long now = nanoTime.getAsLong();
+        if (now - nextSweep >= 0) {
+            nextSweep = now + ttlNanos;
+            sessions.values().removeIf(session -> session.expired(now));
+        }
+        return sessions.compute(sessionId, (id, current) -> {
+            var session = current == null || current.expired(now) ? new Session() : current;
+            session.expiresAt = now + ttlNanos;
+            return session;
+        });
+    }
+
+    private static final class Session {
+        final Map<Field, byte[]> values = new EnumMap<>(Field.class);
+        final Map<Field, ArrayDeque<byte[]>> lists = new EnumMap<>(Field.class);
+        volatile long expiresAt;
+
+        boolean expired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.dump2plan.session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.dump2plan.session.RespClient.bytes;
+
+/**
+ * {@link SessionStore} on a shared RESP key-value store (Redis, Valkey),
+ * so every node sees the same sessions. Each field is its own key,
+ * {@code <prefix><sessionId>:<field>}: a string for single values, a list
+ * for the transcript, which grows with {@code RPUSH} and is trimmed with
+ * {@code LTRIM} in the same round trip instead of being rewritten.
+ * Loading a session fetches only the fields that are read. Every write
+ * renews the field's expiry.
+ */
+public class RedisSessionStore implements SessionStore, AutoCloseable {
+
+    private static final byte[] GET = bytes("GET");
+    private static final byte[] SET = bytes("SET");
+    private static final byte[] RPUSH = bytes("RPUSH");
+    private static final byte[] LTRIM = bytes("LTRIM");
+    private static final byte[] LRANGE = bytes("LRANGE");
+    private static final byte[] PEXPIRE = bytes("PEXPIRE");
+    private static final byte[] DEL = bytes("DEL");
+    private static final byte[] PX = bytes("PX");
+    private static final byte[] FIRST = bytes("0");
+    private static final byte[] LAST = bytes("-1");
+
+    private final RespClient client;
+    private final String keyPrefix;
+    private final byte[] ttlMillis;
+
+    public RedisSessionStore(String host, int port, String keyPrefix, Duration ttl, Duration timeout) {
+        this.client = new RespClient(host, port, timeout);
+        this.keyPrefix = keyPrefix;
+        this.ttlMillis = bytes(Long.toString(ttl.toMillis()));
+    }
+
+    @Override
+    public byte[] get(String sessionId, Field field) {
+        return (byte[]) client.execute(GET, key(sessionId, field));
+    }
+
+    @Override
+    public void put(String sessionId, Field field, byte[] value) {
+        client.execute(SET, key(sessionId, field), value, PX, ttlMillis);
+    }
+
+    @Override
+    public void push(String sessionId, Field field, byte[] value, int keep) {
+        var key = key(sessionId, field);
+        client.pipeline(List.of(
+            new byte[][] {RPUSH, key, value},
+            new byte[][] {LTRIM, key, bytes(Integer.toString(-keep)), LAST},
+            new byte[][] {PEXPIRE, key, ttlMillis}));
+    }
+
+    @Override
+    public void drop(String sessionId, Field field, int count) {
+        var key = key(sessionId, field);
+        client.pipeline(List.of(
+            new byte[][] {LTRIM, key, bytes(Integer.toString(count)), LAST},
+            new byte[][] {PEXPIRE, key, ttlMillis}));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<byte[]> entries(String sessionId, Field field) {
+        var entries = (List<Object>) client.execute(LRANGE, key(sessionId, field), FIRST, LAST);
+        return entries == null ? List.of() : entries.stream().map(byte[].class::cast).toList();
+    }
+
+    @Override
+    public void delete(String sessionId) {
+        var command = new ArrayList<byte[]>();
+        command.add(DEL);
+        for (var field : Field.values()) {
+            command.add(key(sessionId, field));
+        }
+        client.execute(command.toArray(byte[][]::new));
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private byte[] key(String sessionId, Field field) {
+        return bytes(keyPrefix + sessionId + ":" + field.key());
+    }
+}
@@ -0,0 +1,189 @@
+package com.dump2plan.session;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Minimal client for the Redis serialization protocol (RESP2), enough for
+ * the string and list commands {@link RedisSessionStore} needs. Commands sent
+ * together are pipelined on one pooled connection. Speaks to Redis, Valkey,
+ * KeyDB or any other RESP-compatible key-value store.
+ */
+class RespClient implements Closeable {
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+
+    RespClient(String host, int port, Duration timeout) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = (int) timeout.toMillis();
+    }
+
+    /**
+     * Sends {@code commands} in one write and returns their replies in
+     * order: {@code byte[]} for bulk strings (or {@code null}), {@code Long}
+     * for integers, {@code String} for status replies and {@code List} for
+     * arrays.
+     *
+     * @throws RespException        if the server answered a command with an error
+     * @throws UncheckedIOException if the connection failed
+     */
+    List<Object> pipeline(List<byte[][]> commands) {
+        var connection = idle.pollFirst();
+        try {
+            if (connection == null) {
+                connection = new Connection(host, port, timeoutMillis);
+            }
+            for (var command : commands) {
+                connection.write(command);
+            }
+            connection.out.flush();
+            var replies = new ArrayList<Object>(commands.size());
+            RespException error = null;
+            for (int i = 0; i < commands.size(); i++) {
+                var reply = connection.read();
+                if (reply instanceof RespException e && error == null) {
+                    error = e;
+                }
+                replies.add(reply);
+            }
+            idle.offerFirst(connection);
+            if (error != null) {
+                throw error;
+            }
+            return replies;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new UncheckedIOException("Key-value store " + host + ":" + port + " unavailable", e);
+        }
+    }
+
+    Object execute(byte[]... command) {
+        return pipeline(List.<byte[][]>of(command)).get(0);
+    }
+
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    /** An error reply from the server. */
+    static class RespException extends RuntimeException {
+        RespException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Connection {
+
+        private static final byte[] CRLF = {'\r', '\n'};
+
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        Connection(String host, int port, int timeoutMillis) throws IOException {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void write(byte[][] command) throws IOException {
+            out.write('*');
+            out.write(bytes(Integer.toString(command.length)));
+            out.write(CRLF);
+            for (var argument : command) {
+                out.write('$');
+                out.write(bytes(Integer.toString(argument.length)));
+                out.write(CRLF);
+                out.write(argument);
+                out.write(CRLF);
+            }
+        }
+
+        Object read() throws IOException {
+            int type = in.read();
+            var line = readLine();
+            return switch (type) {
+                case '+' -> line;
+                case '-' -> new RespException(line);
+                case ':' -> Long.parseLong(line);
+                case '$' -> readBulk(Integer.parseInt(line));
+                case '*' -> {
+                    int count = Integer.parseInt(line);
+                    if (count < 0) {
+                        yield null;
+                    }
+                    var items = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        items.add(read());
+                    }
+                    yield items;
+                }
+                case -1 -> throw new EOFException("Connection closed by server");
+                default -> throw new IOException("Unexpected RESP reply type " + (char) type);
+            };
+        }
+
+        private byte[] readBulk(int length) throws IOException {
+            if (length < 0) {
+                return null;
+            }
+            var value = in.readNBytes(length);
+            if (value.length < length || in.read() != '\r' || in.read() != '\n') {
+                throw new EOFException("Truncated bulk reply");
+            }
+            return value;
+        }
+
+        private String readLine() throws IOException {
+            var line = new ByteArrayOutputStream(16);
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b < 0) {
+                    throw new EOFException("Connection closed by server");
+                }
+                line.write(b);
+            }
+            in.read();
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken; nothing to release.
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.dump2plan.session;
+
+import com.dump2plan.compression.RecordCompressor;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of session fields. Records are written field by
+ * field in declaration order with no names: lengths and counts as varints,
+ * strings as UTF-8, {@code null} as a zero length (so real lengths are
+ * stored plus one). Dropping field names and quoting shrinks a plan to
+ * a little over half its JSON size.
+ *
+ * <p>Turns are self-delimiting, so one transcript entry may hold several
+ * in a row. Every value starts with {@link #VERSION}; a reader
+ * meeting another version rejects the value rather than misreading it.</p>
+ *
+ * <p>Encodings of at least {@link #MIN_COMPRESSED_BYTES} are stored
+ * deflated as a {@link #COMPRESSED} frame: the marker, the encoded length,
+ * the deflated length, then the deflated bytes. Frames are self-delimiting
+ * too, so a frame may follow other turns in the same entry, and values
+ * written before compression still decode. Deflate starts from a
+ * preset dictionary trained on chat transcripts and plans, which a single
+ * turn is too short to build up on its own. Each version has its own
+ * dictionary, bundled as {@code compression/session-v<version>.dict} and
+ * checked against {@link #DICTIONARY_ID} on load: a frame names its
+ * dictionary, so a retrained dictionary under the same version would make
+ * every stored frame unreadable.</p>
+ */
+final class SessionCodec {
+
+    static final byte VERSION = 1;
+    /** Adler-32 of the dictionary of {@link #VERSION}. */
+    static final int DICTIONARY_ID = 0xce9a5fb8;
+    static final byte COMPRESSED = 2;
+    static final int MIN_COMPRESSED_BYTES = 64;
+    private static final RecordCompressor COMPRESSOR = compressor();
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final ChatTurn.Role[] ROLES = ChatTurn.Role.values();
+
+    private SessionCodec() {
+    }
+
+    static byte[] encodeTurns(List<ChatTurn> turns) {
+        var out = new Writer();
+        for (var turn : turns) {
+            out.version();
+            out.varint(turn.role().ordinal());
+            out.string(turn.content());
+        }
+        return compressed(out);
+    }
+
+    static List<ChatTurn> decodeTurns(byte[] bytes) {
+        var turns = new ArrayList<ChatTurn>();
+        decodeTurns(new Reader(bytes), turns);
+        return turns;
+    }
+
+    private static void decodeTurns(Reader in, List<ChatTurn> turns) {
+        while (in.hasMore()) {
+            if (in.compressed()) {
+                decodeTurns(in.inflate(), turns);
+            } else {
+                in.version();
+                turns.add(new ChatTurn(ROLES[in.varint()], in.string()));
+            }
+        }
+    }
+
+    static byte[] encode(ClarifiedContext answers) {
+        var out = new Writer();
+        out.version();
+        out.string(answers.timeline());
+        out.string(answers.teamSize());
+        out.string(answers.budgetConstraints());
+        out.string(answers.additionalContext());
+        return compressed(out);
+    }
+
+    static ClarifiedContext decodeAnswers(byte[] bytes) {
+        var in = value(bytes);
+        in.version();
+        return new ClarifiedContext(in.string(), in.string(), in.string(), in.string());
+    }
+
+    static byte[] encode(HistorySummary summary) {
+        var out = new Writer();
+        out.version();
+        out.string(summary.summary());
+        out.string(summary.planReference());
+        return compressed(out);
+    }
+
+    static HistorySummary decodeSummary(byte[] bytes) {
+        var in = value(bytes);
+        in.version();
+        return new HistorySummary(in.string(), in.string());
+    }
+
+    static byte[] encode(StructuredPlan plan) {
+        var out = new Writer();
+        out.version();
+        out.string(plan.title());
+        out.string(plan.summary());
+        out.count(plan.milestones());
+        if (plan.milestones() != null) {
+            for (var milestone : plan.milestones()) {
+                out.string(milestone.id());
+                out.string(milestone.name());
+                out.string(milestone.description());
+                out.varint(milestone.orderIndex());
+                out.strings(milestone.taskIds());
+            }
+        }
+        out.count(plan.tasks());
+        if (plan.tasks() != null) {
+            for (var task : plan.tasks()) {
+                out.string(task.id());
+                out.string(task.title());
+                out.string(task.description());
+                out.varint(task.priority() == null ? 0 : task.priority().ordinal() + 1);
+                out.string(task.milestoneId());
+                out.strings(task.dependsOn());
+                out.string(task.estimatedEffort());
+                out.varint(task.orderIndex());
+            }
+        }
+        out.string(plan.estimatedDuration());
+        out.strings(plan.risks());
+        out.strings(plan.assumptions());
+        return compressed(out);
+    }
+
+    static StructuredPlan decodePlan(byte[] bytes) {
+        var in = value(bytes);
+        in.version();
+        var title = in.string();
+        var summary = in.string();
+        int milestoneCount = in.count();
+        List<Milestone> milestones = milestoneCount < 0 ? null : new ArrayList<>(milestoneCount);
+        for (int i = 0; i < milestoneCount; i++) {
+            milestones.add(new Milestone(in.string(), in.string(), in.string(), in.varint(), in.strings()));
+        }
+        int taskCount = in.count();
+        List<Task> tasks = taskCount < 0 ? null : new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            var id = in.string();
+            var taskTitle = in.string();
+            var description = in.string();
+            int priority = in.varint();
+            tasks.add(new Task(id, taskTitle, description, priority == 0 ? null : PRIORITIES[priority - 1],
+                in.string(), in.strings(), in.string(), in.varint()));
+        }
+        return new StructuredPlan(title, summary, milestones, tasks, in.string(), in.strings(), in.strings());
+    }
+
+    private static RecordCompressor compressor() {
+        var resource = "compression/session-v" + VERSION + ".dict";
+        var compressor = RecordCompressor.fromResource(resource, 6);
+        if (compressor.dictionaryId() != DICTIONARY_ID) {
+            throw new IllegalStateException(resource + " is not the dictionary of session encoding version "
+                + VERSION + "; a retrained dictionary needs a new version");
+        }
+        return compressor;
+    }
+
+        private static byte[] compressed(Writer encoded) {
+        var raw = encoded.toByteArray();
+        if (raw.length < MIN_COMPRESSED_BYTES) {
+            return raw;
+        }
+        var deflated = COMPRESSOR.compress(raw);
+        if (deflated.length + 11 >= raw.length) {
+            return raw;
+        }
+        var out = new Writer();
+        out.marker(COMPRESSED);
+        out.varint(raw.length);
+        out.varint(deflated.length);
+        out.bytes(deflated);
+        return out.toByteArray();
+    }
+
+    private static Reader value(byte[] bytes) {
+        var in = new Reader(bytes);
+        return in.compressed() ? in.inflate() : in;
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        void version() {
+            marker(VERSION);
+        }
+
+        void marker(byte marker) {
+            ensure(1);
+            buffer[size++] = marker;
+        }
+
+        void bytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, buffer, size, value.length);
+            size += value.length;
+        }
+
+        void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            var utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buffer, size, utf8.length);
+            size += utf8.length;
+        }
+
+        void count(List<?> list) {
+            varint(list == null ? 0 : list.size() + 1);
+        }
+
+        void strings(List<String> values) {
+            count(values);
+            if (values != null) {
+                values.forEach(this::string);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasMore() {
+            return position < bytes.length;
+        }
+
+        boolean compressed() {
+            return hasMore() && bytes[position] == COMPRESSED;
+        }
+
+        /** Reads a {@link #COMPRESSED} frame and returns a reader over its contents. */
+        Reader inflate() {
+            position++;
+            int rawLength = varint();
+            int length = varint();
+            var raw = COMPRESSOR.decompress(ByteBuffer.wrap(bytes, position, length), rawLength);
+            position += length;
+            return new Reader(raw);
+        }
+
+        void version() {
+            if (bytes[position++] != VERSION) {
+                throw new IllegalArgumentException("Unsupported session encoding version " + bytes[position - 1]);
+            }
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        String string() {
+            int length = varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            var value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        /** List size, or -1 for {@code null}. */
+        int count() {
+            return varint() - 1;
+        }
+
+        List<String> strings() {
+            int count = count();
+            if (count < 0) {
+                return null;
+            }
+            var values = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(string());
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dump2plan.session;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Externalized chat session state, stored per conversation as independent
+ * binary fields so each can be written, appended to and read on its own.
+ * Any node can serve a conversation from whatever the store holds; the
+ * servlet session only remembers which conversation a browser is in.
+ * Sessions expire once none of their fields was written for the store's
+ * TTL.
+ */
+public interface SessionStore {
+
+    /** Independently stored parts of a session. */
+    enum Field {
+        /**
+         * Transcript of the user and assistant turns that {@link #SUMMARY}
+         * does not cover yet, one list entry per turn.
+         */
+        TURNS,
+        /** Rolling summary of the turns dropped from {@link #TURNS}. */
+        SUMMARY,
+        /** Latest planning agent outputs. */
+        ANSWERS, PLAN;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * @return the field's bytes, or {@code null} if it was never written
+     */
+    byte[] get(String sessionId, Field field);
+
+    void put(String sessionId, Field field, byte[] value);
+
+    /**
+     * Adds {@code value} as the newest entry of a list field without reading
+     * it back, dropping all but the newest {@code keep} entries.
+     */
+    void push(String sessionId, Field field, byte[] value, int keep);
+
+    /**
+     * Removes the oldest {@code count} entries of a list field; entries
+     * pushed meanwhile are kept.
+     */
+    void drop(String sessionId, Field field, int count);
+
+    /**
+     * @return the entries of a list field, oldest first; empty if it was never written
+     */
+    List<byte[]> entries(String sessionId, Field field);
+
+    void delete(String sessionId);
+}
@@ -0,0 +1,21 @@
+package com.dump2plan.session;
+
+import com.dump2plan.Dump2PlanProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SessionStoreConfiguration {
+
+    @Bean
+    public SessionStore sessionStore(Dump2PlanProperties properties) {
+        var sessions = properties.sessions();
+        return switch (sessions.store()) {
+            case "memory" -> new InMemorySessionStore(sessions.ttl());
+            case "redis" -> new RedisSessionStore(sessions.host(), sessions.port(), sessions.keyPrefix(),
+                sessions.ttl(), sessions.timeout());
+            default -> throw new IllegalArgumentException(
+                "Unknown dump2plan.sessions.store: " + sessions.store());
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package com.dump2plan.session;
+
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.session.SessionStore.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A session as seen from one node. Nothing is fetched on creation; each
+ * field is read from the {@link SessionStore} and decoded the first time it
+ * is asked for, then kept. A store that cannot be reached reads as an empty
+ * session rather than failing the view.
+ */
+public class StoredSession {
+
+    private static final Logger log = LoggerFactory.getLogger(StoredSession.class);
+
+    private final String id;
+    private final SessionStore store;
+    private final Map<Field, Object> loaded = new EnumMap<>(Field.class);
+
+    StoredSession(String id, SessionStore store) {
+        this.id = id;
+        this.store = store;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public List<ChatTurn> turns() {
+        List<ChatTurn> turns = load(Field.TURNS, () -> {
+            var decoded = new ArrayList<ChatTurn>();
+            for (var entry : store.entries(id, Field.TURNS)) {
+                decoded.addAll(SessionCodec.decodeTurns(entry));
+            }
+            return decoded;
+        });
+        return turns == null ? List.of() : turns;
+    }
+
+    /**
+     * @return the summary of the turns before {@link #turns()}, or {@code null} if none were folded
+     */
+    public HistorySummary summary() {
+        return value(Field.SUMMARY, SessionCodec::decodeSummary);
+    }
+
+    public ClarifiedContext answers() {
+        return value(Field.ANSWERS, SessionCodec::decodeAnswers);
+    }
+
+    public StructuredPlan plan() {
+        return value(Field.PLAN, SessionCodec::decodePlan);
+    }
+
+    private <T> T value(Field field, Function<byte[], T> decoder) {
+        return load(field, () -> {
+            var bytes = store.get(id, field);
+            return bytes == null ? null : decoder.apply(bytes);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T load(Field field, Supplier<T> reader) {
+        if (loaded.containsKey(field)) {
+            return (T) loaded.get(field);
+        }
+        T value = null;
+        try {
+            value = reader.get();
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            log.warn("Could not load {} of session {}", field.key(), id, e);
+        }
+        loaded.put(field, value);
+        return value;
+    }
+}
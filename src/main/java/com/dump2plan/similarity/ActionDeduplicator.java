@@ -0,0 +1,153 @@
+package com.dump2plan.similarity;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.DedupConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses differently phrased copies of the same action item. Each action
+ * becomes a set of stemmed, stop-word-free tokens; candidate pairs come from
+ * banded {@link MinHash} signatures, are confirmed by exact Jaccard
+ * similarity, and merged with union-find, so the work grows with the number
+ * of actions rather than the number of pairs.
+ *
+ * <p>Word order and inflection do not matter ("Fix the Android tablet login
+ * bug" equals "Fix login bugs on Android tablets"), but actions differing
+ * in a key word stay apart unless they are long ("Design billing API for
+ * mobile" vs. "Test billing API for mobile" share three of five tokens).</p>
+ */
+@Component
+public class ActionDeduplicator {
+
+    private static final int SIGNATURE_SIZE = 32;
+    private static final int ROWS_PER_BAND = 2;
+
+    private final DedupConfig config;
+    private final MinHash minHash = new MinHash(SIGNATURE_SIZE, 0xd1ce);
+
+    public ActionDeduplicator(Dump2PlanProperties properties) {
+        this.config = properties.dedup();
+    }
+
+    public Deduplication deduplicate(List<String> actions) {
+        if (actions == null) {
+            actions = List.of();
+        }
+        if (actions.size() < 2 || !config.enabled()) {
+            return new Deduplication(actions, actions.stream().map(List::of).toList());
+        }
+        int count = actions.size();
+        var sets = new long[count][];
+        var clusters = new UnionFind(count);
+        var distinct = new HashMap<Key, Integer>();
+        for (int i = 0; i < count; i++) {
+            var tokens = Shingles.tokens(actions.get(i)).stream().map(Shingles::stem).toList();
+            sets[i] = Shingles.of(tokens, 1);
+            Arrays.sort(sets[i]);
+            var previous = distinct.putIfAbsent(new Key(sets[i]), i);
+            if (previous != null) {
+                clusters.union(previous, i);
+                sets[i] = null;
+            }
+        }
+
+        // Only one action per distinct token set takes part in LSH, so
+        // heavily repeated actions do not fill the buckets.
+        var buckets = new HashMap<Long, List<Integer>>();
+        for (int i = 0; i < count; i++) {
+            if (sets[i] == null || sets[i].length == 0) {
+                continue;
+            }
+            var signature = minHash.signature(sets[i]);
+            for (int band = 0; band < SIGNATURE_SIZE / ROWS_PER_BAND; band++) {
+                var bucket = buckets.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1));
+                for (int j : bucket) {
+                    if (clusters.find(i) != clusters.find(j) && jaccard(sets[i], sets[j]) >= config.threshold()) {
+                        clusters.union(i, j);
+                    }
+                }
+                bucket.add(i);
+            }
+        }
+
+        var members = new LinkedHashMap<Integer, List<String>>();
+        for (int i = 0; i < count; i++) {
+            members.computeIfAbsent(clusters.find(i), k -> new ArrayList<>(1)).add(actions.get(i));
+        }
+        var kept = new ArrayList<String>(members.size());
+        for (var cluster : members.values()) {
+            kept.add(longest(cluster));
+        }
+        return new Deduplication(kept, List.copyOf(members.values()));
+    }
+
+    /** Jaccard similarity of two sorted, duplicate-free arrays. */
+    static double jaccard(long[] a, long[] b) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - shared;
+        return union == 0 ? 1.0 : (double) shared / union;
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long hash = band;
+        for (int i = band * ROWS_PER_BAND; i < (band + 1) * ROWS_PER_BAND; i++) {
+            hash = Shingles.mix(hash * 31 + signature[i]);
+        }
+        return hash;
+    }
+
+    /** The most detailed phrasing, preferring the earliest on ties. */
+    private static String longest(List<String> cluster) {
+        var best = cluster.get(0);
+        for (var action : cluster) {
+            if (action.length() > best.length()) {
+                best = action;
+            }
+        }
+        return best;
+    }
+
+    private record Key(long[] set) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Arrays.equals(set, key.set);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(set);
+        }
+    }
+
+    /**
+     * @param actions  one action per cluster, in order of first appearance
+     * @param clusters every input action grouped by cluster, same order
+     */
+    public record Deduplication(List<String> actions, List<List<String>> clusters) {
+
+        public int removed() {
+            return clusters.stream().mapToInt(List::size).sum() - actions.size();
+        }
+    }
+}
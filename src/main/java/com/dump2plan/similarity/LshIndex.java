@@ -0,0 +1,107 @@
+package com.dump2plan.similarity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Approximate nearest-neighbour index over {@link MinHash} signatures using
+ * locality-sensitive hashing: each signature is cut into {@code bands}
+ * bands, and two entries become candidates when any band matches exactly.
+ * Candidates are then ranked by estimated Jaccard similarity.
+ *
+ * <p>Holds at most {@code maxEntries} entries; the least recently added or
+ * matched entry is evicted first. Memory is therefore bounded by
+ * {@code maxEntries} signatures plus their band postings. Not thread-safe.</p>
+ */
+public class LshIndex<V> {
+
+    private final int bands;
+    private final int rows;
+    private final int maxEntries;
+    private final Map<Long, List<Long>> buckets = new HashMap<>();
+    private final LinkedHashMap<Long, Entry<V>> entries = new LinkedHashMap<>();
+    private long nextId;
+
+    public LshIndex(int signatureSize, int bands, int maxEntries) {
+        if (bands <= 0 || signatureSize % bands != 0) {
+            throw new IllegalArgumentException(
+                "Signature size " + signatureSize + " is not divisible into " + bands + " bands");
+        }
+        this.bands = bands;
+        this.rows = signatureSize / bands;
+        this.maxEntries = maxEntries;
+    }
+
+    public void add(long[] signature, V value) {
+        long id = nextId++;
+        entries.put(id, new Entry<>(signature, value));
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(id);
+        }
+        if (entries.size() > maxEntries) {
+            evict(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * The most similar entry accepted by {@code filter} with an estimated
+     * similarity of at least {@code threshold}, or {@code null}.
+     */
+    public Match<V> nearest(long[] signature, double threshold, Predicate<V> filter) {
+        Long bestId = null;
+        Match<V> best = null;
+        for (int band = 0; band < bands; band++) {
+            var bucket = buckets.get(bandKey(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (long id : bucket) {
+                var entry = entries.get(id);
+                if (best != null && id == bestId || !filter.test(entry.value())) {
+                    continue;
+                }
+                double similarity = MinHash.similarity(signature, entry.signature());
+                if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                    bestId = id;
+                    best = new Match<>(entry.value(), similarity);
+                }
+            }
+        }
+        if (bestId != null) {
+            entries.put(bestId, entries.remove(bestId));
+        }
+        return best;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long id) {
+        var entry = entries.remove(id);
+        for (int band = 0; band < bands; band++) {
+            long key = bandKey(entry.signature(), band);
+            var bucket = buckets.get(key);
+            bucket.remove(Long.valueOf(id));
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private long bandKey(long[] signature, int band) {
+        long hash = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            hash = Shingles.mix(hash * 31 + signature[i]);
+        }
+        return hash;
+    }
+
+    public record Match<V>(V value, double similarity) {}
+
+    private record Entry<V>(long[] signature, V value) {}
+}
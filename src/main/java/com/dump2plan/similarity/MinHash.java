@@ -0,0 +1,50 @@
+package com.dump2plan.similarity;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures: for each of {@code size} hash functions, the minimum
+ * hash over a shingle set. The fraction of equal positions in two
+ * signatures estimates the Jaccard similarity of the sets.
+ */
+public final class MinHash {
+
+    private final long[] seeds;
+
+    public MinHash(int size, long seed) {
+        var random = new SplittableRandom(seed);
+        this.seeds = new long[size];
+        for (int i = 0; i < size; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    public int size() {
+        return seeds.length;
+    }
+
+    public long[] signature(long[] shingles) {
+        var signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < seeds.length; i++) {
+                long hash = Shingles.mix(shingle ^ seeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    public static double similarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+}
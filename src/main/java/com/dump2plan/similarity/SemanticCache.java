@@ -0,0 +1,130 @@
+package com.dump2plan.similarity;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.Dump2PlanProperties.SemanticCacheConfig;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.PlannerMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Offline near-duplicate cache for brain dumps. Each dump is reduced to a
+ * MinHash signature over word bigrams, so rewording a few phrases or
+ * reordering paragraphs keeps most of the signature intact, and indexed in
+ * a bounded {@link LshIndex}.
+ *
+ * <p>A dump similar enough to an earlier one of the same user
+ * ({@code reuseThreshold}) reuses its {@link ExtractedIdeas}; a somewhat
+ * similar one ({@code seedThreshold}) that already led to a plan gets that
+ * {@link StructuredPlan} as a seed for structuring. Entries are never
+ * shared between users.</p>
+ */
+@Component
+public class SemanticCache {
+
+    static final String IDEAS = "semantic-ideas";
+    static final String SEED = "semantic-seed";
+    private static final int SHINGLE_SIZE = 2;
+
+    private final SemanticCacheConfig config;
+    private final PlannerMetrics metrics;
+    private final MinHash minHash;
+    private final LshIndex<Entry> index;
+    private final Map<Key, Entry> byIdeas;
+
+    public SemanticCache(Dump2PlanProperties properties, PlannerMetrics metrics) {
+        this.config = properties.semanticCache();
+        this.metrics = metrics;
+        this.minHash = new MinHash(config.signatureSize(), 0x5eed);
+        this.index = new LshIndex<>(config.signatureSize(), config.bands(), config.maxEntries());
+        this.byIdeas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > config.maxEntries();
+            }
+        };
+    }
+
+    /**
+     * The analysis of an earlier near-duplicate of {@code brainDump} by the
+     * same user, or {@code null}.
+     */
+    public synchronized ExtractedIdeas findIdeas(String userId, String brainDump) {
+        if (!config.enabled()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        var match = index.nearest(signature(brainDump), config.reuseThreshold(),
+            entry -> Objects.equals(entry.userId, userId));
+        metrics.recordCacheLookup(IDEAS, System.nanoTime() - start);
+        if (match == null) {
+            metrics.cacheMiss(IDEAS);
+            return null;
+        }
+        metrics.cacheHit(IDEAS);
+        return match.value().ideas;
+    }
+
+    public synchronized void remember(String userId, String brainDump, ExtractedIdeas ideas) {
+        if (!config.enabled()) {
+            return;
+        }
+        var entry = new Entry(userId, signature(brainDump), ideas);
+        index.add(entry.signature, entry);
+        byIdeas.put(new Key(userId, ideas), entry);
+    }
+
+    public synchronized void rememberPlan(String userId, ExtractedIdeas ideas, StructuredPlan plan) {
+        var entry = byIdeas.get(new Key(userId, ideas));
+        if (entry != null) {
+            entry.plan = plan;
+        }
+    }
+
+    /**
+     * The plan of the most similar earlier dump of {@code userId} that got
+     * as far as a plan, or {@code null}.
+     */
+    public synchronized StructuredPlan findSeedPlan(String userId, ExtractedIdeas ideas) {
+        var entry = config.enabled() ? byIdeas.get(new Key(userId, ideas)) : null;
+        if (entry == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        var match = index.nearest(entry.signature, config.seedThreshold(),
+            candidate -> candidate.plan != null && Objects.equals(candidate.userId, userId));
+        metrics.recordCacheLookup(SEED, System.nanoTime() - start);
+        if (match == null) {
+            metrics.cacheMiss(SEED);
+            return null;
+        }
+        metrics.cacheHit(SEED);
+        return match.value().plan;
+    }
+
+    private long[] signature(String text) {
+        return minHash.signature(Shingles.of(Shingles.tokens(text), SHINGLE_SIZE));
+    }
+
+    /**
+     * Equal analyses of different users' dumps are different entries.
+     */
+    private record Key(String userId, ExtractedIdeas ideas) {}
+
+    private static final class Entry {
+        final String userId;
+        final long[] signature;
+        final ExtractedIdeas ideas;
+        StructuredPlan plan;
+
+        Entry(String userId, long[] signature, ExtractedIdeas ideas) {
+            this.userId = userId;
+            this.signature = signature;
+            this.ideas = ideas;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.dump2plan.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns free text into sets of hashed shingles for similarity estimates.
+ * Text is lower-cased, split on anything that is not a letter or digit, and
+ * stripped of common stop words, so punctuation, casing and filler words do
+ * not count as differences.
+ */
+public final class Shingles {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is",
+        "it", "of", "on", "or", "so", "that", "the", "this", "to", "we", "with", "our", "us");
+
+    private Shingles() {
+    }
+
+    public static List<String> tokens(String text) {
+        var tokens = new ArrayList<String>();
+        var lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                var token = lower.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Strips the most common English inflections so "tests", "testing" and
+     * "tested" compare equal. Deliberately crude: only suffixes, only on
+     * words long enough to keep a recognizable stem.
+     */
+    public static String stem(String token) {
+        if (token.length() > 5 && token.endsWith("ing")) {
+            return token.substring(0, token.length() - 3);
+        }
+        if (token.length() > 4 && token.endsWith("ed")) {
+            return token.substring(0, token.length() - 2);
+        }
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    /**
+     * Hashes of every run of {@code size} consecutive tokens, or of the
+     * whole token list if it is shorter. Duplicates are removed.
+     */
+    public static long[] of(List<String> tokens, int size) {
+        if (tokens.isEmpty()) {
+            return new long[0];
+        }
+        int count = Math.max(1, tokens.size() - size + 1);
+        var hashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            long hash = 0;
+            for (int j = i; j < Math.min(tokens.size(), i + size); j++) {
+                hash = mix(hash * 31 + tokens.get(j).hashCode());
+            }
+            hashes[i] = hash;
+        }
+        return Arrays.stream(hashes).distinct().toArray();
+    }
+
+    /** SplitMix64 finalizer: spreads string hash codes over all 64 bits. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,47 @@
+package com.dump2plan.similarity;
+
+/**
+ * Disjoint sets over {@code 0..count-1} with path halving. The root of a
+ * set is always its smallest element, so clusters keep the position of
+ * their earliest member.
+ */
+final class UnionFind {
+
+    private final int[] parent;
+    private final int[] size;
+
+    UnionFind(int count) {
+        parent = new int[count];
+        size = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /** Returns whether {@code a} and {@code b} were in different sets. */
+    boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        int root = Math.min(rootA, rootB);
+        int child = Math.max(rootA, rootB);
+        parent[child] = root;
+        size[root] += size[child];
+        return true;
+    }
+
+    int size(int x) {
+        return size[find(x)];
+    }
+}
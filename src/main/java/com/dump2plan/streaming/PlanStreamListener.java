@@ -0,0 +1,93 @@
+package com.dump2plan.streaming;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+
+/**
+ * Receives the parts of a plan as {@link StreamingPlanParser} completes them.
+ * Callbacks run on the thread feeding the parser.
+ */
+public interface PlanStreamListener {
+
+    PlanStreamListener NONE = new PlanStreamListener() {
+        @Override
+        public void onMilestone(Milestone milestone) {
+        }
+
+        @Override
+        public void onTask(Task task) {
+        }
+    };
+
+    default void onStart() {
+    }
+
+    void onMilestone(Milestone milestone);
+
+    void onTask(Task task);
+
+    /**
+     * An element failed validation, or the stream stopped being valid JSON.
+     *
+     * @param path   location such as {@code tasks[3]}, or {@code $} for the stream
+     * @param reason what was wrong
+     */
+    default void onInvalid(String path, String reason) {
+    }
+
+    default void onEnd() {
+    }
+
+    /**
+     * The complete final plan, bound from the whole response, after
+     * {@link #onEnd}. Not called for intermediate structures or when the
+     * call failed.
+     */
+    default void onPlan(StructuredPlan plan) {
+    }
+
+    /**
+     * A listener that forwards every callback to this one, then to {@code other}.
+     */
+    default PlanStreamListener andThen(PlanStreamListener other) {
+        var first = this;
+        return new PlanStreamListener() {
+            @Override
+            public void onStart() {
+                first.onStart();
+                other.onStart();
+            }
+
+            @Override
+            public void onMilestone(Milestone milestone) {
+                first.onMilestone(milestone);
+                other.onMilestone(milestone);
+            }
+
+            @Override
+            public void onTask(Task task) {
+                first.onTask(task);
+                other.onTask(task);
+            }
+
+            @Override
+            public void onInvalid(String path, String reason) {
+                first.onInvalid(path, reason);
+                other.onInvalid(path, reason);
+            }
+
+            @Override
+            public void onEnd() {
+                first.onEnd();
+                other.onEnd();
+            }
+
+            @Override
+            public void onPlan(StructuredPlan plan) {
+                first.onPlan(plan);
+                other.onPlan(plan);
+            }
+        };
+    }
+}
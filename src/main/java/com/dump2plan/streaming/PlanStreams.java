@@ -0,0 +1,69 @@
+package com.dump2plan.streaming;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Routes plan fragments parsed in the agent to the views of the chat
+ * conversation the planning run belongs to. Conversations, not users, are
+ * the key: anonymous visitors all resolve to the same user. A conversation
+ * open in several views receives every fragment in each of them.
+ *
+ * <p>Each run's fragments go to a listener the subscriber creates for that
+ * run id, so a view that is showing one run can tell another run's
+ * fragments apart and ignore them instead of mixing two plans.</p>
+ */
+@Component
+public class PlanStreams {
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Registers {@code subscriber} for runs of {@code conversationId};
+     * closing the returned handle removes it again.
+     */
+    public Subscription subscribe(String conversationId, Subscriber subscriber) {
+        subscribers.computeIfAbsent(conversationId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+        return () -> subscribers.computeIfPresent(conversationId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * A listener for run {@code runId} fanning out to the current
+     * subscribers of {@code conversationId}, or
+     * {@link PlanStreamListener#NONE} if there are none.
+     */
+    public PlanStreamListener listenerFor(String conversationId, String runId) {
+        var current = conversationId == null ? null : subscribers.get(conversationId);
+        if (current == null) {
+            return PlanStreamListener.NONE;
+        }
+        return current.stream()
+            .map(subscriber -> subscriber.run(runId))
+            .reduce(PlanStreamListener::andThen)
+            .orElse(PlanStreamListener.NONE);
+    }
+
+    /**
+     * A view following a conversation's plans.
+     */
+    @FunctionalInterface
+    public interface Subscriber {
+
+        /**
+         * The listener for the fragments of run {@code runId}.
+         */
+        PlanStreamListener run(String runId);
+    }
+
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
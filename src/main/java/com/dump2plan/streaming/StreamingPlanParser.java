@@ -0,0 +1,211 @@
+package com.dump2plan.streaming;
+
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Task;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Incremental parser for a {@code StructuredPlan} (or {@code ProjectStructure})
+ * JSON response. Chunks are pushed into Jackson's non-blocking parser as they
+ * arrive; each element of the top-level {@code milestones} and {@code tasks}
+ * arrays is buffered until its closing brace, bound to {@link Milestone} or
+ * {@link Task}, validated, and handed to the listener.
+ *
+ * <p>Validation follows the record schema: ids, names and titles must be
+ * present, ids unique, {@code priority} one of the {@code Priority} values,
+ * and once the milestones array has closed a task's {@code milestoneId}
+ * must name a known milestone. Text before the opening brace (e.g. a code
+ * fence) and after the closing brace is ignored. The parser is best effort:
+ * malformed JSON is reported once through {@link PlanStreamListener#onInvalid}
+ * and further input is dropped, leaving the final parse to the caller.</p>
+ *
+ * <p>Not thread-safe; feed chunks from one thread at a time.</p>
+ */
+public class StreamingPlanParser {
+
+    private final PlanStreamListener listener;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Set<String> milestoneIds = new HashSet<>();
+    private final Set<String> taskIds = new HashSet<>();
+
+    private boolean started;
+    private boolean finished;
+    private int depth;
+    private String field;
+    private boolean milestonesClosed;
+    private TokenBuffer element;
+    private int elementDepth;
+    private int milestoneIndex;
+    private int taskIndex;
+    private int rejected;
+
+    public StreamingPlanParser(PlanStreamListener listener) {
+        this.listener = listener;
+        try {
+            this.parser = ModelJson.mapper().getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    public void feed(String chunk) {
+        if (finished || chunk.isEmpty()) {
+            return;
+        }
+        if (!started) {
+            int brace = chunk.indexOf('{');
+            if (brace < 0) {
+                return;
+            }
+            chunk = chunk.substring(brace);
+            started = true;
+            listener.onStart();
+        }
+        var bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            finished = true;
+            listener.onInvalid("$", e.getMessage());
+        }
+    }
+
+    public int milestones() {
+        return milestoneIds.size();
+    }
+
+    public int tasks() {
+        return taskIds.size();
+    }
+
+    public int rejected() {
+        return rejected;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!finished && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    elementDepth++;
+                } else if (token.isStructEnd() && --elementDepth == 0) {
+                    emit();
+                }
+                continue;
+            }
+            switch (token) {
+                case FIELD_NAME -> {
+                    if (depth == 1) {
+                        field = parser.currentName();
+                    }
+                }
+                case START_OBJECT -> {
+                    if (depth == 2 && ("milestones".equals(field) || "tasks".equals(field))) {
+                        element = new TokenBuffer(parser);
+                        element.copyCurrentEvent(parser);
+                        elementDepth = 1;
+                    } else {
+                        depth++;
+                    }
+                }
+                case START_ARRAY -> depth++;
+                case END_ARRAY -> {
+                    depth--;
+                    if (depth == 1 && "milestones".equals(field)) {
+                        milestonesClosed = true;
+                    }
+                }
+                case END_OBJECT -> {
+                    if (--depth == 0) {
+                        finished = true;
+                        listener.onEnd();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void emit() {
+        var buffered = element;
+        element = null;
+        boolean milestone = "milestones".equals(field);
+        var path = milestone ? "milestones[" + milestoneIndex++ + "]" : "tasks[" + taskIndex++ + "]";
+        try (var elementParser = buffered.asParser(ModelJson.mapper())) {
+            if (milestone) {
+                var value = ModelJson.lenientReader(Milestone.class).<Milestone>readValue(elementParser);
+                var violation = validate(value);
+                if (violation == null) {
+                    milestoneIds.add(value.id());
+                    listener.onMilestone(value);
+                } else {
+                    reject(path, violation);
+                }
+            } else {
+                var value = ModelJson.lenientReader(Task.class).<Task>readValue(elementParser);
+                var violation = validate(value);
+                if (violation == null) {
+                    taskIds.add(value.id());
+                    listener.onTask(value);
+                } else {
+                    reject(path, violation);
+                }
+            }
+        } catch (IOException e) {
+            reject(path, e.getMessage());
+        }
+    }
+
+    private String validate(Milestone milestone) {
+        if (isBlank(milestone.id())) {
+            return "missing id";
+        }
+        if (isBlank(milestone.name())) {
+            return "missing name";
+        }
+        return milestoneIds.contains(milestone.id()) ? "duplicate id " + milestone.id() : null;
+    }
+
+    private String validate(Task task) {
+        if (isBlank(task.id())) {
+            return "missing id";
+        }
+        if (isBlank(task.title())) {
+            return "missing title";
+        }
+        if (task.priority() == null) {
+            return "missing priority";
+        }
+        if (isBlank(task.milestoneId())) {
+            return "missing milestoneId";
+        }
+        if (milestonesClosed && !milestoneIds.contains(task.milestoneId())) {
+            return "unknown milestone " + task.milestoneId();
+        }
+        return taskIds.contains(task.id()) ? "duplicate id " + task.id() : null;
+    }
+
+    private void reject(String path, String reason) {
+        rejected++;
+        listener.onInvalid(path, reason);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
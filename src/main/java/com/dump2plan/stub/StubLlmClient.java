@@ -0,0 +1,138 @@
+package com.dump2plan.stub;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.StubLlmConfig;
+import com.dump2plan.agent.LlmClient;
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ConversationSummary;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.embabel.agent.api.common.ActionContext;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.chat.AssistantMessage;
+import com.embabel.chat.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Offline {@link LlmClient} for load testing. Each call sleeps for a latency
+ * drawn from a log-normal distribution fitted to the configured median and
+ * p99, fails with the configured probability, and otherwise returns a
+ * {@link SyntheticPayloads} object of the requested type. The n-th call
+ * always draws the same latency and failure outcome for a given seed.
+ * {@link #streamObject} delivers the payload's JSON in small chunks over
+ * the drawn latency.
+ */
+public class StubLlmClient implements LlmClient {
+
+    /** z-score of the 99th percentile of the standard normal distribution. */
+    private static final double Z_99 = 2.3263;
+    /** Roughly a dozen tokens per streamed chunk. */
+    private static final int CHUNK_CHARS = 48;
+
+
+    private final StubLlmConfig config;
+    private final double sigma;
+    private final AtomicLong calls = new AtomicLong();
+
+    public StubLlmClient(StubLlmConfig config) {
+        this.config = config;
+        long median = Math.max(1, config.medianLatency().toNanos());
+        long p99 = Math.max(median, config.p99Latency().toNanos());
+        this.sigma = Math.log((double) p99 / median) / Z_99;
+    }
+
+    @Override
+    public <T> T createObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type) {
+        simulateCall(actor);
+        return type.cast(payload(type, prompt));
+    }
+
+    @Override
+    public <T> T streamObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type,
+                              Consumer<String> chunks) {
+        var result = type.cast(payload(type, prompt));
+        try {
+            simulateStream(actor, ModelJson.writer(type).writeValueAsString(result), chunks);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + type.getSimpleName(), e);
+        }
+        return result;
+    }
+
+    @Override
+    public AssistantMessage respond(ActionContext context, ActorConfig actor, String systemPrompt,
+                                    List<? extends Message> messages) {
+        simulateCall(actor);
+        return new AssistantMessage(
+            "Thanks! I've read your brain dump. Before I build the plan: what is the " +
+            "target timeline, how large is the team, and are there budget constraints?");
+    }
+
+    private Object payload(Class<?> type, CacheablePrompt prompt) {
+        if (type == ExtractedIdeas.class) {
+            return SyntheticPayloads.ideas(prompt.suffix());
+        }
+        if (type == ProjectStructure.class) {
+            return SyntheticPayloads.structure(config.tasksPerPlan());
+        }
+        if (type == StructuredPlan.class) {
+            return SyntheticPayloads.plan(config.tasksPerPlan());
+        }
+        if (type == ClarifiedContext.class) {
+            return SyntheticPayloads.context();
+        }
+        if (type == ConversationSummary.class) {
+            return new ConversationSummary("The user is planning a project and has answered the " +
+                "clarifying questions; " + prompt.suffix().length() + " characters of history summarized.");
+        }
+        throw new IllegalArgumentException("Stub LLM has no payload for " + type.getName());
+    }
+
+    private void simulateCall(ActorConfig actor) {
+        var random = new SplittableRandom(config.seed() + calls.getAndIncrement());
+        long latency = (long) (config.medianLatency().toNanos() * Math.exp(sigma * random.nextGaussian()));
+        sleep(actor, latency);
+        if (random.nextDouble() < config.failureRate()) {
+            throw new StubLlmException("Simulated failure from " + actor.llm());
+        }
+    }
+
+    /**
+     * Same latency and failure draw as {@link #simulateCall}, but the first
+     * chunk arrives after a fifth of the latency and the rest of the response
+     * is spread evenly over the remainder.
+     */
+    private void simulateStream(ActorConfig actor, String response, Consumer<String> chunks) {
+        var random = new SplittableRandom(config.seed() + calls.getAndIncrement());
+        long latency = (long) (config.medianLatency().toNanos() * Math.exp(sigma * random.nextGaussian()));
+        long firstChunk = latency / 5;
+        sleep(actor, firstChunk);
+        if (random.nextDouble() < config.failureRate()) {
+            throw new StubLlmException("Simulated failure from " + actor.llm());
+        }
+        int count = Math.max(1, (response.length() + CHUNK_CHARS - 1) / CHUNK_CHARS);
+        long perChunk = (latency - firstChunk) / count;
+        for (int i = 0; i < count; i++) {
+            chunks.accept(response.substring(i * CHUNK_CHARS, Math.min(response.length(), (i + 1) * CHUNK_CHARS)));
+            sleep(actor, perChunk);
+        }
+    }
+
+    private static void sleep(ActorConfig actor, long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StubLlmException("Interrupted while simulating " + actor.llm());
+        }
+    }
+}
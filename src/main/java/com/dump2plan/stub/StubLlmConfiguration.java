@@ -0,0 +1,21 @@
+package com.dump2plan.stub;
+
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.agent.LlmClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces real model calls with {@link StubLlmClient}:
+ * {@code ./mvnw spring-boot:run -Dspring.profiles.active=stub-llm}.
+ */
+@Configuration
+@Profile("stub-llm")
+public class StubLlmConfiguration {
+
+    @Bean
+    public LlmClient stubLlmClient(Dump2PlanProperties properties) {
+        return new StubLlmClient(properties.stubLlm());
+    }
+}
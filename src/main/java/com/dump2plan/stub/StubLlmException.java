@@ -0,0 +1,11 @@
+package com.dump2plan.stub;
+
+/**
+ * Simulated provider failure raised by {@link StubLlmClient}.
+ */
+public class StubLlmException extends RuntimeException {
+
+    public StubLlmException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,109 @@
+package com.dump2plan.stub;
+
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic, realistic-looking model payloads for the stub LLM and for
+ * benchmarks. Plans have ten tasks per milestone, each task depending on up
+ * to two earlier tasks; the same size always yields the same plan.
+ */
+public final class SyntheticPayloads {
+
+    private static final String[] VERBS = {"Design", "Implement", "Test", "Document", "Review", "Deploy"};
+    private static final String[] NOUNS = {"auth service", "billing API", "search index", "mobile client",
+        "CI pipeline", "data migration", "admin dashboard", "notification worker"};
+    private static final String[] EFFORTS = {"2 hours", "1 day", "3 days", "1 week", "2 weeks"};
+
+    private SyntheticPayloads() {
+    }
+
+    public static StructuredPlan plan(int taskCount) {
+        var structure = structure(taskCount);
+        return new StructuredPlan(structure.title(), structure.summary(),
+            structure.milestones(), structure.tasks(), structure.estimatedDuration(),
+            List.of("Key engineer availability", "Third-party API rate limits", "Scope creep"),
+            List.of("Team is familiar with the stack", "Staging environment is available"));
+    }
+
+    public static ProjectStructure structure(int taskCount) {
+        var random = new Random(taskCount);
+        int milestoneCount = Math.max(1, taskCount / 10);
+        var milestones = new ArrayList<Milestone>(milestoneCount);
+        var tasks = new ArrayList<Task>(taskCount);
+        for (int m = 0; m < milestoneCount; m++) {
+            var taskIds = new ArrayList<String>();
+            int from = m * taskCount / milestoneCount;
+            int to = (m + 1) * taskCount / milestoneCount;
+            for (int t = from; t < to; t++) {
+                var id = "t" + t;
+                taskIds.add(id);
+                var dependsOn = new ArrayList<String>(2);
+                for (int d = 0; d < 2 && t > 0; d++) {
+                    var dep = "t" + random.nextInt(t);
+                    if (!dependsOn.contains(dep)) {
+                        dependsOn.add(dep);
+                    }
+                }
+                var title = VERBS[random.nextInt(VERBS.length)] + " " + NOUNS[random.nextInt(NOUNS.length)];
+                tasks.add(new Task(id, title,
+                    title + " so that the **" + NOUNS[t % NOUNS.length] + "** meets the agreed `SLA` and " +
+                        "acceptance criteria.",
+                    Priority.values()[random.nextInt(Priority.values().length)],
+                    "m" + m, dependsOn, EFFORTS[random.nextInt(EFFORTS.length)], t - from));
+            }
+            milestones.add(new Milestone("m" + m, "Phase " + (m + 1),
+                "Deliver increment " + (m + 1) + " of the platform", m, taskIds));
+        }
+        return new ProjectStructure("Synthetic plan with " + taskCount + " tasks",
+            "A generated plan used to benchmark export, rendering and prompt building.",
+            milestones, tasks, (milestoneCount * 2) + " weeks");
+    }
+
+    public static ExtractedIdeas ideas(int actionCount) {
+        var actions = new ArrayList<String>(actionCount);
+        for (int i = 0; i < actionCount; i++) {
+            actions.add(VERBS[i % VERBS.length] + " the " + NOUNS[i % NOUNS.length]);
+        }
+        return new ExtractedIdeas(List.of("platform", "billing", "search"), actions,
+            List.of("6 month deadline", "Team of 4"), "web application", "high",
+            List.of("What is the timeline?", "How large is the team?"));
+    }
+
+    /**
+     * Ideas for a free-text brain dump: each sentence or line becomes an
+     * extracted action.
+     */
+    public static ExtractedIdeas ideas(String brainDump) {
+        var actions = new ArrayList<String>();
+        for (var sentence : brainDump.split("[.\\n!?]+")) {
+            var action = sentence.strip();
+            if (action.length() > 3) {
+                actions.add(action);
+            }
+        }
+        var topics = actions.stream()
+            .map(a -> a.split("\\s+")[0].toLowerCase(Locale.ROOT))
+            .distinct()
+            .limit(5)
+            .toList();
+        return new ExtractedIdeas(topics, actions, List.of("Limited team capacity"),
+            "software project", actions.size() > 20 ? "high" : "medium",
+            List.of("What is the target timeline?", "How large is the team?",
+                "Are there budget constraints?"));
+    }
+
+    public static ClarifiedContext context() {
+        return new ClarifiedContext("6 months", "4 developers", "$200k", "Must keep the legacy system running");
+    }
+}
@@ -1,39 +1,93 @@
 package com.dump2plan.user;
 
 import com.embabel.agent.api.identity.UserService;
-import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.security.Principal;
 
-@Service
+/**
+ * Resolves {@link Dump2PlanUser}s from a pluggable {@link UserStore} through a
+ * bounded hot cache. Id and username lookups are O(1) and allocation-free on
+ * a cache hit. Registered as a bean by {@link UserStoreConfiguration}.
+ */
 public class Dump2PlanUserService implements UserService<Dump2PlanUser> {
 
     private static final Dump2PlanUser DEFAULT_USER =
         new Dump2PlanUser("User", "user", "USER");
 
-    private final Map<String, Dump2PlanUser> users = new ConcurrentHashMap<>();
+    static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final UserStore store;
+    private final UserCache byId;
+    private final UserCache byUsername;
 
     public Dump2PlanUserService() {
-        users.put(DEFAULT_USER.getUsername(), DEFAULT_USER);
+        this(new InMemoryUserStore(), DEFAULT_CACHE_SIZE);
+    }
+
+    public Dump2PlanUserService(UserStore store, int cacheSize) {
+        this.store = store;
+        this.byId = new UserCache(cacheSize);
+        this.byUsername = new UserCache(cacheSize);
+        if (store.findByUsername(DEFAULT_USER.getUsername()) == null) {
+            store.save(DEFAULT_USER);
+        }
     }
 
     @Override
     public Dump2PlanUser findById(String id) {
-        return users.get(id);
+        var user = byId.get(id);
+        if (user == null) {
+            user = store.findById(id);
+            if (user != null) {
+                byId.put(id, user);
+            }
+        }
+        return user;
     }
 
     @Override
     public Dump2PlanUser findByUsername(String username) {
-        return users.get(username);
+        var user = byUsername.get(username);
+        if (user == null) {
+            user = store.findByUsername(username);
+            if (user != null) {
+                byUsername.put(username, user);
+            }
+        }
+        return user;
     }
 
     @Override
     public Dump2PlanUser findByEmail(String email) {
-        return users.values().stream()
-            .filter(u -> email.equals(u.getEmail()))
-            .findFirst()
-            .orElse(null);
+        return store.findByEmail(UserStore.normalizeEmail(email));
+    }
+
+    /**
+     * Returns the user for an authenticated principal, registering a new
+     * {@code USER} on first sight. Falls back to the default user when the
+     * request is anonymous.
+     */
+    public Dump2PlanUser resolve(Principal principal) {
+        if (principal == null || principal.getName() == null || principal.getName().isBlank()) {
+            return DEFAULT_USER;
+        }
+        var username = principal.getName();
+        var user = findByUsername(username);
+        if (user == null) {
+            user = register(new Dump2PlanUser(username, username, "USER"));
+        }
+        return user;
+    }
+
+    public synchronized Dump2PlanUser register(Dump2PlanUser user) {
+        var existing = store.findByUsername(user.getUsername());
+        if (existing != null) {
+            return existing;
+        }
+        store.save(user);
+        byId.remove(user.getId());
+        byUsername.remove(user.getUsername());
+        return user;
     }
 
     public Dump2PlanUser getDefaultUser() {
@@ -0,0 +1,56 @@
+package com.dump2plan.user;
+
+import com.dump2plan.json.ModelJson;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * {@link UserStore} persisted as a JSON array in a local file. The file is
+ * loaded into the in-memory indexes on startup and rewritten atomically
+ * (temp file + move) on every save, so lookups never touch the disk.
+ */
+public class FileUserStore extends InMemoryUserStore {
+
+    private static final TypeReference<List<Dump2PlanUser>> USER_LIST = new TypeReference<>() {};
+    private static final ObjectReader READER = ModelJson.mapper().readerFor(USER_LIST);
+    private static final ObjectWriter WRITER = ModelJson.mapper().writerFor(USER_LIST).withDefaultPrettyPrinter();
+
+    private final Path file;
+
+    public FileUserStore(Path file) {
+        this.file = file;
+        if (Files.exists(file)) {
+            try {
+                for (var user : READER.<List<Dump2PlanUser>>readValue(file.toFile())) {
+                    super.save(user);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load users from " + file, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void save(Dump2PlanUser user) {
+        super.save(user);
+        try {
+            var parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            WRITER.writeValue(tmp.toFile(), findAll());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to persist users to " + file, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.dump2plan.user;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default {@link UserStore}: three hash indexes (id, username, email)
+ * over the same user records.
+ */
+public class InMemoryUserStore implements UserStore {
+
+    private final Map<String, Dump2PlanUser> byId = new ConcurrentHashMap<>();
+    private final Map<String, Dump2PlanUser> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, Dump2PlanUser> byEmail = new ConcurrentHashMap<>();
+
+    @Override
+    public Dump2PlanUser findById(String id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    @Override
+    public Dump2PlanUser findByUsername(String username) {
+        return username == null ? null : byUsername.get(username);
+    }
+
+    @Override
+    public Dump2PlanUser findByEmail(String normalizedEmail) {
+        return normalizedEmail == null ? null : byEmail.get(normalizedEmail);
+    }
+
+    @Override
+    public synchronized void save(Dump2PlanUser user) {
+        var previous = byId.put(user.getId(), user);
+        if (previous != null) {
+            byUsername.remove(previous.getUsername());
+            if (previous.getEmail() != null) {
+                byEmail.remove(UserStore.normalizeEmail(previous.getEmail()));
+            }
+        }
+        byUsername.put(user.getUsername(), user);
+        if (user.getEmail() != null) {
+            byEmail.put(UserStore.normalizeEmail(user.getEmail()), user);
+        }
+    }
+
+    @Override
+    public Collection<Dump2PlanUser> findAll() {
+        return List.copyOf(byId.values());
+    }
+}
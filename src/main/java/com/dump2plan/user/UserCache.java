@@ -0,0 +1,38 @@
+package com.dump2plan.user;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, access-ordered LRU cache of users in front of a {@link UserStore}.
+ * A hit only relinks an existing entry, so lookups do not allocate.
+ */
+class UserCache {
+
+    private final Map<String, Dump2PlanUser> entries;
+
+    UserCache(int maxSize) {
+        this.entries = new LinkedHashMap<>(Math.max(16, maxSize * 4 / 3 + 1), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Dump2PlanUser> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    synchronized Dump2PlanUser get(String key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(String key, Dump2PlanUser user) {
+        entries.put(key, user);
+    }
+
+    synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
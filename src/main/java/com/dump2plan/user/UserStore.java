@@ -0,0 +1,33 @@
+package com.dump2plan.user;
+
+import java.util.Collection;
+
+/**
+ * Backing store for {@link Dump2PlanUser}s. Implementations must keep
+ * id, username and email lookups O(1); {@link Dump2PlanUserService}
+ * puts a bounded hot cache in front of whichever store is configured.
+ */
+public interface UserStore {
+
+    Dump2PlanUser findById(String id);
+
+    Dump2PlanUser findByUsername(String username);
+
+    /**
+     * @param normalizedEmail email as returned by {@link #normalizeEmail(String)}
+     */
+    Dump2PlanUser findByEmail(String normalizedEmail);
+
+    void save(Dump2PlanUser user);
+
+    Collection<Dump2PlanUser> findAll();
+
+    /**
+     * Trims and lower-cases an email so it can be used as an index key.
+     * {@link String#toLowerCase} returns the same instance when nothing
+     * changes, so already-normalized input does not allocate.
+     */
+    static String normalizeEmail(String email) {
+        return email == null ? null : email.strip().toLowerCase(java.util.Locale.ROOT);
+    }
+}
@@ -0,0 +1,27 @@
+package com.dump2plan.user;
+
+import com.dump2plan.Dump2PlanProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class UserStoreConfiguration {
+
+    @Bean
+    public UserStore userStore(Dump2PlanProperties properties) {
+        var users = properties.users();
+        return switch (users.store()) {
+            case "memory" -> new InMemoryUserStore();
+            case "file" -> new FileUserStore(Path.of(users.file()));
+            default -> throw new IllegalArgumentException(
+                "Unknown dump2plan.users.store: " + users.store());
+        };
+    }
+
+    @Bean
+    public Dump2PlanUserService dump2PlanUserService(UserStore userStore, Dump2PlanProperties properties) {
+        return new Dump2PlanUserService(userStore, properties.users().cacheSize());
+    }
+}
@@ -1,5 +1,18 @@
 package com.dump2plan.vaadin;
 
+import com.dump2plan.Dump2PlanProperties;
+import com.dump2plan.observability.PlanTracing;
+import com.dump2plan.observability.TokenEstimator;
+import com.dump2plan.scheduling.FairShareScheduler;
+import com.dump2plan.scheduling.PlanningLane;
+import com.dump2plan.scheduling.QuotaExceededException;
+import com.dump2plan.session.ChatSessions;
+import com.dump2plan.session.ChatTurn;
+import com.dump2plan.session.ChatTurn.Role;
+import com.dump2plan.session.ConversationUser;
+import com.dump2plan.session.StoredSession;
+import com.dump2plan.streaming.PlanStreams;
+import com.dump2plan.user.Dump2PlanUser;
 import com.dump2plan.user.Dump2PlanUserService;
 import com.embabel.chat.AssistantMessage;
 import com.embabel.chat.Chatbot;
@@ -7,6 +20,7 @@ import com.embabel.chat.ChatSession;
 import com.embabel.chat.Message;
 import com.embabel.chat.UserMessage;
 import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.Key;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
@@ -18,13 +32,16 @@ import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.textfield.TextArea;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
 import com.vaadin.flow.server.VaadinSession;
+import jakarta.servlet.http.Cookie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 @Route("")
 @PageTitle("dump2plan")
@@ -32,20 +49,46 @@ public class ChatView extends VerticalLayout {
 
     private static final Logger log = LoggerFactory.getLogger(ChatView.class);
     private static final int RESPONSE_TIMEOUT_SECONDS = 120;
-    private static final String SESSION_DATA_KEY = "dump2plan.sessionData";
+    private static final String CONVERSATION_KEY = "dump2plan.conversationId";
+    private static final String SESSION_DATA_KEY = "dump2plan.sessionData.";
+    private static final String CONVERSATION_COOKIE = "dump2plan-conversation";
 
     private final Chatbot chatbot;
     private final Dump2PlanUserService userService;
+    private final FairShareScheduler scheduler;
+    private final PlanTracing tracing;
+    private final PlanStreams planStreams;
+    private final ChatSessions sessions;
+    private final Dump2PlanProperties properties;
     private final VerticalLayout messagesLayout;
     private final Scroller messagesScroller;
     private final TextArea inputArea;
     private final Button sendButton;
+    private PlanStreams.Subscription planSubscription;
+    private String conversationId;
+    private transient StoredSession storedSession;
+    private PlanRenderer restoredPlan;
 
-    record SessionData(ChatSession chatSession, BlockingQueue<Message> responseQueue) {}
+    /**
+     * Node-local half of a conversation: the Embabel session and its output
+     * channel. Kept in the
+     * {@link VaadinSession} under the conversation id, so a refresh finds
+     * the same session, including an agent process waiting for answers.
+     * Never stored; rebuilt from the {@link StoredSession} when the
+     * conversation continues on a node that does not have it.
+     */
+    record SessionData(ChatSession chatSession, VaadinOutputChannel outputChannel, Dump2PlanUser user) {}
 
-    public ChatView(Chatbot chatbot, Dump2PlanUserService userService) {
+    public ChatView(Chatbot chatbot, Dump2PlanUserService userService,
+                    FairShareScheduler scheduler, PlanTracing tracing, PlanStreams planStreams,
+                    ChatSessions sessions, Dump2PlanProperties properties) {
         this.chatbot = chatbot;
         this.userService = userService;
+        this.scheduler = scheduler;
+        this.tracing = tracing;
+        this.planStreams = planStreams;
+        this.sessions = sessions;
+        this.properties = properties;
 
         setSizeFull();
         setPadding(false);
@@ -53,8 +96,12 @@ public class ChatView extends VerticalLayout {
 
         var title = new H3("dump2plan");
         title.addClassName("chat-title");
-        var header = new HorizontalLayout(title);
+        var newConversation = new Button("New conversation", e -> startNewConversation());
+        newConversation.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
+        var header = new HorizontalLayout(title, newConversation);
         header.setWidthFull();
+        header.setAlignItems(Alignment.CENTER);
+        header.expand(title);
         header.setPadding(true);
         header.addClassName("chat-header");
 
@@ -94,6 +141,22 @@ public class ChatView extends VerticalLayout {
     @Override
     protected void onAttach(AttachEvent attachEvent) {
         super.onAttach(attachEvent);
+        openConversation(attachEvent.getUI());
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        closeConversation();
+        super.onDetach(detachEvent);
+    }
+
+    private void openConversation(UI ui) {
+        conversationId = currentConversationId();
+        storedSession = sessions.open(conversationId);
+        var sessionData = sessionData();
+        if (sessionData != null) {
+            sessionData.outputChannel().attach(ui, messagesLayout, () -> setInputEnabled(true));
+        }
         restorePreviousMessages();
         if (messagesLayout.getComponentCount() == 0) {
             messagesLayout.add(ChatMessageBubble.assistant(
@@ -102,6 +165,34 @@ public class ChatView extends VerticalLayout {
                 "clarifying questions before generating the plan."
             ));
         }
+        planSubscription = planStreams.subscribe(conversationId,
+            new ProgressivePlanListener(ui, messagesLayout, restoredPlan, storedSession.plan()));
+    }
+
+    private void closeConversation() {
+        if (planSubscription != null) {
+            planSubscription.close();
+            planSubscription = null;
+        }
+        var sessionData = sessionData();
+        if (sessionData != null) {
+            sessionData.outputChannel().detach();
+        }
+    }
+
+    /**
+     * Deletes the current conversation everywhere and starts an empty one
+     * under a new id.
+     */
+    private void startNewConversation() {
+        closeConversation();
+        VaadinSession.getCurrent().setAttribute(SESSION_DATA_KEY + conversationId, null);
+        sessions.clear(conversationId);
+        rememberConversation(ChatSessions.newSessionId());
+        messagesLayout.removeAll();
+        restoredPlan = null;
+        openConversation(UI.getCurrent());
+        setInputEnabled(true);
     }
 
     private void sendMessage() {
@@ -117,40 +208,37 @@ public class ChatView extends VerticalLayout {
 
         var ui = UI.getCurrent();
         var sessionData = getOrCreateSessionData();
+        sessions.recordTurn(conversationId, Role.USER, text);
 
-        new Thread(() -> {
-            try {
-                sessionData.chatSession().onUserMessage(new UserMessage(text));
-
-                var response = sessionData.responseQueue()
-                    .poll(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-
-                ui.access(() -> {
-                    if (response != null) {
-                        messagesLayout.add(ChatMessageBubble.assistant(response.getContent()));
-                    } else {
-                        messagesLayout.add(ChatMessageBubble.error(
-                            "Response timed out. Please try again."));
-                    }
-                    setInputEnabled(true);
-                    scrollToBottom();
-                });
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                ui.access(() -> {
-                    messagesLayout.add(ChatMessageBubble.error(
-                        "Request was interrupted. Please try again."));
-                    setInputEnabled(true);
+        // The job ends when the agent has taken the message; the reply comes
+        // back through the output channel, so no worker waits for it. A job
+        // that fails, or never runs because the scheduler shut down, fails
+        // the response.
+        var response = sessionData.outputChannel().nextResponse();
+        try {
+            scheduler.submit(sessionData.user().getId(), PlanningLane.INTERACTIVE, TokenEstimator.estimate(text),
+                    () -> sessionData.chatSession().onUserMessage(new UserMessage(text)))
+                .exceptionally(failure -> {
+                    response.completeExceptionally(failure);
+                    return null;
                 });
-            } catch (Exception e) {
-                log.error("Error processing message", e);
-                ui.access(() -> {
-                    messagesLayout.add(ChatMessageBubble.error(
-                        "An error occurred: " + e.getMessage()));
-                    setInputEnabled(true);
-                });
-            }
-        }).start();
+        } catch (QuotaExceededException e) {
+            messagesLayout.add(ChatMessageBubble.error(
+                "You've reached your planning quota. Please try again in "
+                + e.getRetryAfter().toSeconds() + " seconds."));
+            setInputEnabled(true);
+            return;
+        }
+        response.orTimeout(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS).exceptionally(failure -> {
+            ui.access(() -> {
+                messagesLayout.add(ChatMessageBubble.error(failure instanceof TimeoutException
+                    ? "Response timed out. Please try again."
+                    : "An error occurred: " + failure.getMessage()));
+                setInputEnabled(true);
+                scrollToBottom();
+            });
+            return null;
+        });
     }
 
     private void setInputEnabled(boolean enabled) {
@@ -168,38 +256,100 @@ public class ChatView extends VerticalLayout {
     }
 
     private void restorePreviousMessages() {
-        var sessionData = (SessionData) VaadinSession.getCurrent()
-            .getAttribute(SESSION_DATA_KEY);
-        if (sessionData == null) {
-            return;
+        for (var turn : storedSession.turns()) {
+            messagesLayout.add(turn.role() == ChatTurn.Role.USER
+                ? ChatMessageBubble.user(turn.content())
+                : ChatMessageBubble.assistant(turn.content()));
         }
-
-        var conversation = sessionData.chatSession().getConversation();
-        if (conversation == null) {
-            return;
+        var plan = storedSession.plan();
+        restoredPlan = plan == null ? null : new PlanRenderer(plan);
+        if (restoredPlan != null) {
+            messagesLayout.add(restoredPlan);
         }
+    }
 
-        for (var message : conversation.getMessages()) {
-            if (message instanceof UserMessage userMsg) {
-                messagesLayout.add(ChatMessageBubble.user(userMsg.getContent()));
-            } else if (message instanceof AssistantMessage assistantMsg) {
-                messagesLayout.add(ChatMessageBubble.assistant(assistantMsg.getContent()));
-            }
-        }
+    private SessionData sessionData() {
+        var vaadinSession = VaadinSession.getCurrent();
+        return vaadinSession == null ? null : (SessionData) vaadinSession.getAttribute(SESSION_DATA_KEY + conversationId);
     }
 
+    /**
+     * Returns the conversation's Embabel session on this node, creating it
+     * on first use and replaying the stored transcript into its
+     * conversation, so the model sees the same history whichever node
+     * served the earlier turns.
+     */
     private SessionData getOrCreateSessionData() {
-        var sessionData = (SessionData) VaadinSession.getCurrent()
-            .getAttribute(SESSION_DATA_KEY);
+        var sessionData = sessionData();
         if (sessionData == null) {
-            var responseQueue = new ArrayBlockingQueue<Message>(10);
-            var outputChannel = new VaadinOutputChannel(
-                UI.getCurrent(), messagesLayout, responseQueue);
-            var currentUser = userService.getDefaultUser();
-            var chatSession = chatbot.createSession(currentUser, outputChannel, null, null);
-            sessionData = new SessionData(chatSession, responseQueue);
-            VaadinSession.getCurrent().setAttribute(SESSION_DATA_KEY, sessionData);
+            var outputChannel = new VaadinOutputChannel(tracing, recordReply(sessions, conversationId));
+            outputChannel.attach(UI.getCurrent(), messagesLayout, () -> setInputEnabled(true));
+            var currentUser = currentUser();
+            var chatSession = chatbot.createSession(
+                new ConversationUser(currentUser, conversationId), outputChannel, null, null);
+            var conversation = chatSession.getConversation();
+            if (conversation != null) {
+                for (var turn : storedSession.turns()) {
+                    conversation.addMessage(turn.role() == ChatTurn.Role.USER
+                        ? new UserMessage(turn.content())
+                        : new AssistantMessage(turn.content()));
+                }
+            }
+            sessionData = new SessionData(chatSession, outputChannel, currentUser);
+            VaadinSession.getCurrent().setAttribute(SESSION_DATA_KEY + conversationId, sessionData);
         }
         return sessionData;
     }
+
+    /**
+     * Stores each reply of conversation {@code sessionId}. Static so that
+     * the channel, which outlives this view, does not hold on to it.
+     */
+    private static Consumer<Message> recordReply(ChatSessions sessions, String sessionId) {
+        return reply -> sessions.recordTurn(sessionId, Role.ASSISTANT, reply.getContent());
+    }
+
+    /**
+     * The browser's conversation: the one this servlet session is in, else
+     * the one its cookie names (the servlet session may have been on another
+     * node), else a new one.
+     */
+    private String currentConversationId() {
+        var id = (String) VaadinSession.getCurrent().getAttribute(CONVERSATION_KEY);
+        if (id != null) {
+            return id;
+        }
+        var request = VaadinRequest.getCurrent();
+        var cookies = request == null ? null : request.getCookies();
+        if (cookies != null) {
+            for (var cookie : cookies) {
+                if (CONVERSATION_COOKIE.equals(cookie.getName()) && ChatSessions.isSessionId(cookie.getValue())) {
+                    VaadinSession.getCurrent().setAttribute(CONVERSATION_KEY, cookie.getValue());
+                    return cookie.getValue();
+                }
+            }
+        }
+        return rememberConversation(ChatSessions.newSessionId());
+    }
+
+    private String rememberConversation(String id) {
+        VaadinSession.getCurrent().setAttribute(CONVERSATION_KEY, id);
+        var request = VaadinRequest.getCurrent();
+        var response = VaadinResponse.getCurrent();
+        if (request != null && response != null) {
+            var cookie = new Cookie(CONVERSATION_COOKIE, id);
+            cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+            cookie.setMaxAge((int) Math.min(Integer.MAX_VALUE, properties.sessions().ttl().toSeconds()));
+            cookie.setHttpOnly(true);
+            cookie.setSecure(request.isSecure());
+            cookie.setAttribute("SameSite", "Lax");
+            response.addCookie(cookie);
+        }
+        return id;
+    }
+
+    private Dump2PlanUser currentUser() {
+        var request = VaadinRequest.getCurrent();
+        return userService.resolve(request != null ? request.getUserPrincipal() : null);
+    }
 }
@@ -1,8 +1,23 @@
 package com.dump2plan.vaadin;
 
+import com.dump2plan.diff.PlanChange.Field;
+import com.dump2plan.diff.PlanChange.HeaderModified;
+import com.dump2plan.diff.PlanChange.MilestoneAdded;
+import com.dump2plan.diff.PlanChange.MilestoneModified;
+import com.dump2plan.diff.PlanChange.MilestoneMoved;
+import com.dump2plan.diff.PlanChange.MilestoneRemoved;
+import com.dump2plan.diff.PlanChange.TaskAdded;
+import com.dump2plan.diff.PlanChange.TaskModified;
+import com.dump2plan.diff.PlanChange.TaskMoved;
+import com.dump2plan.diff.PlanChange.TaskRemoved;
+import com.dump2plan.diff.PlanDiff;
+import com.dump2plan.diff.PlanDiffer;
 import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
 import com.dump2plan.model.StructuredPlan;
 import com.dump2plan.model.Task;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.HasComponents;
 import com.vaadin.flow.component.details.Details;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.H3;
@@ -10,76 +25,428 @@ import com.vaadin.flow.component.html.Paragraph;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
+/**
+ * Renders a plan either all at once from a {@link StructuredPlan}, or
+ * progressively: start empty and call {@link #addMilestone} and
+ * {@link #addTask} as parts arrive. Milestones are kept in
+ * {@code orderIndex} order, and tasks in {@code orderIndex} order within
+ * their milestone; a task arriving before its milestone is held back until
+ * the milestone is added.
+ *
+ * <p>A rendered plan is updated with {@link #apply}, which touches only the
+ * components a {@link PlanDiff} names: a changed priority rewrites one
+ * badge, a moved task detaches and re-attaches one row, and renumbered
+ * positions that leave the order intact change nothing on the client.</p>
+ */
 public class PlanRenderer extends VerticalLayout {
 
-    public PlanRenderer(StructuredPlan plan) {
+    private final Map<String, MilestoneSection> sections = new HashMap<>();
+    private final List<MilestoneSection> sectionOrder = new ArrayList<>();
+    private final Map<String, TaskRow> rows = new HashMap<>();
+    private final Map<String, List<Task>> pendingTasks = new HashMap<>();
+
+    private H3 title;
+    private Paragraph summary;
+    private Span duration;
+    private Details risks;
+    private Details assumptions;
+
+    public PlanRenderer() {
         setPadding(false);
         setSpacing(true);
         addClassName("plan-renderer");
+    }
 
-        add(new H3(plan.title()));
-        add(new Paragraph(plan.summary()));
-        add(new Span("Estimated duration: " + plan.estimatedDuration()));
-
+    public PlanRenderer(StructuredPlan plan) {
+        this();
+        setHeader(plan);
         for (Milestone milestone : plan.milestones()) {
-            List<Task> milestoneTasks = plan.tasks().stream()
-                .filter(t -> milestone.id().equals(t.milestoneId()))
-                .sorted((a, b) -> Integer.compare(a.orderIndex(), b.orderIndex()))
-                .toList();
+            addMilestone(milestone);
+        }
+        for (Task task : plan.tasks()) {
+            addTask(task);
+        }
+    }
+
+    public void addMilestone(Milestone milestone) {
+        var tasksLayout = new VerticalLayout();
+        tasksLayout.setPadding(false);
+        tasksLayout.setSpacing(false);
+
+        var details = new Details(milestone.name() + " (0 tasks)", tasksLayout);
+        details.setOpened(true);
+        details.addClassName("plan-milestone");
 
-            var tasksLayout = new VerticalLayout();
-            tasksLayout.setPadding(false);
-            tasksLayout.setSpacing(false);
+        var section = new MilestoneSection(details, tasksLayout);
+        section.milestone = milestone;
+        int index = upperBound(sectionOrder, milestone.orderIndex(), s -> s.milestone.orderIndex());
+        addComponentAtIndex(headerSize() + index, details);
+        sectionOrder.add(index, section);
 
-            for (Task task : milestoneTasks) {
-                var taskDiv = new Div();
-                taskDiv.addClassName("plan-task");
+        sections.put(milestone.id(), section);
+        var pending = pendingTasks.remove(milestone.id());
+        if (pending != null) {
+            pending.forEach(this::addTask);
+        }
+    }
 
-                var priorityBadge = new Span("[" + task.priority() + "]");
-                priorityBadge.addClassName("priority-badge");
-                priorityBadge.addClassName("priority-" + task.priority().name().toLowerCase());
+    public void addTask(Task task) {
+        var section = sections.get(task.milestoneId());
+        if (section == null) {
+            pendingTasks.computeIfAbsent(task.milestoneId(), id -> new ArrayList<>()).add(task);
+            return;
+        }
 
-                var taskTitle = new Span(task.title());
-                taskTitle.addClassName("plan-task-title");
+        var row = new TaskRow(new Div(), new Span(task.title()), new Span("[" + task.priority() + "]"));
+        row.div.addClassName("plan-task");
+        row.title.addClassName("plan-task-title");
+        row.badge.addClassName("priority-badge");
+        row.badge.addClassName(priorityClass(task.priority()));
+        row.div.add(row.title, row.badge);
+        row.task = task;
+        setEffort(row, task.estimatedEffort());
 
-                taskDiv.add(taskTitle, priorityBadge);
+        row.section = section;
+        int index = upperBound(section.rows, task.orderIndex(), r -> r.task.orderIndex());
+        section.rows.add(index, row);
+        section.tasks.addComponentAtIndex(index, row.div);
+        rows.put(task.id(), row);
+        updateSummary(section);
+    }
 
-                if (task.estimatedEffort() != null) {
-                    var effort = new Span(" - " + task.estimatedEffort());
-                    effort.addClassName("plan-task-effort");
-                    taskDiv.add(effort);
+    /**
+     * Brings the rendered plan from {@code diff.before()} to
+     * {@code diff.after()}. Positions are settled once at the end, moving
+     * only the rows (and milestones) that are off the longest run already
+     * in the right relative order.
+     */
+    public void apply(PlanDiff diff) {
+        var dirty = new LinkedHashSet<MilestoneSection>();
+        boolean milestonesDirty = false;
+        for (var change : diff.changes()) {
+            switch (change) {
+                case HeaderModified header -> setHeader(header.after());
+                case MilestoneAdded added -> {
+                    addMilestone(added.milestone());
+                    milestonesDirty = true;
                 }
-
-                tasksLayout.add(taskDiv);
+                case MilestoneRemoved removed -> removeMilestone(removed.milestone().id());
+                case MilestoneMoved moved -> {
+                    updateMilestone(moved.before().id(), moved.after());
+                    milestonesDirty = true;
+                }
+                case MilestoneModified modified -> {
+                    updateMilestone(modified.before().id(), modified.after());
+                    milestonesDirty |= modified.fields().contains(Field.ORDER);
+                }
+                case TaskAdded added -> {
+                    addTask(added.task());
+                    var section = sections.get(added.task().milestoneId());
+                    if (section != null) {
+                        dirty.add(section);
+                    }
+                }
+                case TaskRemoved removed -> removeTask(removed.task());
+                case TaskMoved moved -> moveTask(moved.before().id(), moved.after(), dirty);
+                case TaskModified modified -> updateTask(modified.before().id(), modified.after(), dirty);
+            }
+        }
+        if (milestonesDirty) {
+            var position = positions(diff.after().milestones(), Milestone::id);
+            settle(this, sectionOrder, Comparator.<MilestoneSection>comparingInt(s -> s.milestone.orderIndex())
+                .thenComparingInt(s -> position.getOrDefault(s.milestone.id(), Integer.MAX_VALUE)),
+                s -> s.details, headerSize());
+        }
+        if (!dirty.isEmpty()) {
+            var position = positions(diff.after().tasks(), Task::id);
+            for (var section : dirty) {
+                settle(section.tasks, section.rows, Comparator.<TaskRow>comparingInt(r -> r.task.orderIndex())
+                    .thenComparingInt(r -> position.getOrDefault(r.task.id(), Integer.MAX_VALUE)),
+                    r -> r.div, 0);
             }
+        }
+    }
+
+    /**
+     * Renders {@code plan} in place of what is shown now and returns the
+     * changes that were applied, given that this renderer currently shows
+     * {@code shown} (or nothing, if {@code null}).
+     */
+    public PlanDiff update(StructuredPlan shown, StructuredPlan plan) {
+        var diff = PlanDiffer.diff(shown, plan);
+        apply(diff);
+        return diff;
+    }
 
-            var details = new Details(
-                milestone.name() + " (" + milestoneTasks.size() + " tasks)",
-                tasksLayout
-            );
-            details.setOpened(true);
-            details.addClassName("plan-milestone");
+    private void setHeader(StructuredPlan plan) {
+        if (title == null) {
+            title = new H3(plan.title());
+            summary = new Paragraph(plan.summary());
+            duration = new Span();
+            addComponentAtIndex(0, title);
+            addComponentAtIndex(1, summary);
+            addComponentAtIndex(2, duration);
+        } else {
+            setText(title, plan.title());
+            setText(summary, plan.summary());
+        }
+        setText(duration, "Estimated duration: " + plan.estimatedDuration());
+        risks = setNotes(risks, "Risks", plan.risks());
+        assumptions = setNotes(assumptions, "Assumptions", plan.assumptions());
+        if (risks != null && assumptions != null && indexOf(risks) > indexOf(assumptions)) {
+            remove(risks);
+            addComponentAtIndex(indexOf(assumptions), risks);
+        }
+    }
+
+    /**
+     * Shows {@code items} in {@code details} (created at the end if there
+     * is none yet), or removes it when there are no items.
+     */
+    private Details setNotes(Details details, String label, List<String> items) {
+        if (items == null || items.isEmpty()) {
+            if (details != null) {
+                remove(details);
+            }
+            return null;
+        }
+        var layout = new VerticalLayout();
+        layout.setPadding(false);
+        for (String item : items) {
+            layout.add(new Span("- " + item));
+        }
+        if (details == null) {
+            details = new Details(label, layout);
             add(details);
+        } else {
+            details.removeAll();
+            details.add(layout);
+        }
+        return details;
+    }
+
+    private void removeMilestone(String id) {
+        var section = sections.remove(id);
+        pendingTasks.remove(id);
+        if (section == null) {
+            return;
+        }
+        section.rows.forEach(row -> rows.remove(row.task.id()));
+        sectionOrder.remove(section);
+        remove(section.details);
+    }
+
+    private void updateMilestone(String id, Milestone milestone) {
+        var section = sections.get(id);
+        if (section == null) {
+            return;
+        }
+        if (!id.equals(milestone.id())) {
+            sections.remove(id);
+            sections.put(milestone.id(), section);
+        }
+        var renamed = !Objects.equals(section.milestone.name(), milestone.name());
+        section.milestone = milestone;
+        if (renamed) {
+            updateSummary(section);
+        }
+    }
+
+    private void removeTask(Task task) {
+        var row = rows.remove(task.id());
+        if (row == null) {
+            var pending = pendingTasks.get(task.milestoneId());
+            if (pending != null) {
+                pending.removeIf(t -> Objects.equals(t.id(), task.id()));
+            }
+            return;
+        }
+        row.section.rows.remove(row);
+        row.section.tasks.remove(row.div);
+        updateSummary(row.section);
+    }
+
+    private void moveTask(String id, Task task, Set<MilestoneSection> dirty) {
+        var row = rows.get(id);
+        var target = sections.get(task.milestoneId());
+        if (row == null || target == null) {
+            removeTask(row == null ? task : row.task);
+            addTask(task);
+            return;
+        }
+        updateTask(id, task, dirty);
+        if (row.section != target) {
+            var source = row.section;
+            source.rows.remove(row);
+            source.tasks.remove(row.div);
+            updateSummary(source);
+            row.section = target;
+            target.rows.add(row);
+            target.tasks.add(row.div);
+            updateSummary(target);
+        }
+        dirty.add(target);
+    }
+
+    private void updateTask(String id, Task task, Set<MilestoneSection> dirty) {
+        var row = rows.get(id);
+        if (row == null) {
+            return;
+        }
+        if (!id.equals(task.id())) {
+            rows.remove(id);
+            rows.put(task.id(), row);
+        }
+        var previous = row.task;
+        row.task = task;
+        if (!Objects.equals(previous.title(), task.title())) {
+            row.title.setText(task.title());
+        }
+        if (previous.priority() != task.priority()) {
+            row.badge.setText("[" + task.priority() + "]");
+            row.badge.removeClassName(priorityClass(previous.priority()));
+            row.badge.addClassName(priorityClass(task.priority()));
+        }
+        if (!Objects.equals(previous.estimatedEffort(), task.estimatedEffort())) {
+            setEffort(row, task.estimatedEffort());
+        }
+        if (previous.orderIndex() != task.orderIndex()) {
+            dirty.add(row.section);
+        }
+    }
+
+    private static void setEffort(TaskRow row, String effort) {
+        if (effort == null) {
+            if (row.effort != null) {
+                row.div.remove(row.effort);
+                row.effort = null;
+            }
+        } else if (row.effort == null) {
+            row.effort = new Span(" - " + effort);
+            row.effort.addClassName("plan-task-effort");
+            row.div.add(row.effort);
+        } else {
+            row.effort.setText(" - " + effort);
+        }
+    }
+
+    private static void updateSummary(MilestoneSection section) {
+        section.details.setSummaryText(section.milestone.name() + " (" + section.rows.size() + " tasks)");
+    }
+
+    private static String priorityClass(Priority priority) {
+        return "priority-" + priority.name().toLowerCase();
+    }
+
+    private static void setText(Component component, String text) {
+        if (!Objects.equals(component.getElement().getText(), text)) {
+            component.getElement().setText(text);
         }
+    }
 
-        if (plan.risks() != null && !plan.risks().isEmpty()) {
-            var risksLayout = new VerticalLayout();
-            risksLayout.setPadding(false);
-            for (String risk : plan.risks()) {
-                risksLayout.add(new Span("- " + risk));
+    private int headerSize() {
+        return title == null ? 0 : 3;
+    }
+
+    /**
+     * Index of each element in the plan's list; ties in {@code orderIndex}
+     * are shown in list order, as a complete render adds them.
+     */
+    private static <T> Map<String, Integer> positions(List<T> items, Function<T, String> id) {
+        var positions = new HashMap<String, Integer>();
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                positions.putIfAbsent(id.apply(items.get(i)), i);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Reorders {@code items} (shown in {@code parent} from {@code offset}
+     * on) by {@code order}. Items on a longest run that is already in order
+     * stay attached; only the rest are removed and re-inserted.
+     */
+    private static <T> void settle(HasComponents parent, List<T> items, Comparator<T> order,
+                                   Function<T, Component> component, int offset) {
+        var current = new HashMap<T, Integer>();
+        for (int i = 0; i < items.size(); i++) {
+            current.put(items.get(i), i);
+        }
+        var desired = new ArrayList<>(items);
+        desired.sort(order);
+        var positions = new int[desired.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = current.get(desired.get(i));
+        }
+        var kept = PlanDiffer.longestIncreasing(positions);
+        for (int i = 0; i < kept.length; i++) {
+            if (!kept[i]) {
+                parent.remove(component.apply(desired.get(i)));
             }
-            add(new Details("Risks", risksLayout));
         }
+        for (int i = 0; i < kept.length; i++) {
+            if (!kept[i]) {
+                parent.addComponentAtIndex(offset + i, component.apply(desired.get(i)));
+            }
+        }
+        items.clear();
+        items.addAll(desired);
+    }
 
-        if (plan.assumptions() != null && !plan.assumptions().isEmpty()) {
-            var assumptionsLayout = new VerticalLayout();
-            assumptionsLayout.setPadding(false);
-            for (String assumption : plan.assumptions()) {
-                assumptionsLayout.add(new Span("- " + assumption));
+    /**
+     * Position after the last entry {@code <= order}, so equal orders keep
+     * arrival order like the stable sort of a complete plan.
+     */
+    private static <T> int upperBound(List<T> items, int order, ToIntFunction<T> orderOf) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (orderOf.applyAsInt(items.get(mid)) <= order) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
-            add(new Details("Assumptions", assumptionsLayout));
+        }
+        return low;
+    }
+
+    private static final class MilestoneSection {
+        private final Details details;
+        private final VerticalLayout tasks;
+        private final List<TaskRow> rows = new ArrayList<>();
+        private Milestone milestone;
+
+        private MilestoneSection(Details details, VerticalLayout tasks) {
+            this.details = details;
+            this.tasks = tasks;
+        }
+    }
+
+    private static final class TaskRow {
+        private final Div div;
+        private final Span title;
+        private final Span badge;
+        private Span effort;
+        private Task task;
+        private MilestoneSection section;
+
+        private TaskRow(Div div, Span title, Span badge) {
+            this.div = div;
+            this.title = title;
+            this.badge = badge;
         }
     }
 }
@@ -0,0 +1,158 @@
+package com.dump2plan.vaadin;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.streaming.PlanStreamListener;
+import com.dump2plan.streaming.PlanStreams;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Shows a plan in the chat while it is still being generated. The first
+ * plan starts a new {@link PlanRenderer} that milestones and tasks are
+ * pushed into as they arrive; once the complete plan is known its header,
+ * risks and anything the stream skipped are filled in from the difference.
+ *
+ * <p>Later plans (a re-plan, or a restored plan followed by a new run)
+ * are not streamed into a second tree. The shown renderer is marked as
+ * updating, and when the new plan completes only the {@code PlanDiff}
+ * against the shown plan is applied, followed by a chat message
+ * summarizing the changes.</p>
+ *
+ * <p>Only the most recently started run is shown. A run that starts while
+ * another is still streaming replaces the unfinished preview, and the
+ * earlier run's remaining fragments and plan are ignored, so two runs of
+ * one conversation never mix in a tree.</p>
+ *
+ * <p>All state is touched inside {@link UI#access} only.</p>
+ */
+public class ProgressivePlanListener implements PlanStreams.Subscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(ProgressivePlanListener.class);
+
+    private final UI ui;
+    private final VerticalLayout messagesLayout;
+    private final List<Milestone> streamedMilestones = new ArrayList<>();
+    private final List<Task> streamedTasks = new ArrayList<>();
+    private PlanRenderer renderer;
+    private StructuredPlan shown;
+    private boolean streaming;
+    private String following;
+
+    public ProgressivePlanListener(UI ui, VerticalLayout messagesLayout) {
+        this(ui, messagesLayout, null, null);
+    }
+
+    /**
+     * Continues from {@code renderer}, which already shows {@code shown};
+     * the next plan is applied to it as a diff.
+     */
+    public ProgressivePlanListener(UI ui, VerticalLayout messagesLayout, PlanRenderer renderer,
+                                   StructuredPlan shown) {
+        this.ui = ui;
+        this.messagesLayout = messagesLayout;
+        this.renderer = renderer;
+        this.shown = shown;
+    }
+
+    @Override
+    public PlanStreamListener run(String runId) {
+        return new PlanStreamListener() {
+            @Override
+            public void onStart() {
+                ui.access(() -> start(runId));
+            }
+
+            @Override
+            public void onMilestone(Milestone milestone) {
+                ui.access(() -> {
+                    if (streaming && following(runId)) {
+                        streamedMilestones.add(milestone);
+                        renderer.addMilestone(milestone);
+                    }
+                });
+            }
+
+            @Override
+            public void onTask(Task task) {
+                ui.access(() -> {
+                    if (streaming && following(runId)) {
+                        streamedTasks.add(task);
+                        renderer.addTask(task);
+                    }
+                });
+            }
+
+            @Override
+            public void onInvalid(String path, String reason) {
+                log.debug("Skipped invalid plan element {} of run {}: {}", path, runId, reason);
+            }
+
+            @Override
+            public void onEnd() {
+                ui.access(() -> {
+                    if (renderer != null && following(runId)) {
+                        renderer.removeClassName("plan-streaming");
+                        renderer.removeClassName("plan-updating");
+                    }
+                });
+            }
+
+            @Override
+            public void onPlan(StructuredPlan plan) {
+                ui.access(() -> {
+                    if (following == null || following(runId)) {
+                        show(plan);
+                        following = null;
+                    }
+                });
+            }
+        };
+    }
+
+    private void start(String runId) {
+        if (streaming) {
+            messagesLayout.remove(renderer);
+            renderer = null;
+            streaming = false;
+        }
+        following = runId;
+        if (shown != null) {
+            renderer.addClassName("plan-updating");
+            return;
+        }
+        streaming = true;
+        streamedMilestones.clear();
+        streamedTasks.clear();
+        renderer = new PlanRenderer();
+        renderer.addClassName("plan-streaming");
+        messagesLayout.add(renderer);
+    }
+
+    private boolean following(String runId) {
+        return Objects.equals(following, runId);
+    }
+
+    private void show(StructuredPlan plan) {
+        if (streaming) {
+            renderer.update(new StructuredPlan(null, null, List.copyOf(streamedMilestones),
+                List.copyOf(streamedTasks), null, List.of(), List.of()), plan);
+            streaming = false;
+        } else if (shown != null) {
+            var diff = renderer.update(shown, plan);
+            renderer.removeClassName("plan-updating");
+            messagesLayout.add(ChatMessageBubble.assistant(diff.summary()));
+        } else {
+            renderer = new PlanRenderer(plan);
+            messagesLayout.add(renderer);
+        }
+        shown = plan;
+    }
+}
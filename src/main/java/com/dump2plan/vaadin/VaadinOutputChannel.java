@@ -1,5 +1,6 @@
 package com.dump2plan.vaadin;
 
+import com.dump2plan.observability.PlanTracing;
 import com.embabel.agent.api.channel.MessageOutputChannelEvent;
 import com.embabel.agent.api.channel.OutputChannel;
 import com.embabel.agent.api.channel.OutputChannelEvent;
@@ -13,22 +14,59 @@ import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Output channel of one conversation's {@code ChatSession}. The session
+ * outlives the view that created it (a refresh attaches a new one), so
+ * progress and replies are shown in whichever view is currently
+ * {@linkplain #attach attached}; progress is dropped while none is.
+ *
+ * <p>Replies are delivered from the thread that sends them, so no thread
+ * waits for the agent: every assistant message is passed to the
+ * conversation's {@code onResponse} callback (which stores it) whether or
+ * not a view is attached, then added to the attached view.</p>
+ */
 public class VaadinOutputChannel implements OutputChannel {
 
     private static final Logger log = LoggerFactory.getLogger(VaadinOutputChannel.class);
 
-    private final UI ui;
-    private final VerticalLayout messagesLayout;
-    private final BlockingQueue<Message> responseQueue;
+    private final PlanTracing tracing;
+    private final Consumer<Message> onResponse;
+    private final AtomicReference<CompletableFuture<Message>> pending = new AtomicReference<>();
+    private volatile View view;
     private Div currentProgressIndicator;
 
-    public VaadinOutputChannel(UI ui, VerticalLayout messagesLayout,
-                               BlockingQueue<Message> responseQueue) {
-        this.ui = ui;
-        this.messagesLayout = messagesLayout;
-        this.responseQueue = responseQueue;
+    private record View(UI ui, VerticalLayout messagesLayout, Runnable onDelivered) {}
+
+    public VaadinOutputChannel(PlanTracing tracing, Consumer<Message> onResponse) {
+        this.tracing = tracing;
+        this.onResponse = onResponse;
+    }
+
+    /**
+     * Shows progress and replies in {@code messagesLayout} of {@code ui}
+     * from now on, running {@code onDelivered} inside {@link UI#access}
+     * after each reply is added.
+     */
+    public void attach(UI ui, VerticalLayout messagesLayout, Runnable onDelivered) {
+        view = new View(ui, messagesLayout, onDelivered);
+    }
+
+    public void detach() {
+        view = null;
+    }
+
+    /**
+     * Completes with the next assistant message this channel delivers, to
+     * whichever view; a caller that stops waiting needs no thread for it.
+     */
+    public CompletableFuture<Message> nextResponse() {
+        var next = new CompletableFuture<Message>();
+        pending.set(next);
+        return next;
     }
 
     @Override
@@ -41,7 +79,11 @@ public class VaadinOutputChannel implements OutputChannel {
     }
 
     private void handleProgress(ProgressOutputChannelEvent event) {
-        ui.access(() -> {
+        var target = view;
+        if (target == null) {
+            return;
+        }
+        target.ui().access(() -> {
             removeCurrentProgressIndicator();
 
             var indicator = new Div();
@@ -54,30 +96,47 @@ public class VaadinOutputChannel implements OutputChannel {
             label.addClassName("progress-label");
 
             indicator.add(spinner, label);
-            messagesLayout.add(indicator);
+            target.messagesLayout().add(indicator);
             currentProgressIndicator = indicator;
 
-            scrollToBottom();
+            scrollToBottom(target.messagesLayout());
         });
     }
 
     private void handleMessage(MessageOutputChannelEvent event) {
-        ui.access(this::removeCurrentProgressIndicator);
-
+        var target = view;
         var msg = event.getMessage();
-        if (msg instanceof AssistantMessage) {
-            responseQueue.offer(msg);
+        if (!(msg instanceof AssistantMessage)) {
+            if (target != null) {
+                target.ui().access(this::removeCurrentProgressIndicator);
+            }
+            return;
+        }
+        onResponse.accept(msg);
+        if (target != null) {
+            var delivery = tracing.startSpan(PlanTracing.UI_DELIVERY, "deliver response");
+            target.ui().access(() -> {
+                removeCurrentProgressIndicator();
+                target.messagesLayout().add(ChatMessageBubble.assistant(msg.getContent()));
+                scrollToBottom(target.messagesLayout());
+                target.onDelivered().run();
+                delivery.stop();
+            });
+        }
+        var waiting = pending.getAndSet(null);
+        if (waiting != null) {
+            waiting.complete(msg);
         }
     }
 
     private void removeCurrentProgressIndicator() {
         if (currentProgressIndicator != null) {
-            messagesLayout.remove(currentProgressIndicator);
+            currentProgressIndicator.removeFromParent();
             currentProgressIndicator = null;
         }
     }
 
-    private void scrollToBottom() {
+    private static void scrollToBottom(VerticalLayout messagesLayout) {
         messagesLayout.getElement().executeJs(
             "setTimeout(() => { " +
             "  const scroller = this.closest('vaadin-scroller'); " +
@@ -0,0 +1,125 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.CostsConfig;
+import com.dump2plan.cost.ActionCostModel;
+import com.dump2plan.observability.PlannerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionCostModelTest {
+
+    private static final ActorConfig OPUS = new ActorConfig("planner", "opus");
+    private static final ActorConfig HAIKU = new ActorConfig("planner", "haiku");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ActionCostModel costs = costs(Map.of());
+
+    private ActionCostModel costs(Map<String, Double> prices) {
+        var properties = TestProperties.builder().costs(new CostsConfig(true, 0.2, 3, 0.01, 0.01, prices)).build();
+        return new ActionCostModel(properties, new PlannerMetrics(registry));
+    }
+
+    private void calls(ActionCostModel model, String action, ActorConfig actor, int count,
+                       long inputTokens, Duration latency) {
+        for (int i = 0; i < count; i++) {
+            model.record(action, actor.llm(), inputTokens, latency, 500, true);
+        }
+    }
+
+    @Test
+    void annotatedCost_isUsedUntilEnoughCallsAreMeasured() {
+        calls(costs, "structurePlan", OPUS, 2, 2000, Duration.ofSeconds(30));
+        assertEquals(0.3, costs.cost("structurePlan", OPUS, 2000, 0.3));
+
+        calls(costs, "structurePlan", OPUS, 1, 2000, Duration.ofSeconds(30));
+        // 0.01 * 30s + 0.01 * 2.5k tokens
+        assertEquals(0.325, costs.cost("structurePlan", OPUS, 2000, 0.3), 1e-9);
+        assertEquals(0.3, costs.cost("structurePlan", HAIKU, 2000, 0.3), "unmeasured model keeps its prior");
+    }
+
+    @Test
+    void slowerModel_costsMore() {
+        calls(costs, "structurePlan", OPUS, 5, 2000, Duration.ofSeconds(40));
+        calls(costs, "structurePlan", HAIKU, 5, 2000, Duration.ofSeconds(8));
+
+        assertTrue(costs.cost("structurePlan", HAIKU, 2000, 0.3) < costs.cost("structurePlan", OPUS, 2000, 0.3));
+    }
+
+    @Test
+    void tokenPrice_canOutweighLatency() {
+        var priced = costs(Map.of("opus", 15.0));
+        calls(priced, "finalizePlan", OPUS, 5, 4000, Duration.ofSeconds(10));
+        calls(priced, "finalizePlan", HAIKU, 5, 4000, Duration.ofSeconds(20));
+
+        assertTrue(priced.cost("finalizePlan", OPUS, 4000, 0.2) > priced.cost("finalizePlan", HAIKU, 4000, 0.2));
+    }
+
+    @Test
+    void latency_isPredictedFromInputSize() {
+        // Synthetic model: 2s fixed plus 1ms per input token.
+        for (int i = 0; i < 50; i++) {
+            long tokens = 500 + (i % 10) * 500L;
+            costs.record("analyzeInput", "opus", tokens, Duration.ofMillis(2000 + tokens), 400, true);
+        }
+
+        var small = costs.expectedLatency("analyzeInput", "opus", 1000);
+        var large = costs.expectedLatency("analyzeInput", "opus", 8000);
+        assertEquals(3000, small.toMillis(), 50);
+        assertEquals(10_000, large.toMillis(), 150);
+        assertTrue(costs.cost("analyzeInput", OPUS, 8000, 0.1) > costs.cost("analyzeInput", OPUS, 1000, 0.1));
+    }
+
+    @Test
+    void movingAverage_followsALatencyShift() {
+        calls(costs, "structurePlan", OPUS, 20, 2000, Duration.ofSeconds(10));
+        calls(costs, "structurePlan", OPUS, 20, 2000, Duration.ofSeconds(40));
+
+        assertEquals(40, costs.expectedLatency("structurePlan", "opus", 2000).toSeconds(), 1);
+    }
+
+    @Test
+    void failures_raiseCost() {
+        calls(costs, "structurePlan", OPUS, 5, 2000, Duration.ofSeconds(10));
+        double healthy = costs.cost("structurePlan", OPUS, 2000, 0.3);
+        for (int i = 0; i < 5; i++) {
+            costs.record("structurePlan", "opus", 2000, Duration.ofSeconds(60), 0, false);
+        }
+
+        double failing = costs.cost("structurePlan", OPUS, 2000, 0.3);
+        assertTrue(failing > 2 * healthy, failing + " vs " + healthy);
+        assertEquals(10, costs.expectedLatency("structurePlan", "opus", 2000).toSeconds(),
+            "timeouts do not skew the latency estimate");
+    }
+
+    @Test
+    void alternativeAction_competesOnMeasuredCost() {
+        calls(costs, "analyzeInput", OPUS, 5, 6000, Duration.ofSeconds(25));
+        calls(costs, "analyzeInputChunked", HAIKU, 5, 6000, Duration.ofSeconds(9));
+
+        assertTrue(costs.cost("analyzeInputChunked", HAIKU, 6000, 0.15)
+            < costs.cost("analyzeInput", OPUS, 6000, 0.1), "the cheaper path wins once measured");
+    }
+
+    @Test
+    void learnedCost_isPublishedAsGauge() {
+        calls(costs, "structurePlan", OPUS, 3, 2000, Duration.ofSeconds(30));
+
+        var gauge = registry.get(PlannerMetrics.ACTION_COST).tags("action", "structurePlan", "model", "opus").gauge();
+        assertEquals(0.325, gauge.value(), 1e-9);
+    }
+
+    @Test
+    void disabled_alwaysReturnsPrior() {
+        var properties = TestProperties.builder().costs(new CostsConfig(false, 0.2, 3, 0.01, 0.01, null)).build();
+        var disabled = new ActionCostModel(properties, new PlannerMetrics(registry));
+        calls(disabled, "structurePlan", OPUS, 10, 2000, Duration.ofSeconds(30));
+
+        assertEquals(0.3, disabled.cost("structurePlan", OPUS, 2000, 0.3));
+    }
+}
@@ -0,0 +1,73 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.DedupConfig;
+import com.dump2plan.similarity.ActionDeduplicator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionDeduplicatorTest {
+
+    private static ActionDeduplicator deduplicator(boolean enabled) {
+        return new ActionDeduplicator(TestProperties.builder().dedup(new DedupConfig(enabled, 0.7)).build());
+    }
+
+    @Test
+    void rephrasedActions_collapseToLongestPhrasing() {
+        var result = deduplicator(true).deduplicate(List.of(
+            "Fix login bug on Android tablets",
+            "Redesign the onboarding screens",
+            "Fix the Android tablet login bug",
+            "Onboarding screen redesign",
+            "fix login bugs on android tablets!"));
+
+        assertEquals(List.of("fix login bugs on android tablets!", "Redesign the onboarding screens"),
+            result.actions());
+        assertEquals(3, result.removed());
+        assertEquals(3, result.clusters().get(0).size());
+    }
+
+    @Test
+    void actionsDifferingInKeyWord_stayApart() {
+        var actions = List.of("Design billing API for mobile", "Test billing API for mobile",
+            "Deploy billing API");
+
+        var result = deduplicator(true).deduplicate(actions);
+
+        assertEquals(actions, result.actions());
+        assertEquals(0, result.removed());
+    }
+
+    @Test
+    void disabled_keepsEveryAction() {
+        var actions = List.of("Fix login bug", "Fix the login bug");
+
+        var result = deduplicator(false).deduplicate(actions);
+
+        assertEquals(actions, result.actions());
+        assertEquals(0, result.removed());
+    }
+
+    @Test
+    void nullOrEmpty_returnsEmpty() {
+        assertEquals(List.of(), deduplicator(true).deduplicate(null).actions());
+        assertEquals(0, deduplicator(true).deduplicate(List.of()).removed());
+    }
+
+    @Test
+    void thousandsOfActions_mergeEveryRephrasing() {
+        var actions = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            actions.add("Implement feature" + i + " endpoint in service" + i);
+            actions.add("Service" + i + " endpoint for feature" + i + " implemented");
+        }
+
+        var result = deduplicator(true).deduplicate(actions);
+
+        assertEquals(2000, result.actions().size());
+        assertEquals(2000, result.removed());
+    }
+}
@@ -0,0 +1,350 @@
+package com.dump2plan;
+
+import com.dump2plan.session.ChatSessions;
+import com.dump2plan.session.ChatTurn;
+import com.dump2plan.session.ChatTurn.Role;
+import com.dump2plan.session.HistorySummary;
+import com.dump2plan.session.InMemorySessionStore;
+import com.dump2plan.session.RedisSessionStore;
+import com.dump2plan.session.SessionStore.Field;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatSessionsTest {
+
+    private final RespStandIn server = new RespStandIn();
+    private final List<RedisSessionStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        stores.forEach(RedisSessionStore::close);
+        server.close();
+    }
+
+    private ChatSessions node() {
+        var store = new RedisSessionStore("localhost", server.port(), "dump2plan:session:",
+            Duration.ofDays(7), Duration.ofSeconds(2));
+        stores.add(store);
+        return new ChatSessions(store, 12);
+    }
+
+    private static void exchange(ChatSessions sessions, String sessionId, String user, String assistant) {
+        sessions.recordTurn(sessionId, Role.USER, user);
+        sessions.recordTurn(sessionId, Role.ASSISTANT, assistant);
+    }
+
+    @Test
+    void conversation_isPickedUpByAnotherNode() {
+        var plan = SyntheticPayloads.plan(30);
+        var first = node();
+        exchange(first, "alice", "Here is my brain dump", "What is your timeline?");
+        exchange(first, "alice", "Three months", "Thanks, planning now.");
+        first.recordPlan("alice", plan);
+
+        var session = node().open("alice");
+
+        assertEquals(List.of(
+            new ChatTurn(Role.USER, "Here is my brain dump"),
+            new ChatTurn(Role.ASSISTANT, "What is your timeline?"),
+            new ChatTurn(Role.USER, "Three months"),
+            new ChatTurn(Role.ASSISTANT, "Thanks, planning now.")), session.turns());
+        assertEquals(plan, session.plan());
+        assertNull(session.answers());
+        assertTrue(node().open("bob").turns().isEmpty());
+    }
+
+    @Test
+    void transcript_isCappedAtMaxTurns() {
+        var sessions = node();
+        for (int i = 0; i < 10; i++) {
+            exchange(sessions, "alice", "question " + i, "answer " + i);
+        }
+
+        var turns = node().open("alice").turns();
+
+        assertEquals(12, turns.size());
+        assertEquals(new ChatTurn(Role.USER, "question 4"), turns.getFirst());
+        assertEquals(new ChatTurn(Role.ASSISTANT, "answer 9"), turns.getLast());
+    }
+
+    @Test
+    void summary_replacesTheTurnsItCovers() {
+        var sessions = node();
+        exchange(sessions, "alice", "Here is my brain dump", "What is your timeline?");
+        exchange(sessions, "alice", "Three months", "Thanks, planning now.");
+        var summary = new HistorySummary("Alice dumped ideas; timeline is three months.", null);
+
+        sessions.recordSummary("alice", summary, 3);
+
+        var session = node().open("alice");
+        assertEquals(summary, session.summary());
+        assertEquals(List.of(new ChatTurn(Role.ASSISTANT, "Thanks, planning now.")), session.turns());
+        sessions.recordSummary("alice", summary, 1);
+        assertTrue(node().open("alice").turns().isEmpty());
+    }
+
+    @Test
+    void memoryStore_expiresSessionsIdleForTheTtl() {
+        var clock = new AtomicLong();
+        var store = new InMemorySessionStore(Duration.ofMinutes(30), clock::get);
+        var sessions = new ChatSessions(store, 12);
+        exchange(sessions, "alice", "hi", "hello");
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+        sessions.recordPlan("alice", SyntheticPayloads.plan(5));
+        exchange(sessions, "bob", "hi", "hello");
+
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+        assertEquals(2, sessions.open("alice").turns().size(), "a write renews the session");
+
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+        assertTrue(sessions.open("alice").turns().isEmpty());
+        assertNull(sessions.open("alice").plan());
+        exchange(sessions, "carol", "hi", "hello");
+        assertTrue(sessions.open("bob").turns().isEmpty());
+    }
+
+    @Test
+    void sessionIds_areRandomAndValidated() {
+        var id = ChatSessions.newSessionId();
+
+        assertTrue(ChatSessions.isSessionId(id));
+        assertNotEquals(id, ChatSessions.newSessionId());
+        assertFalse(ChatSessions.isSessionId("user"));
+        assertFalse(ChatSessions.isSessionId(id.substring(0, 35) + ":"));
+        assertFalse(ChatSessions.isSessionId(null));
+    }
+
+    @Test
+    void session_fetchesEachFieldOnFirstUseOnly() {
+        var sessions = node();
+        exchange(sessions, "alice", "hi", "hello");
+        sessions.recordPlan("alice", SyntheticPayloads.plan(10));
+        int before = server.commands.get();
+
+        var session = sessions.open("alice");
+        assertEquals(before, server.commands.get(), "opening fetches nothing");
+        session.turns();
+        session.turns();
+        assertEquals(before + 1, server.commands.get());
+        session.plan();
+        assertEquals(before + 2, server.commands.get());
+    }
+
+    @Test
+    void clear_removesEveryField() {
+        var sessions = node();
+        exchange(sessions, "alice", "hi", "hello");
+        sessions.recordAnswers("alice", SyntheticPayloads.context());
+
+        sessions.clear("alice");
+
+        var session = sessions.open("alice");
+        assertTrue(session.turns().isEmpty());
+        assertNull(session.answers());
+    }
+
+    @Test
+    void unreachableStore_readsEmptyAndDoesNotFailWrites() throws IOException {
+        var sessions = node();
+        server.close();
+
+        assertDoesNotThrow(() -> exchange(sessions, "alice", "hi", "hello"));
+        assertTrue(sessions.open("alice").turns().isEmpty());
+    }
+
+    @Test
+    void binaryEncoding_isSmallerThanJson() throws IOException {
+        var store = new InMemorySessionStore(Duration.ofDays(7));
+        var plan = SyntheticPayloads.plan(200);
+
+        new ChatSessions(store, 12).recordPlan("alice", plan);
+
+        int binary = store.get("alice", Field.PLAN).length;
+        int json = new ObjectMapper().writeValueAsBytes(plan).length;
+        assertTrue(binary < json * 0.6, binary + " bytes vs " + json + " bytes of JSON");
+    }
+
+    @Test
+    void transcript_isStoredCompressedNextToEarlierUncompressedTurns() {
+        var store = new InMemorySessionStore(Duration.ofDays(7));
+        store.push("alice", Field.TURNS, new byte[] {1, 0, 3, 'h', 'i'}, 12);
+        var reply = new PlanExportService().exportToMarkdown(SyntheticPayloads.plan(20));
+
+        exchange(new ChatSessions(store, 12), "alice", "Show me the plan", reply);
+
+        int stored = store.entries("alice", Field.TURNS).getLast().length;
+        assertTrue(stored < reply.length() / 3, stored + " bytes for a " + reply.length() + " character reply");
+        assertEquals(List.of(
+            new ChatTurn(Role.USER, "hi"),
+            new ChatTurn(Role.USER, "Show me the plan"),
+            new ChatTurn(Role.ASSISTANT, reply)), new ChatSessions(store, 12).open("alice").turns());
+    }
+
+    /**
+     * In-process stand-in for a RESP key-value store implementing the
+     * string and list commands the session store uses. Expiry is accepted
+     * and ignored.
+     */
+    private static final class RespStandIn implements AutoCloseable {
+
+        final AtomicInteger commands = new AtomicInteger();
+        private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+        private final Map<String, List<byte[]>> lists = new ConcurrentHashMap<>();
+        private final ServerSocket socket;
+
+        RespStandIn() {
+            try {
+                socket = new ServerSocket(0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            Thread.ofVirtual().start(this::accept);
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        private void accept() {
+            while (!socket.isClosed()) {
+                try {
+                    var client = socket.accept();
+                    Thread.ofVirtual().start(() -> serve(client));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client) {
+            try (client) {
+                var in = new BufferedInputStream(client.getInputStream());
+                var out = client.getOutputStream();
+                while (!socket.isClosed()) {
+                    var command = readCommand(in);
+                    if (command == null) {
+                        return;
+                    }
+                    commands.incrementAndGet();
+                    reply(command, out);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client went away.
+            }
+        }
+
+        private void reply(List<byte[]> command, OutputStream out) throws IOException {
+            var name = new String(command.get(0), StandardCharsets.UTF_8);
+            var key = command.size() > 1 ? new String(command.get(1), StandardCharsets.UTF_8) : null;
+            switch (name) {
+                case "GET" -> bulk(out, values.get(key));
+                case "SET" -> {
+                    values.put(key, command.get(2));
+                    out.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+                }
+                case "RPUSH" -> {
+                    var list = lists.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+                    list.add(command.get(2));
+                    integer(out, list.size());
+                }
+                case "LTRIM" -> {
+                    var list = lists.getOrDefault(key, List.of());
+                    int start = index(command.get(2), list.size());
+                    int end = Math.min(list.size(), index(command.get(3), list.size()) + 1);
+                    var kept = start < end ? List.copyOf(list.subList(start, end)) : List.<byte[]>of();
+                    lists.put(key, new CopyOnWriteArrayList<>(kept));
+                    out.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+                }
+                case "LRANGE" -> {
+                    var list = lists.getOrDefault(key, List.of());
+                    out.write(("*" + list.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    for (var entry : list) {
+                        bulk(out, entry);
+                    }
+                }
+                case "PEXPIRE" -> integer(out, values.containsKey(key) || lists.containsKey(key) ? 1 : 0);
+                case "DEL" -> {
+                    int removed = 0;
+                    for (var k : command.subList(1, command.size())) {
+                        var deleted = new String(k, StandardCharsets.UTF_8);
+                        removed += values.remove(deleted) == null && lists.remove(deleted) == null ? 0 : 1;
+                    }
+                    integer(out, removed);
+                }
+                default -> out.write(("-ERR unknown command '" + name + "'\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        /** A list index as given to {@code LTRIM}, resolved against the list's size. */
+        private static int index(byte[] argument, int size) {
+            int index = Integer.parseInt(new String(argument, StandardCharsets.US_ASCII));
+            return Math.max(0, index < 0 ? size + index : index);
+        }
+
+        private static List<byte[]> readCommand(InputStream in) throws IOException {
+            if (in.read() != '*') {
+                return null;
+            }
+            int count = Integer.parseInt(readLine(in));
+            var command = new ArrayList<byte[]>(count);
+            for (int i = 0; i < count; i++) {
+                in.read();
+                int length = Integer.parseInt(readLine(in));
+                command.add(in.readNBytes(length));
+                in.readNBytes(2);
+            }
+            return command;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            var line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\r') {
+                line.append((char) b);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        private static void bulk(OutputStream out, byte[] value) throws IOException {
+            if (value == null) {
+                out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            out.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(value);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private static void integer(OutputStream out, long value) throws IOException {
+            out.write((":" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
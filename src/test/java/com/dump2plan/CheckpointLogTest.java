@@ -0,0 +1,160 @@
+package com.dump2plan;
+
+import com.dump2plan.checkpoint.CheckpointLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointLogTest {
+
+    private static final Duration FLUSH = Duration.ofMillis(1);
+    private static final Duration RETENTION = Duration.ofHours(1);
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private CheckpointLog open(long compactBytes) {
+        return new CheckpointLog(dir.resolve("checkpoints.wal"), FLUSH, compactBytes, RETENTION, clock::get);
+    }
+
+    @Test
+    void appendedEntries_areReplayedInOrderAfterReopen() throws Exception {
+        try (var log = open(1 << 20)) {
+            log.append("run-1", "alice", "INPUT", Map.of("brainDump", "ship the app"));
+            log.append("run-1", "alice", "IDEAS", List.of("login", "billing"));
+            log.append("run-2", "bob", "INPUT", Map.of("brainDump", "plant a garden"));
+            log.flush().get();
+        }
+
+        try (var log = open(1 << 20)) {
+            var run = log.recovered().get("run-1");
+            assertEquals(List.of("INPUT", "IDEAS"), run.stream().map(CheckpointLog.Entry::step).toList());
+            assertEquals("alice", run.get(0).userId());
+            assertEquals("billing", run.get(1).value().get(1).asText());
+            assertEquals(2, log.recovered().size());
+        }
+    }
+
+    @Test
+    void completedRuns_areNotRecovered() throws Exception {
+        try (var log = open(1 << 20)) {
+            log.append("run-1", "alice", "INPUT", "a");
+            log.append("run-2", "alice", "INPUT", "b");
+            log.complete("run-1");
+        }
+
+        try (var log = open(1 << 20)) {
+            assertEquals(List.of("run-2"), List.copyOf(log.recovered().keySet()));
+        }
+    }
+
+    @Test
+    void tornTail_isTruncatedAndLogStaysAppendable() throws Exception {
+        var file = dir.resolve("checkpoints.wal");
+        try (var log = open(1 << 20)) {
+            log.append("run-1", "alice", "INPUT", "a");
+            log.append("run-1", "alice", "IDEAS", "b");
+        }
+        long intact = Files.size(file);
+        // A crash mid-write leaves a header promising more bytes than follow it.
+        Files.write(file, new byte[] {0, 0, 1, 0, 7, 7, 7, 7, '{', '"'}, StandardOpenOption.APPEND);
+
+        try (var log = open(1 << 20)) {
+            assertEquals(2, log.recovered().get("run-1").size());
+            assertEquals(intact, Files.size(file));
+            log.append("run-1", "alice", "ANSWERS", "c");
+        }
+        try (var log = open(1 << 20)) {
+            assertEquals(3, log.recovered().get("run-1").size());
+        }
+    }
+
+    @Test
+    void corruptFrame_endsReplay() throws Exception {
+        var file = dir.resolve("checkpoints.wal");
+        try (var log = open(1 << 20)) {
+            log.append("run-1", "alice", "INPUT", "a");
+        }
+        long first = Files.size(file);
+        try (var log = open(1 << 20)) {
+            log.append("run-1", "alice", "IDEAS", "b");
+        }
+        var bytes = Files.readAllBytes(file);
+        bytes[(int) first + 12] ^= 0x20;
+        Files.write(file, bytes);
+
+        try (var log = open(1 << 20)) {
+            assertEquals(1, log.recovered().get("run-1").size());
+            assertEquals(first, Files.size(file));
+        }
+    }
+
+    @Test
+    void intactButUnreadableFrame_skipsOnlyItsRun() throws Exception {
+        var file = dir.resolve("checkpoints.wal");
+        try (var log = open(1 << 20)) {
+            log.append("run-1", "alice", "INPUT", "a");
+            log.append("run-2", "bob", "INPUT", "b");
+        }
+        // Passes the checksum, but no longer matches the entry record.
+        var payload = "{\"runId\":\"run-1\",\"step\":\"IDEAS\",\"timestamp\":\"yesterday\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        var crc = new CRC32C();
+        crc.update(payload);
+        Files.write(file, ByteBuffer.allocate(8 + payload.length)
+            .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array(), StandardOpenOption.APPEND);
+        long size = Files.size(file);
+
+        try (var log = open(1 << 20)) {
+            assertEquals(List.of("run-2"), List.copyOf(log.recovered().keySet()));
+            assertEquals(size, Files.size(file), "later frames are not truncated away");
+            log.append("run-1", "alice", "PLAN", "c");
+            log.append("run-3", "carol", "INPUT", "d");
+        }
+        try (var log = open(1 << 20)) {
+            assertEquals(List.of("run-2", "run-3"), List.copyOf(log.recovered().keySet()));
+        }
+    }
+
+    @Test
+    void compaction_dropsCompletedAndExpiredRuns() throws Exception {
+        var file = dir.resolve("checkpoints.wal");
+        try (var log = open(1024)) {
+            log.append("stale", "alice", "INPUT", "x".repeat(300));
+            log.append("done", "alice", "INPUT", "x".repeat(300));
+            log.complete("done");
+            log.flush().get();
+            clock.addAndGet(RETENTION.toMillis() + 1);
+            log.append("live", "bob", "INPUT", "x".repeat(300));
+            log.flush().get();
+            assertTrue(Files.size(file) < 500, "compacted to the live run only");
+        }
+
+        try (var log = open(1024)) {
+            assertEquals(List.of("live"), List.copyOf(log.recovered().keySet()));
+        }
+    }
+
+    @Test
+    void closedLog_rejectsAppends() throws IOException {
+        var log = open(1 << 20);
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> log.append("run-1", "alice", "INPUT", "a"));
+    }
+}
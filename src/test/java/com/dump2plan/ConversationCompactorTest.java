@@ -0,0 +1,198 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.ChatConfig;
+import com.dump2plan.Dump2PlanProperties.HistoryConfig;
+import com.dump2plan.Dump2PlanProperties.StubLlmConfig;
+import com.dump2plan.agent.ConversationCompactor;
+import com.dump2plan.agent.PlannerPrompts;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.session.ChatSessions;
+import com.dump2plan.session.ChatTurn;
+import com.dump2plan.session.ChatTurn.Role;
+import com.dump2plan.session.InMemorySessionStore;
+import com.dump2plan.stub.StubLlmClient;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.chat.AssistantMessage;
+import com.embabel.chat.Message;
+import com.embabel.chat.UserMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationCompactorTest {
+
+    private static ConversationCompactor compactor(HistoryConfig history, double failureRate) {
+        return compactor(history, failureRate, () -> null);
+    }
+
+    private static ConversationCompactor compactor(HistoryConfig history, double failureRate, Supplier<Ai> ai) {
+        return compactor(history, failureRate, ai, new ChatSessions(new InMemorySessionStore(Duration.ofHours(1)), 500));
+    }
+
+    private static ConversationCompactor compactor(HistoryConfig history, double failureRate, Supplier<Ai> ai,
+                                                   ChatSessions sessions) {
+        var properties = TestProperties.builder()
+            .chat(new ChatConfig("sonnet", false, false, history))
+            .actors(TestProperties.actors(new ActorConfig("analyzer", "haiku")))
+            .build();
+        var llm = new StubLlmClient(new StubLlmConfig(
+            Duration.ofNanos(1000), Duration.ofNanos(5000), failureRate, 10, 1));
+        return new ConversationCompactor(properties, llm, new PlannerMetrics(new SimpleMeterRegistry()),
+            sessions, ai, Runnable::run);
+    }
+
+    private static List<Message> turns(int count, int charsPerMessage) {
+        var messages = new ArrayList<Message>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new UserMessage("question " + i + " " + "q".repeat(charsPerMessage)));
+            messages.add(new AssistantMessage("answer " + i + " " + "a".repeat(charsPerMessage)));
+        }
+        return messages;
+    }
+
+    @Test
+    void underBudget_sendsFullHistory() {
+        var messages = turns(10, 100);
+
+        var history = compactor(new HistoryConfig(2, 8000, Map.of()), 0).compact("c1", null, messages, null);
+
+        assertEquals(messages, history.recent());
+        assertNull(history.summary());
+        assertEquals("", history.context());
+    }
+
+    @Test
+    void overBudget_keepsLastTurnsAndSummarizesTheRest() {
+        var messages = turns(10, 400);
+
+        var history = compactor(new HistoryConfig(2, 1000, Map.of()), 0).compact("c1", null, messages, null);
+
+        assertEquals(messages.subList(16, 20), history.recent());
+        assertNotNull(history.summary());
+        assertTrue(history.context().contains("Summary of the earlier conversation"));
+    }
+
+    @Test
+    void pastedPlan_keptAsOutline() {
+        var plan = SyntheticPayloads.plan(12);
+        var messages = new ArrayList<Message>();
+        messages.add(new UserMessage("Here is my plan:\n" + new PlanExportService().exportToJson(plan)));
+        messages.addAll(turns(3, 50));
+
+        var history = compactor(new HistoryConfig(1, 100, Map.of()), 0).compact("c1", null, messages, null);
+
+        assertEquals(2, history.recent().size());
+        assertTrue(history.planReference().startsWith(plan.title()));
+        assertTrue(history.planReference().contains(plan.tasks().get(0).id() + " " + plan.tasks().get(0).title()));
+        assertFalse(history.planReference().contains(plan.tasks().get(0).description()));
+    }
+
+    @Test
+    void storedPlan_isTheReference_evenBeforeCompaction() {
+        var stored = SyntheticPayloads.plan(3);
+        var pasted = SyntheticPayloads.plan(12);
+        var messages = new ArrayList<Message>();
+        messages.add(new UserMessage("Here is my plan:\n" + new PlanExportService().exportToJson(pasted)));
+        messages.addAll(turns(3, 50));
+
+        var underBudget = compactor(new HistoryConfig(1, 100_000, Map.of()), 0).compact("c1", null, messages, stored);
+        var folded = compactor(new HistoryConfig(1, 100, Map.of()), 0).compact("c1", null, messages, stored);
+
+        assertEquals(messages, underBudget.recent());
+        assertTrue(underBudget.planReference().contains("(" + stored.milestones().size() + " milestones, "
+            + stored.tasks().size() + " tasks)"));
+        assertEquals(underBudget.planReference(), folded.planReference());
+    }
+
+    @Test
+    void partialStoredPlan_isOutlinedWithWhatItHas() {
+        var plan = SyntheticPayloads.plan(3);
+        var milestones = new ArrayList<Milestone>();
+        milestones.add(new Milestone(null, "Unnamed phase", null, 0, null));
+        milestones.add(null);
+        var partial = new StructuredPlan(null, null, milestones, plan.tasks(), null, null, null);
+
+        var history = compactor(new HistoryConfig(1, 100_000, Map.of()), 0).compact("c1", null, turns(2, 50), partial);
+        var seeded = PlannerPrompts.structure(SyntheticPayloads.ideas("launch"),
+            new ClarifiedContext("3 months", "2", "none", ""), partial);
+
+        assertTrue(history.planReference().startsWith("Untitled plan (1 milestones, 3 tasks)"));
+        assertTrue(history.planReference().contains("- Unnamed phase: \n"));
+        assertTrue(seeded.suffix().contains("Untitled plan (1 milestones, 3 tasks)"));
+    }
+
+    @Test
+    void conversationRebuiltOnAnotherNode_continuesFromTheStoredSummary() {
+        var sessions = new ChatSessions(new InMemorySessionStore(Duration.ofHours(1)), 500);
+        var messages = turns(10, 400);
+        for (var message : messages) {
+            sessions.recordTurn("s1", message instanceof UserMessage ? Role.USER : Role.ASSISTANT,
+                message.getContent());
+        }
+        var history = new HistoryConfig(2, 1000, Map.of());
+
+        var first = compactor(history, 0, () -> null, sessions).compact("c1", "s1", messages, null);
+
+        var stored = sessions.open("s1");
+        assertEquals(first.summary(), stored.summary().summary());
+        assertEquals(4, stored.turns().size(), "folded turns are dropped once summarized");
+        var rebuilt = new ArrayList<Message>();
+        for (ChatTurn turn : stored.turns()) {
+            rebuilt.add(turn.role() == Role.USER
+                ? new UserMessage(turn.content()) : new AssistantMessage(turn.content()));
+        }
+        var second = compactor(history, 0, () -> null, sessions).compact("c2", "s1", rebuilt, null);
+
+        assertNotNull(second.summary());
+        assertEquals(first.summary(), second.summary());
+        assertEquals(first.recent().stream().map(Message::getContent).toList(),
+            second.recent().stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void fold_callsTheModelThroughTheApplicationsAi() {
+        var resolved = new AtomicInteger();
+        var compactor = compactor(new HistoryConfig(2, 1000, Map.of()), 0, () -> {
+            resolved.incrementAndGet();
+            return null;
+        });
+
+        compactor.compact("c1", null, turns(10, 400), null);
+
+        assertEquals(1, resolved.get(), "resolved when the fold runs, not taken from the action");
+    }
+
+    @Test
+    void modelBudget_overridesDefault() {
+        var messages = turns(10, 400);
+
+        var history = compactor(new HistoryConfig(2, 1000, Map.of("sonnet", 100_000)), 0)
+            .compact("c1", null, messages, null);
+
+        assertEquals(messages, history.recent());
+    }
+
+    @Test
+    void failedSummary_fallsBackToFullHistory() {
+        var messages = turns(10, 400);
+
+        var history = compactor(new HistoryConfig(2, 1000, Map.of()), 1).compact("c1", null, messages, null);
+
+        assertEquals(messages, history.recent());
+        assertNull(history.summary());
+    }
+}
@@ -1,8 +1,14 @@
 package com.dump2plan;
 
+import com.dump2plan.user.Dump2PlanUser;
 import com.dump2plan.user.Dump2PlanUserService;
+import com.dump2plan.user.FileUserStore;
+import com.dump2plan.user.InMemoryUserStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,4 +59,48 @@ class Dump2PlanUserServiceTest {
         assertNotNull(user);
         assertEquals("User", user.getDisplayName());
     }
+
+    @Test
+    void findByEmail_isCaseInsensitive() {
+        var user = userService.findByEmail("  User@Dump2Plan.LOCAL ");
+        assertNotNull(user);
+        assertEquals("user", user.getUsername());
+    }
+
+    @Test
+    void resolve_nullPrincipalReturnsDefaultUser() {
+        assertSame(userService.getDefaultUser(), userService.resolve(null));
+    }
+
+    @Test
+    void resolve_registersNewPrincipalOnce() {
+        var alice = userService.resolve(() -> "alice");
+        assertEquals("alice", alice.getUsername());
+        assertEquals("alice@dump2plan.local", alice.getEmail());
+        assertSame(alice, userService.resolve(() -> "alice"));
+        assertSame(alice, userService.findById("alice"));
+        assertSame(alice, userService.findByEmail("alice@dump2plan.local"));
+    }
+
+    @Test
+    void lookupsSurviveCacheEviction() {
+        var service = new Dump2PlanUserService(new InMemoryUserStore(), 2);
+        for (int i = 0; i < 10; i++) {
+            service.register(new Dump2PlanUser("User " + i, "user" + i, "USER"));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("User " + i, service.findByUsername("user" + i).getDisplayName());
+        }
+    }
+
+    @Test
+    void fileStore_persistsAcrossRestarts(@TempDir Path dir) {
+        var file = dir.resolve("users.json");
+        var first = new Dump2PlanUserService(new FileUserStore(file), 16);
+        first.register(new Dump2PlanUser("Bob", "bob", "USER"));
+
+        var second = new Dump2PlanUserService(new FileUserStore(file), 16);
+        assertEquals("Bob", second.findByUsername("bob").getDisplayName());
+        assertNotNull(second.findByUsername("user"));
+    }
 }
@@ -0,0 +1,299 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.FailoverConfig;
+import com.dump2plan.agent.LlmClient;
+import com.dump2plan.failover.CircuitBreaker;
+import com.dump2plan.failover.FailoverLlmClient;
+import com.dump2plan.failover.FailoverLlmClient.CallTimeoutException;
+import com.dump2plan.failover.ProvidersUnavailableException;
+import com.dump2plan.model.ConversationSummary;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.embabel.agent.api.common.ActionContext;
+import com.embabel.agent.api.common.Ai;
+import com.embabel.chat.AssistantMessage;
+import com.embabel.chat.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailoverLlmClientTest {
+
+    private static final ActorConfig PLANNER = new ActorConfig("planner", "claude", List.of("gemini"));
+    private static final CacheablePrompt PROMPT = new CacheablePrompt("You are a planner.", "Summarize.");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, Behaviour> models = new ConcurrentHashMap<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    /**
+     * What a fake model does when called: the summary it returns, or null to
+     * fail with {@code failure}, or with a dropped connection if that is null.
+     */
+    private record Behaviour(String answer, Duration latency, boolean blocks, RuntimeException failure) {
+
+        Behaviour(String answer, Duration latency, boolean blocks) {
+            this(answer, latency, blocks, null);
+        }
+
+        static Behaviour answers(String answer) {
+            return new Behaviour(answer, Duration.ZERO, false);
+        }
+
+        static Behaviour fails() {
+            return new Behaviour(null, Duration.ZERO, false);
+        }
+
+        static Behaviour throwing(RuntimeException failure) {
+            return new Behaviour(null, Duration.ZERO, false, failure);
+        }
+    }
+
+    private final LlmClient delegate = new LlmClient() {
+        @Override
+        public <T> T createObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type) {
+            return streamObject(ai, actor, prompt, type, chunk -> { });
+        }
+
+        @Override
+        public <T> T streamObject(Ai ai, ActorConfig actor, CacheablePrompt prompt, Class<T> type,
+                                  Consumer<String> chunks) {
+            calls.add(actor.llm());
+            var behaviour = models.get(actor.llm());
+            chunks.accept(actor.llm() + ":");
+            clock.addAndGet(behaviour.latency().toNanos());
+            if (behaviour.blocks()) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException("cancelled");
+                }
+            }
+            if (behaviour.failure() != null) {
+                throw behaviour.failure();
+            }
+            if (behaviour.answer() == null) {
+                throw new UncheckedIOException(actor.llm() + " is down", new IOException("Connection reset"));
+            }
+            chunks.accept(behaviour.answer());
+            return type.cast(new ConversationSummary(behaviour.answer()));
+        }
+
+        @Override
+        public AssistantMessage respond(ActionContext context, ActorConfig actor, String systemPrompt,
+                                        List<? extends Message> messages) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private FailoverLlmClient client(Duration callTimeout, int halfOpenProbes) {
+        var config = new FailoverConfig(true, callTimeout, Duration.ofSeconds(60), 0.5, 0.5, 10, 4,
+            Duration.ofSeconds(30), halfOpenProbes);
+        return new FailoverLlmClient(delegate, config, new PlannerMetrics(registry), clock::get);
+    }
+
+    private static String summarize(FailoverLlmClient client) {
+        return client.createObject(null, PLANNER, PROMPT, ConversationSummary.class).summary();
+    }
+
+    private double failovers(String model, String reason) {
+        var counter = registry.find(PlannerMetrics.FAILOVER).tag("model", model).tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void failingModel_opensItsBreaker_andCallsGoStraightToTheFallback() {
+        var client = client(Duration.ZERO, 1);
+        models.put("claude", Behaviour.fails());
+        models.put("gemini", Behaviour.answers("from gemini"));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("from gemini", summarize(client));
+        }
+        calls.clear();
+        assertEquals("from gemini", summarize(client));
+
+        assertEquals(CircuitBreaker.State.OPEN, client.breaker("claude").state());
+        assertEquals(List.of("gemini"), calls);
+        assertEquals(4, failovers("claude", "error"));
+        assertEquals(1, failovers("claude", "open"));
+        assertEquals(4, registry.get(PlannerMetrics.RETRIES).tag("model", "gemini").counter().count());
+        assertEquals(2.0, registry.get(PlannerMetrics.BREAKER_STATE).tag("model", "claude").gauge().value());
+    }
+
+    @Test
+    void route_reportsTheModelThatAnswered() {
+        var client = client(Duration.ZERO, 1);
+        models.put("claude", Behaviour.fails());
+        models.put("gemini", Behaviour.answers("from gemini"));
+
+        var answer = client.route(PLANNER, (llm, route) -> {
+            assertNotSame(client, llm, "routes call the client behind the failover");
+            return llm.createObject(null, route, PROMPT, ConversationSummary.class);
+        });
+
+        assertEquals("gemini", answer.model().llm());
+        assertEquals("from gemini", answer.value().summary());
+    }
+
+    @Test
+    void allRoutesOpen_failFastUntilProbing() {
+        var client = client(Duration.ZERO, 1);
+        models.put("claude", Behaviour.fails());
+        models.put("gemini", Behaviour.fails());
+        for (int i = 0; i < 4; i++) {
+            var failure = assertThrows(UncheckedIOException.class, () -> summarize(client));
+            assertEquals("gemini is down", failure.getMessage());
+            assertEquals("claude is down", failure.getSuppressed()[0].getMessage());
+        }
+        calls.clear();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        var unavailable = assertThrows(ProvidersUnavailableException.class, () -> summarize(client));
+
+        assertTrue(calls.isEmpty());
+        assertEquals(Duration.ofSeconds(20), unavailable.getRetryAfter());
+        assertEquals("planner", unavailable.getPersona());
+    }
+
+    @Test
+    void halfOpenBreaker_closesAfterPassingProbes_andReopensOnAFailedOne() {
+        var client = client(Duration.ZERO, 2);
+        models.put("claude", Behaviour.fails());
+        models.put("gemini", Behaviour.answers("from gemini"));
+        for (int i = 0; i < 4; i++) {
+            summarize(client);
+        }
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        models.put("claude", Behaviour.answers("from claude"));
+
+        assertEquals("from claude", summarize(client));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, client.breaker("claude").state());
+        assertEquals("from claude", summarize(client));
+        assertEquals(CircuitBreaker.State.CLOSED, client.breaker("claude").state());
+
+        models.put("claude", Behaviour.fails());
+        for (int i = 0; i < 4; i++) {
+            summarize(client);
+        }
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertEquals("from gemini", summarize(client), "the probe fails over");
+        assertEquals(CircuitBreaker.State.OPEN, client.breaker("claude").state());
+    }
+
+    @Test
+    void slowButSuccessfulCalls_openTheBreakerToo() {
+        var client = client(Duration.ZERO, 1);
+        models.put("claude", new Behaviour("from claude", Duration.ofSeconds(90), false));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("from claude", summarize(client));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, client.breaker("claude").state());
+    }
+
+    @Test
+    void hangingCall_isCancelledAtTheCallTimeout() {
+        var client = client(Duration.ofMillis(100), 1);
+        models.put("claude", new Behaviour("from claude", Duration.ZERO, true));
+        models.put("gemini", Behaviour.answers("from gemini"));
+
+        long start = System.nanoTime();
+        assertEquals("from gemini", summarize(client));
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertEquals(1, failovers("claude", "timeout"));
+        var alone = new ActorConfig("planner", "claude");
+        assertThrows(CallTimeoutException.class,
+            () -> client.createObject(null, alone, PROMPT, ConversationSummary.class));
+    }
+
+    @Test
+    void streamedChunks_comeOnlyFromTheFirstModelThatStreamed() {
+        var client = client(Duration.ZERO, 1);
+        models.put("claude", Behaviour.fails());
+        models.put("gemini", Behaviour.answers("from gemini"));
+        var chunks = new ArrayList<String>();
+
+        var result = client.streamObject(null, PLANNER, PROMPT, ConversationSummary.class, chunks::add);
+
+        assertEquals("from gemini", result.summary());
+        assertEquals(List.of("claude:"), chunks);
+    }
+
+    @Test
+    void disabledFailover_callsTheActorsModelOnly() {
+        var client = new FailoverLlmClient(delegate,
+            new FailoverConfig(false, Duration.ZERO, Duration.ofSeconds(60), 0.5, 0.5, 10, 4, Duration.ofSeconds(30), 1),
+            new PlannerMetrics(registry));
+        models.put("claude", Behaviour.fails());
+
+        assertThrows(UncheckedIOException.class, () -> summarize(client));
+        assertEquals(List.of("claude"), calls);
+    }
+
+    @Test
+    void overloadedAndFailingProviders_failOver() {
+        var client = client(Duration.ZERO, 1);
+        models.put("claude", Behaviour.throwing(HttpClientErrorException.create(
+            HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null)));
+        models.put("gemini", Behaviour.answers("from gemini"));
+        assertEquals("from gemini", summarize(client));
+
+        models.put("claude", Behaviour.throwing(HttpServerErrorException.create(
+            HttpStatus.BAD_GATEWAY, "Bad Gateway", null, null, null)));
+        assertEquals("from gemini", summarize(client));
+
+        assertEquals(2, failovers("claude", "error"));
+    }
+
+    @Test
+    void failuresThatAreNotTheProviders_areRethrownWithoutFailover() {
+        var client = client(Duration.ZERO, 1);
+        var unparseable = new RuntimeException("Reply is not a ConversationSummary", jsonError("not json"));
+        models.put("claude", Behaviour.throwing(unparseable));
+        models.put("gemini", Behaviour.answers("from gemini"));
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(unparseable, assertThrows(RuntimeException.class, () -> summarize(client)));
+        }
+        var invalid = new IllegalArgumentException("Summary has no topics");
+        models.put("claude", Behaviour.throwing(invalid));
+        assertSame(invalid, assertThrows(IllegalArgumentException.class, () -> summarize(client)));
+        models.put("claude", Behaviour.throwing(HttpClientErrorException.create(
+            HttpStatus.BAD_REQUEST, "Bad Request", null, null, null)));
+        assertThrows(HttpClientErrorException.class, () -> summarize(client));
+
+        assertEquals(List.of("claude", "claude", "claude", "claude", "claude"), calls);
+        assertEquals(CircuitBreaker.State.CLOSED, client.breaker("claude").state());
+        assertEquals(0, failovers("claude", "error"));
+    }
+
+    private static Exception jsonError(String reply) {
+        try {
+            new ObjectMapper().readTree(reply);
+        } catch (IOException e) {
+            return e;
+        }
+        throw new AssertionError(reply + " parsed");
+    }
+}
@@ -0,0 +1,186 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.SchedulingConfig;
+import com.dump2plan.scheduling.FairShareScheduler;
+import com.dump2plan.scheduling.PlanningLane;
+import com.dump2plan.scheduling.QuotaExceededException;
+import com.dump2plan.scheduling.UserUsage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairShareSchedulerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private FairShareScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void rejectsWithRetryAfterWhenRequestQuotaExhausted() {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(1, 2, 100_000, 10, Map.of()), clock::get);
+
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 10, () -> {});
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 10, () -> {});
+        var ex = assertThrows(QuotaExceededException.class,
+            () -> scheduler.submit("alice", PlanningLane.INTERACTIVE, 10, () -> {}));
+        assertEquals("alice", ex.getUserId());
+        assertEquals(31, ex.getRetryAfter().toSeconds(), "half a minute to refill one of two requests");
+
+        assertDoesNotThrow(() -> scheduler.submit("bob", PlanningLane.INTERACTIVE, 10, () -> {}));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertDoesNotThrow(() -> scheduler.submit("alice", PlanningLane.INTERACTIVE, 10, () -> {}));
+    }
+
+    @Test
+    void rejectsWhenTokenQuotaExhausted() {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(1, 100, 1_000, 10, Map.of()), clock::get);
+
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 900, () -> scheduler.recordUsage("alice", 900));
+        assertThrows(QuotaExceededException.class,
+            () -> scheduler.submit("alice", PlanningLane.INTERACTIVE, 200, () -> {}));
+        assertEquals(1, scheduler.usage("alice").rejected());
+    }
+
+    @Test
+    void dispatchesWeightedRoundRobinWithInteractiveFirst() throws Exception {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(1, 100, 100_000, 10, Map.of("alice", 2)), clock::get);
+
+        var gate = new CountDownLatch(1);
+        scheduler.submit("blocker", PlanningLane.INTERACTIVE, 1, () -> await(gate));
+        awaitRunning("blocker");
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        scheduler.submit("carol", PlanningLane.BATCH, 1, () -> order.add("carol-batch"));
+        for (int i = 1; i <= 3; i++) {
+            var name = "alice-" + i;
+            scheduler.submit("alice", PlanningLane.INTERACTIVE, 1, () -> order.add(name));
+        }
+        for (int i = 1; i <= 2; i++) {
+            var name = "bob-" + i;
+            scheduler.submit("bob", PlanningLane.INTERACTIVE, 1, () -> order.add(name));
+        }
+        var last = scheduler.submit("dave", PlanningLane.BATCH, 1, () -> order.add("dave-batch"));
+
+        gate.countDown();
+        last.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("alice-1", "alice-2", "bob-1", "alice-3", "bob-2",
+            "carol-batch", "dave-batch"), order);
+    }
+
+    @Test
+    void usageReportsQueuedAndTotals() {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(0, 100, 100_000, 10, Map.of()), clock::get);
+
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 40, () -> {});
+        scheduler.submit("alice", PlanningLane.BATCH, 60, () -> {});
+
+        var usage = scheduler.usage("alice");
+        assertEquals(2, usage.totalRequests());
+        assertEquals(100, usage.totalTokens());
+        assertEquals(1, usage.queuedInteractive());
+        assertEquals(1, usage.queuedBatch());
+        assertEquals(98, usage.availableRequests());
+        assertNull(scheduler.usage("nobody"));
+    }
+
+    @Test
+    void chargesMeasuredUsageInsteadOfTheEstimate() throws Exception {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(1, 100, 1_000, 10, Map.of()), clock::get);
+
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 900,
+            () -> scheduler.recordUsage("alice", 300)).get(5, TimeUnit.SECONDS);
+        var usage = scheduler.usage("alice");
+        assertEquals(700, usage.availableTokens(), "the 900-token reservation was returned");
+        assertEquals(300, usage.totalTokens());
+
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 100,
+            () -> scheduler.recordUsage("alice", 800)).get(5, TimeUnit.SECONDS);
+        assertEquals(-100, scheduler.usage("alice").availableTokens());
+        var ex = assertThrows(QuotaExceededException.class,
+            () -> scheduler.submit("alice", PlanningLane.INTERACTIVE, 10, () -> {}));
+        assertEquals(7, ex.getRetryAfter().toSeconds(), "110 tokens at 1000 per minute");
+    }
+
+    @Test
+    void rejectsWhenTooManyJobsQueued() {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(0, 100, 100_000, 1, Map.of()), clock::get);
+
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 1, () -> {});
+        assertThrows(QuotaExceededException.class,
+            () -> scheduler.submit("alice", PlanningLane.INTERACTIVE, 1, () -> {}));
+    }
+
+    @Test
+    void idleUsers_areForgottenOnceTheirQuotasRefilled() throws Exception {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(1, 100, 1_000, 10, Map.of()), clock::get);
+        scheduler.submit("alice", PlanningLane.INTERACTIVE, 500, () -> {}).get(5, TimeUnit.SECONDS);
+        scheduler.recordUsage("alice", 2_000);
+        var blocked = new CountDownLatch(1);
+        scheduler.submit("bob", PlanningLane.INTERACTIVE, 10, () -> await(blocked));
+        awaitRunning("bob");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertEquals(2, scheduler.usage().size(), "alice's tokens are still refilling");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertEquals(List.of("bob"), scheduler.usage().stream().map(UserUsage::userId).toList(),
+            "bob still has a job running");
+        assertNull(scheduler.usage("alice"));
+        blocked.countDown();
+    }
+
+    @Test
+    void close_failsQueuedJobs() throws Exception {
+        scheduler = new FairShareScheduler(
+            new SchedulingConfig(1, 100, 100_000, 10, Map.of()), clock::get);
+        var blocked = new CountDownLatch(1);
+        var running = scheduler.submit("alice", PlanningLane.BATCH, 1, () -> await(blocked));
+        awaitRunning("alice");
+        var queued = scheduler.submit("alice", PlanningLane.BATCH, 1, () -> {});
+
+        scheduler.close();
+
+        var failure = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertThrows(IllegalStateException.class,
+            () -> scheduler.submit("alice", PlanningLane.BATCH, 1, () -> {}));
+        blocked.countDown();
+        running.handle((ok, error) -> null).get(5, TimeUnit.SECONDS);
+    }
+
+    private void awaitRunning(String userId) throws InterruptedException {
+        for (int i = 0; i < 500 && scheduler.usage(userId).running() == 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.dump2plan;
+
+import com.dump2plan.json.ModelJson;
+import com.dump2plan.model.ConversationSummary;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelJsonTest {
+
+    @Test
+    void modelRecords_roundTripThroughSharedReadersAndWriters() throws Exception {
+        List<Object> values = List.of(SyntheticPayloads.ideas(6), SyntheticPayloads.context(),
+            SyntheticPayloads.structure(12), SyntheticPayloads.plan(12), new ConversationSummary("So far: a plan"));
+
+        for (var value : values) {
+            var json = ModelJson.writer(value.getClass()).writeValueAsBytes(value);
+            assertEquals(value, ModelJson.reader(value.getClass()).readValue(json), value.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void lenientReader_ignoresUnknownProperties() throws Exception {
+        var json = "{\"summary\":\"Ship it\",\"confidence\":0.9}";
+
+        assertThrows(UnrecognizedPropertyException.class,
+            () -> ModelJson.reader(ConversationSummary.class).readValue(json));
+        assertEquals(new ConversationSummary("Ship it"),
+            ModelJson.lenientReader(ConversationSummary.class).readValue(json));
+    }
+
+    @Test
+    void prettyWriter_indentsWithoutChangingContent() throws Exception {
+        var plan = SyntheticPayloads.plan(3);
+        var pretty = ModelJson.prettyWriter(StructuredPlan.class).writeValueAsString(plan);
+
+        assertTrue(pretty.contains("\n  \"title\""), pretty);
+        assertEquals(plan, ModelJson.reader(StructuredPlan.class).readValue(pretty));
+        assertSame(ModelJson.writer(StructuredPlan.class), ModelJson.writer(StructuredPlan.class));
+    }
+}
@@ -0,0 +1,200 @@
+package com.dump2plan;
+
+import com.dump2plan.diff.PlanChange;
+import com.dump2plan.diff.PlanChange.Field;
+import com.dump2plan.diff.PlanChange.MilestoneRemoved;
+import com.dump2plan.diff.PlanChange.TaskAdded;
+import com.dump2plan.diff.PlanChange.TaskModified;
+import com.dump2plan.diff.PlanChange.TaskMoved;
+import com.dump2plan.diff.PlanChange.TaskRemoved;
+import com.dump2plan.diff.PlanDiffer;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanDiffTest {
+
+    private static final List<Milestone> MILESTONES = List.of(
+        new Milestone("m1", "Foundation", "Set up the project", 0, List.of("t1", "t2", "t3")),
+        new Milestone("m2", "Launch", "Ship it", 1, List.of("t4")));
+
+    private static final List<Task> TASKS = List.of(
+        task("t1", "Set up CI pipeline", Priority.HIGH, "m1", List.of(), 0),
+        task("t2", "Design database schema", Priority.CRITICAL, "m1", List.of("t1"), 1),
+        task("t3", "Write API endpoints", Priority.MEDIUM, "m1", List.of("t2"), 2),
+        task("t4", "Deploy to production", Priority.HIGH, "m2", List.of("t3"), 0));
+
+    private static Task task(String id, String title, Priority priority, String milestoneId,
+                             List<String> dependsOn, int orderIndex) {
+        return new Task(id, title, "", priority, milestoneId, dependsOn, "1 day", orderIndex);
+    }
+
+    private static StructuredPlan plan(List<Milestone> milestones, List<Task> tasks) {
+        return new StructuredPlan("Web app", "Build a web app", milestones, tasks, "2 months",
+            List.of("Scope creep"), List.of("Team knows the stack"));
+    }
+
+    private static <T> List<T> replace(List<T> list, int index, T value) {
+        var copy = new ArrayList<>(list);
+        copy.set(index, value);
+        return copy;
+    }
+
+    private static <T extends PlanChange> List<T> only(List<PlanChange> changes, Class<T> type) {
+        return changes.stream().filter(type::isInstance).map(type::cast).toList();
+    }
+
+    @Test
+    void identicalPlansHaveNoChanges() {
+        var diff = PlanDiffer.diff(plan(MILESTONES, TASKS), plan(MILESTONES, TASKS));
+
+        assertTrue(diff.isEmpty());
+        assertEquals("The plan is unchanged.", diff.summary());
+    }
+
+    @Test
+    void reportsChangedFieldsOfATask() {
+        var before = plan(MILESTONES, TASKS);
+        var t3 = TASKS.get(2);
+        var after = plan(MILESTONES, replace(TASKS, 2, new Task(t3.id(), t3.title(), t3.description(),
+            Priority.CRITICAL, t3.milestoneId(), t3.dependsOn(), "3 days", t3.orderIndex())));
+
+        var diff = PlanDiffer.diff(before, after);
+
+        assertEquals(1, diff.changes().size());
+        var modified = (TaskModified) diff.changes().getFirst();
+        assertEquals(Set.of(Field.PRIORITY, Field.EFFORT), modified.fields());
+        assertTrue(diff.summary().contains("**Write API endpoints**: priority MEDIUM → CRITICAL, effort 1 day → 3 days"),
+            diff.summary());
+        assertTrue(diff.summary().startsWith("**Plan updated**: 1 task changed"), diff.summary());
+    }
+
+    @Test
+    void matchesRenumberedTasksByTitle() {
+        var before = plan(MILESTONES, TASKS);
+        var renumbered = List.of(
+            task("task-1", "Set up the CI pipeline", Priority.HIGH, "m1", List.of(), 0),
+            task("task-2", "Design database schema", Priority.CRITICAL, "m1", List.of("task-1"), 1),
+            task("task-3", "Write API endpoints", Priority.MEDIUM, "m1", List.of("task-2"), 2),
+            task("task-4", "Deploy to production", Priority.HIGH, "m2", List.of("task-3"), 0));
+
+        var diff = PlanDiffer.diff(before, plan(MILESTONES, renumbered));
+
+        var modified = only(diff.changes(), TaskModified.class);
+        assertEquals(4, diff.changes().size());
+        assertEquals(4, modified.size());
+        assertEquals(Set.of(Field.ID, Field.TITLE), modified.getFirst().fields());
+        for (var change : modified.subList(1, 4)) {
+            assertEquals(Set.of(Field.ID), change.fields(), "dependencies follow the renumbering");
+        }
+        assertTrue(diff.summary().contains("**Set up CI pipeline**: renamed to **Set up the CI pipeline**"));
+    }
+
+    @Test
+    void insertingAtTheTopMovesNothing() {
+        var tasks = new ArrayList<Task>();
+        tasks.add(task("t0", "Write project charter", Priority.LOW, "m1", List.of(), 0));
+        for (var task : TASKS.subList(0, 3)) {
+            tasks.add(new Task(task.id(), task.title(), task.description(), task.priority(), task.milestoneId(),
+                task.dependsOn(), task.estimatedEffort(), task.orderIndex() + 1));
+        }
+        tasks.add(TASKS.get(3));
+
+        var diff = PlanDiffer.diff(plan(MILESTONES, TASKS), plan(MILESTONES, tasks));
+
+        assertEquals(List.of(), only(diff.changes(), TaskMoved.class));
+        assertEquals(1, only(diff.changes(), TaskAdded.class).size());
+        for (var change : only(diff.changes(), TaskModified.class)) {
+            assertEquals(Set.of(Field.ORDER), change.fields());
+        }
+        assertTrue(diff.summary().startsWith("**Plan updated**: 1 task added"), diff.summary());
+        assertTrue(diff.summary().contains("Added **Write project charter** in Foundation"));
+        assertEquals(3, diff.summary().lines().count(), "renumbering is not listed");
+    }
+
+    @Test
+    void swappingTwoTasksMovesOne() {
+        var t1 = TASKS.get(0);
+        var t2 = TASKS.get(1);
+        var swapped = replace(replace(TASKS, 0,
+                new Task(t1.id(), t1.title(), "", t1.priority(), "m1", t1.dependsOn(), "1 day", 1)), 1,
+            new Task(t2.id(), t2.title(), "", t2.priority(), "m1", t2.dependsOn(), "1 day", 0));
+
+        var diff = PlanDiffer.diff(plan(MILESTONES, TASKS), plan(MILESTONES, swapped));
+
+        var moved = only(diff.changes(), TaskMoved.class);
+        assertEquals(1, moved.size());
+        assertTrue(moved.getFirst().reordered());
+        assertTrue(diff.summary().contains("Reordered **"), diff.summary());
+    }
+
+    @Test
+    void movingToAnotherMilestone() {
+        var t3 = TASKS.get(2);
+        var after = plan(MILESTONES, replace(TASKS, 2, new Task(t3.id(), t3.title(), t3.description(),
+            t3.priority(), "m2", t3.dependsOn(), t3.estimatedEffort(), 1)));
+
+        var diff = PlanDiffer.diff(plan(MILESTONES, TASKS), after);
+
+        assertEquals(1, diff.changes().size());
+        var moved = (TaskMoved) diff.changes().getFirst();
+        assertFalse(moved.reordered());
+        assertTrue(diff.summary().contains("Moved **Write API endpoints** from Foundation to Launch"));
+    }
+
+    @Test
+    void removedMilestoneComesAfterItsTasks() {
+        var after = plan(MILESTONES.subList(0, 1), TASKS.subList(0, 3));
+
+        var diff = PlanDiffer.diff(plan(MILESTONES, TASKS), after);
+
+        assertEquals(2, diff.changes().size());
+        assertInstanceOf(TaskRemoved.class, diff.changes().get(0));
+        assertInstanceOf(MilestoneRemoved.class, diff.changes().get(1));
+        assertTrue(diff.summary().startsWith("**Plan updated**: 1 milestone removed, 1 task removed"),
+            diff.summary());
+    }
+
+    @Test
+    void unrelatedTitlesAreNotMatched() {
+        var after = plan(MILESTONES, replace(TASKS, 3,
+            task("t9", "Write user documentation", Priority.LOW, "m2", List.of(), 0)));
+
+        var diff = PlanDiffer.diff(plan(MILESTONES, TASKS), after);
+
+        assertEquals(1, only(diff.changes(), TaskRemoved.class).size());
+        assertEquals(1, only(diff.changes(), TaskAdded.class).size());
+    }
+
+    @Test
+    void diffFromNothingAddsEverything() {
+        var diff = PlanDiffer.diff(null, plan(MILESTONES, TASKS));
+
+        assertEquals(1 + MILESTONES.size() + TASKS.size(), diff.changes().size());
+    }
+
+    @Test
+    void longestIncreasingKeepsTheLongestOrderedRun() {
+        var kept = PlanDiffer.longestIncreasing(new int[] {3, 0, 1, 4, 2, 5});
+
+        int count = 0;
+        int last = -1;
+        int[] values = {3, 0, 1, 4, 2, 5};
+        for (int i = 0; i < kept.length; i++) {
+            if (kept[i]) {
+                assertTrue(values[i] > last);
+                last = values[i];
+                count++;
+            }
+        }
+        assertEquals(4, count);
+    }
+}
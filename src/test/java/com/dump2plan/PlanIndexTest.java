@@ -0,0 +1,187 @@
+package com.dump2plan;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.search.PlanHit;
+import com.dump2plan.search.PlanIndex;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanIndexTest {
+
+    private static final Instant SAVED = Instant.parse("2026-10-01T09:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private final List<PlanIndex> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeIndexes() {
+        opened.forEach(PlanIndex::close);
+    }
+
+    private PlanIndex index(Path path, int mergeFactor) {
+        var index = new PlanIndex(path, 10_000, Duration.ofHours(1), mergeFactor);
+        opened.add(index);
+        return index;
+    }
+
+    private static StructuredPlan plan(String title, String summary, String... taskTitles) {
+        var tasks = IntStream.range(0, taskTitles.length)
+            .mapToObj(i -> new Task("t" + i, taskTitles[i], "", Priority.MEDIUM, "m1", List.of(), "1 day", i))
+            .toList();
+        return new StructuredPlan(title, summary,
+            List.of(new Milestone("m1", "Delivery", "", 0, tasks.stream().map(Task::id).toList())),
+            tasks, "1 month", List.of("Scope creep"), List.of("Team knows the stack"));
+    }
+
+    private static List<String> titles(List<PlanHit> hits) {
+        return hits.stream().map(PlanHit::title).toList();
+    }
+
+    private static void addSamples(PlanIndex index, String userId) {
+        index.add(userId, plan("Mobile app launch", "Ship the iOS app", "Set up Postgres backups",
+            "Design onboarding screens"), SAVED);
+        index.add(userId, plan("Postgres migration", "Move from MySQL to Postgres", "Migrate schema",
+            "Dual-write orders"), SAVED);
+        index.add(userId, plan("Marketing website", "Relaunch the landing page", "Write copy",
+            "Set up analytics"), SAVED);
+    }
+
+    @Test
+    void titleMatchesRankFirst() {
+        var index = index(directory, 10);
+        addSamples(index, "alice");
+
+        var hits = index.search("alice", "postgres", 10);
+
+        assertEquals(List.of("Postgres migration", "Mobile app launch"), titles(hits));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertEquals(SAVED, hits.get(0).savedAt());
+    }
+
+    @Test
+    void queriesAreStemmedAndStopWordsIgnored() {
+        var index = index(directory, 10);
+        addSamples(index, "alice");
+
+        assertEquals(List.of("Postgres migration"), titles(index.search("alice", "the migrations", 10)));
+        assertEquals(List.of(), index.search("alice", "the and of", 10));
+        assertEquals(List.of(), index.search("alice", "kubernetes", 10));
+    }
+
+    @Test
+    void searchesOnlyTheCallersPlans() {
+        var index = index(directory, 10);
+        addSamples(index, "alice");
+        int bobs = index.add("bob", plan("Postgres tuning", "Tune the database", "Add indexes"), SAVED);
+
+        assertEquals(List.of("Postgres tuning"), titles(index.search("bob", "postgres", 10)));
+        assertEquals(2, index.search("alice", "postgres", 10).size());
+        assertEquals(List.of(), index.search("carol", "postgres", 10));
+        assertNull(index.plan("alice", bobs));
+        assertEquals("Postgres tuning", index.plan("bob", bobs).title());
+    }
+
+    @Test
+    void plansSurviveFlushAndReopen() {
+        var first = index(directory, 10);
+        addSamples(first, "alice");
+        var before = first.search("alice", "postgres backups", 10);
+        first.flush();
+        int id = first.add("alice", plan("Data warehouse", "Load Postgres into BigQuery", "Build pipeline"),
+            SAVED);
+        first.close();
+
+        var reopened = index(directory, 10);
+
+        assertEquals(4, reopened.size());
+        assertEquals(2, reopened.segmentCount());
+        assertEquals(plan("Data warehouse", "Load Postgres into BigQuery", "Build pipeline"),
+            reopened.plan("alice", id));
+        var after = reopened.search("alice", "postgres backups", 10);
+        assertEquals(titles(before), titles(after).subList(0, before.size()));
+        int next = reopened.add("alice", plan("Billing", "Invoices", "Stripe integration"), SAVED);
+        assertEquals(id + 1, next);
+    }
+
+    @Test
+    void mergingKeepsIdsAndScores() {
+        var merged = index(directory.resolve("merged"), 2);
+        var buffered = index(directory.resolve("buffered"), 2);
+        for (int i = 0; i < 9; i++) {
+            var plan = plan("Project " + i, i % 3 == 0 ? "Postgres upgrade" : "Frontend work",
+                "Task " + i, i % 2 == 0 ? "Postgres failover drill" : "Review dashboards");
+            assertEquals(merged.add("alice", plan, SAVED), buffered.add("alice", plan, SAVED));
+            merged.flush();
+        }
+
+        assertTrue(merged.segmentCount() < 9, "segments: " + merged.segmentCount());
+        var expected = buffered.search("alice", "postgres failover", 20);
+        var actual = merged.search("alice", "postgres failover", 20);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).id(), actual.get(i).id());
+            assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-9);
+        }
+    }
+
+    @Test
+    void storedPlansAreCompressedAndReadBack() throws IOException {
+        var index = index(directory, 10);
+        var plans = new ArrayList<StructuredPlan>();
+        long json = 0;
+        for (int i = 0; i < 200; i++) {
+            var plan = SyntheticPayloads.plan(5 + i % 40);
+            plans.add(plan);
+            json += new ObjectMapper().writeValueAsBytes(plan).length;
+            assertEquals(i, index.add("alice", plan, SAVED));
+        }
+        index.flush();
+        index.close();
+
+        var reopened = index(directory, 10);
+
+        long bytes;
+        try (var files = Files.list(directory)) {
+            bytes = files.filter(file -> file.toString().endsWith(".seg")).mapToLong(file -> file.toFile().length())
+                .sum();
+        }
+        assertTrue(bytes < json / 4, bytes + " bytes of segments for " + json + " bytes of JSON");
+        for (int i = 0; i < plans.size(); i += 7) {
+            assertEquals(plans.get(i), reopened.plan("alice", i));
+        }
+        assertEquals(plans.getLast(), reopened.plan("alice", plans.size() - 1));
+    }
+
+    @Test
+    void unlistedSegmentFilesAreDiscarded() throws IOException {
+        var first = index(directory, 10);
+        addSamples(first, "alice");
+        first.close();
+        var orphan = directory.resolve("0000000099.seg");
+        Files.write(orphan, new byte[] {1, 2, 3});
+
+        var reopened = index(directory, 10);
+
+        assertFalse(Files.exists(orphan));
+        assertEquals(3, reopened.size());
+    }
+}
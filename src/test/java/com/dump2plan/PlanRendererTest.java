@@ -0,0 +1,111 @@
+package com.dump2plan;
+
+import com.dump2plan.diff.PlanDiffer;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.stub.SyntheticPayloads;
+import com.dump2plan.vaadin.PlanRenderer;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.internal.ConstantPool;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanRendererTest {
+
+    /** The plan with random edits: reprioritized, moved, reordered, dropped and new tasks. */
+    private static StructuredPlan edited(StructuredPlan plan, long seed) {
+        var random = new Random(seed);
+        var milestones = plan.milestones();
+        var tasks = new ArrayList<>(plan.tasks());
+        for (int edit = 0; edit < 6; edit++) {
+            int i = random.nextInt(tasks.size());
+            var t = tasks.get(i);
+            switch (edit % 5) {
+                case 0 -> tasks.set(i, new Task(t.id(), t.title(), t.description(),
+                    Priority.values()[random.nextInt(4)], t.milestoneId(), t.dependsOn(), "2 weeks", t.orderIndex()));
+                case 1 -> tasks.set(i, new Task(t.id(), t.title(), t.description(), t.priority(),
+                    milestones.get(random.nextInt(milestones.size())).id(), t.dependsOn(), t.estimatedEffort(),
+                    random.nextInt(20)));
+                case 2 -> tasks.set(i, new Task(t.id(), t.title(), t.description(), t.priority(), t.milestoneId(),
+                    t.dependsOn(), t.estimatedEffort(), t.orderIndex() + 3));
+                case 3 -> tasks.remove(i);
+                default -> tasks.add(new Task("new-" + edit, "Review rollout checklist " + edit, "",
+                    Priority.LOW, milestones.getFirst().id(), List.of(), null, 1));
+            }
+        }
+        var renamed = new ArrayList<Milestone>(milestones);
+        var first = renamed.getFirst();
+        renamed.set(0, new Milestone(first.id(), first.name() + " (revised)", first.description(),
+            first.orderIndex(), first.taskIds()));
+        return new StructuredPlan(plan.title(), plan.summary(), renamed, tasks, "5 months",
+            plan.risks(), List.of("Team is familiar with the stack"));
+    }
+
+    /** Bytes of the state changes the next round trip would send to the browser. */
+    private static int pendingChangeBytes(UI ui) {
+        var pool = new ConstantPool();
+        var bytes = new int[1];
+        ui.getInternals().getStateTree().collectChanges(change -> bytes[0] += change.toJson(pool).toJson().length());
+        return bytes[0];
+    }
+
+    @Test
+    void appliedDiffRendersLikeAFreshPlan() {
+        for (long seed = 0; seed < 20; seed++) {
+            var before = SyntheticPayloads.plan(40);
+            var after = edited(before, seed);
+            var renderer = new PlanRenderer(before);
+
+            renderer.apply(PlanDiffer.diff(before, after));
+
+            assertEquals(new PlanRenderer(after).getElement().getOuterHTML(),
+                renderer.getElement().getOuterHTML(), "seed " + seed);
+        }
+    }
+
+    @Test
+    void streamedPlanIsCompletedByTheDiff() {
+        var plan = SyntheticPayloads.plan(30);
+        var renderer = new PlanRenderer();
+        plan.milestones().forEach(renderer::addMilestone);
+        plan.tasks().forEach(renderer::addTask);
+
+        renderer.update(new StructuredPlan(null, null, plan.milestones(), plan.tasks(), null, List.of(), List.of()),
+            plan);
+
+        assertEquals(new PlanRenderer(plan).getElement().getOuterHTML(), renderer.getElement().getOuterHTML());
+    }
+
+    @Test
+    void smallEditSendsAFewHundredBytes() {
+        var before = SyntheticPayloads.plan(200);
+        var t = before.tasks().get(17);
+        var tasks = new ArrayList<>(before.tasks());
+        tasks.set(17, new Task(t.id(), t.title(), t.description(),
+            t.priority() == Priority.LOW ? Priority.HIGH : Priority.LOW, t.milestoneId(), t.dependsOn(),
+            "3 weeks", t.orderIndex()));
+        var after = new StructuredPlan(before.title(), before.summary(), before.milestones(), tasks,
+            before.estimatedDuration(), before.risks(), before.assumptions());
+
+        var ui = new UI();
+        var renderer = new PlanRenderer(before);
+        ui.add(renderer);
+        pendingChangeBytes(ui);
+        renderer.apply(PlanDiffer.diff(before, after));
+        int delta = pendingChangeBytes(ui);
+
+        ui.remove(renderer);
+        ui.add(new PlanRenderer(after));
+        int rebuild = pendingChangeBytes(ui);
+
+        assertTrue(delta > 0 && delta < 1000, "delta update was " + delta + " bytes");
+        assertTrue(rebuild > 100 * delta, "rebuild was " + rebuild + " bytes");
+    }
+}
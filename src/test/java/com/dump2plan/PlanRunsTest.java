@@ -0,0 +1,221 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.CheckpointConfig;
+import com.dump2plan.Dump2PlanProperties.DedupConfig;
+import com.dump2plan.Dump2PlanProperties.SchedulingConfig;
+import com.dump2plan.Dump2PlanProperties.SemanticCacheConfig;
+import com.dump2plan.Dump2PlanProperties.StubLlmConfig;
+import com.dump2plan.agent.PlanningPipeline;
+import com.dump2plan.api.PlanRun;
+import com.dump2plan.api.PlanRuns;
+import com.dump2plan.checkpoint.CheckpointRecovery;
+import com.dump2plan.checkpoint.PlanCheckpoints;
+import com.dump2plan.checkpoint.PlanCheckpoints.Origin;
+import com.dump2plan.cost.ActionCostModel;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.observability.PlanTracing;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.racing.ProviderRace;
+import com.dump2plan.scheduling.FairShareScheduler;
+import com.dump2plan.search.PlanSearch;
+import com.dump2plan.session.ChatSessions;
+import com.dump2plan.session.InMemorySessionStore;
+import com.dump2plan.similarity.ActionDeduplicator;
+import com.dump2plan.similarity.SemanticCache;
+import com.dump2plan.streaming.PlanStreams;
+import com.dump2plan.stub.StubLlmClient;
+import com.embabel.agent.api.common.Ai;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PlanRunsTest {
+
+    private static final String BRAIN_DUMP = "We need a customer portal. Users sign in with SSO. "
+        + "Support wants a ticket form.";
+    private static final ClarifiedContext ANSWERS =
+        new ClarifiedContext("3 months", "3 developers", "$50k", "None");
+
+    private final FairShareScheduler scheduler =
+        new FairShareScheduler(new SchedulingConfig(2, 100, 1_000_000, 10, Map.of()));
+    @TempDir
+    Path dir;
+    private Dump2PlanProperties properties;
+    private final ChatSessions sessions = new ChatSessions(new InMemorySessionStore(Duration.ofHours(1)), 12);
+    private PlanCheckpoints checkpoints;
+    private PlanRuns runs;
+
+    @BeforeEach
+    void setUp() {
+        properties = properties(dir.resolve("checkpoints.wal"));
+        checkpoints = new PlanCheckpoints(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+        runs = runs(checkpoints);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        scheduler.close();
+        checkpoints.destroy();
+    }
+
+    private static Dump2PlanProperties properties(Path checkpointFile) {
+        return TestProperties.builder()
+            .semanticCache(new SemanticCacheConfig(true, 100, 0.85, 0.6, 128, 32))
+            .dedup(new DedupConfig(true, 0.7))
+            .checkpoint(new CheckpointConfig(true, checkpointFile.toString(), Duration.ofMillis(1), 1 << 20,
+                Duration.ofHours(1)))
+            .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private PlanRuns runs(PlanCheckpoints checkpoints) {
+        var metrics = new PlannerMetrics(new SimpleMeterRegistry());
+        var tracing = new PlanTracing(ObservationRegistry.create());
+        var llm = new StubLlmClient(new StubLlmConfig(Duration.ofNanos(1000), Duration.ofNanos(5000), 0, 12, 1));
+        var costs = new ActionCostModel(properties, metrics);
+        var pipeline = new PlanningPipeline(properties, metrics, tracing, llm, new PlanStreams(),
+            new SemanticCache(properties, metrics), new ActionDeduplicator(properties),
+            costs, new PlanSearch(properties, metrics), new ProviderRace(properties, metrics, costs),
+            scheduler);
+        return new PlanRuns(pipeline, scheduler, metrics, tracing, mock(ObjectProvider.class), checkpoints,
+            sessions);
+    }
+
+    @Test
+    void run_waitsForAnswersThenStreamsPlan() throws InterruptedException {
+        var run = runs.start("alice", BRAIN_DUMP, null);
+        awaitState(run, PlanRun.State.WAITING_FOR_ANSWERS);
+        assertFalse(run.ideas().clarifyingQuestions().isEmpty());
+
+        var events = new RecordingEmitter();
+        run.subscribe(events, null);
+        assertTrue(runs.answer(run, ANSWERS));
+        assertFalse(runs.answer(run, ANSWERS), "answered once");
+        awaitState(run, PlanRun.State.DONE);
+
+        assertEquals(12, run.plan().tasks().size());
+        assertEquals("status", events.names.get(0));
+        assertEquals("questions", events.names.get(1));
+        assertEquals(12, events.names.stream().filter("task"::equals).count());
+        assertEquals(List.of("plan", "status"), events.names.subList(events.names.size() - 2, events.names.size()));
+    }
+
+    @Test
+    void upFrontAnswers_planWithoutWaiting() throws InterruptedException {
+        var run = runs.start("alice", BRAIN_DUMP, ANSWERS);
+
+        awaitState(run, PlanRun.State.DONE);
+        assertNotNull(run.plan());
+    }
+
+    @Test
+    void lateSubscriber_isReplayedFromLastEventId() throws InterruptedException {
+        var run = runs.start("alice", BRAIN_DUMP, ANSWERS);
+        awaitState(run, PlanRun.State.DONE);
+
+        var all = new RecordingEmitter();
+        run.subscribe(all, null);
+        var rest = new RecordingEmitter();
+        run.subscribe(rest, "1");
+
+        assertEquals(all.names.subList(2, all.names.size()), rest.names);
+    }
+
+    @Test
+    void runs_areVisibleOnlyToTheirOwner() {
+        var run = runs.start("alice", BRAIN_DUMP, null);
+
+        assertSame(run, runs.find(run.id(), "alice"));
+        assertNull(runs.find(run.id(), "bob"));
+    }
+
+    @Test
+    void interruptedRun_resumesUnderSameIdFromCheckpoint() throws Exception {
+        var run = runs.start("alice", BRAIN_DUMP, null);
+        awaitState(run, PlanRun.State.WAITING_FOR_ANSWERS);
+        checkpoints.destroy();
+
+        var restarted = new PlanCheckpoints(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+        var pending = restarted.pendingRuns();
+        assertEquals(1, pending.size());
+        assertEquals(run.ideas(), pending.get(0).ideas());
+
+        var resumedRuns = runs(restarted);
+        var resumed = resumedRuns.resume(pending.get(0));
+        assertEquals(PlanRun.State.WAITING_FOR_ANSWERS, resumed.state());
+        assertSame(resumed, resumedRuns.find(run.id(), "alice"));
+        assertTrue(resumedRuns.answer(resumed, ANSWERS));
+        awaitState(resumed, PlanRun.State.DONE);
+        restarted.destroy();
+
+        checkpoints = new PlanCheckpoints(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+        assertTrue(checkpoints.pendingRuns().isEmpty(), "completed runs are not resumed again");
+    }
+
+    @Test
+    void interruptedChatRun_withAnswers_isFinishedIntoItsConversation() throws Exception {
+        var conversation = ChatSessions.newSessionId();
+        var planning = runs.start("alice", BRAIN_DUMP, null);
+        awaitState(planning, PlanRun.State.WAITING_FOR_ANSWERS);
+        checkpoints.started("agent-run", "alice", Origin.AGENT, BRAIN_DUMP, conversation);
+        checkpoints.analyzed("agent-run", "alice", planning.ideas());
+        checkpoints.answered("agent-run", "alice", ANSWERS);
+        checkpoints.started("waiting-run", "alice", Origin.AGENT, BRAIN_DUMP, conversation);
+        checkpoints.analyzed("waiting-run", "alice", planning.ideas());
+        checkpoints.destroy();
+
+        var restarted = new PlanCheckpoints(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+        var resumedRuns = runs(restarted);
+        new CheckpointRecovery(restarted, resumedRuns, new SemanticCache(properties, new PlannerMetrics(
+            new SimpleMeterRegistry()))).resumePendingRuns();
+        var resumed = resumedRuns.find("agent-run", "alice");
+        assertNotNull(resumed);
+        awaitState(resumed, PlanRun.State.DONE);
+        assertNull(resumedRuns.find("waiting-run", "alice"), "runs waiting for answers are not resumed");
+        assertEquals(resumed.plan(), sessions.open(conversation).plan());
+        restarted.destroy();
+
+        checkpoints = new PlanCheckpoints(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+        var pending = checkpoints.pendingRuns().stream().map(PlanCheckpoints.PendingRun::runId).toList();
+        assertEquals(List.of(planning.id()), pending, "only the unanswered API run is left");
+    }
+
+    private static void awaitState(PlanRun run, PlanRun.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (run.state() != state) {
+            assertNotEquals(PlanRun.State.FAILED, run.state());
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for " + state);
+            Thread.sleep(5);
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> names = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            for (var part : builder.build()) {
+                var text = String.valueOf(part.getData());
+                int start = text.indexOf("event:");
+                if (start >= 0) {
+                    names.add(text.substring(start + 6, text.indexOf('\n', start)));
+                }
+            }
+        }
+    }
+}
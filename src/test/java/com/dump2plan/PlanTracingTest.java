@@ -0,0 +1,166 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.observability.InMemorySpanExporter;
+import com.dump2plan.observability.JsonLinesSpanExporter;
+import com.dump2plan.observability.PlanTracing;
+import com.dump2plan.observability.SpanRecord;
+import com.dump2plan.observability.SpanRecordingHandler;
+import com.dump2plan.service.PlanExportService;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanTracingTest {
+
+    private static final ActorConfig ANALYZER = new ActorConfig("analyzer", "claude-haiku-4-5");
+    private static final ActorConfig PLANNER = new ActorConfig("planner", "claude-sonnet-4-5");
+
+    private InMemorySpanExporter exporter;
+    private ObservationRegistry registry;
+    private PlanTracing tracing;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new InMemorySpanExporter(100);
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new SpanRecordingHandler(exporter));
+        tracing = new PlanTracing(registry);
+    }
+
+    @Test
+    void planningRun_producesOneTraceWithChildSpans() throws Exception {
+        var runId = "run-1";
+        var plan = new StructuredPlan("t", "s", List.of(),
+            List.of(new Task("t1", "A", "a", Priority.HIGH, "m1", List.of(), "1d", 0)),
+            "1w", List.of(), List.of());
+
+        tracing.startRun(runId, 1234);
+        tracing.step("analyzeInput", runId, () -> tracing.llmCall("analyzeInput", ANALYZER, "x".repeat(40), () -> "ideas"));
+        tracing.hitlStarted(runId);
+        tracing.hitlCompleted(runId);
+        try (var executor = Executors.newSingleThreadExecutor()) {
+            executor.submit(() -> tracing.step("structurePlan", runId,
+                () -> tracing.llmCall("structurePlan", PLANNER, "prompt", () -> "structure"))).get();
+        }
+        tracing.finishRun(runId, plan);
+
+        var spans = exporter.getSpans();
+        var root = single(spans, PlanTracing.RUN);
+        assertNull(root.parentSpanId());
+        assertEquals("1234", root.attributes().get("input.chars"));
+        assertEquals("1", root.attributes().get("plan.tasks"));
+        assertEquals(6, exporter.getTrace(root.traceId()).size(), "run, 2 steps, 2 llm calls, hitl");
+
+        var steps = spans.stream().filter(s -> s.name().equals(PlanTracing.STEP)).toList();
+        assertEquals(2, steps.size());
+        steps.forEach(step -> assertEquals(root.spanId(), step.parentSpanId()));
+        assertEquals(root.spanId(), single(spans, PlanTracing.HITL_PAUSE).parentSpanId());
+
+        var analyzeLlm = spans.stream()
+            .filter(s -> s.name().equals(PlanTracing.LLM_CALL) && s.attributes().get("model").equals("claude-haiku-4-5"))
+            .findFirst().orElseThrow();
+        var analyzeStep = steps.stream().filter(s -> s.contextualName().equals("analyzeInput")).findFirst().orElseThrow();
+        assertEquals(analyzeStep.spanId(), analyzeLlm.parentSpanId());
+        assertEquals("11", analyzeLlm.attributes().get("prompt.tokens"));
+        assertNotNull(analyzeLlm.attributes().get("completion.tokens"));
+    }
+
+    @Test
+    void concurrentRuns_ofTheSameInput_keepSeparateTraces() {
+        var plan = new StructuredPlan("t", "s", List.of(), List.of(), "1w", List.of(), List.of());
+        tracing.startRun("run-1", 10);
+        tracing.startRun("run-2", 10);
+        tracing.hitlStarted("run-1");
+        tracing.hitlStarted("run-2");
+
+        tracing.hitlCompleted("run-2");
+        tracing.step("structurePlan", "run-2", () -> "structure");
+        tracing.finishRun("run-2", plan);
+        tracing.hitlCompleted("run-1");
+        tracing.finishRun("run-1", plan);
+
+        var traceSizes = exporter.getSpans().stream()
+            .filter(s -> s.name().equals(PlanTracing.RUN))
+            .map(root -> exporter.getTrace(root.traceId()).size())
+            .sorted()
+            .toList();
+        assertEquals(List.of(2, 3), traceSizes, "run-1: run and hitl; run-2: run, hitl and step");
+    }
+
+    @Test
+    void withoutRunId_stepsAreStandaloneSpans() {
+        tracing.startRun(null, 10);
+        tracing.hitlStarted(null);
+        tracing.step("analyzeInput", null, () -> "ideas");
+
+        var spans = exporter.getSpans();
+        assertEquals(1, spans.size());
+        assertNull(single(spans, PlanTracing.STEP).parentSpanId());
+    }
+
+    @Test
+    void failedStep_recordsError() {
+        tracing.startRun("in", 2);
+        assertThrows(IllegalStateException.class, () -> tracing.step("analyzeInput", "in", () -> {
+            throw new IllegalStateException("provider down");
+        }));
+        var step = single(exporter.getSpans(), PlanTracing.STEP);
+        assertTrue(step.error().contains("provider down"));
+    }
+
+    @Test
+    void failedRun_endsTheRootSpanWithTheError() {
+        tracing.startRun("run-1", 2);
+        tracing.hitlStarted("run-1");
+        tracing.failRun("run-1", new IllegalStateException("provider down"));
+        tracing.step("structurePlan", "run-1", () -> "late");
+
+        var root = single(exporter.getSpans(), PlanTracing.RUN);
+        assertTrue(root.error().contains("provider down"));
+        assertNull(root.attributes().get("abandoned"));
+        assertNotNull(single(exporter.getSpans(), PlanTracing.HITL_PAUSE));
+        assertNull(single(exporter.getSpans(), PlanTracing.STEP).parentSpanId(), "run is no longer active");
+    }
+
+    @Test
+    void export_isTraced() {
+        var exportService = new PlanExportService(registry);
+        exportService.exportToJson(new StructuredPlan("t", "s", List.of(), List.of(), "1w", List.of(), List.of()));
+
+        var span = single(exporter.getSpans(), PlanTracing.EXPORT);
+        assertEquals("json", span.attributes().get("format"));
+    }
+
+    @Test
+    void jsonLinesExporter_appendsOneLinePerSpan(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("traces.jsonl");
+        var fileRegistry = ObservationRegistry.create();
+        try (var fileExporter = new JsonLinesSpanExporter(file)) {
+            fileRegistry.observationConfig().observationHandler(new SpanRecordingHandler(fileExporter));
+            var fileTracing = new PlanTracing(fileRegistry);
+            fileTracing.span(PlanTracing.UI_DELIVERY, "deliver", () -> "ok");
+            fileTracing.span(PlanTracing.UI_DELIVERY, "deliver", () -> "ok");
+        }
+        var lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"name\":\"dump2plan.ui.delivery\""));
+    }
+
+    private static SpanRecord single(List<SpanRecord> spans, String name) {
+        var matching = spans.stream().filter(s -> s.name().equals(name)).toList();
+        assertEquals(1, matching.size(), "expected one " + name);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,151 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.prompt.CacheablePrompt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlannerMetricsTest {
+
+    private static final ActorConfig PLANNER = new ActorConfig("planner", "claude-sonnet-4-5");
+
+    private SimpleMeterRegistry registry;
+    private PlannerMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new PlannerMetrics(registry);
+    }
+
+    @Test
+    void recordLlmAction_timesActionWithActorTags() {
+        var result = metrics.recordLlmAction("structurePlan", PLANNER,
+            new CacheablePrompt("x".repeat(398), ""), () -> "done");
+
+        assertEquals("done", result);
+        var timer = registry.get(PlannerMetrics.ACTION_TIMER)
+            .tags("action", "structurePlan", "actor", "planner",
+                "model", "claude-sonnet-4-5", "outcome", "success")
+            .timer();
+        assertEquals(1, timer.count());
+        assertEquals(101, registry.get(PlannerMetrics.TOKENS).tag("type", "prompt").counter().count());
+        assertEquals(2, registry.get(PlannerMetrics.TOKENS).tag("type", "completion").counter().count());
+    }
+
+    @Test
+    void recordAction_tagsTheModelThatAnswered() {
+        var fallback = new ActorConfig("planner", "claude-haiku-4-5");
+
+        metrics.recordAction("structurePlan", PLANNER, () -> "done", result -> fallback);
+        assertThrows(IllegalStateException.class, () -> metrics.recordAction("structurePlan", PLANNER, () -> {
+            throw new IllegalStateException("all routes down");
+        }, result -> fallback));
+
+        assertEquals(1, registry.get(PlannerMetrics.ACTION_TIMER)
+            .tags("model", "claude-haiku-4-5", "outcome", "success").timer().count());
+        assertEquals(1, registry.get(PlannerMetrics.ACTION_TIMER)
+            .tags("model", "claude-sonnet-4-5", "outcome", "error").timer().count());
+        assertTrue(registry.find(PlannerMetrics.ACTION_TIMER)
+            .tags("model", "claude-sonnet-4-5", "outcome", "success").timers().isEmpty());
+    }
+
+    @Test
+    void recordPromptCache_countsRepeatedLongPrefixAsCached() {
+        var clock = new AtomicLong();
+        var metrics = new PlannerMetrics(registry, clock::get);
+        var prompt = new CacheablePrompt("p".repeat(8000), "s".repeat(1998));
+
+        metrics.recordPromptCache("finalizePlan", PLANNER, prompt);
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        metrics.recordPromptCache("finalizePlan", PLANNER, prompt);
+
+        assertEquals(2001, registry.get(PlannerMetrics.TOKENS).tag("type", "cached-prompt").counter().count());
+        var ratio = registry.get(PlannerMetrics.PROMPT_CACHE_RATIO).tag("action", "finalizePlan").summary();
+        assertEquals(2, ratio.count());
+        assertEquals(0.8, ratio.max(), 0.01);
+    }
+
+    @Test
+    void recordPromptCache_ignoresShortOrExpiredPrefixes() {
+        var clock = new AtomicLong();
+        var metrics = new PlannerMetrics(registry, clock::get);
+        var shortPrompt = new CacheablePrompt("p".repeat(400), "suffix");
+        var longPrompt = new CacheablePrompt("p".repeat(8000), "suffix");
+
+        metrics.recordPromptCache("respond", PLANNER, shortPrompt);
+        metrics.recordPromptCache("respond", PLANNER, shortPrompt);
+        metrics.recordPromptCache("respond", PLANNER, longPrompt);
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+        metrics.recordPromptCache("respond", PLANNER, longPrompt);
+        metrics.recordPromptCache("respond", new ActorConfig("planner", "other-model"), longPrompt);
+
+        assertEquals(0, registry.get(PlannerMetrics.TOKENS).tag("type", "cached-prompt").counters().stream()
+            .mapToDouble(Counter::count).sum());
+    }
+
+    @Test
+    void recordAction_tagsFailures() {
+        assertThrows(IllegalStateException.class, () -> metrics.recordAction("finalizePlan", PLANNER, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(1, registry.get(PlannerMetrics.ACTION_TIMER).tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void hitlWait_recordedOnlyForStartedRuns() {
+        metrics.hitlCompleted("unknown");
+        assertNull(registry.find(PlannerMetrics.HITL_WAIT).timer());
+
+        metrics.hitlStarted("run-1");
+        metrics.hitlStarted("run-2");
+        metrics.hitlCompleted("run-1");
+        metrics.hitlCompleted("run-1");
+        assertEquals(1, registry.get(PlannerMetrics.HITL_WAIT).timer().count());
+
+        metrics.hitlCompleted("run-2");
+        metrics.hitlStarted(null);
+        metrics.hitlCompleted(null);
+        assertEquals(2, registry.get(PlannerMetrics.HITL_WAIT).timer().count());
+    }
+
+    @Test
+    void cacheAndRetryCounters() {
+        metrics.cacheHit("prompt");
+        metrics.cacheHit("prompt");
+        metrics.cacheMiss("prompt");
+        metrics.retry(PLANNER, "gemini-2.5-pro");
+
+        assertEquals(2, registry.get(PlannerMetrics.CACHE_REQUESTS).tags("cache", "prompt", "result", "hit").counter().count());
+        assertEquals(1, registry.get(PlannerMetrics.CACHE_REQUESTS).tags("cache", "prompt", "result", "miss").counter().count());
+        assertEquals(1, registry.get(PlannerMetrics.RETRIES).tag("model", "gemini-2.5-pro").counter().count());
+    }
+
+    @Test
+    void recordPlanSize_recordsMilestonesAndTasks() {
+        var plan = new StructuredPlan("t", "s",
+            List.of(new Milestone("m1", "M1", "d", 0, List.of("t1", "t2"))),
+            List.of(
+                new Task("t1", "A", "a", Priority.HIGH, "m1", List.of(), "1d", 0),
+                new Task("t2", "B", "b", Priority.LOW, "m1", List.of("t1"), "2d", 1)),
+            "1 week", List.of(), List.of());
+
+        metrics.recordPlanSize(plan);
+
+        assertEquals(1, registry.get(PlannerMetrics.PLAN_MILESTONES).summary().totalAmount());
+        assertEquals(2, registry.get(PlannerMetrics.PLAN_TASKS).summary().totalAmount());
+    }
+}
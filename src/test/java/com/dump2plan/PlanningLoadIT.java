@@ -0,0 +1,163 @@
+package com.dump2plan;
+
+import com.dump2plan.agent.BrainDumpPlannerAgent;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.user.Dump2PlanUser;
+import com.dump2plan.user.Dump2PlanUserService;
+import com.embabel.agent.api.channel.MessageOutputChannelEvent;
+import com.embabel.agent.api.channel.OutputChannel;
+import com.embabel.agent.api.channel.OutputChannelEvent;
+import com.embabel.agent.api.common.OperationContext;
+import com.embabel.agent.domain.io.UserInput;
+import com.embabel.chat.Chatbot;
+import com.embabel.chat.Message;
+import com.embabel.chat.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Offline load test of the full pipeline against the {@code stub-llm}
+ * profile. Each simulated user opens a {@link Chatbot} session, sends a brain
+ * dump, waits for the assistant's reply, then runs the planning actions with
+ * a simulated HITL think time between {@code analyzeInput} and
+ * {@code structurePlan}. Reports throughput, p50/p99 plan latency, heap and
+ * peak thread count.
+ *
+ * <p>Excluded from {@code mvn test}; run with e.g.</p>
+ * <pre>
+ *   mvn verify -Dit.test=PlanningLoadIT -Dload.users=500 -Dload.rounds=2 \
+ *       -Ddump2plan.stub-llm.median-latency=200ms
+ * </pre>
+ *
+ * <p>The stub {@code LlmClient} never touches Embabel's {@code Ai}, so the
+ * planning actions are invoked directly with a {@code null} {@code Ai}.</p>
+ */
+@SpringBootTest(
+    classes = TestDump2PlanApplication.class,
+    properties = {
+        "spring.main.web-application-type=none",
+        "dump2plan.stub-llm.median-latency=20ms",
+        "dump2plan.stub-llm.p99-latency=200ms"
+    }
+)
+@ActiveProfiles({"it", "stub-llm"})
+class PlanningLoadIT {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanningLoadIT.class);
+
+    private static final String BRAIN_DUMP = """
+        We need a customer portal. Users sign in with SSO. They can see invoices
+        and download PDFs. Support wants a ticket form. Marketing wants a newsletter
+        signup. We should migrate the old accounts. Mobile friendly is a must.
+        """;
+
+    @Autowired
+    private Chatbot chatbot;
+
+    @Autowired
+    private BrainDumpPlannerAgent agent;
+
+    @Autowired
+    private Dump2PlanUserService userService;
+
+    @Test
+    void concurrentUsers_completeFullPipeline() throws Exception {
+        int users = Integer.getInteger("load.users", 50);
+        int rounds = Integer.getInteger("load.rounds", 1);
+        int thinkMillis = Integer.getInteger("load.thinkMillis", 50);
+
+        var threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        var latencies = Collections.synchronizedList(new ArrayList<Long>());
+        var failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < users; u++) {
+                var user = userService.register(new Dump2PlanUser("Load " + u, "load-" + u, "USER"));
+                executor.submit(() -> {
+                    for (int r = 0; r < rounds; r++) {
+                        try {
+                            latencies.add(simulateUser(user, thinkMillis));
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                            log.debug("Simulated user {} failed", user.getUsername(), e);
+                        }
+                    }
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        var memory = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        var sorted = latencies.stream().sorted().toList();
+        log.info("""
+            Load report: {} users x {} rounds
+              completed: {}  failed: {}  elapsed: {} s
+              throughput: {} plans/s
+              latency p50: {} ms  p99: {} ms
+              heap used: {} MB of {} MB  peak threads: {}""",
+            users, rounds, sorted.size(), failures.get(), String.format("%.2f", elapsedSeconds),
+            String.format("%.1f", sorted.size() / elapsedSeconds),
+            percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99),
+            memory.getUsed() >> 20, memory.getMax() >> 20, threads.getPeakThreadCount());
+
+        assertEquals(0, failures.get());
+        assertEquals(users * rounds, sorted.size());
+    }
+
+    private long simulateUser(Dump2PlanUser user, int thinkMillis) throws InterruptedException {
+        long start = System.nanoTime();
+
+        BlockingQueue<Message> replies = new ArrayBlockingQueue<>(10);
+        var session = chatbot.createSession(user, new OutputChannel() {
+            @Override
+            public void send(OutputChannelEvent event) {
+                if (event instanceof MessageOutputChannelEvent message) {
+                    replies.offer(message.getMessage());
+                }
+            }
+        }, null, null);
+        session.onUserMessage(new UserMessage(BRAIN_DUMP));
+        assertNotNull(replies.poll(30, TimeUnit.SECONDS), "chat reply");
+
+        var context = mock(OperationContext.class, RETURNS_DEEP_STUBS);
+        when(context.getProcessContext().getProcessOptions().getIdentities().getForUser()).thenReturn(user);
+        var ideas = agent.analyzeInput(new UserInput(BRAIN_DUMP), context);
+        Thread.sleep(ThreadLocalRandom.current().nextInt(thinkMillis + 1));
+        var answers = new ClarifiedContext("3 months", "3 developers", "$50k", "None");
+        var structure = agent.structurePlan(ideas, answers, context);
+        var plan = agent.finalizePlan(structure, ideas, context);
+        assertFalse(plan.tasks().isEmpty());
+
+        return System.nanoTime() - start;
+    }
+
+    private static long percentileMillis(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+    }
+}
@@ -0,0 +1,195 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.CostsConfig;
+import com.dump2plan.Dump2PlanProperties.RacingConfig;
+import com.dump2plan.agent.Answered;
+import com.dump2plan.cost.ActionCostModel;
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.dump2plan.racing.ProviderRace;
+import com.dump2plan.racing.StructuralCheck;
+import com.dump2plan.stub.SyntheticPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderRaceTest {
+
+    private static final ActorConfig PLANNER = new ActorConfig("planner", "sonnet");
+    private static final CacheablePrompt PROMPT = new CacheablePrompt("You are a planner.", "Structure this.");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Set<String> called = ConcurrentHashMap.newKeySet();
+
+    private ProviderRace race(Duration hedgeDelay, long tokensPerHour) {
+        var properties = TestProperties.builder()
+            .racing(new RacingConfig(true, List.of("structurePlan"), Map.of("planner", "gpt"), hedgeDelay, tokensPerHour))
+            .build();
+        var metrics = new PlannerMetrics(registry);
+        return new ProviderRace(properties, metrics, new ActionCostModel(properties, metrics));
+    }
+
+    /** A model call answering with {@code answers.get(model)} after {@code delays.get(model)} ms. */
+    private <T> Function<ActorConfig, Answered<T>> models(Map<String, T> answers, Map<String, Long> delays) {
+        return actor -> {
+            called.add(actor.llm());
+            try {
+                Thread.sleep(delays.get(actor.llm()));
+            } catch (InterruptedException e) {
+                called.add(actor.llm() + " cancelled");
+                throw new IllegalStateException(e);
+            }
+            var answer = answers.get(actor.llm());
+            if (answer instanceof RuntimeException e) {
+                throw e;
+            }
+            return new Answered<>(actor, answer);
+        };
+    }
+
+    private static ProjectStructure withoutTasks(ProjectStructure structure) {
+        return new ProjectStructure(structure.title(), structure.summary(), structure.milestones(), List.of(),
+            structure.estimatedDuration());
+    }
+
+    @Test
+    void slowPrimary_losesToChallenger_whichIsTaken() throws InterruptedException {
+        var race = race(Duration.ZERO, 100_000);
+        var primary = SyntheticPayloads.structure(10);
+        var challenger = SyntheticPayloads.structure(20);
+
+        var result = race.call("structurePlan", PLANNER, PROMPT,
+            models(Map.of("sonnet", primary, "gpt", challenger), Map.of("sonnet", 5_000L, "gpt", 10L)));
+
+        assertSame(challenger, result.value());
+        for (int i = 0; i < 100 && !called.contains("sonnet cancelled"); i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(called.contains("sonnet cancelled"), "loser is interrupted: " + called);
+        var stats = race.stats().getFirst();
+        assertEquals(1, stats.challengerWins());
+        assertEquals(1.0, stats.challengerWinRate());
+        assertEquals(1, registry.get(PlannerMetrics.RACE).tag("result", "challenger").timer().count());
+    }
+
+    @Test
+    void invalidAnswer_isSkippedForTheOtherModels() {
+        var race = race(Duration.ZERO, 100_000);
+        var valid = SyntheticPayloads.structure(10);
+
+        var result = race.call("structurePlan", PLANNER, PROMPT, models(
+            Map.of("sonnet", valid, "gpt", withoutTasks(valid)), Map.of("sonnet", 100L, "gpt", 0L)));
+
+        assertSame(valid, result.value());
+        assertEquals(1, race.stats().getFirst().primaryWins());
+    }
+
+    @Test
+    void fastPrimary_runsAloneWithinHedgeDelay() {
+        var race = race(Duration.ofSeconds(5), 100_000);
+        var primary = SyntheticPayloads.structure(10);
+
+        var result = race.call("structurePlan", PLANNER, PROMPT,
+            models(Map.of("sonnet", primary, "gpt", primary), Map.of("sonnet", 0L, "gpt", 0L)));
+
+        assertSame(primary, result.value());
+        assertEquals(Set.of("sonnet"), called);
+        assertEquals(1, race.stats().getFirst().primaryOnly());
+    }
+
+    @Test
+    void spentBudget_stopsRacing() {
+        var race = race(Duration.ZERO, 1);
+        var structure = SyntheticPayloads.structure(10);
+        var call = models(Map.of("sonnet", structure, "gpt", structure), Map.of("sonnet", 20L, "gpt", 0L));
+
+        race.call("structurePlan", PLANNER, PROMPT, call);
+        called.remove("gpt");
+        race.call("structurePlan", PLANNER, PROMPT, call);
+
+        assertFalse(called.contains("gpt"), "second call is not raced");
+        assertTrue(race.remainingBudget() < 0);
+        assertEquals(1, race.stats().getFirst().overBudget());
+    }
+
+    @Test
+    void bothFailing_rethrowsFirstFailureWithTheOther() {
+        var race = race(Duration.ZERO, 100_000);
+        var call = this.<Object>models(Map.of("sonnet", new IllegalStateException("sonnet down"),
+            "gpt", new IllegalStateException("gpt down")), Map.of("sonnet", 50L, "gpt", 0L));
+
+        var failure = assertThrows(IllegalStateException.class,
+            () -> race.call("structurePlan", PLANNER, PROMPT, call));
+
+        assertEquals("gpt down", failure.getMessage());
+        assertEquals("sonnet down", failure.getSuppressed()[0].getMessage());
+        assertEquals(1, race.stats().getFirst().failed());
+    }
+
+    @Test
+    void unracedAction_callsOnlyTheActorsModel() {
+        var race = race(Duration.ZERO, 100_000);
+        var plan = SyntheticPayloads.plan(10);
+
+        race.call("finalizePlan", PLANNER, PROMPT,
+            models(Map.of("sonnet", plan, "gpt", plan), Map.of("sonnet", 0L, "gpt", 0L)));
+
+        assertEquals(Set.of("sonnet"), called);
+        assertTrue(race.stats().isEmpty());
+    }
+
+    @Test
+    void failedOverCall_isMeasuredUnderTheModelThatAnswered() {
+        var properties = TestProperties.builder().costs(new CostsConfig(true, 0.2, 1, 0.01, 0.01, null)).build();
+        var metrics = new PlannerMetrics(registry);
+        var costs = new ActionCostModel(properties, metrics);
+        var race = new ProviderRace(properties, metrics, costs);
+        var plan = SyntheticPayloads.plan(10);
+
+        var result = race.call("finalizePlan", PLANNER, PROMPT,
+            actor -> new Answered<>(new ActorConfig(actor.persona(), "haiku"), plan));
+
+        assertEquals("haiku", result.model().llm());
+        assertNotNull(costs.expectedLatency("finalizePlan", "haiku", 10));
+        assertNull(costs.expectedLatency("finalizePlan", "sonnet", 10), "the fallback's latency is its own");
+    }
+
+    @Test
+    void structuralCheck_rejectsDanglingReferences() {
+        var plan = SyntheticPayloads.plan(12);
+        var strayTask = new Task("t99", "Orphan", "", null, "m9", List.of(), "1 day", 0);
+        var badDependency = new Task("t98", "Late", "", null, "m0", List.of("t404"), "1 day", 0);
+
+        assertNull(StructuralCheck.problem(plan));
+        assertNotNull(StructuralCheck.problem(null));
+        assertNotNull(StructuralCheck.problem(withTask(plan, strayTask)));
+        assertNotNull(StructuralCheck.problem(withTask(plan, badDependency)));
+        assertNotNull(StructuralCheck.problem(new StructuredPlan(" ", plan.summary(), plan.milestones(),
+            plan.tasks(), plan.estimatedDuration(), plan.risks(), plan.assumptions())));
+        assertNotNull(StructuralCheck.problem(new StructuredPlan(plan.title(), plan.summary(),
+            List.of(new Milestone("m0", "A", "", 0, List.of()), new Milestone("m0", "B", "", 1, List.of())),
+            plan.tasks(), plan.estimatedDuration(), plan.risks(), plan.assumptions())));
+    }
+
+    private static StructuredPlan withTask(StructuredPlan plan, Task task) {
+        var tasks = new ArrayList<>(plan.tasks());
+        tasks.add(task);
+        return new StructuredPlan(plan.title(), plan.summary(), plan.milestones(), tasks,
+            plan.estimatedDuration(), plan.risks(), plan.assumptions());
+    }
+}
@@ -0,0 +1,69 @@
+package com.dump2plan;
+
+import com.dump2plan.compression.DictionaryTrainer;
+import com.dump2plan.compression.RecordCompressor;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordCompressorTest {
+
+    private static List<byte[]> exports(int from, int to) {
+        var export = new PlanExportService();
+        var records = new ArrayList<byte[]>();
+        for (int tasks = from; tasks < to; tasks++) {
+            records.add(export.exportToMarkdown(SyntheticPayloads.plan(tasks)).getBytes(StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    private static long compressedSize(RecordCompressor compressor, List<byte[]> records) {
+        return records.stream().mapToLong(record -> compressor.compress(record).length).sum();
+    }
+
+    @Test
+    void trainedDictionary_shrinksSmallRecords() {
+        var dictionary = DictionaryTrainer.train(exports(1, 40), 8 * 1024);
+        var unseen = exports(40, 60);
+
+        long plain = compressedSize(new RecordCompressor(new byte[0], 6), unseen);
+        long primed = compressedSize(new RecordCompressor(dictionary, 6), unseen);
+
+        assertTrue(dictionary.length > 0 && dictionary.length <= 8 * 1024, dictionary.length + " bytes");
+        assertTrue(primed < plain * 0.8, primed + " bytes with the dictionary vs " + plain + " without");
+    }
+
+    @Test
+    void compressedRecords_roundTripFromHeapAndDirectBuffers() {
+        var compressor = new RecordCompressor(DictionaryTrainer.train(exports(1, 20), 4096), 6);
+        var record = exports(25, 26).get(0);
+        var compressed = compressor.compress(record);
+        var direct = ByteBuffer.allocateDirect(compressed.length).put(compressed).flip();
+
+        assertArrayEquals(record, compressor.decompress(compressed, record.length));
+        assertArrayEquals(record, compressor.decompress(direct, record.length));
+        assertArrayEquals(new byte[0], compressor.decompress(compressor.compress(new byte[0]), 0));
+    }
+
+    @Test
+    void otherDictionaryOrCorruptInput_isRejected() {
+        var record = exports(10, 11).get(0);
+        var compressed = new RecordCompressor("# Plan".getBytes(StandardCharsets.UTF_8), 6).compress(record);
+        var other = new RecordCompressor("## Risks".getBytes(StandardCharsets.UTF_8), 6);
+        var same = new RecordCompressor("# Plan".getBytes(StandardCharsets.UTF_8), 6);
+
+        assertThrows(IllegalArgumentException.class, () -> other.decompress(compressed, record.length));
+        assertThrows(IllegalArgumentException.class,
+            () -> same.decompress(Arrays.copyOf(compressed, compressed.length / 2), record.length));
+        assertThrows(IllegalArgumentException.class, () -> same.decompress(compressed, record.length - 1));
+        assertArrayEquals(record, same.decompress(compressed, record.length));
+    }
+}
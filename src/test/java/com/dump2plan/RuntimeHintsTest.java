@@ -0,0 +1,41 @@
+package com.dump2plan;
+
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    RuntimeHintsTest() {
+        new Dump2PlanRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void modelRecords_areBindableByReflection() throws NoSuchMethodException {
+        for (var type : Dump2PlanRuntimeHints.BOUND_TYPES) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(type).test(hints), type.getName());
+        }
+        assertTrue(RuntimeHintsPredicates.reflection()
+            .onMethod(StructuredPlan.class.getMethod("tasks")).invoke().test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Task.class)
+            .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints));
+    }
+
+    @Test
+    void promptTemplates_areIncludedAsResources() {
+        assertTrue(RuntimeHintsPredicates.resource().forResource("prompts/dump2plan.jinja").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("prompts/elements/guardrails.jinja").test(hints));
+    }
+
+    @Test
+    void compressionDictionaries_areIncludedAsResources() {
+        assertTrue(RuntimeHintsPredicates.resource().forResource("compression/session-v1.dict").test(hints));
+    }
+}
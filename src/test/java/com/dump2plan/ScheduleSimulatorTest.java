@@ -0,0 +1,146 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ScheduleConfig;
+import com.dump2plan.forecast.Effort;
+import com.dump2plan.forecast.EffortParser;
+import com.dump2plan.forecast.ScheduleSimulator;
+import com.dump2plan.forecast.WhatIfAnswers;
+import com.dump2plan.model.ClarifiedContext;
+import com.dump2plan.model.Priority;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.model.Task;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.stub.SyntheticPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleSimulatorTest {
+
+    /** A Friday. */
+    private static final LocalDate START = LocalDate.of(2026, 10, 16);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ScheduleSimulator simulator = new ScheduleSimulator(
+        TestProperties.builder().schedule(new ScheduleConfig(2000, 8, 1, 42)).build(), new PlannerMetrics(registry));
+
+    private static Task task(String id, String effort, Priority priority, String... dependsOn) {
+        return new Task(id, "Task " + id, "", priority, "m1", List.of(dependsOn), effort, 0);
+    }
+
+    private static StructuredPlan plan(Task... tasks) {
+        return new StructuredPlan("Plan", "", List.of(), List.of(tasks), null, List.of(), List.of());
+    }
+
+    @Test
+    void parsesEffortRanges() {
+        assertEquals(new Effort(16, 20, 24), EffortParser.parse("2-3 days", 8));
+        assertEquals(new Effort(16, 20, 24), EffortParser.parse("2 to 3 days", 8));
+        assertEquals(new Effort(3, 4, 6.4), EffortParser.parse("4h", 8));
+        assertEquals(80, EffortParser.parse("a couple of weeks", 8).likely(), 1e-9);
+        assertEquals(56, EffortParser.parse("1 week and 2 days", 8).likely(), 1e-9);
+        assertEquals(4, EffortParser.parse("half a day", 8).likely(), 1e-9);
+        assertNull(EffortParser.parse("TBD", 8));
+        assertNull(EffortParser.parse(null, 8));
+    }
+
+    @Test
+    void parsesTeamSize() {
+        assertEquals(OptionalInt.of(3), EffortParser.teamSize("3 developers"));
+        assertEquals(OptionalInt.of(2), EffortParser.teamSize("2-3 engineers"));
+        assertEquals(OptionalInt.of(2), EffortParser.teamSize("two people"));
+        assertEquals(OptionalInt.of(1), EffortParser.teamSize("Just me"));
+        assertEquals(OptionalInt.empty(), EffortParser.teamSize("Not specified"));
+    }
+
+    @Test
+    void sampledEffortStaysInItsRange() {
+        var effort = new Effort(2, 3, 10);
+        assertEquals(2, effort.sample(0), 1e-9);
+        assertEquals(3, effort.sample(1.0 / 8), 1e-9);
+        assertEquals(10, effort.sample(1), 1e-9);
+    }
+
+    @Test
+    void dependenciesSerializeWork() {
+        var chain = plan(task("a", "1 day", Priority.HIGH), task("b", "1 day", Priority.HIGH, "a"),
+            task("c", "1 day", Priority.HIGH, "b"), task("d", "1 day", Priority.HIGH, "c"));
+        var independent = plan(task("a", "1 day", Priority.HIGH), task("b", "1 day", Priority.HIGH),
+            task("c", "1 day", Priority.HIGH), task("d", "1 day", Priority.HIGH));
+
+        assertEquals(4, simulator.schedule(chain, 3).days(), 1e-9);
+        assertEquals(2, simulator.schedule(independent, 2).days(), 1e-9);
+        assertEquals(1, simulator.schedule(independent, 8).days(), 1e-9);
+    }
+
+    @Test
+    void longestChainStartsFirst() {
+        var plan = plan(task("x", "1 day", Priority.CRITICAL), task("y", "1 day", Priority.CRITICAL),
+            task("z", "1 day", Priority.LOW), task("w", "3 days", Priority.LOW, "z"));
+
+        var schedule = simulator.schedule(plan, 2);
+
+        assertEquals(4, schedule.days(), 1e-9, "plan order would take 5 days");
+        assertEquals("z", schedule.slots().getFirst().taskId());
+    }
+
+    @Test
+    void cyclesAndUnknownDependenciesAreIgnored() {
+        var plan = plan(task("a", "1 day", Priority.HIGH, "b", "missing"), task("b", "1 day", Priority.HIGH, "a"),
+            task("c", "soon", Priority.HIGH, "c"));
+
+        var schedule = simulator.schedule(plan, 1);
+
+        assertEquals(3, schedule.days(), 1e-9);
+        assertEquals(1, simulator.forecast(plan, 1, START).unparsedEfforts());
+    }
+
+    @Test
+    void forecastIsRepeatableAndNarrowsWithMorePeople() {
+        var plan = SyntheticPayloads.plan(200);
+
+        var solo = simulator.forecast(plan, 1, START);
+        var again = simulator.forecast(plan, 1, START);
+        var team = simulator.forecast(plan, 4, START);
+
+        assertEquals(solo, again);
+        assertTrue(solo.p50Days() <= solo.p90Days());
+        assertTrue(team.p50Days() < solo.p50Days());
+        assertTrue(team.p50Days() >= team.criticalPathDays() * 0.75);
+        assertFalse(team.p90Date().isBefore(team.p50Date()));
+        assertEquals(3, registry.get(PlannerMetrics.SCHEDULE_SIMULATION).timers().stream()
+            .mapToLong(timer -> timer.count()).sum());
+    }
+
+    @Test
+    void datesSkipWeekends() {
+        assertEquals(START, ScheduleSimulator.workingDaysFrom(START, 0.5));
+        assertEquals(LocalDate.of(2026, 10, 19), ScheduleSimulator.workingDaysFrom(START, 2));
+        assertEquals(LocalDate.of(2026, 10, 19), ScheduleSimulator.workingDaysFrom(START.plusDays(1), 1));
+        assertEquals(LocalDate.of(2026, 10, 23), ScheduleSimulator.workingDaysFrom(START, 6));
+    }
+
+    @Test
+    void answersWhatIfQuestionsLocally() {
+        var whatIf = new WhatIfAnswers(simulator, null);
+        var plan = SyntheticPayloads.plan(60);
+        var answers = new ClarifiedContext("3 months", "2 developers", "None", "");
+
+        var more = whatIf.answer(plan, answers, "What if we add 2 more developers?", START).orElseThrow();
+        var exact = whatIf.answer(plan, answers, "what if we had three engineers", START).orElseThrow();
+        var eta = whatIf.answer(plan, answers, "When will we be done?", START).orElseThrow();
+
+        assertTrue(more.startsWith("**With 4 developers**"), more);
+        assertTrue(more.contains("With 2 developers the median is"), more);
+        assertTrue(exact.startsWith("**With 3 developers**"), exact);
+        assertTrue(eta.startsWith("**With 2 developers**"), eta);
+        assertTrue(eta.contains("2,000 runs"), eta);
+        assertTrue(whatIf.answer(plan, answers, "What if we drop the mobile app?", START).isEmpty());
+        assertTrue(whatIf.answer(null, answers, "When will we be done?", START).isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.SemanticCacheConfig;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.similarity.SemanticCache;
+import com.dump2plan.stub.SyntheticPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemanticCacheTest {
+
+    private static final String LAUNCH = """
+        We need to launch the new mobile app before the spring conference. The login flow
+        still breaks on Android tablets and the onboarding screens need a redesign.
+
+        Marketing wants a landing page with a waitlist, and the billing API has to support
+        annual plans. We should also set up crash reporting and a beta channel for testers.
+
+        The backend team is two people, so the push notification worker may slip to phase two.
+        """;
+
+    private static final String LAUNCH_REORDERED = """
+        Marketing wants a landing page with a waitlist, and the billing API has to support
+        annual plans. We should also set up crash reporting and a beta channel for testers.
+
+        We need to launch the new mobile app before the spring conference. The login flow
+        still breaks on Android tablets and the onboarding screens need a redesign.
+
+        The backend team is two people, so the push notification worker may slip to phase two.
+        """;
+
+    private static final String LAUNCH_REVISED = LAUNCH
+        .replace("spring conference", "summer conference")
+        .replace("two people", "three people")
+        + "\nAlso the admin dashboard needs an audit log for support staff.\n";
+
+    private static final String GARDEN = """
+        Plan the community garden: order raised beds, find volunteers for the watering rota,
+        ask the council about the water tap, and organise a seed swap in April.
+        """;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private SemanticCache cache(int maxEntries) {
+        var properties = TestProperties.builder()
+            .semanticCache(new SemanticCacheConfig(true, maxEntries, 0.85, 0.6, 128, 32))
+            .build();
+        return new SemanticCache(properties, new PlannerMetrics(registry));
+    }
+
+    @Test
+    void reorderedDump_reusesIdeas() {
+        var cache = cache(100);
+        var ideas = SyntheticPayloads.ideas(LAUNCH);
+        cache.remember("alice", LAUNCH, ideas);
+
+        assertSame(ideas, cache.findIdeas("alice", LAUNCH_REORDERED));
+        assertNull(cache.findIdeas("alice", GARDEN));
+    }
+
+    @Test
+    void otherUsersDump_isNeverReused() {
+        var cache = cache(100);
+        cache.remember("alice", LAUNCH, SyntheticPayloads.ideas(LAUNCH));
+
+        assertNull(cache.findIdeas("bob", LAUNCH));
+    }
+
+    @Test
+    void revisedDump_isSeededWithEarlierPlan() {
+        var cache = cache(100);
+        var ideas = SyntheticPayloads.ideas(LAUNCH);
+        var plan = SyntheticPayloads.plan(20);
+        cache.remember("alice", LAUNCH, ideas);
+        cache.rememberPlan("alice", ideas, plan);
+
+        assertNull(cache.findIdeas("alice", LAUNCH_REVISED));
+        var revisedIdeas = SyntheticPayloads.ideas(LAUNCH_REVISED);
+        cache.remember("alice", LAUNCH_REVISED, revisedIdeas);
+
+        assertSame(plan, cache.findSeedPlan("alice", revisedIdeas));
+    }
+
+    @Test
+    void equalAnalysesOfTwoUsers_neverSeedEachOther() {
+        var cache = cache(100);
+        var ideas = SyntheticPayloads.ideas(LAUNCH);
+        var alicesPlan = SyntheticPayloads.plan(20);
+        cache.remember("alice", LAUNCH, ideas);
+        cache.remember("bob", LAUNCH, ideas);
+        cache.rememberPlan("alice", ideas, alicesPlan);
+
+        assertNull(cache.findSeedPlan("bob", ideas));
+        assertSame(alicesPlan, cache.findSeedPlan("alice", ideas));
+
+        var bobsPlan = SyntheticPayloads.plan(12);
+        cache.rememberPlan("bob", ideas, bobsPlan);
+        assertSame(bobsPlan, cache.findSeedPlan("bob", ideas));
+        assertSame(alicesPlan, cache.findSeedPlan("alice", ideas));
+    }
+
+    @Test
+    void unrelatedDump_getsNoSeed() {
+        var cache = cache(100);
+        var ideas = SyntheticPayloads.ideas(LAUNCH);
+        cache.remember("alice", LAUNCH, ideas);
+        cache.rememberPlan("alice", ideas, SyntheticPayloads.plan(20));
+        var gardenIdeas = SyntheticPayloads.ideas(GARDEN);
+        cache.remember("alice", GARDEN, gardenIdeas);
+
+        assertNull(cache.findSeedPlan("alice", gardenIdeas));
+    }
+
+    @Test
+    void evictsOldestBeyondMaxEntries() {
+        var cache = cache(2);
+        cache.remember("alice", LAUNCH, SyntheticPayloads.ideas(LAUNCH));
+        cache.remember("alice", GARDEN, SyntheticPayloads.ideas(GARDEN));
+        cache.remember("alice", "Write the quarterly report and book the offsite venue for the team.",
+            SyntheticPayloads.ideas("report"));
+
+        assertNull(cache.findIdeas("alice", LAUNCH));
+        assertNotNull(cache.findIdeas("alice", GARDEN));
+    }
+
+    @Test
+    void lookups_recordHitRateAndLatency() {
+        var cache = cache(100);
+        cache.remember("alice", LAUNCH, SyntheticPayloads.ideas(LAUNCH));
+
+        cache.findIdeas("alice", LAUNCH);
+        cache.findIdeas("alice", GARDEN);
+
+        assertEquals(1, registry.get(PlannerMetrics.CACHE_REQUESTS)
+            .tags("cache", "semantic-ideas", "result", "hit").counter().count());
+        assertEquals(1, registry.get(PlannerMetrics.CACHE_REQUESTS)
+            .tags("cache", "semantic-ideas", "result", "miss").counter().count());
+        assertEquals(2, registry.get(PlannerMetrics.CACHE_LOOKUP).tags("cache", "semantic-ideas").timer().count());
+    }
+}
@@ -0,0 +1,107 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ScheduleConfig;
+import com.dump2plan.compression.DictionaryTrainer;
+import com.dump2plan.forecast.ScheduleSimulator;
+import com.dump2plan.forecast.WhatIfAnswers;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.stub.SyntheticPayloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The bundled session dictionary is trained from samples committed next to
+ * this test: rendered plans, schedule answers, clarifying questions and the
+ * prompt templates, one sample per {@link #SEPARATOR}-delimited part.
+ * Running {@link #main} regenerates the samples from the current code and
+ * templates and retrains the dictionary from them. A new dictionary cannot
+ * read frames written with the old one, so it ships under a new file name
+ * and session encoding version; {@code main} prints the id to put next to
+ * that version in {@code SessionCodec}.
+ */
+class SessionDictionaryTest {
+
+    static final Path SAMPLES = Path.of("src/test/resources/compression/session-samples.txt");
+    static final Path DICTIONARY = Path.of("src/main/resources/compression/session-v1.dict");
+    static final int DICTIONARY_BYTES = 8192;
+    private static final byte SEPARATOR = 0x1E;
+
+    @Test
+    void bundledDictionary_isTrainedFromTheCommittedSamples() throws IOException {
+        var samples = split(Files.readAllBytes(SAMPLES));
+
+        var trained = DictionaryTrainer.train(samples, DICTIONARY_BYTES);
+
+        assertArrayEquals(Files.readAllBytes(DICTIONARY), trained);
+    }
+
+    public static void main(String[] args) throws IOException {
+        var samples = generateSamples();
+        var joined = new ByteArrayOutputStream();
+        for (var sample : samples) {
+            joined.write(sample);
+            joined.write(SEPARATOR);
+        }
+        var dictionary = DictionaryTrainer.train(samples, DICTIONARY_BYTES);
+        Files.write(SAMPLES, joined.toByteArray());
+        Files.write(args.length > 0 ? Path.of(args[0]) : DICTIONARY, dictionary);
+        var id = new Adler32();
+        id.update(dictionary);
+        System.out.printf("%d samples, %d byte dictionary, id 0x%08x%n", samples.size(), dictionary.length,
+            id.getValue());
+    }
+
+    private static List<byte[]> generateSamples() throws IOException {
+        var samples = new ArrayList<byte[]>();
+        var export = new PlanExportService();
+        var properties = TestProperties.builder().schedule(new ScheduleConfig(500, 8, 1, 42)).build();
+        var whatIf = new WhatIfAnswers(new ScheduleSimulator(properties,
+            new PlannerMetrics(new SimpleMeterRegistry())), null);
+        for (int tasks = 5; tasks <= 60; tasks += 5) {
+            var plan = SyntheticPayloads.plan(tasks);
+            samples.add(utf8(export.exportToMarkdown(plan)));
+            for (var question : List.of("When will we be done?", "What if we add 2 more developers?",
+                "What if we had 1 developer?")) {
+                whatIf.answer(plan, SyntheticPayloads.context(), question, LocalDate.of(2026, 1, 5))
+                    .ifPresent(answer -> samples.add(utf8(answer)));
+            }
+            samples.add(utf8(String.join("\n", SyntheticPayloads.ideas(tasks).clarifyingQuestions())));
+        }
+        try (var files = Files.walk(Path.of("src/main/resources/prompts"))) {
+            for (var file : files.filter(Files::isRegularFile).sorted().toList()) {
+                samples.add(Files.readAllBytes(file));
+            }
+        }
+        return samples;
+    }
+
+    private static List<byte[]> split(byte[] joined) {
+        var samples = new ArrayList<byte[]>();
+        int start = 0;
+        for (int i = 0; i < joined.length; i++) {
+            if (joined[i] == SEPARATOR) {
+                samples.add(Arrays.copyOfRange(joined, start, i));
+                start = i + 1;
+            }
+        }
+        return samples;
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,165 @@
+package com.dump2plan;
+
+import com.dump2plan.model.Milestone;
+import com.dump2plan.model.Task;
+import com.dump2plan.service.PlanExportService;
+import com.dump2plan.streaming.PlanStreamListener;
+import com.dump2plan.streaming.PlanStreams;
+import com.dump2plan.streaming.StreamingPlanParser;
+import com.dump2plan.stub.SyntheticPayloads;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingPlanParserTest {
+
+    static class Recorder implements PlanStreamListener {
+        final List<Milestone> milestones = new ArrayList<>();
+        final List<Task> tasks = new ArrayList<>();
+        final List<String> invalid = new ArrayList<>();
+        int starts;
+        int ends;
+
+        @Override
+        public void onStart() {
+            starts++;
+        }
+
+        @Override
+        public void onMilestone(Milestone milestone) {
+            milestones.add(milestone);
+        }
+
+        @Override
+        public void onTask(Task task) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void onInvalid(String path, String reason) {
+            invalid.add(path + ": " + reason);
+        }
+
+        @Override
+        public void onEnd() {
+            ends++;
+        }
+    }
+
+    @Test
+    void emitsEachElementAsSoonAsItCompletes() {
+        var plan = SyntheticPayloads.plan(200);
+        var json = new PlanExportService().exportToJson(plan);
+        var recorder = new Recorder();
+        var parser = new StreamingPlanParser(recorder);
+
+        int firstTaskAt = -1;
+        for (int i = 0; i < json.length(); i += 7) {
+            parser.feed(json.substring(i, Math.min(json.length(), i + 7)));
+            if (firstTaskAt < 0 && !recorder.tasks.isEmpty()) {
+                firstTaskAt = i;
+            }
+        }
+
+        assertEquals(plan.milestones(), recorder.milestones);
+        assertEquals(plan.tasks(), recorder.tasks);
+        assertTrue(firstTaskAt > 0 && firstTaskAt < json.length() / 2, "first task before half the response");
+        assertEquals(List.of(), recorder.invalid);
+        assertEquals(1, recorder.starts);
+        assertEquals(1, recorder.ends);
+    }
+
+    @Test
+    void ignoresTextAroundTheJson() {
+        var recorder = new Recorder();
+        var parser = new StreamingPlanParser(recorder);
+
+        parser.feed("```json\n{\"title\": \"T\", \"milestones\": [{\"id\": \"m1\", \"name\": \"M\"}],");
+        parser.feed(" \"tasks\": []}\n```");
+
+        assertEquals(1, recorder.milestones.size());
+        assertEquals(1, recorder.ends);
+        assertEquals(List.of(), recorder.invalid);
+    }
+
+    @Test
+    void rejectsElementsViolatingTheSchema() {
+        var recorder = new Recorder();
+        var parser = new StreamingPlanParser(recorder);
+
+        parser.feed("""
+            {"milestones": [{"id": "m1", "name": "Build"}, {"id": "m1", "name": "Again"}],
+             "risks": [{"nested": {"id": "x"}}],
+             "tasks": [
+               {"id": "t1", "title": "Ok", "priority": "HIGH", "milestoneId": "m1"},
+               {"id": "t2", "priority": "HIGH", "milestoneId": "m1"},
+               {"id": "t3", "title": "Bad", "priority": "URGENT", "milestoneId": "m1"},
+               {"id": "t4", "title": "Lost", "priority": "LOW", "milestoneId": "m9"},
+               {"id": "t1", "title": "Dup", "priority": "LOW", "milestoneId": "m1"}
+             ]}
+            """);
+
+        assertEquals(1, recorder.milestones.size());
+        assertEquals(List.of("t1"), recorder.tasks.stream().map(Task::id).toList());
+        assertEquals(5, parser.rejected());
+        assertTrue(recorder.invalid.get(0).startsWith("milestones[1]: duplicate id"));
+        assertTrue(recorder.invalid.get(1).startsWith("tasks[1]: missing title"));
+        assertTrue(recorder.invalid.get(2).startsWith("tasks[2]"));
+        assertTrue(recorder.invalid.get(3).startsWith("tasks[3]: unknown milestone"));
+    }
+
+    @Test
+    void malformedJson_reportedOnceAndDropped() {
+        var recorder = new Recorder();
+        var parser = new StreamingPlanParser(recorder);
+
+        parser.feed("{\"milestones\": [{\"id\": \"m1\", \"name\": \"M\"}]] ");
+        parser.feed("{\"more\": 1}");
+
+        assertEquals(1, recorder.milestones.size());
+        assertEquals(1, recorder.invalid.size());
+        assertTrue(recorder.invalid.get(0).startsWith("$: "));
+    }
+
+    @Test
+    void planStreams_fanOutToSubscribersOfTheConversation() {
+        var streams = new PlanStreams();
+        var first = new Recorder();
+        var second = new Recorder();
+        var other = new Recorder();
+        var subscription = streams.subscribe("conversation-a", runId -> first);
+        streams.subscribe("conversation-a", runId -> second);
+        streams.subscribe("conversation-b", runId -> other);
+
+        var milestone = new Milestone("m1", "M", null, 0, List.of());
+        streams.listenerFor("conversation-a", "run-1").onMilestone(milestone);
+        subscription.close();
+        streams.listenerFor("conversation-a", "run-1").onMilestone(milestone);
+
+        assertEquals(1, first.milestones.size());
+        assertEquals(2, second.milestones.size());
+        assertTrue(other.milestones.isEmpty());
+        assertSame(PlanStreamListener.NONE, streams.listenerFor("conversation-c", "run-1"));
+        assertSame(PlanStreamListener.NONE, streams.listenerFor(null, "run-1"));
+    }
+
+    @Test
+    void planStreams_tellSubscribersWhichRunAFragmentBelongsTo() {
+        var streams = new PlanStreams();
+        var byRun = new LinkedHashMap<String, Recorder>();
+        streams.subscribe("conversation-a", runId -> byRun.computeIfAbsent(runId, id -> new Recorder()));
+
+        var first = streams.listenerFor("conversation-a", "run-1");
+        var second = streams.listenerFor("conversation-a", "run-2");
+        first.onMilestone(new Milestone("m1", "From run 1", null, 0, List.of()));
+        second.onMilestone(new Milestone("m1", "From run 2", null, 0, List.of()));
+        second.onMilestone(new Milestone("m2", "From run 2", null, 1, List.of()));
+
+        assertEquals(1, byRun.get("run-1").milestones.size());
+        assertEquals(2, byRun.get("run-2").milestones.size());
+    }
+}
@@ -0,0 +1,76 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.StubLlmConfig;
+import com.dump2plan.agent.PlannerPrompts;
+import com.dump2plan.model.ExtractedIdeas;
+import com.dump2plan.model.ProjectStructure;
+import com.dump2plan.model.StructuredPlan;
+import com.dump2plan.prompt.CacheablePrompt;
+import com.dump2plan.stub.StubLlmClient;
+import com.dump2plan.stub.StubLlmException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StubLlmClientTest {
+
+    private static final ActorConfig PLANNER = new ActorConfig("planner", "stub-model");
+
+    private static StubLlmClient client(double failureRate) {
+        return new StubLlmClient(new StubLlmConfig(
+            Duration.ofNanos(1000), Duration.ofNanos(5000), failureRate, 30, 7));
+    }
+
+    @Test
+    void extractedIdeas_derivedFromBrainDump() {
+        var prompt = PlannerPrompts.analyze("Build a login page. Add billing.\nWrite docs");
+        var ideas = client(0).createObject(null, PLANNER, prompt, ExtractedIdeas.class);
+
+        assertEquals(3, ideas.extractedActions().size());
+        assertTrue(ideas.extractedActions().contains("Add billing"));
+        assertFalse(ideas.clarifyingQuestions().isEmpty());
+    }
+
+    @Test
+    void planPayloads_haveConfiguredSizeAndValidReferences() {
+        var client = client(0);
+        var structure = client.createObject(null, PLANNER, new CacheablePrompt("structure", ""), ProjectStructure.class);
+        var plan = client.createObject(null, PLANNER, new CacheablePrompt("finalize", ""), StructuredPlan.class);
+
+        assertEquals(30, structure.tasks().size());
+        assertEquals(30, plan.tasks().size());
+        var taskIds = new HashSet<String>();
+        plan.tasks().forEach(t -> taskIds.add(t.id()));
+        plan.tasks().forEach(t -> assertTrue(taskIds.containsAll(t.dependsOn())));
+        plan.milestones().forEach(m -> assertTrue(taskIds.containsAll(m.taskIds())));
+        assertFalse(plan.risks().isEmpty());
+    }
+
+    @Test
+    void streamObject_deliversResponseInChunks() throws Exception {
+        var chunks = new ArrayList<String>();
+        var plan = client(0).streamObject(null, PLANNER, new CacheablePrompt("finalize", ""),
+            StructuredPlan.class, chunks::add);
+
+        assertTrue(chunks.size() > 10);
+        assertEquals(plan, new ObjectMapper().readValue(String.join("", chunks), StructuredPlan.class));
+    }
+
+    @Test
+    void failureRateOne_alwaysFails() {
+        assertThrows(StubLlmException.class,
+            () -> client(1).createObject(null, PLANNER, new CacheablePrompt("x", ""), StructuredPlan.class));
+    }
+
+    @Test
+    void unknownType_isRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> client(0).createObject(null, PLANNER, new CacheablePrompt("x", ""), String.class));
+    }
+}
@@ -1,10 +1,16 @@
 package com.dump2plan;
 
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.observability.PlannerMetrics;
+import com.dump2plan.prompt.PromptTemplateRegistry;
+import com.dump2plan.user.Dump2PlanUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -54,4 +60,76 @@ class TemplateRenderingTest {
         assertTrue(content.contains("objectives/"),
             "Personalization should include objective templates");
     }
+
+    @Test
+    void registry_rendersFullSystemPrompt() {
+        var properties = properties("planner");
+        var registry = new PromptTemplateRegistry(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+
+        var prompt = registry.render("dump2plan", "planner", "brain-dump-to-plan", model(properties, "Alice"));
+
+        assertTrue(prompt.contains("project planning assistant"), "guardrails");
+        assertTrue(prompt.contains("expert project planner"), "planner persona");
+        assertTrue(prompt.contains("comprehensive, structured project plan"), "objective");
+        assertTrue(prompt.strip().endsWith("The current user is Alice."), "user part last");
+        assertTrue(registry.templateNames().contains("elements/guardrails.jinja"));
+    }
+
+    @Test
+    void registry_staticPrefixExcludesUserAndIsShared() {
+        var properties = properties("planner");
+        var meters = new SimpleMeterRegistry();
+        var registry = new PromptTemplateRegistry(properties, new PlannerMetrics(meters));
+
+        var alice = registry.staticPrefix("dump2plan", "planner", "brain-dump-to-plan", model(properties, "Alice"));
+        var bob = registry.staticPrefix("dump2plan", "planner", "brain-dump-to-plan", model(properties, "Bob"));
+
+        assertSame(alice, bob);
+        assertFalse(alice.contains("current user"));
+        assertEquals("The current user is Bob.",
+            registry.renderDynamic("dump2plan", "planner", "brain-dump-to-plan", model(properties, "Bob")).strip());
+        assertEquals(3, meters.get(PlannerMetrics.CACHE_REQUESTS).tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void registry_cachesPerPersona() {
+        var properties = properties("reviewer");
+        var registry = new PromptTemplateRegistry(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+
+        var prompt = registry.render("dump2plan", "reviewer", "brain-dump-to-plan", model(properties, "Alice"));
+        assertTrue(prompt.contains("analytical plan reviewer"));
+        assertFalse(prompt.contains("expert project planner"));
+    }
+
+    @Test
+    void registry_rendersActorPersonaIndependentOfChatPersona() {
+        var properties = properties("planner");
+        var registry = new PromptTemplateRegistry(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+
+        var prefix = registry.staticPrefix("dump2plan", "analyzer", "brain-dump-to-plan",
+            Map.of("properties", properties));
+        assertTrue(prefix.contains("rapid idea extractor"));
+        assertFalse(prefix.contains("expert project planner"));
+    }
+
+    @Test
+    void registry_unknownTemplateFails() {
+        var properties = properties("planner");
+        var registry = new PromptTemplateRegistry(properties, new PlannerMetrics(new SimpleMeterRegistry()));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> registry.render("missing", "planner", "brain-dump-to-plan", model(properties, "Alice")));
+    }
+
+    private static Dump2PlanProperties properties(String persona) {
+        return TestProperties.builder()
+            .actors(TestProperties.actors(new ActorConfig(persona, "model")))
+            .persona(persona)
+            .build();
+    }
+
+    private static Map<String, Object> model(Dump2PlanProperties properties, String name) {
+        return Map.of("properties", properties,
+            "user", new Dump2PlanUser(name, name.toLowerCase(), "USER"));
+    }
 }
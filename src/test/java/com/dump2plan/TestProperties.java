@@ -0,0 +1,151 @@
+package com.dump2plan;
+
+import com.dump2plan.Dump2PlanProperties.ActorConfig;
+import com.dump2plan.Dump2PlanProperties.ActorsConfig;
+import com.dump2plan.Dump2PlanProperties.ChatConfig;
+import com.dump2plan.Dump2PlanProperties.CheckpointConfig;
+import com.dump2plan.Dump2PlanProperties.CostsConfig;
+import com.dump2plan.Dump2PlanProperties.DedupConfig;
+import com.dump2plan.Dump2PlanProperties.FailoverConfig;
+import com.dump2plan.Dump2PlanProperties.HistoryConfig;
+import com.dump2plan.Dump2PlanProperties.RacingConfig;
+import com.dump2plan.Dump2PlanProperties.ScheduleConfig;
+import com.dump2plan.Dump2PlanProperties.SchedulingConfig;
+import com.dump2plan.Dump2PlanProperties.SearchConfig;
+import com.dump2plan.Dump2PlanProperties.SemanticCacheConfig;
+import com.dump2plan.Dump2PlanProperties.SessionsConfig;
+import com.dump2plan.Dump2PlanProperties.StubLlmConfig;
+import com.dump2plan.Dump2PlanProperties.TracingConfig;
+import com.dump2plan.Dump2PlanProperties.UsersConfig;
+
+import java.util.Map;
+
+/**
+ * Builds {@link Dump2PlanProperties} for tests and benchmarks, so each sets
+ * only the sections it exercises. By default the chat and every actor use
+ * model {@code "model"} with the {@code planner} persona and the
+ * {@code brain-dump-to-plan} objective; every other section is
+ * {@code null} unless set.
+ */
+public final class TestProperties {
+
+    private ChatConfig chat = new ChatConfig("model", false, false, new HistoryConfig(6, 8000, Map.of()));
+    private ActorsConfig actors = actors(new ActorConfig("planner", "model"));
+    private String persona = "planner";
+    private String objective = "brain-dump-to-plan";
+    private UsersConfig users;
+    private SchedulingConfig scheduling;
+    private TracingConfig tracing;
+    private StubLlmConfig stubLlm;
+    private SemanticCacheConfig semanticCache;
+    private DedupConfig dedup;
+    private CheckpointConfig checkpoint;
+    private SessionsConfig sessions;
+    private CostsConfig costs;
+    private ScheduleConfig schedule;
+    private SearchConfig search;
+    private RacingConfig racing;
+    private FailoverConfig failover;
+
+    private TestProperties() {
+    }
+
+    public static TestProperties builder() {
+        return new TestProperties();
+    }
+
+    /** The same actor for the analyzer, planner and reviewer. */
+    public static ActorsConfig actors(ActorConfig actor) {
+        return new ActorsConfig(actor, actor, actor);
+    }
+
+    public TestProperties chat(ChatConfig chat) {
+        this.chat = chat;
+        return this;
+    }
+
+    public TestProperties actors(ActorsConfig actors) {
+        this.actors = actors;
+        return this;
+    }
+
+    public TestProperties persona(String persona) {
+        this.persona = persona;
+        return this;
+    }
+
+    public TestProperties objective(String objective) {
+        this.objective = objective;
+        return this;
+    }
+
+    public TestProperties users(UsersConfig users) {
+        this.users = users;
+        return this;
+    }
+
+    public TestProperties scheduling(SchedulingConfig scheduling) {
+        this.scheduling = scheduling;
+        return this;
+    }
+
+    public TestProperties tracing(TracingConfig tracing) {
+        this.tracing = tracing;
+        return this;
+    }
+
+    public TestProperties stubLlm(StubLlmConfig stubLlm) {
+        this.stubLlm = stubLlm;
+        return this;
+    }
+
+    public TestProperties semanticCache(SemanticCacheConfig semanticCache) {
+        this.semanticCache = semanticCache;
+        return this;
+    }
+
+    public TestProperties dedup(DedupConfig dedup) {
+        this.dedup = dedup;
+        return this;
+    }
+
+    public TestProperties checkpoint(CheckpointConfig checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    public TestProperties sessions(SessionsConfig sessions) {
+        this.sessions = sessions;
+        return this;
+    }
+
+    public TestProperties costs(CostsConfig costs) {
+        this.costs = costs;
+        return this;
+    }
+
+    public TestProperties schedule(ScheduleConfig schedule) {
+        this.schedule = schedule;
+        return this;
+    }
+
+    public TestProperties search(SearchConfig search) {
+        this.search = search;
+        return this;
+    }
+
+    public TestProperties racing(RacingConfig racing) {
+        this.racing = racing;
+        return this;
+    }
+
+    public TestProperties failover(FailoverConfig failover) {
+        this.failover = failover;
+        return this;
+    }
+
+    public Dump2PlanProperties build() {
+        return new Dump2PlanProperties(chat, actors, persona, objective, users, scheduling, tracing, stubLlm,
+            semanticCache, dedup, checkpoint, sessions, costs, schedule, search, racing, failover);
+    }
+}